@@ -187,7 +187,7 @@ public class BendStore {
 			
 			fireViewChangeEvent(mutableEdgeView, bend);
 			
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 			return new HandleInfo(edge, bend, handle);
 		}
 		
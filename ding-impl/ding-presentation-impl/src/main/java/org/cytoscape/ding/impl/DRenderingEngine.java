@@ -134,6 +134,8 @@ public class DRenderingEngine implements RenderingEngine<CyNetwork>, Printable,
 	
 	//Flag that indicates that the content has changed and the graph needs to be redrawn.
 	private volatile boolean contentChanged = true;
+	// Counts the content changes that are not in the view model snapshot, see getContentVersion()
+	private volatile int contentVersion;
 
 	private final List<ContentChangeListener> contentChangeListeners = new CopyOnWriteArrayList<>();
 	private final List<ThumbnailChangeListener> thumbnailChangeListeners = new CopyOnWriteArrayList<>();
@@ -379,6 +381,24 @@ public class DRenderingEngine implements RenderingEngine<CyNetwork>, Printable,
 		setContentChanged(true);
 	}
 	
+	/**
+	 * Like {@link #setContentChanged()}, for changes that are not in the view model snapshot, like the
+	 * edge handles or the annotations, so that everything is painted again.
+	 */
+	public void setContentChangedOutsideViewModel() {
+		contentVersion++;
+		setContentChanged(true);
+	}
+	
+	/**
+	 * Returns a number that changes every time the content is changed by something other than the
+	 * view model, see {@link #setContentChangedOutsideViewModel()}. Changes of the view model give a new
+	 * snapshot instead.
+	 */
+	public int getContentVersion() {
+		return contentVersion;
+	}
+	
 	private void setContentChanged(boolean b) {
 		contentChanged = b;
 	}
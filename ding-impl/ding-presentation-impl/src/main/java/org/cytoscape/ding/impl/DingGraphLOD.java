@@ -46,6 +46,7 @@ public class DingGraphLOD implements GraphLOD, PropertyUpdatedListener {
 	protected int nodeLabelThreshold;
 	protected int edgeArrowThreshold;
 	protected int edgeLabelThreshold;
+	protected int densityRasterThreshold;
 
 	private final Properties props;
 	private final CyProperty<Properties> cyProp;
@@ -71,6 +72,7 @@ public class DingGraphLOD implements GraphLOD, PropertyUpdatedListener {
 		this.nodeLabelThreshold = source.nodeLabelThreshold;
 		this.edgeArrowThreshold = source.edgeArrowThreshold;
 		this.edgeLabelThreshold = source.edgeLabelThreshold;
+		this.densityRasterThreshold = source.densityRasterThreshold;
 	}
 
 	private void init() {
@@ -79,6 +81,7 @@ public class DingGraphLOD implements GraphLOD, PropertyUpdatedListener {
 		nodeLabelThreshold = parseInt(props.getProperty("render.nodeLabelThreshold"), 200);
 		edgeArrowThreshold = parseInt(props.getProperty("render.edgeArrowThreshold"), 600);
 		edgeLabelThreshold = parseInt(props.getProperty("render.edgeLabelThreshold"), 200);
+		densityRasterThreshold = parseInt(props.getProperty("render.densityRasterThreshold"), 500000);
 	}
 
 	private static int parseInt(String intString, int defaultValue) {
@@ -134,6 +137,10 @@ public class DingGraphLOD implements GraphLOD, PropertyUpdatedListener {
 				return DingGraphLOD.this.textAsShape(renderNodeCount, renderEdgeCount);
 			}
 			@Override
+			public boolean densityRaster(int renderNodeCount, int renderEdgeCount) {
+				return DingGraphLOD.this.densityRaster(renderNodeCount, renderEdgeCount);
+			}
+			@Override
 			public double getNestedNetworkImageScaleFactor() {
 				return DingGraphLOD.this.getNestedNetworkImageScaleFactor();
 			}
@@ -429,6 +436,27 @@ public class DingGraphLOD implements GraphLOD, PropertyUpdatedListener {
 		return true;
 	}
 
+	/**
+	 * Determines whether or not to render the nodes and edges as a heat image
+	 * of their density. This method returns true if and only if the sum of
+	 * rendered nodes and rendered edges is at least the
+	 * render.densityRasterThreshold property, zero or less turns it off.
+	 * <p>
+	 * The density image is only rendered at the low detail level. If full
+	 * detail is chosen, the output of this method is ignored.
+	 * 
+	 * @param renderNodeCount
+	 *            the number of nodes that are about to be rendered.
+	 * @param renderEdgeCount
+	 *            the number of edges that are about to be rendered.
+	 * @return true if and only if the density image is to be rendered.
+	 * @see #detail(int, int)
+	 */
+	@Override
+	public boolean densityRaster(final int renderNodeCount, final int renderEdgeCount) {
+		return densityRasterThreshold > 0 && (long) renderNodeCount + renderEdgeCount >= densityRasterThreshold;
+	}
+
 	@Override
 	public double getNestedNetworkImageScaleFactor() {
 		final String scaleFactor = props.getProperty("nestedNetwork.imageScaleFactor", "1.0");
@@ -0,0 +1,491 @@
+package org.cytoscape.ding.impl;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cytoscape.graph.render.immed.EdgeAnchors;
+import org.cytoscape.graph.render.stateful.EdgeDetails;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.util.intr.LongHash;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.spacial.SpacialIndex2DEnumerator;
+import org.cytoscape.view.presentation.property.values.Bend;
+import org.cytoscape.view.presentation.property.values.Handle;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A uniform grid over the geometry of all the edges of a snapshot, so that the edges under a
+ * point or in a rectangle can be found without going through the edges of every visible node.
+ * <br>
+ * Each edge is indexed as the line from the center of its source node to the center of its target node,
+ * plus the handles of its bend, padded by its width and arrow sizes. An edge with anchors is curved
+ * around each anchor, within the triangle of the anchor and the points before and after it, so it is also
+ * indexed as the bounds of each of those corners. The index returns every edge that may be in an area,
+ * which the caller then tests exactly. The straight line is how an edge with anchors is tested at low
+ * detail and by the lasso. Long segments are cut into pieces about the size of a cell, so that a long
+ * diagonal edge is only in the cells along it.
+ * <br>
+ * The index is immutable, it is built for one snapshot and a new one is built for the next, so it can be
+ * built on another thread and then used on the EDT. The index of the next snapshot can also be updated from
+ * the index of an earlier one: the grid is kept and only the edges that the view model reports as changed,
+ * or that touch a changed node, are indexed again on the side. Once too many edges have changed the whole
+ * index has to be built again.
+ */
+final class EdgeSpacialIndex {
+
+	/** Aim for about this many segments per cell. */
+	private static final int SEGMENTS_PER_CELL = 4;
+	private static final int MAX_CELLS_PER_SIDE = 1024;
+	/** An index is only updated while fewer than one in this many of its edges have changed. */
+	private static final int MAX_CHANGED_FRACTION = 8;
+
+	private final CyNetworkViewSnapshot snapshot;
+
+	/** The edges, in the order that they are rendered when all the edges are rendered. */
+	private final Object[] edges;
+
+	private final float xMin;
+	private final float yMin;
+	private final float cellSize;
+	private final int cols;
+	private final int rows;
+
+	/** The edge indices in each cell: cellEdges[cellStart[c] .. cellStart[c+1]) */
+	private final int[] cellStart;
+	private final int[] cellEdges;
+
+	/** The SUIDs of the edges that changed since the grid was built, null if the grid is for this snapshot */
+	private final LongHash changed;
+	/** The index of the changed edges that are still in the snapshot */
+	private final EdgeSpacialIndex changes;
+
+	private EdgeSpacialIndex(CyNetworkViewSnapshot snapshot, Object[] edges, float xMin, float yMin, float cellSize,
+			int cols, int rows, int[] cellStart, int[] cellEdges) {
+		this(snapshot, edges, xMin, yMin, cellSize, cols, rows, cellStart, cellEdges, null, null);
+	}
+
+	private EdgeSpacialIndex(CyNetworkViewSnapshot snapshot, Object[] edges, float xMin, float yMin, float cellSize,
+			int cols, int rows, int[] cellStart, int[] cellEdges, LongHash changed, EdgeSpacialIndex changes) {
+		this.snapshot = snapshot;
+		this.edges = edges;
+		this.xMin = xMin;
+		this.yMin = yMin;
+		this.cellSize = cellSize;
+		this.cols = cols;
+		this.rows = rows;
+		this.cellStart = cellStart;
+		this.cellEdges = cellEdges;
+		this.changed = changed;
+		this.changes = changes;
+	}
+
+	public CyNetworkViewSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the edges that may intersect the rectangle, in node coordinates, in rendering order,
+	 * except that the edges that changed since the whole index was built come last
+	 */
+	public List<View<CyEdge>> query(float qxMin, float qyMin, float qxMax, float qyMax) {
+		// Every edge is within the grid, the cells on its border would otherwise take in the area beyond it
+		if (edges.length == 0 || qxMax < xMin || qyMax < yMin || qxMin > xMin + cols * cellSize || qyMin > yMin + rows * cellSize)
+			return changes == null ? new ArrayList<>(0) : changes.query(qxMin, qyMin, qxMax, qyMax);
+
+		final int col0 = col(qxMin);
+		final int col1 = col(qxMax);
+		final int row0 = row(qyMin);
+		final int row1 = row(qyMax);
+
+		final LongHash seen = new LongHash();
+		int[] hits = new int[16];
+		int hitCount = 0;
+
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				final int cell = row * cols + col;
+
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					final int edge = cellEdges[k];
+
+					if (seen.put(edge) >= 0)
+						continue;
+					if (hitCount == hits.length)
+						hits = Arrays.copyOf(hits, 2 * hitCount);
+
+					hits[hitCount++] = edge;
+				}
+			}
+		}
+
+		Arrays.sort(hits, 0, hitCount);
+		final List<View<CyEdge>> result = new ArrayList<>(hitCount);
+
+		for (int i = 0; i < hitCount; i++) {
+			final View<CyEdge> edge = edge(hits[i]);
+
+			if (changed == null) {
+				result.add(edge);
+			} else if (changed.get(edge.getSUID()) < 0) {
+				// The grid is from an earlier snapshot, the edge is the same in this one
+				final View<CyEdge> view = snapshot.getEdgeView(edge.getSUID());
+
+				if (view != null)
+					result.add(view);
+			}
+		}
+
+		if (changes != null)
+			result.addAll(changes.query(qxMin, qyMin, qxMax, qyMax));
+
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private View<CyEdge> edge(int i) {
+		return (View<CyEdge>) edges[i];
+	}
+
+	private int col(float x) {
+		return Math.max(0, Math.min(cols - 1, (int) Math.floor((x - xMin) / cellSize)));
+	}
+
+	private int row(float y) {
+		return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - yMin) / cellSize)));
+	}
+
+	/**
+	 * Indexes all the edges of the snapshot.
+	 */
+	public static EdgeSpacialIndex build(CyNetworkViewSnapshot snapshot, EdgeDetails edgeDetails) {
+		final Segments segments = new Segments();
+		final List<Object> edges = new ArrayList<>();
+		final LongHash processedNodes = new LongHash();
+		final float[] extents = new float[4];
+		final float[] otherExtents = new float[4];
+		final float[] anchorBuff = new float[2];
+
+		final SpacialIndex2DEnumerator<Long> nodeHits = snapshot.getSpacialIndex2D().queryAll();
+
+		while (nodeHits.hasNext()) {
+			final long node = nodeHits.nextExtents(extents);
+			final float nodeX = (extents[0] + extents[2]) / 2;
+			final float nodeY = (extents[1] + extents[3]) / 2;
+
+			for (View<CyEdge> edge : snapshot.getAdjacentEdgeIterable(node)) {
+				final SnapshotEdgeInfo edgeInfo = snapshot.getEdgeInfo(edge);
+				final long otherNode = node ^ edgeInfo.getSourceViewSUID() ^ edgeInfo.getTargetViewSUID();
+
+				if (processedNodes.get(otherNode) >= 0 || !snapshot.getSpacialIndex2D().get(otherNode, otherExtents))
+					continue;
+
+				final float otherX = (otherExtents[0] + otherExtents[2]) / 2;
+				final float otherY = (otherExtents[1] + otherExtents[3]) / 2;
+
+				// The anchors go from the source to the target
+				if (node == edgeInfo.getSourceViewSUID())
+					addEdge(segments, edges, snapshot, edge, edgeDetails, nodeX, nodeY, otherX, otherY, anchorBuff);
+				else
+					addEdge(segments, edges, snapshot, edge, edgeDetails, otherX, otherY, nodeX, nodeY, anchorBuff);
+			}
+
+			processedNodes.put(node);
+		}
+
+		return segments.toIndex(snapshot, edges.toArray());
+	}
+
+	/**
+	 * Indexes the changes since the snapshot of the given index, or returns null if the view model no longer
+	 * knows what changed or if too many edges have changed, then the whole index has to be built again.
+	 */
+	public static EdgeSpacialIndex update(EdgeSpacialIndex index, CyNetworkViewSnapshot snapshot, EdgeDetails edgeDetails) {
+		final CyNetworkViewSnapshot since = index.snapshot;
+
+		if (since == snapshot)
+			return index;
+		if (!snapshot.isTrackedNodeKey(since) || !snapshot.isTrackedEdgeKey(since))
+			return null;
+
+		final int maxChanged = Math.max(1, index.edges.length / MAX_CHANGED_FRACTION);
+		final LongHash changed = new LongHash();
+
+		if (index.changed != null) {
+			for (var it = index.changed.elements(); it.numRemaining() > 0;)
+				changed.put(it.nextLong());
+		}
+
+		// The anchors of parallel edges depend on how many there are, in both snapshots in case they are gone now
+		for (View<CyEdge> edge : snapshot.getTrackedEdges(since)) {
+			changed.put(edge.getSUID());
+
+			for (var s : Arrays.asList(since, snapshot)) {
+				final View<CyEdge> view = s.getEdgeView(edge.getSUID());
+
+				if (view == null)
+					continue;
+
+				final SnapshotEdgeInfo edgeInfo = s.getEdgeInfo(view);
+				final long source = edgeInfo.getSourceViewSUID();
+
+				for (View<CyEdge> sibling : s.getAdjacentEdgeIterable(source)) {
+					final SnapshotEdgeInfo siblingInfo = s.getEdgeInfo(sibling);
+
+					if ((source ^ siblingInfo.getSourceViewSUID() ^ siblingInfo.getTargetViewSUID()) == edgeInfo.getTargetViewSUID())
+						changed.put(sibling.getSUID());
+				}
+			}
+
+			if (changed.size() > maxChanged)
+				return null;
+		}
+
+		// The edges of a node are drawn from its center
+		for (View<CyNode> node : snapshot.getTrackedNodes(since)) {
+			for (var s : Arrays.asList(since, snapshot)) {
+				for (View<CyEdge> edge : s.getAdjacentEdgeIterable(node.getSUID()))
+					changed.put(edge.getSUID());
+			}
+
+			if (changed.size() > maxChanged)
+				return null;
+		}
+
+		final Segments segments = new Segments();
+		final List<Object> edges = new ArrayList<>(changed.size());
+		final float[] srcExtents = new float[4];
+		final float[] trgExtents = new float[4];
+		final float[] anchorBuff = new float[2];
+
+		for (var it = changed.elements(); it.numRemaining() > 0;) {
+			final View<CyEdge> edge = snapshot.getEdgeView(it.nextLong());
+
+			if (edge == null)
+				continue;
+
+			final SnapshotEdgeInfo edgeInfo = snapshot.getEdgeInfo(edge);
+
+			if (!snapshot.getSpacialIndex2D().get(edgeInfo.getSourceViewSUID(), srcExtents)
+					|| !snapshot.getSpacialIndex2D().get(edgeInfo.getTargetViewSUID(), trgExtents))
+				continue;
+
+			addEdge(segments, edges, snapshot, edge, edgeDetails, (srcExtents[0] + srcExtents[2]) / 2,
+					(srcExtents[1] + srcExtents[3]) / 2, (trgExtents[0] + trgExtents[2]) / 2,
+					(trgExtents[1] + trgExtents[3]) / 2, anchorBuff);
+		}
+
+		return new EdgeSpacialIndex(snapshot, index.edges, index.xMin, index.yMin, index.cellSize, index.cols,
+				index.rows, index.cellStart, index.cellEdges, changed, segments.toIndex(snapshot, edges.toArray()));
+	}
+
+	/**
+	 * Adds the segments of the edge from (x0, y0) at its source to (x1, y1) at its target.
+	 */
+	private static void addEdge(Segments segments, List<Object> edges, CyNetworkViewSnapshot snapshot,
+			View<CyEdge> edge, EdgeDetails edgeDetails, float x0, float y0, float x1, float y1, float[] anchorBuff) {
+		final int index = edges.size();
+		edges.add(edge);
+
+		final float pad = edgeDetails.getWidth(edge) / 2
+				+ Math.max(edgeDetails.getSourceArrowSize(edge), edgeDetails.getTargetArrowSize(edge));
+
+		segments.add(index, x0, y0, x1, y1, pad);
+
+		final EdgeAnchors anchors = edgeDetails.getAnchors(snapshot, edge);
+		final int anchorCount = anchors == null ? 0 : anchors.numAnchors();
+
+		// The curve around each anchor starts and ends on the lines to the points before and after it
+		for (int k = 0; k < anchorCount; k++) {
+			anchors.getAnchor(k, anchorBuff);
+			final float ax = anchorBuff[0];
+			final float ay = anchorBuff[1];
+			final float bx, by;
+
+			if (k + 1 < anchorCount) {
+				anchors.getAnchor(k + 1, anchorBuff);
+				bx = anchorBuff[0];
+				by = anchorBuff[1];
+			} else {
+				bx = x1;
+				by = y1;
+			}
+
+			segments.addArea(index, Math.min(ax, Math.min(x0, bx)), Math.min(ay, Math.min(y0, by)),
+					Math.max(ax, Math.max(x0, bx)), Math.max(ay, Math.max(y0, by)), pad);
+			x0 = ax;
+			y0 = ay;
+		}
+
+		final Bend bend = edgeDetails.getBend(edge);
+		final List<Handle> handles = bend == null ? null : bend.getAllHandles();
+
+		if (handles != null) {
+			for (Handle handle : handles) {
+				final Point2D p = handle.calculateHandleLocation(snapshot, edge);
+				final float x = (float) p.getX();
+				final float y = (float) p.getY();
+				segments.add(index, x, y, x, y, Math.max(pad, DEdgeDetails.HANDLE_SIZE));
+			}
+		}
+	}
+
+	/**
+	 * The segments and areas of the edges and how much they are padded, before they are put in the cells.
+	 */
+	private static final class Segments {
+		int[] edge = new int[64];
+		/** x0, y0, x1, y1 of every segment, or xMin, yMin, xMax, yMax of every area */
+		float[] points = new float[4 * 64];
+		float[] pad = new float[64];
+		boolean[] area = new boolean[64];
+		int size;
+
+		float xMin = Float.POSITIVE_INFINITY;
+		float yMin = Float.POSITIVE_INFINITY;
+		float xMax = Float.NEGATIVE_INFINITY;
+		float yMax = Float.NEGATIVE_INFINITY;
+		double totalLength;
+
+		void add(int index, float x0, float y0, float x1, float y1, float p) {
+			add(index, x0, y0, x1, y1, p, false);
+		}
+
+		/**
+		 * Adds a rectangle that is put in every cell that it overlaps, rather than only in the cells along
+		 * its diagonal.
+		 */
+		void addArea(int index, float xMin, float yMin, float xMax, float yMax, float p) {
+			add(index, xMin, yMin, xMax, yMax, p, true);
+		}
+
+		private void add(int index, float x0, float y0, float x1, float y1, float p, boolean isArea) {
+			if (size == edge.length) {
+				edge = Arrays.copyOf(edge, 2 * size);
+				points = Arrays.copyOf(points, 8 * size);
+				pad = Arrays.copyOf(pad, 2 * size);
+				area = Arrays.copyOf(area, 2 * size);
+			}
+
+			edge[size] = index;
+			points[4 * size] = x0;
+			points[4 * size + 1] = y0;
+			points[4 * size + 2] = x1;
+			points[4 * size + 3] = y1;
+			pad[size] = p;
+			area[size] = isArea;
+			size++;
+
+			xMin = Math.min(xMin, Math.min(x0, x1) - p);
+			yMin = Math.min(yMin, Math.min(y0, y1) - p);
+			xMax = Math.max(xMax, Math.max(x0, x1) + p);
+			yMax = Math.max(yMax, Math.max(y0, y1) + p);
+			totalLength += Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0)) + 2 * p;
+		}
+
+		EdgeSpacialIndex toIndex(CyNetworkViewSnapshot snapshot, Object[] edges) {
+			if (size == 0)
+				return new EdgeSpacialIndex(snapshot, edges, 0, 0, 1, 1, 1, new int[2], new int[0]);
+
+			// Cells about as big as the average segment, but not so many that the grid gets too big
+			final float width = Math.max(xMax - xMin, 1e-3f);
+			final float height = Math.max(yMax - yMin, 1e-3f);
+			final double averageLength = Math.max(totalLength / size, 1e-3);
+			final double minCellSize = Math.max(width, height) / MAX_CELLS_PER_SIDE;
+			final double densityCellSize = Math.sqrt((double) width * height * SEGMENTS_PER_CELL / size);
+			final float cellSize = (float) Math.max(minCellSize, Math.min(averageLength, densityCellSize));
+			final int cols = Math.max(1, (int) Math.ceil(width / cellSize));
+			final int rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+			// Counted, then filled, so that each cell is a slice of one array
+			final int[] cellStart = new int[cols * rows + 1];
+			forEachCell(cellStart, null, cols, rows, cellSize);
+
+			for (int c = 0; c < cols * rows; c++)
+				cellStart[c + 1] += cellStart[c];
+
+			final int[] cellEdges = new int[cellStart[cols * rows]];
+			final int[] fill = Arrays.copyOf(cellStart, cellStart.length);
+			forEachCell(fill, cellEdges, cols, rows, cellSize);
+
+			return new EdgeSpacialIndex(snapshot, edges, xMin, yMin, cellSize, cols, rows, cellStart, cellEdges);
+		}
+
+		/**
+		 * Counts the segments in each cell into counts[cell + 1] if cellEdges is null, otherwise puts the
+		 * edge of each segment at cellEdges[counts[cell]++].
+		 */
+		private void forEachCell(int[] counts, int[] cellEdges, int cols, int rows, float cellSize) {
+			for (int s = 0; s < size; s++) {
+				final float x0 = points[4 * s];
+				final float y0 = points[4 * s + 1];
+				final float dx = points[4 * s + 2] - x0;
+				final float dy = points[4 * s + 3] - y0;
+				final float p = pad[s];
+				// An area is one piece, all of its cells
+				final int pieces = area[s] ? 1 : Math.max(1, (int) Math.ceil(Math.max(Math.abs(dx), Math.abs(dy)) / cellSize));
+				int lastCell = -1;
+
+				for (int i = 0; i < pieces; i++) {
+					final float ax = x0 + dx * i / pieces;
+					final float ay = y0 + dy * i / pieces;
+					final float bx = x0 + dx * (i + 1) / pieces;
+					final float by = y0 + dy * (i + 1) / pieces;
+
+					final int col0 = cell(Math.min(ax, bx) - p - xMin, cellSize, cols);
+					final int col1 = cell(Math.max(ax, bx) + p - xMin, cellSize, cols);
+					final int row0 = cell(Math.min(ay, by) - p - yMin, cellSize, rows);
+					final int row1 = cell(Math.max(ay, by) + p - yMin, cellSize, rows);
+
+					for (int row = row0; row <= row1; row++) {
+						for (int col = col0; col <= col1; col++) {
+							final int cell = row * cols + col;
+
+							// Consecutive pieces overlap, the query removes the other duplicates
+							if (cell == lastCell)
+								continue;
+
+							if (cellEdges == null)
+								counts[cell + 1]++;
+							else
+								cellEdges[counts[cell]++] = edge[s];
+						}
+					}
+
+					lastCell = row1 * cols + col1;
+				}
+			}
+		}
+
+		private static int cell(float offset, float cellSize, int count) {
+			return Math.max(0, Math.min(count - 1, (int) Math.floor(offset / cellSize)));
+		}
+	}
+}
@@ -971,7 +971,7 @@ public class InputHandlerGlassPane extends JComponent implements CyDisposable {
 					re.getBendStore().selectHandle(chosenAnchor);
 				}
 			}
-			re.setContentChanged();	
+			re.setContentChangedOutsideViewModel();	
 		}
 		
 		
@@ -988,6 +988,7 @@ public class InputHandlerGlassPane extends JComponent implements CyDisposable {
 					HandleInfo hit = re.getPicker().getHandleAt(e.getPoint());
 					if(hit != null) {
 						re.getBendStore().selectHandle(hit);
+						re.setContentChangedOutsideViewModel();
 					}
 				}
 			}
@@ -1194,7 +1195,10 @@ public class InputHandlerGlassPane extends JComponent implements CyDisposable {
 			    }
 			}
 			
-			if (!selectedNodes.isEmpty() || re.getBendStore().areHandlesSelected()) {
+			// The moved handles are changed in place, the moved nodes are in the next snapshot
+			if (re.getBendStore().areHandlesSelected()) {
+				re.setContentChangedOutsideViewModel();
+			} else if (!selectedNodes.isEmpty()) {
 				re.setContentChanged();
 			}
 		}
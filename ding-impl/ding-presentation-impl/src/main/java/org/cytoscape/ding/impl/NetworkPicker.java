@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.cytoscape.ding.DVisualLexicon;
 import org.cytoscape.ding.impl.cyannotator.annotations.DingAnnotation;
@@ -28,6 +29,7 @@ import org.cytoscape.graph.render.immed.EdgeAnchors;
 import org.cytoscape.graph.render.immed.GraphGraphics;
 import org.cytoscape.graph.render.stateful.EdgeDetails;
 import org.cytoscape.graph.render.stateful.GraphRenderer;
+import org.cytoscape.graph.render.stateful.MeasuredLineCache;
 import org.cytoscape.graph.render.stateful.MeasuredLineCreator;
 import org.cytoscape.graph.render.stateful.NodeDetails;
 import org.cytoscape.graph.render.stateful.RenderDetailFlags;
@@ -59,6 +61,17 @@ public class NetworkPicker {
 	
 	private RenderDetailFlags renderDetailFlags;
 	
+	public static final String EDGE_INDEX_MIN_EDGES_PROPERTY = "dingEdgeIndexMinEdges";
+	
+	/** Networks with fewer edges than this are picked from the edges of the visible nodes, without an index. */
+	private static final int EDGE_INDEX_MIN_EDGES = Integer.getInteger(EDGE_INDEX_MIN_EDGES_PROPERTY, 5000);
+	
+	// The last index of the edges that is ready, and the one that is being built or updated on the common pool
+	private EdgeSpacialIndex edgeIndex;
+	private CompletableFuture<EdgeSpacialIndex> nextEdgeIndex;
+	// The last snapshot that was picked from
+	private CyNetworkViewSnapshot pickedSnapshot;
+	
 	public NetworkPicker(DRenderingEngine re, RenderDetailFlags renderDetailFlags) {
 		this.re = re;
 		this.nodeDetails = re.getNodeDetails();
@@ -81,6 +94,43 @@ public class NetworkPicker {
 	private boolean treatNodeShapesAsRectangle() {
 		return renderDetailFlags.treatNodeShapesAsRectangle();
 	}
+	
+	/**
+	 * Returns the index of the edges of the snapshot, or null to pick from the edges of the visible nodes,
+	 * if the network is small or the index is not ready yet.
+	 * <br>
+	 * The index is made in the background, so that picking does not hold up the EDT, one at a time. When the
+	 * snapshot changes the last index is updated with the edges that changed since. The whole index is only
+	 * built again when that is not possible and the snapshot has stopped changing, that is when it is picked
+	 * from a second time, so that it is not built again for every frame of an animation or a layout.
+	 */
+	private EdgeSpacialIndex getEdgeIndex(CyNetworkViewSnapshot snapshot) {
+		if(snapshot.getEdgeCount() < EDGE_INDEX_MIN_EDGES)
+			return null;
+		
+		var next = nextEdgeIndex;
+		if(next != null) {
+			if(!next.isDone())
+				return null;
+			if(!next.isCompletedExceptionally() && next.join() != null)
+				edgeIndex = next.join();
+			nextEdgeIndex = null;
+		}
+		
+		var index = edgeIndex;
+		var previous = pickedSnapshot;
+		pickedSnapshot = snapshot;
+		
+		if(index != null && index.getSnapshot() == snapshot)
+			return index;
+		
+		if(index != null && previous != snapshot)
+			nextEdgeIndex = CompletableFuture.supplyAsync(() -> EdgeSpacialIndex.update(index, snapshot, edgeDetails));
+		else if(previous == snapshot && (next == null || !next.isCompletedExceptionally()))
+			nextEdgeIndex = CompletableFuture.supplyAsync(() -> EdgeSpacialIndex.build(snapshot, edgeDetails));
+		
+		return null;
+	}
 
 	/**
 	 * utility that returns the nodeView that is located at input point
@@ -160,7 +210,7 @@ public class NetworkPicker {
 			Font   font = nodeDetails.getLabelFont(nodeView);
 			double labelWidth = nodeDetails.getLabelWidth(nodeView);
 			
-			MeasuredLineCreator mlCreator = new MeasuredLineCreator(labelText, font,  new FontRenderContext(null,true,true), 1.0, true, labelWidth);
+			MeasuredLineCreator mlCreator = MeasuredLineCache.get(labelText, font,  new FontRenderContext(null,true,true), 1.0, true, labelWidth);
 			
 			double h = mlCreator.getTotalHeight();  // actual label text box height
 			double w =  mlCreator.getMaxLineWidth();  // actual label text box width. 
@@ -248,11 +298,25 @@ public class NetworkPicker {
 		
 		CyNetworkViewSnapshot snapshot = re.getViewModelSnapshot();
 		EdgeDetails edgeDetails = re.getEdgeDetails();
+		List<HandleInfo> resultHandles = maxCount == 1 ? new ArrayList<>(1) : new ArrayList<>();
+		
+		EdgeSpacialIndex index = getEdgeIndex(snapshot);
+		if(index != null) {
+			var size = DEdgeDetails.HANDLE_SIZE;
+			var edges = index.query(
+					(float)(selectionArea.getMinX() - size), (float)(selectionArea.getMinY() - size),
+					(float)(selectionArea.getMaxX() + size), (float)(selectionArea.getMaxY() + size));
+			for(View<CyEdge> e : edges) {
+				if(edgeDetails.isSelected(e) && addHandles(snapshot, edgeDetails, e, selectionArea, maxCount, resultHandles)) {
+					return resultHandles;
+				}
+			}
+			return resultHandles;
+		}
 		
 		Rectangle2D.Float area = re.getTransform().getNetworkVisibleAreaNodeCoords();
 		SpacialIndex2DEnumerator<Long> nodeHits = snapshot.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height);
 		
-		List<HandleInfo> resultHandles = maxCount == 1 ? new ArrayList<>(1) : new ArrayList<>();
 		Set<Long> processedNodes = new HashSet<>();
 		while(nodeHits.hasNext()) {
 			long node = nodeHits.next();
@@ -264,21 +328,8 @@ public class NetworkPicker {
 					long otherNode = node ^ edgeInfo.getSourceViewSUID() ^ edgeInfo.getTargetViewSUID();
 					
 					if(!processedNodes.contains(otherNode)) {
-						Bend bend = edgeDetails.getBend(e);
-						if(bend != null) {
-							List<Handle> handles = bend.getAllHandles();
-							if(handles != null) {
-								for(Handle handle : handles) {
-									Point2D p = handle.calculateHandleLocation(snapshot, e);
-									var size = DEdgeDetails.HANDLE_SIZE;
-									if(selectionArea.intersects(p.getX()-(size/2), p.getY()-(size/2), size, size)) {
-										resultHandles.add(new HandleInfo(e, bend, handle));
-										if(maxCount > 0 && resultHandles.size() >= maxCount) {
-											return resultHandles;
-										}
-									}
-								}
-							}
+						if(addHandles(snapshot, edgeDetails, e, selectionArea, maxCount, resultHandles)) {
+							return resultHandles;
 						}
 					}
 				}
@@ -289,6 +340,31 @@ public class NetworkPicker {
 		return resultHandles;
 	}
 	
+	/**
+	 * Adds the handles of the edge that intersect the selection area.
+	 * @return true if there are maxCount handles
+	 */
+	private static boolean addHandles(CyNetworkViewSnapshot snapshot, EdgeDetails edgeDetails, View<CyEdge> e,
+			Rectangle2D selectionArea, int maxCount, List<HandleInfo> resultHandles) {
+		Bend bend = edgeDetails.getBend(e);
+		if(bend != null) {
+			List<Handle> handles = bend.getAllHandles();
+			if(handles != null) {
+				for(Handle handle : handles) {
+					Point2D p = handle.calculateHandleLocation(snapshot, e);
+					var size = DEdgeDetails.HANDLE_SIZE;
+					if(selectionArea.intersects(p.getX()-(size/2), p.getY()-(size/2), size, size)) {
+						resultHandles.add(new HandleInfo(e, bend, handle));
+						if(maxCount > 0 && resultHandles.size() >= maxCount) {
+							return true;
+						}
+					}
+				}
+			}
+		}
+		return false;
+	}
+	
 	
 	
 	private static boolean intersectsLine(Line2D line, GeneralPath path) {
@@ -358,6 +434,28 @@ public class NetworkPicker {
 		Line2D.Float line = new Line2D.Float();
 		float[] extentsBuff = new float[4];
 		
+		EdgeSpacialIndex index = getEdgeIndex(snapshot);
+		if(index != null) {
+			float[] extentsBuff2 = new float[4];
+			Rectangle2D bounds = path.getBounds2D();
+			List<Long> resultEdges = new ArrayList<>();
+			
+			for(View<CyEdge> e : index.query((float)bounds.getMinX(), (float)bounds.getMinY(), (float)bounds.getMaxX(), (float)bounds.getMaxY())) {
+				SnapshotEdgeInfo edgeInfo = snapshot.getEdgeInfo(e);
+				if(!snapshot.getSpacialIndex2D().get(edgeInfo.getSourceViewSUID(), extentsBuff)
+						|| !snapshot.getSpacialIndex2D().get(edgeInfo.getTargetViewSUID(), extentsBuff2))
+					continue;
+				
+				line.setLine((extentsBuff[0] + extentsBuff[2]) / 2, (extentsBuff[1] + extentsBuff[3]) / 2,
+				             (extentsBuff2[0] + extentsBuff2[2]) / 2, (extentsBuff2[1] + extentsBuff2[3]) / 2);
+				
+				if(intersectsLine(line, path)) {
+					resultEdges.add(e.getSUID());
+				}
+			}
+			return resultEdges;
+		}
+		
 		// get viewport bounds in node coords
 		Rectangle2D.Float area = re.getTransform().getNetworkVisibleAreaNodeCoords();
 		SpacialIndex2DEnumerator<Long> nodeHits = snapshot.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height);
@@ -416,11 +514,42 @@ public class NetworkPicker {
 		float[] extentsBuff = new float[4];
 		
 		CyNetworkViewSnapshot snapshot = re.getViewModelSnapshot();
+		List<Long> resultEdges = new ArrayList<>();
+		
+		EdgeSpacialIndex index = getEdgeIndex(snapshot);
+		if (index != null) {
+			// Also finds the edges whose nodes are both out of view
+			float[] extentsBuff2 = new float[4];
+			
+			for (View<CyEdge> edge : index.query(xMin, yMin, xMax, yMax)) {
+				SnapshotEdgeInfo edgeInfo = snapshot.getEdgeInfo(edge);
+				long source = edgeInfo.getSourceViewSUID();
+				long target = edgeInfo.getTargetViewSUID();
+				
+				if (!snapshot.getSpacialIndex2D().get(source, extentsBuff) || !snapshot.getSpacialIndex2D().get(target, extentsBuff2))
+					continue;
+				
+				final boolean intersects;
+				if (getFlags().not(LOD_HIGH_DETAIL)) {
+					line.setLine((extentsBuff[0] + extentsBuff[2]) / 2, (extentsBuff[1] + extentsBuff[3]) / 2,
+					             (extentsBuff2[0] + extentsBuff2[2]) / 2, (extentsBuff2[1] + extentsBuff2[3]) / 2);
+					intersects = line.intersects(xMin, yMin, xMax - xMin, yMax - yMin);
+				} else {
+					byte srcShape = nodeDetails.getShape(snapshot.getNodeView(source));
+					byte trgShape = nodeDetails.getShape(snapshot.getNodeView(target));
+					intersects = intersectsEdgeFull(snapshot, edge, srcShape, extentsBuff, trgShape, extentsBuff2, xMin, yMin, xMax, yMax);
+				}
+				
+				if (intersects)
+					resultEdges.add(edge.getSUID());
+			}
+			return resultEdges;
+		}
+		
 		Rectangle2D.Float area = re.getTransform().getNetworkVisibleAreaNodeCoords();
 		SpacialIndex2DEnumerator<Long> nodeHits = snapshot.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height);
 		
 		Set<Long> processedNodes = new HashSet<>();
-		List<Long> resultEdges = new ArrayList<>();
 		
 		if (getFlags().not(LOD_HIGH_DETAIL)) {
 			// We won't need to look up arrows and their sizes.
@@ -463,7 +592,6 @@ public class NetworkPicker {
 				
 				for(View<CyEdge> edge : touchingEdges) {
 					SnapshotEdgeInfo edgeInfo = snapshot.getEdgeInfo(edge);
-					double segThicknessDiv2 = edgeDetails.getWidth(edge) / 2.0d;
 					long otherNode = node ^ edgeInfo.getSourceViewSUID() ^ edgeInfo.getTargetViewSUID();
 					View<CyNode> otherNodeView = snapshot.getNodeView(otherNode);
 					
@@ -488,42 +616,7 @@ public class NetworkPicker {
 							trgExtents = extentsBuff;
 						}
 
-						final ArrowShape srcArrow;
-						final ArrowShape trgArrow;
-						final float srcArrowSize;
-						final float trgArrowSize;
-
-						final float[] floatBuff1 = new float[2];
-						final float[] floatBuff2 = new float[2];
-						GeneralPath path  = new GeneralPath();
-						GeneralPath path2 = new GeneralPath();
-						
-						if (getFlags().not(LOD_EDGE_ARROWS)) {
-							srcArrow = trgArrow = ArrowShapeVisualProperty.NONE;
-							srcArrowSize = trgArrowSize = 0.0f;
-						} else {
-							srcArrow = edgeDetails.getSourceArrowShape(edge);
-							trgArrow = edgeDetails.getTargetArrowShape(edge);
-							srcArrowSize = ((srcArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getSourceArrowSize(edge));
-							trgArrowSize = ((trgArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getTargetArrowSize(edge));
-						}
-
-						final EdgeAnchors anchors = getFlags().not(LOD_EDGE_ANCHORS) ? null : edgeDetails.getAnchors(snapshot, edge);
-
-						if (!GraphRenderer.computeEdgeEndpoints(srcExtents, srcShape,
-						                                        srcArrow, srcArrowSize, anchors,
-						                                        trgExtents, trgShape, trgArrow,
-						                                        trgArrowSize, floatBuff1, floatBuff2))
-							continue;
-
-						GraphGraphics.getEdgePath(srcArrow, srcArrowSize, trgArrow, trgArrowSize,
-						                    floatBuff1[0], floatBuff1[1], anchors,
-						                    floatBuff2[0], floatBuff2[1], path);
-						GraphRenderer.computeClosedPath(path.getPathIterator(null), path2);
-
-						if (path2.intersects(xMin - segThicknessDiv2, yMin - segThicknessDiv2,
-						                       (xMax - xMin) + (segThicknessDiv2 * 2),
-						                       (yMax - yMin) + (segThicknessDiv2 * 2)))
+						if (intersectsEdgeFull(snapshot, edge, srcShape, srcExtents, trgShape, trgExtents, xMin, yMin, xMax, yMax))
 							resultEdges.add(edge.getSUID());
 					}
 				}
@@ -535,6 +628,52 @@ public class NetworkPicker {
 	}
 	
 	
+	/**
+	 * Tests the path of the edge, as it is rendered at full detail, against the rectangle, in node coordinates.
+	 */
+	private boolean intersectsEdgeFull(CyNetworkViewSnapshot snapshot, View<CyEdge> edge,
+			byte srcShape, float[] srcExtents, byte trgShape, float[] trgExtents,
+			float xMin, float yMin, float xMax, float yMax) {
+		final double segThicknessDiv2 = edgeDetails.getWidth(edge) / 2.0d;
+		final ArrowShape srcArrow;
+		final ArrowShape trgArrow;
+		final float srcArrowSize;
+		final float trgArrowSize;
+
+		final float[] floatBuff1 = new float[2];
+		final float[] floatBuff2 = new float[2];
+		GeneralPath path  = new GeneralPath();
+		GeneralPath path2 = new GeneralPath();
+		
+		if (getFlags().not(LOD_EDGE_ARROWS)) {
+			srcArrow = trgArrow = ArrowShapeVisualProperty.NONE;
+			srcArrowSize = trgArrowSize = 0.0f;
+		} else {
+			srcArrow = edgeDetails.getSourceArrowShape(edge);
+			trgArrow = edgeDetails.getTargetArrowShape(edge);
+			srcArrowSize = ((srcArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getSourceArrowSize(edge));
+			trgArrowSize = ((trgArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getTargetArrowSize(edge));
+		}
+
+		final EdgeAnchors anchors = getFlags().not(LOD_EDGE_ANCHORS) ? null : edgeDetails.getAnchors(snapshot, edge);
+
+		if (!GraphRenderer.computeEdgeEndpoints(srcExtents, srcShape,
+		                                        srcArrow, srcArrowSize, anchors,
+		                                        trgExtents, trgShape, trgArrow,
+		                                        trgArrowSize, floatBuff1, floatBuff2))
+			return false;
+
+		GraphGraphics.getEdgePath(srcArrow, srcArrowSize, trgArrow, trgArrowSize,
+		                    floatBuff1[0], floatBuff1[1], anchors,
+		                    floatBuff2[0], floatBuff2[1], path);
+		GraphRenderer.computeClosedPath(path.getPathIterator(null), path2);
+
+		return path2.intersects(xMin - segThicknessDiv2, yMin - segThicknessDiv2,
+		                        (xMax - xMin) + (segThicknessDiv2 * 2),
+		                        (yMax - yMin) + (segThicknessDiv2 * 2));
+	}
+	
+	
 	public List<View<CyNode>> getNodesInRectangle(Rectangle r) {
 		double[] ptBuff = {r.x, r.y};
 		re.getTransform().xformImageToNodeCoords(ptBuff);
@@ -21,6 +21,7 @@ import org.cytoscape.ding.impl.cyannotator.annotations.DingAnnotation.CanvasID;
 import org.cytoscape.ding.impl.work.ProgressMonitor;
 import org.cytoscape.graph.render.stateful.GraphLOD;
 import org.cytoscape.graph.render.stateful.RenderDetailFlags;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
 
 /**
  * Manages what used to be ContentChangedListener and ViewportChangedListener
@@ -29,6 +30,9 @@ import org.cytoscape.graph.render.stateful.RenderDetailFlags;
 @SuppressWarnings("unused")
 public class CompositeImageCanvas {
 	
+	/** Set this system property to true to paint the nodes and edges as tiles, on all the cores. */
+	public static final String TILED_RENDERING_PROPERTY = "dingTiledRendering";
+	
 	private final DRenderingEngine re;
 	
 	// Canvas layers from top to bottom
@@ -49,6 +53,14 @@ public class CompositeImageCanvas {
 	
 	private final Executor executor;
 	
+	private final TiledImageBuffer nodeTiles;
+	private final TiledImageBuffer edgeTiles;
+	private volatile boolean tiled = Boolean.getBoolean(TILED_RENDERING_PROPERTY);
+	
+	// The snapshot and the content version of the last tiled frame, only the tiles where they changed are painted again
+	private CyNetworkViewSnapshot tiledSnapshot;
+	private int tiledContentVersion;
+	
 	public CompositeImageCanvas(DRenderingEngine re, GraphLOD lod, int w, int h) {
 		this.re = re;
 		this.lod = lod;
@@ -71,6 +83,9 @@ public class CompositeImageCanvas {
 		re.getCyAnnotator().addPropertyChangeListener(e -> updateAnnotationCanvasBuffers());
 		updateAnnotationCanvasBuffers();
 		
+		nodeTiles = new TiledImageBuffer(nodeCanvas.getGraphicsProvier(), nodeCanvas);
+		edgeTiles = new TiledImageBuffer(edgeCanvas.getGraphicsProvier(), edgeCanvas);
+		
 		this.executor = re.getSingleThreadExecutorService();
 	}
 	
@@ -116,6 +131,20 @@ public class CompositeImageCanvas {
 	
 	public void dispose() {
 		canvasList.forEach(DingCanvas::dispose);
+		nodeTiles.dispose();
+		edgeTiles.dispose();
+	}
+	
+	/**
+	 * Paints the nodes and edges as tiles, on all the cores, and only paints the tiles again
+	 * when their content changes, so that panning or selecting does not paint the whole view again.
+	 */
+	public void setTiled(boolean tiled) {
+		this.tiled = tiled;
+	}
+	
+	public boolean isTiled() {
+		return tiled;
 	}
 	
 	public void setLOD(GraphLOD lod) {
@@ -197,12 +226,23 @@ public class CompositeImageCanvas {
 		Image composite = image.getImage();
 		fill(composite, bgColor);
 		
+		var snapshot = re.getViewModelSnapshot();
+		var frameTransform = new NetworkTransform(transform);
+		// The density raster is painted in one piece, on all the cores
+		boolean tiledFrame = tiled && flags.not(RenderDetailFlags.LOD_DENSITY_RASTER);
+		SnapshotDamage damage = tiledFrame ? getDamage(flags, snapshot) : null;
+		
 		for(int i = 0; i < canvasList.size(); i++) {
 			var canvas = canvasList.get(i);
 			var subPm = subPms[i];
 			
 			Image canvasImage;
-			if(layersToRepaint == null || layersToRepaint.test(canvas)) {
+			TiledImageBuffer tiles = tiledFrame ? getTiles(canvas) : null;
+			if(tiles != null) {
+				if(layersToRepaint != null && layersToRepaint.test(canvas))
+					tiles.invalidate();
+				canvasImage = paintTiles(canvas, tiles, subPm, flags, frameTransform, snapshot, damage);
+			} else if(layersToRepaint == null || layersToRepaint.test(canvas)) {
 				canvasImage = canvas.paintAndGet(subPm, flags).getImage();
 			} else {
 				canvasImage = canvas.getCurrent(subPm).getImage();
@@ -221,6 +261,46 @@ public class CompositeImageCanvas {
 		return composite;
 	}
 	
+	private TiledImageBuffer getTiles(DingCanvas<?> canvas) {
+		if(canvas == nodeCanvas)
+			return nodeTiles;
+		if(canvas == edgeCanvas)
+			return edgeTiles;
+		return null;
+	}
+	
+	private Image paintTiles(DingCanvas<?> canvas, TiledImageBuffer tiles, ProgressMonitor pm, RenderDetailFlags flags,
+			NetworkTransform frameTransform, CyNetworkViewSnapshot snapshot, SnapshotDamage damage) {
+		if(pm.isCancelled())
+			return canvas.getCurrent(pm).getImage();
+		pm.start(canvas.getCanvasDebugName());
+		var image = tiles.paint(pm, flags, frameTransform, snapshot, damage);
+		pm.done();
+		return image;
+	}
+	
+	/**
+	 * Returns what changed in the tiles since the last tiled frame, or null if all the tiles have to be painted again.
+	 */
+	private SnapshotDamage getDamage(RenderDetailFlags flags, CyNetworkViewSnapshot snapshot) {
+		var from = tiledSnapshot;
+		tiledSnapshot = snapshot;
+		
+		// Content that is not in the snapshot has changed, like the selected handles
+		int contentVersion = re.getContentVersion();
+		if(contentVersion != tiledContentVersion) {
+			tiledContentVersion = contentVersion;
+			nodeTiles.invalidate();
+			edgeTiles.invalidate();
+			return null;
+		}
+		
+		if(from == null)
+			return null;
+		
+		return SnapshotDamage.compute(from, snapshot, flags.renderEdges(), re.getEdgeDetails());
+	}
+	
 	private void fill(Image image, Color color) {
 		NetworkTransform t = getTransform();
 		Graphics2D g = (Graphics2D) image.getGraphics();
@@ -1,12 +1,22 @@
 package org.cytoscape.ding.impl.canvas;
 
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
+
 import org.cytoscape.ding.impl.DRenderingEngine;
+import org.cytoscape.ding.impl.canvas.TiledImageBuffer.TilePainter;
 import org.cytoscape.ding.impl.work.ProgressMonitor;
 import org.cytoscape.graph.render.immed.GraphGraphics;
+import org.cytoscape.graph.render.stateful.EdgeRenderList;
+import org.cytoscape.graph.render.stateful.GraphLOD.RenderEdges;
 import org.cytoscape.graph.render.stateful.GraphRenderer;
 import org.cytoscape.graph.render.stateful.RenderDetailFlags;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
 
-public class EdgeCanvas<GP extends GraphicsProvider> extends DingCanvas<GP> {
+public class EdgeCanvas<GP extends GraphicsProvider> extends DingCanvas<GP> implements TilePainter<EdgeRenderList> {
 
 	private final DRenderingEngine re;
 	
@@ -29,4 +39,29 @@ public class EdgeCanvas<GP extends GraphicsProvider> extends DingCanvas<GP> {
 		
 		GraphRenderer.renderEdges(pm, graphics, netViewSnapshot, flags, nodeDetails, edgeDetails);
 	}
+	
+	@Override
+	public EdgeRenderList prepareTiles(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot,
+			Rectangle2D.Float area) {
+		return GraphRenderer.listEdges(pm, snapshot, flags, re.getEdgeDetails(), area);
+	}
+	
+	@Override
+	public void paintTile(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot,
+			EdgeRenderList edges, GraphicsProvider tile, Rectangle2D.Float tileArea) {
+		var graphics = new GraphGraphics(tile);
+		GraphRenderer.renderEdges(pm, graphics, snapshot, flags, re.getNodeDetails(), re.getEdgeDetails(), edges, tileArea);
+	}
+	
+	@Override
+	public float getMargin(RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, Collection<View<CyNode>> nodes,
+			Collection<View<CyEdge>> edges) {
+		return GraphRenderer.getEdgeMargin(snapshot, flags, re.getEdgeDetails(), edges);
+	}
+	
+	@Override
+	public boolean isViewportDependent(RenderDetailFlags flags) {
+		// Only the edges of the visible nodes are rendered
+		return flags.renderEdges() == RenderEdges.TOUCHING_VISIBLE_NODES;
+	}
 }
@@ -1,13 +1,20 @@
 package org.cytoscape.ding.impl.canvas;
 
+import java.awt.geom.Rectangle2D;
+import java.util.Collection;
 import java.util.Set;
 
 import org.cytoscape.ding.impl.DRenderingEngine;
+import org.cytoscape.ding.impl.canvas.TiledImageBuffer.TilePainter;
 import org.cytoscape.ding.impl.work.ProgressMonitor;
 import org.cytoscape.graph.render.immed.GraphGraphics;
 import org.cytoscape.graph.render.stateful.GraphRenderer;
 import org.cytoscape.graph.render.stateful.RenderDetailFlags;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
 import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
 import org.cytoscape.view.vizmap.VisualMappingManager;
 import org.cytoscape.view.vizmap.VisualPropertyDependency;
 
@@ -38,7 +45,7 @@ import org.cytoscape.view.vizmap.VisualPropertyDependency;
 /**
  * Canvas to be used for drawing actual network visualization
  */
-public class NodeCanvas<GP extends GraphicsProvider> extends DingCanvas<GP> {
+public class NodeCanvas<GP extends GraphicsProvider> extends DingCanvas<GP> implements TilePainter<Set<VisualPropertyDependency<?>>> {
 
 	private final VisualMappingManager vmm;
 	private final DRenderingEngine re;
@@ -69,4 +76,23 @@ public class NodeCanvas<GP extends GraphicsProvider> extends DingCanvas<GP> {
 		
 		GraphRenderer.renderNodes(pm, graphics, snapshot, flags, nodeDetails, edgeDetails, dependencies);
 	}
+	
+	@Override
+	public Set<VisualPropertyDependency<?>> prepareTiles(ProgressMonitor pm, RenderDetailFlags flags,
+			CyNetworkViewSnapshot snapshot, Rectangle2D.Float area) {
+		return getVPDeps();
+	}
+	
+	@Override
+	public void paintTile(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot,
+			Set<VisualPropertyDependency<?>> dependencies, GraphicsProvider tile, Rectangle2D.Float tileArea) {
+		var graphics = new GraphGraphics(tile);
+		GraphRenderer.renderNodes(pm, graphics, snapshot, flags, re.getNodeDetails(), re.getEdgeDetails(), dependencies, tileArea);
+	}
+	
+	@Override
+	public float getMargin(RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, Collection<View<CyNode>> nodes,
+			Collection<View<CyEdge>> edges) {
+		return GraphRenderer.getNodeMargin(snapshot, flags, re.getNodeDetails(), nodes);
+	}
 }
@@ -0,0 +1,229 @@
+package org.cytoscape.ding.impl.canvas;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cytoscape.graph.render.immed.EdgeAnchors;
+import org.cytoscape.graph.render.stateful.EdgeDetails;
+import org.cytoscape.graph.render.stateful.GraphLOD.RenderEdges;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.util.intr.LongHash;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.View;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * The regions of the network that changed from one snapshot of the view model to the next.
+ * <br>
+ * The view model records which nodes and edges were added, removed or changed between its snapshots,
+ * see {@link CyNetworkViewSnapshot#getTrackedNodes(Object)} with the earlier snapshot as the key. Each of
+ * them damages its bounds in both snapshots, and a changed node also damages the edges that touch it.
+ */
+public final class SnapshotDamage {
+
+	private final CyNetworkViewSnapshot from;
+	private final CyNetworkViewSnapshot to;
+
+	/** xMin, yMin, xMax, yMax of every damaged rectangle, in node coordinates */
+	private float[] rects = new float[64];
+	private int rectCount;
+
+	/** The nodes and edges that were damaged and are still in the later snapshot, as views of it */
+	private final List<View<CyNode>> nodes = new ArrayList<>();
+	private final List<View<CyEdge>> edges = new ArrayList<>();
+
+	private SnapshotDamage(CyNetworkViewSnapshot from, CyNetworkViewSnapshot to) {
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * @return the damage, or null if the view model no longer knows what changed between the snapshots
+	 */
+	public static SnapshotDamage compute(CyNetworkViewSnapshot from, CyNetworkViewSnapshot to, RenderEdges renderEdges,
+			EdgeDetails edgeDetails) {
+		var damage = new SnapshotDamage(from, to);
+
+		if (from == to)
+			return damage;
+
+		if (!to.isTrackedNodeKey(from) || !to.isTrackedEdgeKey(from))
+			return null;
+
+		final float[] fromExtents = new float[4];
+		final float[] toExtents = new float[4];
+		final LongHash changedNodes = new LongHash();
+
+		for (View<CyNode> node : to.getTrackedNodes(from)) {
+			final long suid = node.getSUID();
+			changedNodes.put(suid);
+
+			if (from.getSpacialIndex2D().get(suid, fromExtents))
+				damage.add(fromExtents[0], fromExtents[1], fromExtents[2], fromExtents[3]);
+			if (to.getSpacialIndex2D().get(suid, toExtents))
+				damage.add(toExtents[0], toExtents[1], toExtents[2], toExtents[3]);
+
+			final View<CyNode> toNode = to.getNodeView(suid);
+			if (toNode != null)
+				damage.nodes.add(toNode);
+		}
+
+		if (renderEdges == RenderEdges.NONE)
+			return damage;
+
+		final LongHash edgeSuids = new LongHash();
+		final float[] floatBuff = new float[2];
+
+		for (View<CyEdge> edge : to.getTrackedEdges(from))
+			damage.addEdge(from, to, edge.getSUID(), edgeSuids, edgeDetails, fromExtents, toExtents, floatBuff);
+
+		// The edges of the changed nodes, in both snapshots
+		for (var nodeEnum = changedNodes.elements(); nodeEnum.numRemaining() > 0;) {
+			final long suid = nodeEnum.nextLong();
+
+			for (var snapshot : Arrays.asList(from, to)) {
+				for (View<CyEdge> edge : snapshot.getAdjacentEdgeIterable(suid))
+					damage.addEdge(from, to, edge.getSUID(), edgeSuids, edgeDetails, fromExtents, toExtents, floatBuff);
+			}
+		}
+
+		return damage;
+	}
+
+	/**
+	 * @return the snapshot that the damage is from
+	 */
+	public CyNetworkViewSnapshot getFrom() {
+		return from;
+	}
+
+	/**
+	 * @return the snapshot that the damage is to
+	 */
+	public CyNetworkViewSnapshot getTo() {
+		return to;
+	}
+
+	public boolean isEmpty() {
+		return rectCount == 0;
+	}
+
+	/**
+	 * @return the nodes that changed and are in the later snapshot, as views of it
+	 */
+	public List<View<CyNode>> getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * @return the edges that changed or touch a node that changed and are in the later snapshot, as views of it
+	 */
+	public List<View<CyEdge>> getEdges() {
+		return edges;
+	}
+
+	/**
+	 * @return true if the given area, in node coordinates, intersects a damaged rectangle
+	 */
+	public boolean intersects(Rectangle2D.Float area) {
+		final float xMin = area.x;
+		final float yMin = area.y;
+		final float xMax = area.x + area.width;
+		final float yMax = area.y + area.height;
+
+		for (int k = 0; k < 4 * rectCount; k += 4) {
+			if (rects[k] <= xMax && rects[k + 1] <= yMax && rects[k + 2] >= xMin && rects[k + 3] >= yMin)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Damages the edge in both snapshots, unless it is already damaged.
+	 */
+	private void addEdge(CyNetworkViewSnapshot from, CyNetworkViewSnapshot to, long suid, LongHash edgeSuids,
+			EdgeDetails edgeDetails, float[] srcExtents, float[] trgExtents, float[] floatBuff) {
+		if (edgeSuids.put(suid) >= 0)
+			return;
+
+		final View<CyEdge> fromEdge = from.getEdgeView(suid);
+		final View<CyEdge> toEdge = to.getEdgeView(suid);
+
+		if (fromEdge != null)
+			addEdge(from, fromEdge, edgeDetails, srcExtents, trgExtents, floatBuff);
+		if (toEdge != null) {
+			addEdge(to, toEdge, edgeDetails, srcExtents, trgExtents, floatBuff);
+			edges.add(toEdge);
+		}
+	}
+
+	/**
+	 * Damages the bounds of the nodes and the anchors of the edge.
+	 */
+	private void addEdge(CyNetworkViewSnapshot snapshot, View<CyEdge> edge, EdgeDetails edgeDetails,
+			float[] srcExtents, float[] trgExtents, float[] floatBuff) {
+		final SnapshotEdgeInfo edgeInfo = snapshot.getEdgeInfo(edge);
+
+		if (!snapshot.getSpacialIndex2D().get(edgeInfo.getSourceViewSUID(), srcExtents)
+				|| !snapshot.getSpacialIndex2D().get(edgeInfo.getTargetViewSUID(), trgExtents))
+			return;
+
+		float xMin = Math.min(srcExtents[0], trgExtents[0]);
+		float yMin = Math.min(srcExtents[1], trgExtents[1]);
+		float xMax = Math.max(srcExtents[2], trgExtents[2]);
+		float yMax = Math.max(srcExtents[3], trgExtents[3]);
+
+		final EdgeAnchors anchors = edgeDetails.getAnchors(snapshot, edge);
+
+		if (anchors != null) {
+			for (int k = 0; k < anchors.numAnchors(); k++) {
+				anchors.getAnchor(k, floatBuff);
+				xMin = Math.min(xMin, floatBuff[0]);
+				yMin = Math.min(yMin, floatBuff[1]);
+				xMax = Math.max(xMax, floatBuff[0]);
+				yMax = Math.max(yMax, floatBuff[1]);
+			}
+		}
+
+		add(xMin, yMin, xMax, yMax);
+	}
+
+	private void add(float xMin, float yMin, float xMax, float yMax) {
+		if (4 * rectCount == rects.length)
+			rects = Arrays.copyOf(rects, 2 * rects.length);
+
+		rects[4 * rectCount] = xMin;
+		rects[4 * rectCount + 1] = yMin;
+		rects[4 * rectCount + 2] = xMax;
+		rects[4 * rectCount + 3] = yMax;
+		rectCount++;
+	}
+}
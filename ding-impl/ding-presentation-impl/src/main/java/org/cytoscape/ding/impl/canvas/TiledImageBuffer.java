@@ -0,0 +1,343 @@
+package org.cytoscape.ding.impl.canvas;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cytoscape.ding.impl.work.NoOutputProgressMonitor;
+import org.cytoscape.ding.impl.work.ProgressMonitor;
+import org.cytoscape.graph.render.stateful.RenderDetailFlags;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * Paints a layer of the network as square tiles, on all the cores, and composites them into
+ * the image of the layer.
+ * <br>
+ * The tiles are aligned to the network, not to the viewport, so a tile keeps its content when
+ * the view is panned. A tile is only painted again when the render detail flags or the zoom change,
+ * when the buffer is invalidated, or when the snapshot changes where the tile is, according to the
+ * {@link SnapshotDamage} of the frame. Tiles that are scrolled out of view are dropped.
+ */
+public class TiledImageBuffer {
+
+	public static final String TILE_SIZE_PROPERTY = "dingTileSize";
+
+	/** Tiles are painted within the frame, on the common pool and on the calling thread, which also takes tiles. */
+	private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+	private static final int TILE_SIZE = Math.max(64, Integer.getInteger(TILE_SIZE_PROPERTY, 512));
+
+	/**
+	 * The tiles are painted from what is within this many pixels around them, on top of the margin that the
+	 * painter measures, for the antialiasing at the edges of the shapes.
+	 */
+	private static final int TILE_MARGIN = 2;
+
+	/** Paints a layer one tile at a time. */
+	public interface TilePainter<T> {
+
+		/**
+		 * Called once per frame, before any tile is painted, if at least one tile has to be painted.
+		 * @param area the visible area, in node coordinates
+		 * @return what the tiles of the frame share, passed to {@link #paintTile}
+		 */
+		T prepareTiles(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, Rectangle2D.Float area);
+
+		/**
+		 * Paints one tile. Called from several threads at the same time.
+		 * @param tileArea the area of the tile and its margin, in node coordinates
+		 */
+		void paintTile(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, T frame,
+				GraphicsProvider tile, Rectangle2D.Float tileArea);
+
+		/**
+		 * Measures how far what is painted for the given nodes and edges reaches beyond their bounds,
+		 * like their labels, so that the labels of the nodes and edges just outside of a tile still show up on it.
+		 * @return the distance, in node coordinates
+		 */
+		float getMargin(RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, Collection<View<CyNode>> nodes,
+				Collection<View<CyEdge>> edges);
+
+		/**
+		 * @return true if what is painted on a tile depends on the visible area, and not only on the area of the tile
+		 */
+		default boolean isViewportDependent(RenderDetailFlags flags) {
+			return false;
+		}
+	}
+
+	private static class Tile {
+		final NetworkImageBuffer buffer;
+		CyNetworkViewSnapshot snapshot;
+		int version;
+		RenderDetailFlags flags;
+		Rectangle2D.Float viewport;
+		boolean valid;
+
+		Tile(NetworkTransform transform) {
+			buffer = new NetworkImageBuffer(transform);
+		}
+	}
+
+	private final ImageGraphicsProvider target;
+	private final TilePainter<Object> painter;
+
+	/** The tiles, by column and row. */
+	private final Map<Long,Tile> tiles = new HashMap<>();
+	private double tileScale;
+	private final AtomicInteger version = new AtomicInteger();
+
+	/** How far what is painted reaches beyond the bounds of the nodes and edges, in node coordinates */
+	private float margin;
+	private CyNetworkViewSnapshot marginSnapshot;
+	private RenderDetailFlags marginFlags;
+
+	/**
+	 * @param target the image of the layer, which the tiles are composited into
+	 */
+	@SuppressWarnings("unchecked")
+	public TiledImageBuffer(ImageGraphicsProvider target, TilePainter<?> painter) {
+		this.target = target;
+		this.painter = (TilePainter<Object>) painter;
+	}
+
+	/**
+	 * Paints the tiles again on the next frame, even if the snapshot has not changed.
+	 */
+	public void invalidate() {
+		version.incrementAndGet();
+	}
+
+	public synchronized void dispose() {
+		tiles.clear();
+	}
+
+	/**
+	 * Paints the tiles that are visible and out of date, and composites all the visible tiles into the target.
+	 * @param damage what changed since the previous frame, or null to paint all the tiles if the snapshot has changed
+	 * @return the image of the target
+	 */
+	public synchronized Image paint(ProgressMonitor pm, RenderDetailFlags flags, NetworkTransform transform,
+			CyNetworkViewSnapshot snapshot, SnapshotDamage damage) {
+		final int w = transform.getWidth();
+		final int h = transform.getHeight();
+		final double scale = transform.getScaleFactor();
+		final int currentVersion = version.get();
+		final Rectangle2D.Float viewport = new Rectangle2D.Float();
+		viewport.setRect(transform.getNetworkVisibleAreaNodeCoords());
+
+		if (scale != tileScale) {
+			tiles.clear();
+			tileScale = scale;
+		}
+
+		updateMargin(flags, snapshot, damage);
+
+		// The image coordinates of the network origin, so that the tiles line up with the network
+		final long originX = Math.round(0.5 * w - transform.getCenterX() * scale);
+		final long originY = Math.round(0.5 * h - transform.getCenterY() * scale);
+		final int col0 = (int) Math.floorDiv(-originX, TILE_SIZE);
+		final int col1 = (int) Math.floorDiv(w - 1 - originX, TILE_SIZE);
+		final int row0 = (int) Math.floorDiv(-originY, TILE_SIZE);
+		final int row1 = (int) Math.floorDiv(h - 1 - originY, TILE_SIZE);
+
+		final boolean viewportDependent = painter.isViewportDependent(flags);
+		final Map<Long,Tile> visible = new HashMap<>();
+		final List<Tile> stale = new ArrayList<>();
+
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				final long key = ((long) col << 32) | (row & 0xffffffffL);
+				Tile tile = tiles.get(key);
+
+				if (tile == null) {
+					final double x = (col * TILE_SIZE + 0.5 * TILE_SIZE) / scale;
+					final double y = (row * TILE_SIZE + 0.5 * TILE_SIZE) / scale;
+					tile = new Tile(new NetworkTransform(TILE_SIZE, TILE_SIZE, x, y, scale));
+				}
+
+				boolean upToDate = tile.valid
+					&& tile.version == currentVersion
+					&& flags.equals(tile.flags)
+					&& (!viewportDependent || viewport.equals(tile.viewport));
+
+				// Nothing that is painted on the tile has changed since it was painted
+				if (upToDate && tile.snapshot != snapshot) {
+					upToDate = damage != null
+						&& damage.getFrom() == tile.snapshot
+						&& damage.getTo() == snapshot
+						&& !damage.intersects(getTileArea(tile, margin));
+					if (upToDate)
+						tile.snapshot = snapshot;
+				}
+
+				if (!upToDate)
+					stale.add(tile);
+
+				visible.put(key, tile);
+			}
+		}
+
+		// Drop the tiles that are out of view
+		tiles.clear();
+		tiles.putAll(visible);
+
+		if (!stale.isEmpty()) {
+			final Object frame = painter.prepareTiles(pm, flags, snapshot, viewport);
+			paintTiles(pm, flags, snapshot, frame, stale, currentVersion, viewport);
+		}
+
+		final Graphics2D g = target.getGraphics();
+
+		if (g != null) {
+			for (var entry : tiles.entrySet()) {
+				final long key = entry.getKey();
+				final int col = (int) (key >> 32);
+				final int row = (int) key;
+				g.drawImage(entry.getValue().buffer.getImage(), (int) (col * TILE_SIZE + originX), (int) (row * TILE_SIZE + originY), null);
+			}
+			g.dispose();
+		}
+
+		return target.getImage();
+	}
+
+	/**
+	 * Measures the margin for all the nodes and edges when every tile is painted again anyway, otherwise
+	 * only for the ones that changed. Then it only grows, so that it covers the labels in both the snapshot
+	 * that the tiles were painted from and the new one.
+	 */
+	private void updateMargin(RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, SnapshotDamage damage) {
+		if (snapshot == marginSnapshot && flags.equals(marginFlags))
+			return;
+
+		if (flags.equals(marginFlags) && damage != null && damage.getFrom() == marginSnapshot && damage.getTo() == snapshot)
+			margin = Math.max(margin, painter.getMargin(flags, snapshot, damage.getNodes(), damage.getEdges()));
+		else
+			margin = painter.getMargin(flags, snapshot, snapshot.getNodeViews(), snapshot.getEdgeViews());
+
+		marginSnapshot = snapshot;
+		marginFlags = flags;
+	}
+
+	private void paintTiles(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, Object frame,
+			List<Tile> stale, int currentVersion, Rectangle2D.Float viewport) {
+		final AtomicInteger next = new AtomicInteger();
+		final int workerCount = Math.min(POOL.getParallelism() + 1, stale.size());
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(workerCount);
+
+		final Runnable worker = () -> {
+			int k;
+
+			while (!pm.isCancelled() && (k = next.getAndIncrement()) < stale.size()) {
+				final Tile tile = stale.get(k);
+				paintTile(pm, flags, snapshot, frame, tile);
+
+				if (!pm.isCancelled()) {
+					tile.snapshot = snapshot;
+					tile.version = currentVersion;
+					tile.flags = flags;
+					tile.viewport = viewport;
+					tile.valid = true;
+				}
+			}
+		};
+
+		for (int i = 1; i < workerCount; i++)
+			tasks.add(POOL.submit(worker));
+
+		RuntimeException runtimeFailure = null;
+		Error error = null;
+
+		try {
+			worker.run();
+		} catch (RuntimeException e) {
+			runtimeFailure = e;
+		} catch (Error e) {
+			error = e;
+		}
+
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException e) {
+				if (runtimeFailure == null)
+					runtimeFailure = e;
+			} catch (Error e) {
+				if (error == null)
+					error = e;
+			}
+		}
+
+		if (error != null)
+			throw error;
+		if (runtimeFailure != null)
+			throw runtimeFailure;
+	}
+
+	private void paintTile(ProgressMonitor pm, RenderDetailFlags flags, CyNetworkViewSnapshot snapshot, Object frame,
+			Tile tile) {
+		final Rectangle2D.Float tileArea = getTileArea(tile, margin);
+
+		// Clears the tile, the painter may not draw anything on it
+		tile.buffer.getGraphics().dispose();
+
+		// Only the root progress monitor is followed, the tiles are painted from several threads
+		final ProgressMonitor tilePm = new NoOutputProgressMonitor() {
+			@Override
+			public boolean isCancelled() {
+				return pm.isCancelled();
+			}
+		};
+
+		painter.paintTile(tilePm, flags, snapshot, frame, tile.buffer, tileArea);
+	}
+
+	/**
+	 * @param nodeMargin the margin that the painter measured, in node coordinates
+	 * @return the area of the tile and its margin, in node coordinates
+	 */
+	private static Rectangle2D.Float getTileArea(Tile tile, float nodeMargin) {
+		final NetworkTransform t = tile.buffer.getTransform();
+		final double margin = nodeMargin + TILE_MARGIN / t.getScaleFactor();
+		final Rectangle2D.Float area = t.getNetworkVisibleAreaNodeCoords();
+		return new Rectangle2D.Float(
+				(float) (area.x - margin), (float) (area.y - margin),
+				(float) (area.width + 2 * margin), (float) (area.height + 2 * margin));
+	}
+}
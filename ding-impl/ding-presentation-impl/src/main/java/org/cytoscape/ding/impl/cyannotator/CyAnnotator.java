@@ -192,7 +192,7 @@ public class CyAnnotator implements SessionAboutToBeSavedListener {
 			logger.error("Annotations were not loaded correctly.", e);
 		} finally {
 			loading = false;
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 			propChangeSupport.firePropertyChange(PROP_ANNOTATIONS, Collections.emptySet(), new HashSet<>(annotationSet));
 		}
 	}
@@ -290,7 +290,7 @@ public class CyAnnotator implements SessionAboutToBeSavedListener {
 		getAnnotationTree().resetZOrder();
 		
 		if (!loading) {
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 			propChangeSupport.firePropertyChange(PROP_ANNOTATIONS, oldValue, new HashSet<>(annotationSet));
 		}
 	}
@@ -310,7 +310,7 @@ public class CyAnnotator implements SessionAboutToBeSavedListener {
 		getAnnotationTree().resetZOrder();
 		
 		if (!loading) {
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 			propChangeSupport.firePropertyChange(PROP_ANNOTATIONS, oldValue, new HashSet<>(annotationSet));
 		}
 	}
@@ -322,7 +322,7 @@ public class CyAnnotator implements SessionAboutToBeSavedListener {
 		annotationSelection.remove(annotation);
 		
 		if (changed && !loading) {
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 			propChangeSupport.firePropertyChange(PROP_ANNOTATIONS, oldValue, new HashSet<>(annotationSet));
 		}
 	}
@@ -339,7 +339,7 @@ public class CyAnnotator implements SessionAboutToBeSavedListener {
 		}
 		
 		if (changed && !loading) {
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 			propChangeSupport.firePropertyChange(PROP_ANNOTATIONS, oldValue, new HashSet<>(annotationSet));
 		}
 	}
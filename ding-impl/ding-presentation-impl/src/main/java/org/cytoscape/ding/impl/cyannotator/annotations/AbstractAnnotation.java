@@ -418,7 +418,7 @@ public abstract class AbstractAnnotation implements DingAnnotation {
 	@Override
 	public void contentChanged() {
 		if (re != null)
-			re.setContentChanged();
+			re.setContentChangedOutsideViewModel();
 	}
 
 	@Override
@@ -19,7 +19,9 @@ import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.cytoscape.ding.impl.canvas.GraphicsProvider;
 import org.cytoscape.ding.impl.canvas.NetworkTransform;
@@ -136,11 +138,19 @@ public final class GraphGraphics {
 	};
 		
 	// Mapping from node to its border stroke object.
-	private static final Map<Float,Stroke> borderStrokes = new HashMap<>();
-	private static final Map<Byte,NodeShape> nodeShapes;
-	private static final Map<ArrowShape, Arrow> arrows;
-	static {		
-		nodeShapes = new HashMap<>();
+	private static final Map<Float,Stroke> borderStrokes = new ConcurrentHashMap<>();
+	
+	// The normalized polygons of the custom node shapes, shared by all the threads that render.
+	private static final Map<Byte,double[]> customNodeShapes = new ConcurrentHashMap<>();
+	
+	// The node shapes and arrows reuse their geometry objects, so every thread that renders has its own.
+	// A thread creates its own instance of a custom node shape, by polygon, the first time it draws it.
+	private static final ThreadLocal<Map<Byte,NodeShape>> nodeShapes = ThreadLocal.withInitial(GraphGraphics::createNodeShapes);
+	private static final ThreadLocal<Map<double[],NodeShape>> customNodeShapeInstances = ThreadLocal.withInitial(IdentityHashMap::new);
+	private static final ThreadLocal<Map<ArrowShape, Arrow>> arrows = ThreadLocal.withInitial(GraphGraphics::createArrows);
+	
+	private static Map<Byte,NodeShape> createNodeShapes() {
+		final Map<Byte,NodeShape> nodeShapes = new HashMap<>();
 		nodeShapes.put(SHAPE_RECTANGLE, new RectangleNodeShape()); 
 		nodeShapes.put(SHAPE_ELLIPSE, new EllipseNodeShape()); 
 		nodeShapes.put(SHAPE_ROUNDED_RECTANGLE, new RoundedRectangleNodeShape()); 
@@ -150,8 +160,11 @@ public final class GraphGraphics {
 		nodeShapes.put(SHAPE_PARALLELOGRAM, new ParallelogramNodeShape()); 
 		nodeShapes.put(SHAPE_TRIANGLE, new TriangleNodeShape()); 
 		nodeShapes.put(SHAPE_VEE, new VeeNodeShape());
-
-		arrows = new HashMap<>();
+		return nodeShapes;
+	}
+	
+	private static Map<ArrowShape, Arrow> createArrows() {
+		final Map<ArrowShape, Arrow> arrows = new HashMap<>();
 		arrows.put(ArrowShapeVisualProperty.NONE, new NoArrow());
 		arrows.put(ArrowShapeVisualProperty.DELTA, new DeltaArrow());
 		arrows.put(ArrowShapeVisualProperty.CIRCLE, new DiscArrow());
@@ -175,6 +188,7 @@ public final class GraphGraphics {
 		arrows.put(ArrowShapeVisualProperty.OPEN_SQUARE, new SquareArrow());
 		arrows.put(ArrowShapeVisualProperty.CROSS_DELTA, new CrossDeltaArrow());
 		arrows.put(ArrowShapeVisualProperty.CROSS_OPEN_DELTA, new CrossDeltaArrow());
+		return arrows;
 	}
 
 
@@ -384,6 +398,20 @@ public final class GraphGraphics {
 		                                Math.max(1, yOne - yNot)); // be problem.
 	}
 
+	/**
+	 * Draws an image, scaled to the given rectangle, which is in the image
+	 * coordinate system. Used for images that are computed from the whole
+	 * network, like a density raster, rather than drawn node by node.
+	 */
+	public final void drawImageLow(final BufferedImage img, final int x, final int y,
+			final int width, final int height) {
+		if (m_gMinimal == null) {
+			makeMinimalGraphics();
+		}
+
+		m_gMinimal.drawImage(img, x, y, width, height, null);
+	}
+
 	/**
 	 * Sets m_gMinimal.
 	 */
@@ -673,7 +701,7 @@ public final class GraphGraphics {
 			throw new IllegalStateException( "too many custom node shapes are already defined");
 
 		m_lastCustomShapeType++;
-		nodeShapes.put(nextCustomShapeType, new LegacyCustomNodeShape(polyCoords,nextCustomShapeType));
+		customNodeShapes.put(nextCustomShapeType, polyCoords);
 
 		return nextCustomShapeType;
 	}
@@ -710,7 +738,7 @@ public final class GraphGraphics {
 		if ( !customNodeShapeExists(customShape) )
 			return null;
 
-		LegacyCustomNodeShape ns = (LegacyCustomNodeShape)(nodeShapes.get(customShape));
+		LegacyCustomNodeShape ns = (LegacyCustomNodeShape)(getNodeShape(customShape));
 		return ns.getCoords();
 	}
 
@@ -732,14 +760,29 @@ public final class GraphGraphics {
 					"a custom node shape is already defined in this GraphGraphics");
 		}
 
-		for (Map.Entry<Byte, NodeShape> entry : grafx.nodeShapes.entrySet()) {
-			nodeShapes.put(entry.getKey(), entry.getValue());
-			m_lastCustomShapeType++;
-		}
+		// The custom node shapes are shared, only the types defined so far are taken over
+		m_lastCustomShapeType = grafx.m_lastCustomShapeType;
+	}
+
+	/**
+	 * Returns this thread's instance of the given node shape, or null if there is no such shape.
+	 */
+	private static NodeShape getNodeShape(byte nodeShape) {
+		final NodeShape ns = nodeShapes.get().get(nodeShape);
+
+		if (ns != null)
+			return ns;
+
+		final double[] coords = customNodeShapes.get(nodeShape);
+
+		if (coords == null)
+			return null;
+
+		return customNodeShapeInstances.get().computeIfAbsent(coords, c -> new LegacyCustomNodeShape(c, nodeShape));
 	}
 
 	private static Shape getShape(byte nodeShape, float xMin, float yMin, float xMax, float yMax) {
-		NodeShape ns = nodeShapes.get(nodeShape);
+		NodeShape ns = getNodeShape(nodeShape);
 		return ns == null ? null : ns.getShape(xMin, yMin, xMax, yMax);
 	}
 
@@ -751,11 +794,16 @@ public final class GraphGraphics {
 	public static Map<Byte, Shape> getNodeShapes() {
 		final Map<Byte, Shape> shapeMap = new HashMap<>();
 
-		for ( NodeShape ns : nodeShapes.values() ) {
+		for ( NodeShape ns : nodeShapes.get().values() ) {
 			final Shape shape = ns.getShape(0f, 0f, DEF_SHAPE_SIZE, DEF_SHAPE_SIZE);
 			shapeMap.put(ns.getType(), new GeneralPath( shape ));
 		}
 
+		for ( byte type : customNodeShapes.keySet() ) {
+			final Shape shape = getNodeShape(type).getShape(0f, 0f, DEF_SHAPE_SIZE, DEF_SHAPE_SIZE);
+			shapeMap.put(type, new GeneralPath( shape ));
+		}
+
 		return shapeMap;
 	}
 
@@ -765,8 +813,8 @@ public final class GraphGraphics {
 	public static Map<ArrowShape, Shape> getArrowShapes() {
 		final Map<ArrowShape, Shape> shapeMap = new HashMap<>();
 
-		for (final ArrowShape key : arrows.keySet())
-			shapeMap.put(key, arrows.get(key).getArrowShape());
+		for (final Map.Entry<ArrowShape, Arrow> entry : arrows.get().entrySet())
+			shapeMap.put(entry.getKey(), entry.getValue().getArrowShape());
 
 		return shapeMap;
 	}
@@ -1135,7 +1183,7 @@ public final class GraphGraphics {
 			throw new IllegalArgumentException("edgeThickness < 0");
 		}
 
-		if ( !arrows.containsKey( arrow0Type ) )
+		if ( !arrows.get().containsKey( arrow0Type ) )
 			throw new IllegalArgumentException("arrow0Type is not recognized");
 
 		if ( arrow0Type != ArrowShapeVisualProperty.NONE )
@@ -1143,7 +1191,7 @@ public final class GraphGraphics {
 				throw new IllegalArgumentException(
 						"arrow size must be at least as large as edge thickness");
 
-		if ( !arrows.containsKey( arrow1Type ) )
+		if ( !arrows.get().containsKey( arrow1Type ) )
 			throw new IllegalArgumentException("arrow1Type is not recognized");
 
 		if ( arrow1Type != ArrowShapeVisualProperty.NONE )
@@ -1386,7 +1434,7 @@ public final class GraphGraphics {
 	 * specified. 
 	 */
 	private final Shape computeUntransformedArrow(final ArrowShape arrowType) {
-		Arrow a = arrows.get(arrowType);
+		Arrow a = arrows.get().get(arrowType);
 		return a == null ? null : a.getArrowShape();
 	}
 
@@ -1396,7 +1444,7 @@ public final class GraphGraphics {
 	 * only if a cap is necessary for the arrow type specified. 
 	 */
 	private final Shape computeUntransformedArrowCap(final ArrowShape arrowType, final double ratio) {
-		Arrow a = arrows.get(arrowType);
+		Arrow a = arrows.get().get(arrowType);
 		return a == null ? null : a.getCapShape(ratio);
 	}
 
@@ -1404,7 +1452,7 @@ public final class GraphGraphics {
 	 * 
 	 */
 	private final static double getT(final ArrowShape arrowType) { 
-		Arrow a = arrows.get(arrowType);
+		Arrow a = arrows.get().get(arrowType);
 		return a == null ? 0.125 : a.getTOffset();
 	}
 
@@ -1620,7 +1668,7 @@ public final class GraphGraphics {
 	 */
 	public static final boolean computeEdgeIntersection(byte nodeShape, float xMin, float yMin, float xMax,
 			float yMax, float offset, float ptX, float ptY, float[] returnVal) {
-		NodeShape ns = nodeShapes.get(nodeShape);
+		NodeShape ns = getNodeShape(nodeShape);
 		return ns == null ? false : ns.computeEdgeIntersection(xMin, yMin, xMax, yMax, ptX, ptY, returnVal);
 	}
 
@@ -1799,6 +1847,48 @@ public final class GraphGraphics {
 		m_g2d.setTransform(m_currNativeXform);
 	}
 
+	/**
+	 * Renders text that has already been converted to a shape, the same way as
+	 * drawTextFull() does when drawTextAsShape is true, without laying out the
+	 * glyphs again.
+	 *
+	 * @param textShape
+	 *            the outline of the glyphs of the text, laid out with
+	 *            getFontRenderContextFull(), and centered on the origin.
+	 * @see #getCenteredTextShape(Font, String, FontRenderContext)
+	 */
+	public final void drawTextShapeFull(final Shape textShape, final double scaleFactor,
+			final float xCenter, final float yCenter, final float theta, final Paint paint) {
+		if (debug) {
+			if (scaleFactor < 0.0) {
+				throw new IllegalArgumentException("scaleFactor must be positive");
+			}
+		}
+
+		m_g2d.translate(xCenter, yCenter);
+		m_g2d.scale(scaleFactor, scaleFactor);
+
+		if (theta != 0.0f) {
+			m_g2d.rotate(theta);
+		}
+
+		m_g2d.setPaint(paint);
+		m_g2d.fill(textShape);
+		m_g2d.setTransform(m_currNativeXform);
+	}
+
+	/**
+	 * Returns the outline of the glyphs of the text, centered on the origin,
+	 * for drawTextShapeFull(). The shape is not modified once it is returned, so
+	 * it can be rendered from several threads at the same time.
+	 */
+	public static Shape getCenteredTextShape(final Font font, final String text, final FontRenderContext frc) {
+		final GlyphVector glyphV = font.layoutGlyphVector(frc, text.toCharArray(), 0, text.length(),
+				Font.LAYOUT_NO_LIMIT_CONTEXT);
+		final Rectangle2D glyphBounds = glyphV.getLogicalBounds();
+		return glyphV.getOutline((float) -glyphBounds.getCenterX(), (float) -glyphBounds.getCenterY());
+	}
+
 	/**
 	 * Returns the context that is used by drawTextFull() to produce text shapes
 	 * to be drawn to the screen. This context always has the identity
@@ -1879,12 +1969,7 @@ public final class GraphGraphics {
 	 * @return Actual node border stroke
 	 */
 	private final Stroke getStroke(final float borderWidth) {
-		Stroke s = borderStrokes.get(borderWidth);
-		if ( s == null ) {
-			s = new BasicStroke(borderWidth);
-			borderStrokes.put(borderWidth, s);
-		}
-		return s; 
+		return borderStrokes.computeIfAbsent(borderWidth, w -> new BasicStroke(w));
 	}
 
 
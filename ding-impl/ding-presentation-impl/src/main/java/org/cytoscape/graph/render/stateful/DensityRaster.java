@@ -0,0 +1,404 @@
+package org.cytoscape.graph.render.stateful;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cytoscape.ding.impl.canvas.NetworkTransform;
+import org.cytoscape.ding.impl.work.ProgressMonitor;
+import org.cytoscape.graph.render.immed.GraphGraphics;
+import org.cytoscape.graph.render.stateful.GraphLOD.RenderEdges;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.util.intr.LongHash;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.SnapshotEdgeInfo;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.spacial.SpacialIndex2DEnumerator;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * Renders the nodes and edges of a network as a heat image of their density, for views where
+ * there are far too many of them to draw each one. See {@link RenderDetailFlags#LOD_DENSITY_RASTER}.
+ * <br>
+ * The nodes and the straight lines between them are accumulated into a grid of cells of a few
+ * pixels, on all the cores, and the grid is tone mapped with a fixed exposure, so that the same
+ * density always has the same color, whatever else is in view.
+ */
+final class DensityRaster {
+
+	public static final String CELL_SIZE_PROPERTY = "dingDensityCellSize";
+
+	/** A frame is accumulated in milliseconds, so it borrows the common pool; the calling thread takes chunks too. */
+	private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+	/** The size of a cell of the grid, in pixels. */
+	private static final int CELL_SIZE = Math.max(1, Integer.getInteger(CELL_SIZE_PROPERTY, 2));
+
+	/** The nodes are handed out to the threads in chunks of this size. */
+	private static final int CHUNK_SIZE = 1024;
+
+	/** Bounds the cells of the grids of one frame (32 MB), fewer threads are used for larger images. */
+	private static final int MAX_FRAME_CELLS = 1 << 23;
+
+	/** Grids of the last frames, reused so that panning or zooming does not allocate new ones for every frame. */
+	private static final Deque<float[]> spareGrids = new ArrayDeque<>();
+
+	private static final float NODE_WEIGHT = 2.0f;
+	private static final float EDGE_WEIGHT = 1.0f;
+
+	/** How fast the colors saturate, a cell with a density of 1 / EXPOSURE is about two thirds of the way to red. */
+	private static final float EXPOSURE = 0.1f;
+
+	/** Blue to red, more opaque as it gets hotter. */
+	private static final int[] COLORS = new int[256];
+
+	static {
+		for (int i = 0; i < COLORS.length; i++) {
+			final float t = i / 255.0f;
+			final int rgb = Color.HSBtoRGB(0.66f * (1.0f - t), 1.0f, 1.0f) & 0xffffff;
+			final int alpha = (int) (255 * (0.35f + 0.65f * t));
+			COLORS[i] = (alpha << 24) | rgb;
+		}
+	}
+
+	private DensityRaster() {
+	}
+
+	/**
+	 * Renders the density of the nodes that overlap the given area, and of the edges that
+	 * {@link GraphRenderer#renderEdges} would render, on the whole image of the graphics.
+	 */
+	static void render(ProgressMonitor pm, GraphGraphics grafx, CyNetworkViewSnapshot netView, RenderDetailFlags flags,
+			EdgeDetails edgeDetails, Rectangle2D.Float area) {
+		final NetworkTransform transform = grafx.getTransform();
+		final int cols = (transform.getWidth() + CELL_SIZE - 1) / CELL_SIZE;
+		final int rows = (transform.getHeight() + CELL_SIZE - 1) / CELL_SIZE;
+
+		if (cols <= 0 || rows <= 0)
+			return;
+
+		final boolean renderEdges = flags.renderEdges() != RenderEdges.NONE;
+		final SpacialIndex2DEnumerator<Long> nodeHits = renderEdges && flags.renderEdges() == RenderEdges.ALL
+				? netView.getSpacialIndex2D().queryAll()
+				: netView.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height);
+
+		// The node coordinates are mapped to cells with a scale and a translation, the transform does not rotate
+		final AffineTransform xform = transform.getAffineTransform();
+		final Grid shape = new Grid(cols, rows,
+				(float) (xform.getScaleX() / CELL_SIZE), (float) (xform.getTranslateX() / CELL_SIZE),
+				(float) (xform.getScaleY() / CELL_SIZE), (float) (xform.getTranslateY() / CELL_SIZE));
+
+		final int nodeCount = nodeHits.size();
+		final long[] nodes = new long[nodeCount];
+		final float[] centers = new float[2 * nodeCount];
+		final LongHash nodeSet = new LongHash();
+		final float[] extents = new float[4];
+
+		for (int i = 0; i < nodeCount; i++) {
+			nodes[i] = nodeHits.nextExtents(extents);
+			centers[2 * i] = (extents[0] + extents[2]) / 2;
+			centers[2 * i + 1] = (extents[1] + extents[3]) / 2;
+			nodeSet.put(nodes[i]);
+		}
+
+		final List<float[]> grids = new ArrayList<>();
+
+		try {
+			final float[] density = accumulate(pm, netView, edgeDetails, renderEdges, shape, nodes, centers, nodeSet, grids);
+
+			if (density == null || pm.isCancelled())
+				return;
+
+			drawDensity(grafx, density, cols, rows);
+		} finally {
+			releaseGrids(grids);
+		}
+	}
+
+	private static void drawDensity(GraphGraphics grafx, float[] density, int cols, int rows) {
+		final BufferedImage image = new BufferedImage(cols, rows, BufferedImage.TYPE_INT_ARGB);
+		final int[] pixels = new int[cols * rows];
+
+		for (int k = 0; k < pixels.length; k++) {
+			final float value = density[k];
+
+			if (value > 0) {
+				final double t = 1.0 - Math.exp(-EXPOSURE * value);
+				pixels[k] = COLORS[(int) (t * (COLORS.length - 1))];
+			}
+		}
+
+		image.setRGB(0, 0, cols, rows, pixels, 0, cols);
+		grafx.drawImageLow(image, 0, 0, cols * CELL_SIZE, rows * CELL_SIZE);
+	}
+
+	/**
+	 * Each thread accumulates its chunks of nodes, and the edges drawn from them, into its own grid,
+	 * and the grids are added up at the end.
+	 * @param grids receives the grids that were used, to be released once the density has been drawn
+	 * @return the density of each cell, row by row, or null if cancelled
+	 */
+	private static float[] accumulate(ProgressMonitor pm, CyNetworkViewSnapshot netView, EdgeDetails edgeDetails,
+			boolean renderEdges, Grid shape, long[] nodes, float[] centers, LongHash nodeSet, List<float[]> grids) {
+		final int chunkCount = (nodes.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		final AtomicInteger next = new AtomicInteger();
+
+		final int cells = shape.cols * shape.rows;
+		final int workerCount = Math.max(1, Math.min(maxGrids(cells), Math.min(POOL.getParallelism() + 1, chunkCount)));
+
+		for (int i = 0; i < workerCount; i++)
+			grids.add(takeGrid(cells));
+
+		final List<Runnable> workers = new ArrayList<>(workerCount);
+
+		for (int i = 0; i < workerCount; i++) {
+			final float[] grid = grids.get(i);
+			workers.add(() -> {
+				final float[] otherExtents = new float[4];
+				int chunk;
+
+				while (!pm.isCancelled() && (chunk = next.getAndIncrement()) < chunkCount) {
+					final int end = Math.min(nodes.length, (chunk + 1) * CHUNK_SIZE);
+
+					for (int n = chunk * CHUNK_SIZE; n < end; n++) {
+						final float x0 = centers[2 * n];
+						final float y0 = centers[2 * n + 1];
+						shape.addPoint(grid, x0, y0, NODE_WEIGHT);
+
+						if (!renderEdges)
+							continue;
+
+						for (View<CyEdge> edge : netView.getAdjacentEdgeIterable(nodes[n])) {
+							if (!edgeDetails.isVisible(edge))
+								continue;
+
+							final SnapshotEdgeInfo edgeInfo = netView.getEdgeInfo(edge);
+							final long otherNode = nodes[n] ^ edgeInfo.getSourceViewSUID() ^ edgeInfo.getTargetViewSUID();
+
+							// An edge between two of the nodes is drawn from the one with the smaller SUID, self loops are not drawn
+							if (otherNode == nodes[n] || (otherNode < nodes[n] && nodeSet.get(otherNode) >= 0))
+								continue;
+							if (!netView.getSpacialIndex2D().get(otherNode, otherExtents))
+								continue;
+
+							shape.addLine(grid, x0, y0,
+									(otherExtents[0] + otherExtents[2]) / 2, (otherExtents[1] + otherExtents[3]) / 2,
+									EDGE_WEIGHT);
+						}
+					}
+				}
+			});
+		}
+
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(workerCount);
+
+		for (int i = 1; i < workerCount; i++)
+			tasks.add(POOL.submit(workers.get(i)));
+
+		RuntimeException runtimeFailure = null;
+		Error error = null;
+
+		try {
+			workers.get(0).run();
+		} catch (RuntimeException e) {
+			runtimeFailure = e;
+		} catch (Error e) {
+			error = e;
+		}
+
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException e) {
+				if (runtimeFailure == null)
+					runtimeFailure = e;
+			} catch (Error e) {
+				if (error == null)
+					error = e;
+			}
+		}
+
+		if (error != null)
+			throw error;
+		if (runtimeFailure != null)
+			throw runtimeFailure;
+
+		if (pm.isCancelled())
+			return null;
+
+		final float[] density = grids.get(0);
+
+		for (int i = 1; i < grids.size(); i++) {
+			final float[] grid = grids.get(i);
+
+			for (int k = 0; k < density.length; k++)
+				density[k] += grid[k];
+		}
+
+		return density;
+	}
+
+	private static int maxGrids(int cells) {
+		return Math.max(1, MAX_FRAME_CELLS / cells);
+	}
+
+	/**
+	 * Returns a cleared grid of the given number of cells, a spare one if there is one of that size.
+	 */
+	static float[] takeGrid(int cells) {
+		float[] grid = null;
+
+		synchronized (spareGrids) {
+			for (Iterator<float[]> it = spareGrids.iterator(); it.hasNext();) {
+				final float[] spare = it.next();
+
+				if (spare.length == cells) {
+					it.remove();
+					grid = spare;
+					break;
+				}
+			}
+		}
+
+		if (grid == null)
+			return new float[cells];
+
+		Arrays.fill(grid, 0.0f);
+		return grid;
+	}
+
+	/**
+	 * Keeps the grids for the next frames, up to MAX_FRAME_CELLS cells.
+	 */
+	static void releaseGrids(List<float[]> grids) {
+		synchronized (spareGrids) {
+			for (float[] grid : grids) {
+				spareGrids.addFirst(grid);
+			}
+
+			int cells = 0;
+
+			for (Iterator<float[]> it = spareGrids.iterator(); it.hasNext();) {
+				final float[] spare = it.next();
+				cells += spare.length;
+
+				// the least recently released grids go first, they are likely of an older size,
+				// the last one is kept even if it is larger than that on its own
+				if (cells > MAX_FRAME_CELLS && cells > spare.length)
+					it.remove();
+			}
+		}
+	}
+
+	/**
+	 * The size of the grid and the mapping from node coordinates to cells.
+	 */
+	static final class Grid {
+		final int cols;
+		final int rows;
+		final float scaleX, translateX;
+		final float scaleY, translateY;
+
+		Grid(int cols, int rows, float scaleX, float translateX, float scaleY, float translateY) {
+			this.cols = cols;
+			this.rows = rows;
+			this.scaleX = scaleX;
+			this.translateX = translateX;
+			this.scaleY = scaleY;
+			this.translateY = translateY;
+		}
+
+		void addPoint(float[] grid, float x, float y, float weight) {
+			final float cx = x * scaleX + translateX;
+			final float cy = y * scaleY + translateY;
+
+			if (cx >= 0 && cy >= 0 && cx < cols && cy < rows)
+				grid[(int) cy * cols + (int) cx] += weight;
+		}
+
+		/**
+		 * Adds the weight to every cell that the line crosses, after clipping it to the grid.
+		 */
+		void addLine(float[] grid, float x0, float y0, float x1, float y1, float weight) {
+			final float ax = x0 * scaleX + translateX;
+			final float ay = y0 * scaleY + translateY;
+			final float dx = (x1 * scaleX + translateX) - ax;
+			final float dy = (y1 * scaleY + translateY) - ay;
+
+			// Liang-Barsky clipping against [0, cols) x [0, rows)
+			final float[] tRange = { 0.0f, 1.0f };
+
+			if (!clip(-dx, ax, tRange) || !clip(dx, cols - ax, tRange)
+					|| !clip(-dy, ay, tRange) || !clip(dy, rows - ay, tRange))
+				return;
+
+			final float sx = ax + tRange[0] * dx;
+			final float sy = ay + tRange[0] * dy;
+			final float length = (tRange[1] - tRange[0]) * Math.max(Math.abs(dx), Math.abs(dy));
+			final int steps = Math.max(1, (int) Math.ceil(length));
+			final float stepX = (tRange[1] - tRange[0]) * dx / steps;
+			final float stepY = (tRange[1] - tRange[0]) * dy / steps;
+
+			// The clipped line may end on the far side of the grid, the last cell is the one it leaves from
+			for (int s = 0; s <= steps; s++) {
+				final int col = Math.max(0, Math.min(cols - 1, (int) (sx + s * stepX)));
+				final int row = Math.max(0, Math.min(rows - 1, (int) (sy + s * stepY)));
+				grid[row * cols + col] += weight;
+			}
+		}
+
+		private static boolean clip(float p, float q, float[] tRange) {
+			if (p == 0)
+				return q >= 0;
+
+			final float t = q / p;
+
+			if (p < 0) {
+				if (t > tRange[1])
+					return false;
+				if (t > tRange[0])
+					tRange[0] = t;
+			} else {
+				if (t < tRange[0])
+					return false;
+				if (t < tRange[1])
+					tRange[1] = t;
+			}
+
+			return true;
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package org.cytoscape.graph.render.stateful;
+
+import java.util.Arrays;
+
+import org.cytoscape.graph.render.immed.EdgeAnchors;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.view.model.View;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * The edges to render, in rendering order, with the node each edge is rendered from, its anchors
+ * and the bounds of its nodes and anchors. Made by {@link GraphRenderer#listEdges}, so that the tiles
+ * of an image can render the edges that cross them without enumerating the edges again.
+ * <br>
+ * Once made, the list is read-only, so tiles can be rendered from several threads at the same time.
+ */
+public final class EdgeRenderList {
+
+	private long[] nodes = new long[16];
+	private long[] otherNodes = new long[16];
+	private Object[] edges = new Object[16];
+	private EdgeAnchors[] anchors = new EdgeAnchors[16];
+	/** xMin, yMin, xMax, yMax of every edge */
+	private float[] bounds = new float[64];
+	private int size;
+
+	EdgeRenderList() {
+	}
+
+	void add(long node, long otherNode, View<CyEdge> edge, EdgeAnchors edgeAnchors,
+			float xMin, float yMin, float xMax, float yMax) {
+		if (size == nodes.length) {
+			final int capacity = 2 * size;
+			nodes = Arrays.copyOf(nodes, capacity);
+			otherNodes = Arrays.copyOf(otherNodes, capacity);
+			edges = Arrays.copyOf(edges, capacity);
+			anchors = Arrays.copyOf(anchors, capacity);
+			bounds = Arrays.copyOf(bounds, 4 * capacity);
+		}
+
+		nodes[size] = node;
+		otherNodes[size] = otherNode;
+		edges[size] = edge;
+		anchors[size] = edgeAnchors;
+		bounds[4 * size] = xMin;
+		bounds[4 * size + 1] = yMin;
+		bounds[4 * size + 2] = xMax;
+		bounds[4 * size + 3] = yMax;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the node that the edge is rendered from
+	 */
+	long getNode(int i) {
+		return nodes[i];
+	}
+
+	long getOtherNode(int i) {
+		return otherNodes[i];
+	}
+
+	@SuppressWarnings("unchecked")
+	View<CyEdge> getEdge(int i) {
+		return (View<CyEdge>) edges[i];
+	}
+
+	/**
+	 * @return the anchors of the edge, or null if they are not rendered
+	 */
+	EdgeAnchors getAnchors(int i) {
+		return anchors[i];
+	}
+
+	/**
+	 * @return true if the bounds of the nodes and anchors of the edge intersect the given rectangle
+	 */
+	boolean intersects(int i, float xMin, float yMin, float xMax, float yMax) {
+		final int k = 4 * i;
+		return bounds[k] <= xMax && bounds[k + 1] <= yMax && bounds[k + 2] >= xMin && bounds[k + 3] >= yMin;
+	}
+}
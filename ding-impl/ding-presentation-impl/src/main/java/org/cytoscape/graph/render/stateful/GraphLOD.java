@@ -234,6 +234,24 @@ public interface GraphLOD {
 		return false;
 	}
 
+	/**
+	 * Determines whether or not to render the nodes and edges as a heat image
+	 * of their density instead of one by one.  By default this method always
+	 * returns false.<p>
+	 * The density image is only rendered at the low detail level, for views where
+	 * so many nodes and edges are visible that the low detail lines just fill the
+	 * screen.  Once fewer are visible, for example after zooming in, the nodes and
+	 * edges are rendered one by one again.  If full detail is chosen, the output of
+	 * this method is ignored.
+	 * @param renderNodeCount the number of nodes that are about to be rendered.
+	 * @param renderEdgeCount the number of edges that are about to be rendered.
+	 * @return true if and only if the density image is to be rendered.
+	 * @see #detail(int, int)
+	 */
+	default boolean densityRaster(int renderNodeCount, int renderEdgeCount) {
+		return false;
+	}
+
 	default double getNestedNetworkImageScaleFactor() { return 1.0; }
 
 }
@@ -1,6 +1,7 @@
 package org.cytoscape.graph.render.stateful;
 
 import static org.cytoscape.graph.render.stateful.RenderDetailFlags.LOD_CUSTOM_GRAPHICS;
+import static org.cytoscape.graph.render.stateful.RenderDetailFlags.LOD_DENSITY_RASTER;
 import static org.cytoscape.graph.render.stateful.RenderDetailFlags.LOD_EDGE_ANCHORS;
 import static org.cytoscape.graph.render.stateful.RenderDetailFlags.LOD_EDGE_ARROWS;
 import static org.cytoscape.graph.render.stateful.RenderDetailFlags.LOD_EDGE_LABELS;
@@ -39,6 +40,7 @@ import java.awt.Paint;
 import java.awt.Shape;
 import java.awt.Stroke;
 import java.awt.TexturePaint;
+import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.PathIterator;
@@ -142,26 +144,18 @@ public final class GraphRenderer {
 			return;
 		}
 		
+		// The density of the edges is rendered with the nodes
+		if(flags.has(LOD_DENSITY_RASTER)) {
+			return;
+		}
+		
 		final float[] floatBuff1 = new float[4];
 		final float[] floatBuff2 = new float[4];
-		final float[] floatBuff3 = new float[2];
-		final float[] floatBuff4 = new float[2];
-		final float[] floatBuff5 = new float[8];
-		final double[] doubleBuff1 = new double[4];
-		final double[] doubleBuff2 = new double[2];
-		final GeneralPath path2d = new GeneralPath();
+		final EdgeBuffers buffs = new EdgeBuffers();
 		final LongHash nodeBuff = new LongHash();
 		
-		final SpacialIndex2DEnumerator<Long> nodeHits;
 		Rectangle2D.Float area = grafx.getTransform().getNetworkVisibleAreaNodeCoords();
-		if (flags.renderEdges() == RenderEdges.ALL)
-			// We want to render edges in the same order (back to front) that
-			// we would use to render just edges on visible nodes; this is assuming
-			// that our spacial index has the subquery order-preserving property.
-			nodeHits = netView.getSpacialIndex2D().queryAll();
-		else
-			nodeHits = netView.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height); // MKTODO why are we querying twice?
-		
+		final SpacialIndex2DEnumerator<Long> nodeHits = queryEdgeNodes(netView, flags, area);
 		
 		if (flags.not(LOD_HIGH_DETAIL)) { // Low detail.
 
@@ -179,11 +173,6 @@ public final class GraphRenderer {
 				
 				final long nodeSuid = nodeHits.nextExtents(floatBuff1);
 
-				// Casting to double and then back we could achieve better accuracy
-				// at the expense of performance.
-				final float nodeX = (floatBuff1[0] + floatBuff1[2]) / 2;
-				final float nodeY = (floatBuff1[1] + floatBuff1[3]) / 2;
-
 				Iterable<View<CyEdge>> touchingEdges = netView.getAdjacentEdgeIterable(nodeSuid);
 
 				for ( View<CyEdge> edge : touchingEdges ) {
@@ -194,12 +183,7 @@ public final class GraphRenderer {
 
 					if (nodeBuff.get(otherNode) < 0) { // Has not yet been rendered.
 						netView.getSpacialIndex2D().get(otherNode, floatBuff2);
-						grafx.drawEdgeLow(nodeX, nodeY, 
-						                  // Again, casting issue - tradeoff between
-						                  // accuracy and performance.
-						                  (floatBuff2[0] + floatBuff2[2]) / 2,
-						                  (floatBuff2[1] + floatBuff2[3]) / 2,
-						                  edgeDetails.getColorLowDetail(netView, edge));
+						renderEdgeLow(grafx, netView, edgeDetails, edge, floatBuff1, floatBuff2);
 					}
 				}
 				nodeBuff.put(nodeSuid);
@@ -235,10 +219,7 @@ public final class GraphRenderer {
 					if (!edgeDetails.isVisible(edge))
 						continue;
 					SnapshotEdgeInfo edgeInfo = netView.getEdgeInfo(edge);
-					var sourceViewSUID = edgeInfo.getSourceViewSUID();
-					var targetViewSUID = edgeInfo.getTargetViewSUID();
-					final long otherNode = nodeSuid ^ sourceViewSUID ^ targetViewSUID;
-					final View<CyNode> otherCyNode = netView.getNodeView(otherNode);
+					final long otherNode = nodeSuid ^ edgeInfo.getSourceViewSUID() ^ edgeInfo.getTargetViewSUID();
 
 					if (nodeBuff.get(otherNode) < 0) { // Has not yet been rendered.
 						
@@ -248,249 +229,447 @@ public final class GraphRenderer {
 							continue;
 							// throw new IllegalStateException("nodePositions not recognizing node that exists in graph: "+otherCyNode.toString());
 
-						final byte otherNodeShape = nodeDetails.getShape(otherCyNode);
-
-						// Compute node shapes, center positions, and extents.
-						final byte srcShape;
-
-						// Compute node shapes, center positions, and extents.
-						final byte trgShape;
-						final float[] srcExtents;
-						final float[] trgExtents;
-						if (nodeSuid == sourceViewSUID) {
-							srcShape = nodeShape;
-							trgShape = otherNodeShape;
-							srcExtents = floatBuff1;
-							trgExtents = floatBuff2;
-						} else { // node == graph.edgeTarget(edge).
-							srcShape = otherNodeShape;
-							trgShape = nodeShape;
-							srcExtents = floatBuff2;
-							trgExtents = floatBuff1;
-						}
+						// Compute the anchors to use when rendering edge.
+						final EdgeAnchors anchors = flags.not(LOD_EDGE_ANCHORS) ? null : edgeDetails.getAnchors(netView, edge);
+						
+						renderEdgeHigh(pm, shapePm, labelPm, grafx, netView, flags, nodeDetails, edgeDetails,
+						               edge, nodeSuid, nodeShape, floatBuff1, otherNode, floatBuff2, anchors, buffs);
+					}
+				}
 
-						// Compute visual attributes that do not depend on LOD.
-						final float thickness = (float) edgeDetails.getWidth(edge);
-						final Stroke edgeStroke = edgeDetails.getStroke(edge);
-						final Paint segPaint = edgeDetails.getPaint(edge);
-
-						// Compute arrows.
-						final ArrowShape srcArrow;
-						final ArrowShape trgArrow;
-						final float srcArrowSize;
-						final float trgArrowSize;
-						final Paint srcArrowPaint;
-						final Paint trgArrowPaint;
-
-						if (flags.not(LOD_EDGE_ARROWS)) { // Not rendering arrows.
-							trgArrow = srcArrow = ArrowShapeVisualProperty.NONE;
-							trgArrowSize = srcArrowSize = 0.0f;
-							trgArrowPaint = srcArrowPaint = null;
-						} else { // Rendering edge arrows.
-							srcArrow = edgeDetails.getSourceArrowShape(edge);
-							trgArrow = edgeDetails.getTargetArrowShape(edge);
-							srcArrowSize  = ((srcArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getSourceArrowSize(edge));
-							trgArrowSize  = ((trgArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getTargetArrowSize(edge));
-							srcArrowPaint = ((srcArrow == ArrowShapeVisualProperty.NONE) ? null : edgeDetails.getSourceArrowPaint(edge));
-							trgArrowPaint = ((trgArrow == ArrowShapeVisualProperty.NONE) ? null : edgeDetails.getTargetArrowPaint(edge));
+				nodeBuff.put(nodeSuid);
+				shapeDpm.increment();
+				labelDpm.increment();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Lists the edges that {@link #renderEdges(ProgressMonitor, GraphGraphics, CyNetworkViewSnapshot, RenderDetailFlags, NodeDetails, EdgeDetails)}
+	 * renders when the given area is visible, in the same order, so that tiles of the image can render
+	 * just the edges that cross them.
+	 * 
+	 * @return the list, which is incomplete if the progress monitor is cancelled
+	 */
+	public static EdgeRenderList listEdges(ProgressMonitor pm, CyNetworkViewSnapshot netView, RenderDetailFlags flags,
+			EdgeDetails edgeDetails, Rectangle2D.Float area) {
+		
+		final EdgeRenderList edges = new EdgeRenderList();
+		
+		if(flags.renderEdges() == RenderEdges.NONE) {
+			return edges;
+		}
+		
+		final float[] floatBuff1 = new float[4];
+		final float[] floatBuff2 = new float[4];
+		final float[] floatBuff3 = new float[2];
+		final LongHash nodeBuff = new LongHash();
+		final boolean anchored = flags.has(LOD_HIGH_DETAIL) && flags.has(LOD_EDGE_ANCHORS);
+		
+		final SpacialIndex2DEnumerator<Long> nodeHits = queryEdgeNodes(netView, flags, area);
+		
+		while (nodeHits.hasNext()) {
+			if(pm.isCancelled())
+				return edges;
+			
+			final long nodeSuid = nodeHits.nextExtents(floatBuff1);
+			
+			for (View<CyEdge> edge : netView.getAdjacentEdgeIterable(nodeSuid)) {
+				if (!edgeDetails.isVisible(edge))
+					continue;
+				SnapshotEdgeInfo edgeInfo = netView.getEdgeInfo(edge);
+				final long otherNode = nodeSuid ^ edgeInfo.getSourceViewSUID() ^ edgeInfo.getTargetViewSUID();
+				
+				if (nodeBuff.get(otherNode) < 0) { // Has not yet been listed.
+					if (!netView.getSpacialIndex2D().get(otherNode, floatBuff2))
+						continue;
+					
+					// The edge lies within the extents of its nodes and its anchors
+					float xMin = Math.min(floatBuff1[0], floatBuff2[0]);
+					float yMin = Math.min(floatBuff1[1], floatBuff2[1]);
+					float xMax = Math.max(floatBuff1[2], floatBuff2[2]);
+					float yMax = Math.max(floatBuff1[3], floatBuff2[3]);
+					
+					final EdgeAnchors anchors = anchored ? edgeDetails.getAnchors(netView, edge) : null;
+					
+					if (anchors != null) {
+						for (int k = 0; k < anchors.numAnchors(); k++) {
+							anchors.getAnchor(k, floatBuff3);
+							xMin = Math.min(xMin, floatBuff3[0]);
+							yMin = Math.min(yMin, floatBuff3[1]);
+							xMax = Math.max(xMax, floatBuff3[0]);
+							yMax = Math.max(yMax, floatBuff3[1]);
 						}
+					}
+					
+					edges.add(nodeSuid, otherNode, edge, anchors, xMin, yMin, xMax, yMax);
+				}
+			}
+			
+			nodeBuff.put(nodeSuid);
+		}
+		
+		return edges;
+	}
+	
+	
+	/**
+	 * Renders the edges of the list that may cross the given area, in the order of the list.
+	 * The area should include a margin for the arrows, the thickness and the labels of the edges.
+	 */
+	public static void renderEdges(ProgressMonitor pm, GraphGraphics grafx, CyNetworkViewSnapshot netView,
+			RenderDetailFlags flags, NodeDetails nodeDetails, EdgeDetails edgeDetails, EdgeRenderList edges,
+			Rectangle2D.Float area) {
+		
+		final float[] floatBuff1 = new float[4];
+		final float[] floatBuff2 = new float[4];
+		final EdgeBuffers buffs = new EdgeBuffers();
+		final boolean highDetail = flags.has(LOD_HIGH_DETAIL);
+		
+		final float xMin = area.x;
+		final float yMin = area.y;
+		final float xMax = area.x + area.width;
+		final float yMax = area.y + area.height;
+		
+		ProgressMonitor[] subPms = pm.split(1, highDetail ? 1 : 0);
+		ProgressMonitor shapePm = subPms[0];
+		ProgressMonitor labelPm = subPms[1];
+		DiscreteProgressMonitor dpm = shapePm.toDiscrete(edges.size());
+		
+		for (int i = 0; i < edges.size(); i++) {
+			if(pm.isCancelled())
+				return;
+			
+			if (edges.intersects(i, xMin, yMin, xMax, yMax)) {
+				final long nodeSuid = edges.getNode(i);
+				final long otherNode = edges.getOtherNode(i);
+				final View<CyEdge> edge = edges.getEdge(i);
+				netView.getSpacialIndex2D().get(nodeSuid, floatBuff1);
+				netView.getSpacialIndex2D().get(otherNode, floatBuff2);
+				
+				if (highDetail) {
+					final byte nodeShape = nodeDetails.getShape(netView.getNodeView(nodeSuid));
+					shapePm.start("Line");
+					renderEdgeHigh(pm, shapePm, labelPm, grafx, netView, flags, nodeDetails, edgeDetails,
+					               edge, nodeSuid, nodeShape, floatBuff1, otherNode, floatBuff2, edges.getAnchors(i), buffs);
+				} else {
+					renderEdgeLow(grafx, netView, edgeDetails, edge, floatBuff1, floatBuff2);
+				}
+			}
+			
+			dpm.increment();
+		}
+	}
+	
+	
+	/**
+	 * @return the nodes whose edges are rendered when the given area is visible
+	 */
+	private static SpacialIndex2DEnumerator<Long> queryEdgeNodes(CyNetworkViewSnapshot netView, RenderDetailFlags flags,
+			Rectangle2D.Float area) {
+		if (flags.renderEdges() == RenderEdges.ALL)
+			// We want to render edges in the same order (back to front) that
+			// we would use to render just edges on visible nodes; this is assuming
+			// that our spacial index has the subquery order-preserving property.
+			return netView.getSpacialIndex2D().queryAll();
+		else
+			return netView.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height); // MKTODO why are we querying twice?
+	}
+	
+	
+	private static void renderEdgeLow(GraphGraphics grafx, CyNetworkViewSnapshot netView, EdgeDetails edgeDetails,
+			View<CyEdge> edge, float[] nodeExtents, float[] otherNodeExtents) {
+		// Casting to double and then back we could achieve better accuracy
+		// at the expense of performance.
+		final float nodeX = (nodeExtents[0] + nodeExtents[2]) / 2;
+		final float nodeY = (nodeExtents[1] + nodeExtents[3]) / 2;
+		
+		grafx.drawEdgeLow(nodeX, nodeY, 
+		                  // Again, casting issue - tradeoff between
+		                  // accuracy and performance.
+		                  (otherNodeExtents[0] + otherNodeExtents[2]) / 2,
+		                  (otherNodeExtents[1] + otherNodeExtents[3]) / 2,
+		                  edgeDetails.getColorLowDetail(netView, edge));
+	}
+	
+	
+	/**
+	 * Renders an edge with its arrows, anchors and labels.
+	 * 
+	 * @param nodeSuid the node that the edge is rendered from, with its shape and its extents in floatBuff1
+	 * @param otherNode the other node of the edge, with its extents in floatBuff2
+	 */
+	private static void renderEdgeHigh(ProgressMonitor pm, ProgressMonitor shapePm, ProgressMonitor labelPm,
+			GraphGraphics grafx, CyNetworkViewSnapshot netView, RenderDetailFlags flags, NodeDetails nodeDetails,
+			EdgeDetails edgeDetails, View<CyEdge> edge, long nodeSuid, byte nodeShape, float[] floatBuff1,
+			long otherNode, float[] floatBuff2, EdgeAnchors anchors, EdgeBuffers buffs) {
+		
+		final float[] floatBuff3 = buffs.floatBuff3;
+		final float[] floatBuff4 = buffs.floatBuff4;
+		final float[] floatBuff5 = buffs.floatBuff5;
+		final double[] doubleBuff1 = buffs.doubleBuff1;
+		final double[] doubleBuff2 = buffs.doubleBuff2;
+		final GeneralPath path2d = buffs.path2d;
+		
+		final long sourceViewSUID = netView.getEdgeInfo(edge).getSourceViewSUID();
+		final View<CyNode> otherCyNode = netView.getNodeView(otherNode);
+		
+		final byte otherNodeShape = nodeDetails.getShape(otherCyNode);
+
+		// Compute node shapes, center positions, and extents.
+		final byte srcShape;
+
+		// Compute node shapes, center positions, and extents.
+		final byte trgShape;
+		final float[] srcExtents;
+		final float[] trgExtents;
+		if (nodeSuid == sourceViewSUID) {
+			srcShape = nodeShape;
+			trgShape = otherNodeShape;
+			srcExtents = floatBuff1;
+			trgExtents = floatBuff2;
+		} else { // node == graph.edgeTarget(edge).
+			srcShape = otherNodeShape;
+			trgShape = nodeShape;
+			srcExtents = floatBuff2;
+			trgExtents = floatBuff1;
+		}
 
-						// Compute the anchors to use when rendering edge.
-						final EdgeAnchors anchors = flags.not(LOD_EDGE_ANCHORS) ? null : edgeDetails.getAnchors(netView, edge);
+		// Compute visual attributes that do not depend on LOD.
+		final float thickness = (float) edgeDetails.getWidth(edge);
+		final Stroke edgeStroke = edgeDetails.getStroke(edge);
+		final Paint segPaint = edgeDetails.getPaint(edge);
+
+		// Compute arrows.
+		final ArrowShape srcArrow;
+		final ArrowShape trgArrow;
+		final float srcArrowSize;
+		final float trgArrowSize;
+		final Paint srcArrowPaint;
+		final Paint trgArrowPaint;
+
+		if (flags.not(LOD_EDGE_ARROWS)) { // Not rendering arrows.
+			trgArrow = srcArrow = ArrowShapeVisualProperty.NONE;
+			trgArrowSize = srcArrowSize = 0.0f;
+			trgArrowPaint = srcArrowPaint = null;
+		} else { // Rendering edge arrows.
+			srcArrow = edgeDetails.getSourceArrowShape(edge);
+			trgArrow = edgeDetails.getTargetArrowShape(edge);
+			srcArrowSize  = ((srcArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getSourceArrowSize(edge));
+			trgArrowSize  = ((trgArrow == ArrowShapeVisualProperty.NONE) ? 0.0f : edgeDetails.getTargetArrowSize(edge));
+			srcArrowPaint = ((srcArrow == ArrowShapeVisualProperty.NONE) ? null : edgeDetails.getSourceArrowPaint(edge));
+			trgArrowPaint = ((trgArrow == ArrowShapeVisualProperty.NONE) ? null : edgeDetails.getTargetArrowPaint(edge));
+		}
 
-						if (!computeEdgeEndpoints(srcExtents, srcShape, srcArrow,
-						                          srcArrowSize, anchors, trgExtents, trgShape,
-						                          trgArrow, trgArrowSize, floatBuff3, floatBuff4))
-							continue;
+		if (!computeEdgeEndpoints(srcExtents, srcShape, srcArrow,
+		                          srcArrowSize, anchors, trgExtents, trgShape,
+		                          trgArrow, trgArrowSize, floatBuff3, floatBuff4))
+			return;
 
-						final float srcXAdj = floatBuff3[0];
-						final float srcYAdj = floatBuff3[1];
-						final float trgXAdj = floatBuff4[0];
-						final float trgYAdj = floatBuff4[1];
-
-						grafx.drawEdgeFull(srcArrow, srcArrowSize, srcArrowPaint, trgArrow,
-						                   trgArrowSize, trgArrowPaint, srcXAdj, srcYAdj,
-						                   anchors, trgXAdj, trgYAdj, thickness, edgeStroke, segPaint);
-
-						// Take care of edge anchor rendering.
-						if (anchors != null) {
-							for (int k = 0; k < anchors.numAnchors(); k++) {
-								final float anchorSize;
-
-								if ((anchorSize = edgeDetails.getAnchorSize(edge, k)) > 0.0f) {
-									anchors.getAnchor(k, floatBuff4);
-									grafx.drawNodeFull(GraphGraphics.SHAPE_RECTANGLE,
-									                   (float) (floatBuff4[0] - (anchorSize / 2.0d)),
-									                   (float) (floatBuff4[1] - (anchorSize / 2.0d)),
-									                   (float) (floatBuff4[0] + (anchorSize / 2.0d)),
-									                   (float) (floatBuff4[1] + (anchorSize / 2.0d)),
-									                   edgeDetails.getAnchorPaint(edge, k), 0.0f, null, null);
-								}
-							}
+		final float srcXAdj = floatBuff3[0];
+		final float srcYAdj = floatBuff3[1];
+		final float trgXAdj = floatBuff4[0];
+		final float trgYAdj = floatBuff4[1];
+
+		grafx.drawEdgeFull(srcArrow, srcArrowSize, srcArrowPaint, trgArrow,
+		                   trgArrowSize, trgArrowPaint, srcXAdj, srcYAdj,
+		                   anchors, trgXAdj, trgYAdj, thickness, edgeStroke, segPaint);
+
+		// Take care of edge anchor rendering.
+		if (anchors != null) {
+			for (int k = 0; k < anchors.numAnchors(); k++) {
+				final float anchorSize;
+
+				if ((anchorSize = edgeDetails.getAnchorSize(edge, k)) > 0.0f) {
+					anchors.getAnchor(k, floatBuff4);
+					grafx.drawNodeFull(GraphGraphics.SHAPE_RECTANGLE,
+					                   (float) (floatBuff4[0] - (anchorSize / 2.0d)),
+					                   (float) (floatBuff4[1] - (anchorSize / 2.0d)),
+					                   (float) (floatBuff4[0] + (anchorSize / 2.0d)),
+					                   (float) (floatBuff4[1] + (anchorSize / 2.0d)),
+					                   edgeDetails.getAnchorPaint(edge, k), 0.0f, null, null);
+				}
+			}
+		}
+
+		shapePm.done();
+		
+		labelPm.start("Label");
+		
+		// Take care of label rendering.
+		if (flags.has(LOD_EDGE_LABELS)) {
+			final int labelCount = edgeDetails.getLabelCount(edge);
+			for (int labelInx = 0; labelInx < labelCount; labelInx++) {
+				if(pm.isCancelled()) {
+					return;
+				}
+				
+				final String text = edgeDetails.getLabelText(edge);
+				final Font font = edgeDetails.getLabelFont(edge);
+				final double fontScaleFactor = edgeDetails.getLabelScaleFactor(edge);
+				final Paint paint = edgeDetails.getLabelPaint(edge);
+				final Position textAnchor = edgeDetails.getLabelTextAnchor(edge);
+				final Position edgeAnchor = edgeDetails.getLabelEdgeAnchor(edge);
+				final float offsetVectorX = edgeDetails.getLabelOffsetVectorX(edge);
+				final float offsetVectorY = edgeDetails.getLabelOffsetVectorY(edge);
+				final Justification justify;
+
+				if (text.indexOf('\n') >= 0)
+					justify = edgeDetails.getLabelJustify(edge);
+				else
+					justify = Justification.JUSTIFY_CENTER;
+
+				final double edgeAnchorPointX;
+				final double edgeAnchorPointY;
+
+				final double edgeLabelWidth = edgeDetails.getLabelWidth(edge);
+
+				// Note that we reuse the position enum here.  West == source and East == target
+				// This is sort of safe since we don't provide an API for changing this
+				// in any case.
+				if (edgeAnchor == Position.WEST) {		edgeAnchorPointX = srcXAdj;   edgeAnchorPointY = srcYAdj;
+				} else if (edgeAnchor == Position.EAST) { edgeAnchorPointX = trgXAdj; edgeAnchorPointY = trgYAdj;
+				} else if (edgeAnchor == Position.CENTER) {
+					if (!GraphGraphics.getEdgePath(srcArrow, srcArrowSize, trgArrow,
+					              trgArrowSize, srcXAdj, srcYAdj, anchors,  trgXAdj, trgYAdj, path2d)) {
+						continue;
+					}
+
+					// Count the number of path segments.  This count
+					// includes the initial SEG_MOVETO.  So, for example, a
+					// path composed of 2 cubic curves would have a numPaths
+					// of 3.  Note that numPaths will be at least 2 in all
+					// cases.
+					final int numPaths;
+
+					{
+						final PathIterator pathIter = path2d.getPathIterator(null);
+						int numPathsTemp = 0;
+
+						while (!pathIter.isDone()) {
+							numPathsTemp++; // pathIter.currentSegment().
+							pathIter.next();
 						}
 
-						shapePm.done();
-						
-						labelPm.start("Label");
-						
-						// Take care of label rendering.
-						if (flags.has(LOD_EDGE_LABELS)) {
-							final int labelCount = edgeDetails.getLabelCount(edge);
-							for (int labelInx = 0; labelInx < labelCount; labelInx++) {
-								if(pm.isCancelled()) {
-									return;
-								}
-								
-								final String text = edgeDetails.getLabelText(edge);
-								final Font font = edgeDetails.getLabelFont(edge);
-								final double fontScaleFactor = edgeDetails.getLabelScaleFactor(edge);
-								final Paint paint = edgeDetails.getLabelPaint(edge);
-								final Position textAnchor = edgeDetails.getLabelTextAnchor(edge);
-								final Position edgeAnchor = edgeDetails.getLabelEdgeAnchor(edge);
-								final float offsetVectorX = edgeDetails.getLabelOffsetVectorX(edge);
-								final float offsetVectorY = edgeDetails.getLabelOffsetVectorY(edge);
-								final Justification justify;
-
-								if (text.indexOf('\n') >= 0)
-									justify = edgeDetails.getLabelJustify(edge);
-								else
-									justify = Justification.JUSTIFY_CENTER;
-
-								final double edgeAnchorPointX;
-								final double edgeAnchorPointY;
-
-								final double edgeLabelWidth = edgeDetails.getLabelWidth(edge);
-
-								// Note that we reuse the position enum here.  West == source and East == target
-								// This is sort of safe since we don't provide an API for changing this
-								// in any case.
-								if (edgeAnchor == Position.WEST) {		edgeAnchorPointX = srcXAdj;   edgeAnchorPointY = srcYAdj;
-								} else if (edgeAnchor == Position.EAST) { edgeAnchorPointX = trgXAdj; edgeAnchorPointY = trgYAdj;
-								} else if (edgeAnchor == Position.CENTER) {
-									if (!GraphGraphics.getEdgePath(srcArrow, srcArrowSize, trgArrow,
-									              trgArrowSize, srcXAdj, srcYAdj, anchors,  trgXAdj, trgYAdj, path2d)) {
-										continue;
-									}
-
-									// Count the number of path segments.  This count
-									// includes the initial SEG_MOVETO.  So, for example, a
-									// path composed of 2 cubic curves would have a numPaths
-									// of 3.  Note that numPaths will be at least 2 in all
-									// cases.
-									final int numPaths;
-
-									{
-										final PathIterator pathIter = path2d.getPathIterator(null);
-										int numPathsTemp = 0;
-
-										while (!pathIter.isDone()) {
-											numPathsTemp++; // pathIter.currentSegment().
-											pathIter.next();
-										}
-
-										numPaths = numPathsTemp;
-									}
-
-									// Compute "midpoint" of edge.
-									if ((numPaths % 2) != 0) {
-										final PathIterator pathIter = path2d.getPathIterator(null);
-
-										for (int i = numPaths / 2; i > 0; i--)
-											pathIter.next();
-
-										final int subPathType = pathIter.currentSegment(floatBuff5);
-
-										if (subPathType == PathIterator.SEG_LINETO) {
-											edgeAnchorPointX = floatBuff5[0];
-											edgeAnchorPointY = floatBuff5[1];
-										} else if (subPathType == PathIterator.SEG_QUADTO) {
-											edgeAnchorPointX = floatBuff5[2];
-											edgeAnchorPointY = floatBuff5[3];
-										} else if (subPathType == PathIterator.SEG_CUBICTO) {
-											edgeAnchorPointX = floatBuff5[4];
-											edgeAnchorPointY = floatBuff5[5];
-										} else
-											throw new IllegalStateException("got unexpected PathIterator segment type: " + subPathType);
-									} else { // numPaths % 2 == 0.
-
-										final PathIterator pathIter = path2d.getPathIterator(null);
-
-										for (int i = numPaths / 2; i > 0; i--) {
-											if (i == 1) {
-												final int subPathType = pathIter.currentSegment(floatBuff5);
-
-												if ((subPathType == PathIterator.SEG_MOVETO)
-												    || (subPathType == PathIterator.SEG_LINETO)) {
-													floatBuff5[6] = floatBuff5[0];
-													floatBuff5[7] = floatBuff5[1];
-												} else if (subPathType == PathIterator.SEG_QUADTO) {
-													floatBuff5[6] = floatBuff5[2];
-													floatBuff5[7] = floatBuff5[3];
-												} else if (subPathType == PathIterator.SEG_CUBICTO) {
-													floatBuff5[6] = floatBuff5[4];
-													floatBuff5[7] = floatBuff5[5];
-												} else
-													throw new IllegalStateException("got unexpected PathIterator segment type: " + subPathType);
-											}
-
-											pathIter.next();
-										}
-
-										final int subPathType = pathIter.currentSegment(floatBuff5);
-
-										if (subPathType == PathIterator.SEG_LINETO) {
-											edgeAnchorPointX = (0.5d * floatBuff5[6]) + (0.5d * floatBuff5[0]);
-											edgeAnchorPointY = (0.5d * floatBuff5[7]) + (0.5d * floatBuff5[1]);
-										} else if (subPathType == PathIterator.SEG_QUADTO) {
-											edgeAnchorPointX = (0.25d * floatBuff5[6]) + (0.5d * floatBuff5[0]) + (0.25d * floatBuff5[2]);
-											edgeAnchorPointY = (0.25d * floatBuff5[7]) + (0.5d * floatBuff5[1]) + (0.25d * floatBuff5[3]);
-										} else if (subPathType == PathIterator.SEG_CUBICTO) {
-											edgeAnchorPointX = (0.125d * floatBuff5[6]) + (0.375d * floatBuff5[0]) + (0.375d * floatBuff5[2]) + (0.125d * floatBuff5[4]);
-											edgeAnchorPointY = (0.125d * floatBuff5[7]) + (0.375d * floatBuff5[1]) + (0.375d * floatBuff5[3]) + (0.125d * floatBuff5[5]);
-										} else
-											throw new IllegalStateException("got unexpected PathIterator segment type: " + subPathType);
-									}
+						numPaths = numPathsTemp;
+					}
+
+					// Compute "midpoint" of edge.
+					if ((numPaths % 2) != 0) {
+						final PathIterator pathIter = path2d.getPathIterator(null);
+
+						for (int i = numPaths / 2; i > 0; i--)
+							pathIter.next();
+
+						final int subPathType = pathIter.currentSegment(floatBuff5);
+
+						if (subPathType == PathIterator.SEG_LINETO) {
+							edgeAnchorPointX = floatBuff5[0];
+							edgeAnchorPointY = floatBuff5[1];
+						} else if (subPathType == PathIterator.SEG_QUADTO) {
+							edgeAnchorPointX = floatBuff5[2];
+							edgeAnchorPointY = floatBuff5[3];
+						} else if (subPathType == PathIterator.SEG_CUBICTO) {
+							edgeAnchorPointX = floatBuff5[4];
+							edgeAnchorPointY = floatBuff5[5];
+						} else
+							throw new IllegalStateException("got unexpected PathIterator segment type: " + subPathType);
+					} else { // numPaths % 2 == 0.
+
+						final PathIterator pathIter = path2d.getPathIterator(null);
+
+						for (int i = numPaths / 2; i > 0; i--) {
+							if (i == 1) {
+								final int subPathType = pathIter.currentSegment(floatBuff5);
+
+								if ((subPathType == PathIterator.SEG_MOVETO)
+								    || (subPathType == PathIterator.SEG_LINETO)) {
+									floatBuff5[6] = floatBuff5[0];
+									floatBuff5[7] = floatBuff5[1];
+								} else if (subPathType == PathIterator.SEG_QUADTO) {
+									floatBuff5[6] = floatBuff5[2];
+									floatBuff5[7] = floatBuff5[3];
+								} else if (subPathType == PathIterator.SEG_CUBICTO) {
+									floatBuff5[6] = floatBuff5[4];
+									floatBuff5[7] = floatBuff5[5];
 								} else
-									throw new IllegalStateException("encountered an invalid EDGE_ANCHOR_* constant: " + edgeAnchor);
-
-								final MeasuredLineCreator measuredText = 
-									new MeasuredLineCreator(text,font,
-									                         grafx.getFontRenderContextFull(),
-									                         fontScaleFactor, 
-									                         flags.has(LOD_TEXT_AS_SHAPE),
-									                         edgeLabelWidth);
-
-								doubleBuff1[0] = -0.5d * measuredText.getMaxLineWidth();
-								doubleBuff1[1] = -0.5d * measuredText.getTotalHeight(); 
-								doubleBuff1[2] = 0.5d * measuredText.getMaxLineWidth(); 
-								doubleBuff1[3] = 0.5d * measuredText.getTotalHeight(); 
-								lemma_computeAnchor(textAnchor, doubleBuff1, doubleBuff2);
-
-								final double textXCenter = edgeAnchorPointX - doubleBuff2[0] + offsetVectorX;
-								final double textYCenter = edgeAnchorPointY - doubleBuff2[1] + offsetVectorY;
-								TextRenderingUtils.renderHorizontalText(grafx, measuredText, 
-								                                        font, fontScaleFactor,
-								                                        (float) textXCenter,
-								                                        (float) textYCenter,
-								                                        justify, paint,
-								                                        flags.has(LOD_TEXT_AS_SHAPE));
+									throw new IllegalStateException("got unexpected PathIterator segment type: " + subPathType);
 							}
+
+							pathIter.next();
 						}
-						
-						labelPm.done();
-					}
-				}
 
-				nodeBuff.put(nodeSuid);
-				shapeDpm.increment();
-				labelDpm.increment();
+						final int subPathType = pathIter.currentSegment(floatBuff5);
+
+						if (subPathType == PathIterator.SEG_LINETO) {
+							edgeAnchorPointX = (0.5d * floatBuff5[6]) + (0.5d * floatBuff5[0]);
+							edgeAnchorPointY = (0.5d * floatBuff5[7]) + (0.5d * floatBuff5[1]);
+						} else if (subPathType == PathIterator.SEG_QUADTO) {
+							edgeAnchorPointX = (0.25d * floatBuff5[6]) + (0.5d * floatBuff5[0]) + (0.25d * floatBuff5[2]);
+							edgeAnchorPointY = (0.25d * floatBuff5[7]) + (0.5d * floatBuff5[1]) + (0.25d * floatBuff5[3]);
+						} else if (subPathType == PathIterator.SEG_CUBICTO) {
+							edgeAnchorPointX = (0.125d * floatBuff5[6]) + (0.375d * floatBuff5[0]) + (0.375d * floatBuff5[2]) + (0.125d * floatBuff5[4]);
+							edgeAnchorPointY = (0.125d * floatBuff5[7]) + (0.375d * floatBuff5[1]) + (0.375d * floatBuff5[3]) + (0.125d * floatBuff5[5]);
+						} else
+							throw new IllegalStateException("got unexpected PathIterator segment type: " + subPathType);
+					}
+				} else
+					throw new IllegalStateException("encountered an invalid EDGE_ANCHOR_* constant: " + edgeAnchor);
+
+				final MeasuredLineCreator measuredText = 
+					MeasuredLineCache.get(text,font,
+					                         grafx.getFontRenderContextFull(),
+					                         fontScaleFactor, 
+					                         flags.has(LOD_TEXT_AS_SHAPE),
+					                         edgeLabelWidth);
+
+				doubleBuff1[0] = -0.5d * measuredText.getMaxLineWidth();
+				doubleBuff1[1] = -0.5d * measuredText.getTotalHeight(); 
+				doubleBuff1[2] = 0.5d * measuredText.getMaxLineWidth(); 
+				doubleBuff1[3] = 0.5d * measuredText.getTotalHeight(); 
+				lemma_computeAnchor(textAnchor, doubleBuff1, doubleBuff2);
+
+				final double textXCenter = edgeAnchorPointX - doubleBuff2[0] + offsetVectorX;
+				final double textYCenter = edgeAnchorPointY - doubleBuff2[1] + offsetVectorY;
+				TextRenderingUtils.renderHorizontalText(grafx, measuredText, 
+				                                        font, fontScaleFactor,
+				                                        (float) textXCenter,
+				                                        (float) textYCenter,
+				                                        justify, paint,
+				                                        flags.has(LOD_TEXT_AS_SHAPE));
 			}
 		}
+		
+		labelPm.done();
+	}
+	
+	/**
+	 * The buffers that renderEdgeHigh reuses from one edge to the next.
+	 */
+	private static final class EdgeBuffers {
+		final float[] floatBuff3 = new float[2];
+		final float[] floatBuff4 = new float[2];
+		final float[] floatBuff5 = new float[8];
+		final double[] doubleBuff1 = new double[4];
+		final double[] doubleBuff2 = new double[2];
+		final GeneralPath path2d = new GeneralPath();
 	}
 
 	
 	public static void renderNodes(ProgressMonitor pm, GraphGraphics grafx, CyNetworkViewSnapshot netView,
 			RenderDetailFlags flags, NodeDetails nodeDetails, EdgeDetails edgeDetails, Set<VisualPropertyDependency<?>> dependencies) {
+		Rectangle2D.Float area = grafx.getTransform().getNetworkVisibleAreaNodeCoords();
+		renderNodes(pm, grafx, netView, flags, nodeDetails, edgeDetails, dependencies, area);
+	}
+	
+	/**
+	 * Renders the nodes that overlap the given area, which may be smaller than the visible area
+	 * when only a tile of the image is rendered.
+	 */
+	public static void renderNodes(ProgressMonitor pm, GraphGraphics grafx, CyNetworkViewSnapshot netView,
+			RenderDetailFlags flags, NodeDetails nodeDetails, EdgeDetails edgeDetails, Set<VisualPropertyDependency<?>> dependencies,
+			Rectangle2D.Float area) {
 		
 		// Render nodes and labels.  A label is not necessarily on top of every
 		// node; it is only on top of the node it belongs to.
@@ -498,7 +677,19 @@ public final class GraphRenderer {
 		final double[] doubleBuff1 = new double[4];
 		final double[] doubleBuff2 = new double[2];
 		
-		Rectangle2D.Float area = grafx.getTransform().getNetworkVisibleAreaNodeCoords();
+		if (flags.has(LOD_DENSITY_RASTER)) { // Density of the nodes and edges.
+			
+			ProgressMonitor[] subPms = pm.split(1,0);
+			ProgressMonitor shapePm = subPms[0];
+			ProgressMonitor labelPm = subPms[1];
+			
+			shapePm.start("Density");
+			DensityRaster.render(shapePm, grafx, netView, flags, edgeDetails, area);
+			shapePm.done();
+			labelPm.emptyTask("Label");
+			return;
+		}
+		
 		SpacialIndex2DEnumerator<Long> nodeHits = netView.getSpacialIndex2D().queryOverlap(area.x, area.y, area.x + area.width, area.y + area.height);
 		
 		if (flags.not(LOD_HIGH_DETAIL)) { // Low detail.
@@ -582,7 +773,7 @@ public final class GraphRenderer {
 
 						final double nodeAnchorPointX = doubleBuff2[0];
 						final double nodeAnchorPointY = doubleBuff2[1];
-						final MeasuredLineCreator measuredText = new MeasuredLineCreator(
+						final MeasuredLineCreator measuredText = MeasuredLineCache.get(
 						    text, font, grafx.getFontRenderContextFull(), fontScaleFactor,
 						    flags.has(LOD_TEXT_AS_SHAPE), nodeLabelWidth);
 
@@ -609,6 +800,105 @@ public final class GraphRenderer {
 		}
 	}
 	
+	/**
+	 * Measures how far what {@link #renderNodes} renders for the given nodes reaches beyond their extents,
+	 * that is their borders and their labels, so that a tile can be rendered from the nodes around it.
+	 * 
+	 * @return the distance, in node coordinates
+	 */
+	public static float getNodeMargin(CyNetworkViewSnapshot netView, RenderDetailFlags flags, NodeDetails nodeDetails,
+			Iterable<View<CyNode>> nodes) {
+		if (flags.not(LOD_HIGH_DETAIL) || flags.has(LOD_DENSITY_RASTER))
+			return 0.0f;
+		
+		// The labels are measured like GraphGraphics.getFontRenderContextFull() does
+		final FontRenderContext frc = new FontRenderContext(null, true, true);
+		final float[] extents = new float[4];
+		final double[] doubleBuff1 = new double[4];
+		final double[] doubleBuff2 = new double[2];
+		double margin = 0.0;
+		
+		for (View<CyNode> node : nodes) {
+			if (!netView.getSpacialIndex2D().get(node.getSUID(), extents))
+				continue;
+			
+			if (flags.has(LOD_NODE_BORDERS))
+				margin = Math.max(margin, nodeDetails.getBorderWidth(node) / 2.0);
+			
+			if (flags.has(LOD_NODE_LABELS) && nodeDetails.getLabelCount(node) > 0) {
+				doubleBuff1[0] = extents[0];
+				doubleBuff1[1] = extents[1];
+				doubleBuff1[2] = extents[2];
+				doubleBuff1[3] = extents[3];
+				lemma_computeAnchor(nodeDetails.getLabelNodeAnchor(node), doubleBuff1, doubleBuff2);
+				
+				final double nodeAnchorPointX = doubleBuff2[0];
+				final double nodeAnchorPointY = doubleBuff2[1];
+				final MeasuredLineCreator measuredText = MeasuredLineCache.get(
+				    nodeDetails.getLabelText(node), nodeDetails.getLabelFont(node), frc,
+				    nodeDetails.getLabelScaleFactor(node), flags.has(LOD_TEXT_AS_SHAPE), nodeDetails.getLabelWidth(node));
+				final double halfWidth = 0.5d * measuredText.getMaxLineWidth();
+				final double halfHeight = 0.5d * measuredText.getTotalHeight();
+				
+				doubleBuff1[0] = -halfWidth;
+				doubleBuff1[1] = -halfHeight;
+				doubleBuff1[2] = halfWidth;
+				doubleBuff1[3] = halfHeight;
+				lemma_computeAnchor(nodeDetails.getLabelTextAnchor(node), doubleBuff1, doubleBuff2);
+				
+				final double textXCenter = nodeAnchorPointX - doubleBuff2[0] + nodeDetails.getLabelOffsetVectorX(node);
+				final double textYCenter = nodeAnchorPointY - doubleBuff2[1] + nodeDetails.getLabelOffsetVectorY(node);
+				
+				margin = Math.max(margin, Math.max(
+						Math.max(extents[0] - (textXCenter - halfWidth), (textXCenter + halfWidth) - extents[2]),
+						Math.max(extents[1] - (textYCenter - halfHeight), (textYCenter + halfHeight) - extents[3])));
+			}
+		}
+		
+		return (float) margin;
+	}
+	
+	/**
+	 * Measures how far what {@link #renderEdges} renders for the given edges reaches beyond the extents of
+	 * their nodes and anchors, that is their thickness, arrows, handles and labels.
+	 * 
+	 * @return the distance, in node coordinates
+	 */
+	public static float getEdgeMargin(CyNetworkViewSnapshot netView, RenderDetailFlags flags, EdgeDetails edgeDetails,
+			Iterable<View<CyEdge>> edges) {
+		if (flags.not(LOD_HIGH_DETAIL) || flags.renderEdges() == RenderEdges.NONE)
+			return 0.0f;
+		
+		final FontRenderContext frc = new FontRenderContext(null, true, true);
+		double margin = 0.0;
+		
+		for (View<CyEdge> edge : edges) {
+			margin = Math.max(margin, edgeDetails.getWidth(edge) / 2.0);
+			
+			if (flags.has(LOD_EDGE_ARROWS))
+				margin = Math.max(margin, Math.max(edgeDetails.getSourceArrowSize(edge), edgeDetails.getTargetArrowSize(edge)));
+			
+			final EdgeAnchors anchors = flags.has(LOD_EDGE_ANCHORS) ? edgeDetails.getAnchors(netView, edge) : null;
+			if (anchors != null) {
+				for (int k = 0; k < anchors.numAnchors(); k++)
+					margin = Math.max(margin, edgeDetails.getAnchorSize(edge, k) / 2.0);
+			}
+			
+			// The label is placed on the edge or at one of its ends, around its text anchor
+			if (flags.has(LOD_EDGE_LABELS) && edgeDetails.getLabelCount(edge) > 0) {
+				final MeasuredLineCreator measuredText = MeasuredLineCache.get(
+				    edgeDetails.getLabelText(edge), edgeDetails.getLabelFont(edge), frc,
+				    edgeDetails.getLabelScaleFactor(edge), flags.has(LOD_TEXT_AS_SHAPE), edgeDetails.getLabelWidth(edge));
+				
+				margin = Math.max(margin, Math.max(
+						Math.abs(edgeDetails.getLabelOffsetVectorX(edge)) + measuredText.getMaxLineWidth(),
+						Math.abs(edgeDetails.getLabelOffsetVectorY(edge)) + measuredText.getTotalHeight()));
+			}
+		}
+		
+		return (float) margin;
+	}
+	
 	/**
 	 * 
 	 * @param anchor
@@ -24,6 +24,12 @@ package org.cytoscape.graph.render.stateful;
  * #L%
  */
 
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+
+import org.cytoscape.graph.render.immed.GraphGraphics;
+
 
 /**
  * A simple class to hold the width and height of a given string in terms
@@ -33,6 +39,7 @@ class MeasuredLine {
 	private final String line;
 	private final double width;
 	private final double height;
+	private volatile Shape textShape;
 
 	public MeasuredLine(final String line, final double width, final double height) {
 		this.line = line;
@@ -52,6 +59,20 @@ class MeasuredLine {
 		return height;
 	}
 
+	/**
+	 * @return the outline of the glyphs of the line, centered on the origin, laid out the first
+	 * time it is needed. The line is always measured with the same font and context.
+	 */
+	Shape getTextShape(final Font font, final FontRenderContext frc) {
+		// Laying out the glyphs twice from two threads is harmless, the shapes are the same
+		Shape shape = textShape;
+
+		if (shape == null)
+			textShape = shape = GraphGraphics.getCenteredTextShape(font, line, frc);
+
+		return shape;
+	}
+
 	public String toString() {
 		return "'" + line + "'  w:" + width + " h:" + height;
 	}
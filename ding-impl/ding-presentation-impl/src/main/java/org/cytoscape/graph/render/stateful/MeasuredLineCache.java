@@ -0,0 +1,163 @@
+package org.cytoscape.graph.render.stateful;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A bounded, least recently used cache of the labels split and measured by {@link MeasuredLineCreator},
+ * shared by all the renderers, so that a label is not measured again on every frame.
+ * <br>
+ * A MeasuredLineCreator is not modified once it is made, so the same one can be rendered from
+ * several threads at the same time. The justification of a label is not part of the key, as it
+ * only moves the lines when they are rendered.
+ */
+public final class MeasuredLineCache {
+
+	public static final String SIZE_PROPERTY = "dingLabelCacheSize";
+
+	private static final int SIZE = Math.max(0, Integer.getInteger(SIZE_PROPERTY, 4096));
+
+	private static final Map<Key,MeasuredLineCreator> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key,MeasuredLineCreator> eldest) {
+			return size() > SIZE;
+		}
+	};
+
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	private MeasuredLineCache() {
+	}
+
+	/**
+	 * @return the measured lines of the text, from the cache if it has been measured with the same parameters
+	 * @see MeasuredLineCreator#MeasuredLineCreator(String, Font, FontRenderContext, double, boolean, double)
+	 */
+	public static MeasuredLineCreator get(String text, Font font, FontRenderContext frc, double fontScaleFactor,
+			boolean textAsShape, double labelWidth) {
+		final Key key = new Key(text, font, frc, fontScaleFactor, textAsShape, labelWidth);
+		MeasuredLineCreator measuredText;
+
+		synchronized (cache) {
+			measuredText = cache.get(key);
+		}
+
+		if (measuredText != null) {
+			hits.incrementAndGet();
+			return measuredText;
+		}
+
+		misses.incrementAndGet();
+
+		// Measured outside of the lock, two threads may measure the same label but both get the same result
+		measuredText = new MeasuredLineCreator(text, font, frc, fontScaleFactor, textAsShape, labelWidth);
+
+		synchronized (cache) {
+			cache.put(key, measuredText);
+		}
+
+		return measuredText;
+	}
+
+	/**
+	 * @return how many labels were found in the cache since it was last cleared
+	 */
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * @return how many labels had to be measured since the cache was last cleared
+	 */
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	public static int size() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+
+	/**
+	 * Removes all the labels and resets the hit and miss counts.
+	 */
+	public static void clear() {
+		synchronized (cache) {
+			cache.clear();
+		}
+		hits.set(0);
+		misses.set(0);
+	}
+
+	private static final class Key {
+		private final String text;
+		private final Font font;
+		private final FontRenderContext frc;
+		private final double fontScaleFactor;
+		private final boolean textAsShape;
+		private final double labelWidth;
+		private final int hash;
+
+		Key(String text, Font font, FontRenderContext frc, double fontScaleFactor, boolean textAsShape, double labelWidth) {
+			this.text = text;
+			this.font = font;
+			this.frc = frc;
+			this.fontScaleFactor = fontScaleFactor;
+			this.textAsShape = textAsShape;
+			this.labelWidth = labelWidth;
+			this.hash = Objects.hash(text, font, frc, fontScaleFactor, textAsShape, labelWidth);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o)
+				return true;
+			if (!(o instanceof Key))
+				return false;
+
+			final Key k = (Key) o;
+			return hash == k.hash
+				&& textAsShape == k.textAsShape
+				&& Double.compare(fontScaleFactor, k.fontScaleFactor) == 0
+				&& Double.compare(labelWidth, k.labelWidth) == 0
+				&& text.equals(k.text)
+				&& font.equals(k.font)
+				&& frc.equals(k.frc);
+		}
+	}
+}
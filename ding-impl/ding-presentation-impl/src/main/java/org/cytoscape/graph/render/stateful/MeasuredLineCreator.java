@@ -27,6 +27,7 @@ package org.cytoscape.graph.render.stateful;
 
 import java.awt.Font;
 import java.awt.Paint;
+import java.awt.Shape;
 import java.awt.font.FontRenderContext;
 import java.awt.font.GlyphVector;
 import java.awt.geom.Rectangle2D;
@@ -200,6 +201,21 @@ public class MeasuredLineCreator {
 		return totalHeight;
 	}
 
+	/**
+	 * @return the context that the text is measured with.
+	 */
+	public FontRenderContext getFontRenderContext() {
+		return frc;
+	}
+
+	/**
+	 * @return the outline of the glyphs of the given line, one of {@link #getMeasuredLines()},
+	 * centered on the origin and laid out with the font and context of this text.
+	 */
+	Shape getTextShape(final MeasuredLine line) {
+		return line.getTextShape(font, frc);
+	}
+
 	/**
 	 * @return a list of MeasuredLine objects created from the input text.
 	 */
@@ -26,6 +26,7 @@ public class RenderDetailFlags {
 	public final static int LOD_EDGE_LABELS  = 0x40;
 	public final static int LOD_TEXT_AS_SHAPE = 0x80;
 	public final static int LOD_CUSTOM_GRAPHICS = 0x100;
+	public final static int LOD_DENSITY_RASTER = 0x200;
 
 	
 	private final int lodBits;
@@ -159,6 +160,8 @@ public class RenderDetailFlags {
 				lodTemp |= LOD_TEXT_AS_SHAPE;
 			if (lod.customGraphics(renderNodeCount, renderEdgeCount))
 				lodTemp |= LOD_CUSTOM_GRAPHICS;
+		} else if (lod.densityRaster(renderNodeCount, renderEdgeCount)) {
+			lodTemp |= LOD_DENSITY_RASTER;
 		}
 		return lodTemp;
 	}
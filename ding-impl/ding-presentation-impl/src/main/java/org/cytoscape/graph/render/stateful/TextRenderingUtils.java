@@ -111,9 +111,14 @@ final class TextRenderingUtils {
 			else
 				throw new IllegalStateException("textJustify value unrecognized");
 
-			grafx.drawTextFull(font, fontScaleFactor, line.getLine(), 
-			                   (float) xCenter, (float) yCenter, 0,
-			                   paint, textAsShape);
+			// The glyphs of the line are kept with the measured text, which is cached
+			if (textAsShape && grafx.getFontRenderContextFull().equals(measuredText.getFontRenderContext()))
+				grafx.drawTextShapeFull(measuredText.getTextShape(line), fontScaleFactor,
+				                        (float) xCenter, (float) yCenter, 0, paint);
+			else
+				grafx.drawTextFull(font, fontScaleFactor, line.getLine(), 
+				                   (float) xCenter, (float) yCenter, 0,
+				                   paint, textAsShape);
 			currHeight += line.getHeight();
 		}
 	}
@@ -0,0 +1,234 @@
+package org.cytoscape.ding.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Color;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cytoscape.ding.NetworkViewTestSupport;
+import org.cytoscape.graph.render.immed.EdgeAnchors;
+import org.cytoscape.graph.render.immed.GraphGraphics;
+import org.cytoscape.graph.render.stateful.EdgeDetails;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.presentation.property.ArrowShapeVisualProperty;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+public class EdgeSpacialIndexTest {
+
+	private final NetworkViewTestSupport testSupport = new NetworkViewTestSupport();
+
+	private CyNetworkView networkView;
+	private EdgeDetails edgeDetails;
+	private EdgeAnchors anchors;
+	private long bentEdge;
+	private List<CyNode> shortEdgeNodes;
+
+	@Before
+	public void setUp() {
+		// An edge from (0, 0) to (1000, 0), bent through (500, 500) like a parallel edge
+		CyNetwork network = testSupport.getNetwork();
+		CyNode source = network.addNode();
+		CyNode target = network.addNode();
+		CyEdge edge = network.addEdge(source, target, false);
+
+		// Short edges further down, so that the cells are much smaller than the bent edge
+		shortEdgeNodes = new ArrayList<>();
+
+		for (int i = 0; i < 50; i++) {
+			CyNode a = network.addNode();
+			CyNode b = network.addNode();
+			network.addEdge(a, b, false);
+			shortEdgeNodes.add(a);
+			shortEdgeNodes.add(b);
+		}
+
+		networkView = testSupport.getNetworkViewFactory().createNetworkView(network);
+		setLocation(source, 0, 0);
+		setLocation(target, 1000, 0);
+		bentEdge = networkView.getEdgeView(edge).getSUID();
+
+		for (int i = 0; i < shortEdgeNodes.size(); i += 2) {
+			setLocation(shortEdgeNodes.get(i), 10 * i, 2000);
+			setLocation(shortEdgeNodes.get(i + 1), 10 * i + 10, 2000);
+		}
+
+		anchors = mock(EdgeAnchors.class);
+		when(anchors.numAnchors()).thenReturn(1);
+		doAnswer(invocation -> {
+			float[] anchor = invocation.getArgument(1);
+			anchor[0] = 500;
+			anchor[1] = 500;
+			return null;
+		}).when(anchors).getAnchor(anyInt(), any());
+
+		edgeDetails = mock(EdgeDetails.class);
+		when(edgeDetails.getAnchors(any(), any())).thenAnswer(invocation -> {
+			View<?> view = invocation.getArgument(1);
+			return view.getSUID() == bentEdge ? anchors : null;
+		});
+	}
+
+	@Test
+	public void testBentEdgeOnStraightLine() {
+		// Where the edge is tested at low detail and by the lasso, away from its anchor
+		EdgeSpacialIndex index = build();
+		assertTrue(contains(index.query(240, -10, 260, 10), bentEdge));
+		assertTrue(contains(index.query(740, -10, 760, 10), bentEdge));
+	}
+
+	@Test
+	public void testBentEdgeThroughAnchor() {
+		// Where the edge is drawn at high detail
+		EdgeSpacialIndex index = build();
+		assertTrue(contains(index.query(490, 490, 510, 510), bentEdge));
+		assertTrue(contains(index.query(240, 240, 260, 260), bentEdge));
+	}
+
+	@Test
+	public void testBentEdgeOnDrawnCurve() {
+		// The curve rounds the anchor, away from both the straight line and the lines through the anchor
+		GeneralPath path = new GeneralPath();
+		assertTrue(GraphGraphics.getEdgePath(ArrowShapeVisualProperty.NONE, 0, ArrowShapeVisualProperty.NONE, 0,
+				0, 0, anchors, 1000, 0, path));
+
+		float[] apex = new float[2];
+		float[] coords = new float[6];
+
+		for (PathIterator it = path.getPathIterator(null, 0.1); !it.isDone(); it.next()) {
+			it.currentSegment(coords);
+
+			if (coords[1] > apex[1]) {
+				apex[0] = coords[0];
+				apex[1] = coords[1];
+			}
+		}
+
+		assertTrue(apex[1] > 100 && apex[1] < 400);
+
+		EdgeSpacialIndex index = build();
+		assertTrue(contains(index.query(apex[0] - 1, apex[1] - 1, apex[0] + 1, apex[1] + 1), bentEdge));
+	}
+
+	@Test
+	public void testAwayFromBentEdge() {
+		EdgeSpacialIndex index = build();
+		assertFalse(contains(index.query(240, 1000, 260, 1020), bentEdge));
+		assertFalse(contains(index.query(500, 1990, 520, 2010), bentEdge));
+		assertTrue(index.query(500, 1990, 520, 2010).size() > 0);
+	}
+
+	@Test
+	public void testUpdateMovedEdge() {
+		EdgeSpacialIndex index = build();
+		long shortEdge = getShortEdge(0);
+		assertTrue(contains(index.query(0, 1990, 10, 2010), shortEdge));
+
+		// The first short edge moves far away
+		setLocation(shortEdgeNodes.get(0), 5000, 5000);
+		setLocation(shortEdgeNodes.get(1), 5010, 5000);
+		CyNetworkViewSnapshot snapshot = networkView.createSnapshot();
+		EdgeSpacialIndex updated = EdgeSpacialIndex.update(index, snapshot, edgeDetails);
+		assertNotNull(updated);
+		assertSame(snapshot, updated.getSnapshot());
+
+		assertTrue(contains(updated.query(4990, 4990, 5020, 5010), shortEdge));
+		assertFalse(contains(updated.query(0, 1990, 10, 2010), shortEdge));
+
+		// The edges that did not change are in the grid, as views of the new snapshot
+		assertTrue(contains(updated.query(490, 490, 510, 510), bentEdge));
+		for (View<CyEdge> edge : updated.query(-100, -100, 6000, 6000))
+			assertSame(snapshot.getEdgeView(edge.getSUID()), edge);
+
+		// And it can be updated again
+		setLocation(shortEdgeNodes.get(2), 5000, 6000);
+		setLocation(shortEdgeNodes.get(3), 5010, 6000);
+		updated = EdgeSpacialIndex.update(updated, networkView.createSnapshot(), edgeDetails);
+		assertNotNull(updated);
+		assertTrue(contains(updated.query(4990, 4990, 5020, 5010), shortEdge));
+		assertTrue(contains(updated.query(4990, 5990, 5020, 6010), getShortEdge(2)));
+		assertFalse(contains(updated.query(20, 1990, 30, 2010), getShortEdge(2)));
+	}
+
+	@Test
+	public void testUpdateNotPossible() {
+		EdgeSpacialIndex index = build();
+
+		// Too many edges changed
+		for (int i = 0; i < shortEdgeNodes.size(); i++)
+			setLocation(shortEdgeNodes.get(i), 10 * i, 3000);
+		assertNull(EdgeSpacialIndex.update(index, networkView.createSnapshot(), edgeDetails));
+
+		// A view default changes every edge
+		index = build();
+		networkView.setViewDefault(BasicVisualLexicon.EDGE_UNSELECTED_PAINT, Color.RED);
+		assertNull(EdgeSpacialIndex.update(index, networkView.createSnapshot(), edgeDetails));
+	}
+
+	private long getShortEdge(int i) {
+		CyNode node = shortEdgeNodes.get(i);
+		return networkView.getEdgeView(networkView.getModel().getAdjacentEdgeList(node, CyEdge.Type.ANY).get(0)).getSUID();
+	}
+
+	private EdgeSpacialIndex build() {
+		CyNetworkViewSnapshot snapshot = networkView.createSnapshot();
+		EdgeSpacialIndex index = EdgeSpacialIndex.build(snapshot, edgeDetails);
+		assertSame(snapshot, index.getSnapshot());
+		return index;
+	}
+
+	private void setLocation(CyNode node, double x, double y) {
+		networkView.getNodeView(node).setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, x);
+		networkView.getNodeView(node).setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, y);
+	}
+
+	private static boolean contains(List<View<CyEdge>> edges, long suid) {
+		for (View<CyEdge> edge : edges) {
+			if (edge.getSUID() == suid)
+				return true;
+		}
+		return false;
+	}
+}
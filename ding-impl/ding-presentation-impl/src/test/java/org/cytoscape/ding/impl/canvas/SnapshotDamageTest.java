@@ -0,0 +1,215 @@
+package org.cytoscape.ding.impl.canvas;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.awt.Color;
+import java.awt.geom.Rectangle2D;
+
+import org.cytoscape.ding.DVisualLexicon;
+import org.cytoscape.ding.NetworkViewTestSupport;
+import org.cytoscape.ding.customgraphics.CustomGraphicsManager;
+import org.cytoscape.graph.render.stateful.EdgeDetails;
+import org.cytoscape.graph.render.stateful.GraphLOD.RenderEdges;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.internal.network.CyNetworkViewImpl;
+import org.cytoscape.view.presentation.property.BasicVisualLexicon;
+import org.junit.Before;
+import org.junit.Test;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2009 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+public class SnapshotDamageTest {
+
+	private final NetworkViewTestSupport testSupport = new NetworkViewTestSupport();
+
+	private CyNetworkView networkView;
+	private EdgeDetails edgeDetails;
+
+	private CyNode node1;
+	private CyEdge edge34;
+
+	@Before
+	public void setUp() {
+		// Two edges far apart: 1 - 2 around the origin and 3 - 4 around (5000, 5000)
+		CyNetwork network = testSupport.getNetwork();
+		node1 = network.addNode();
+		CyNode node2 = network.addNode();
+		CyNode node3 = network.addNode();
+		CyNode node4 = network.addNode();
+		network.addEdge(node1, node2, false);
+		edge34 = network.addEdge(node3, node4, false);
+
+		DVisualLexicon lexicon = new DVisualLexicon(mock(CustomGraphicsManager.class));
+		networkView = testSupport.getNetworkViewFactoryProvider().createNetworkViewFactory(lexicon, "test.renderer")
+				.createNetworkView(network);
+		setLocation(node1, 0, 0);
+		setLocation(node2, 200, 0);
+		setLocation(node3, 5000, 5000);
+		setLocation(node4, 5200, 5000);
+
+		edgeDetails = mock(EdgeDetails.class);
+	}
+
+	@Test
+	public void testNoChange() {
+		CyNetworkViewSnapshot from = networkView.createSnapshot();
+		CyNetworkViewSnapshot to = networkView.createSnapshot();
+
+		SnapshotDamage damage = compute(from, to);
+		assertTrue(damage.isEmpty());
+	}
+
+	@Test
+	public void testMoveNode() {
+		CyNetworkViewSnapshot from = networkView.createSnapshot();
+		setLocation(node1, 0, 1000);
+		CyNetworkViewSnapshot to = networkView.createSnapshot();
+
+		SnapshotDamage damage = compute(from, to);
+		assertFalse(damage.isEmpty());
+
+		// The node where it was and where it is, and its edge
+		assertTrue(damage.intersects(around(0, 0)));
+		assertTrue(damage.intersects(around(0, 1000)));
+		assertTrue(damage.intersects(around(100, 500)));
+
+		// The other edge is not touched
+		assertFalse(damage.intersects(around(5000, 5000)));
+		assertFalse(damage.intersects(around(5100, 5000)));
+		assertFalse(damage.intersects(around(2000, 2000)));
+	}
+
+	@Test
+	public void testChangeEdgeVisualProperty() {
+		CyNetworkViewSnapshot from = networkView.createSnapshot();
+		networkView.getEdgeView(edge34).setVisualProperty(BasicVisualLexicon.EDGE_WIDTH, 10.0);
+		CyNetworkViewSnapshot to = networkView.createSnapshot();
+
+		SnapshotDamage damage = compute(from, to);
+		assertFalse(damage.isEmpty());
+
+		assertTrue(damage.intersects(around(5100, 5000)));
+		assertFalse(damage.intersects(around(0, 0)));
+		assertFalse(damage.intersects(around(100, 0)));
+		assertFalse(damage.intersects(around(2000, 2000)));
+	}
+
+	@Test
+	public void testMoveNodeAndChangeEdge() {
+		CyNetworkViewSnapshot from = networkView.createSnapshot();
+		setLocation(node1, -1000, 0);
+		networkView.getEdgeView(edge34).setVisualProperty(BasicVisualLexicon.EDGE_WIDTH, 10.0);
+		CyNetworkViewSnapshot to = networkView.createSnapshot();
+
+		SnapshotDamage damage = compute(from, to);
+		assertTrue(damage.intersects(around(0, 0)));
+		assertTrue(damage.intersects(around(-1000, 0)));
+		assertTrue(damage.intersects(around(5100, 5000)));
+		assertFalse(damage.intersects(around(2000, 2000)));
+		assertFalse(damage.intersects(around(0, 3000)));
+	}
+
+	@Test
+	public void testAddAndRemoveNode() {
+		// The network events are not delivered to the view in the tests
+		CyNetworkViewImpl viewImpl = (CyNetworkViewImpl) networkView;
+		CyNetwork network = networkView.getModel();
+
+		CyNetworkViewSnapshot before = networkView.createSnapshot();
+		CyNode node5 = network.addNode();
+		CyEdge edge51 = network.addEdge(node5, node1, false);
+		viewImpl.addNode(node5);
+		viewImpl.addEdge(edge51);
+		setLocation(node5, 3000, 0);
+		CyNetworkViewSnapshot added = networkView.createSnapshot();
+
+		SnapshotDamage damage = compute(before, added);
+		assertTrue(damage.intersects(around(3000, 0)));
+		assertTrue(damage.intersects(around(1500, 0)));
+		assertFalse(damage.intersects(around(5000, 5000)));
+		assertFalse(damage.intersects(around(1500, 3000)));
+
+		viewImpl.removeNode(node5);
+		CyNetworkViewSnapshot removed = networkView.createSnapshot();
+
+		damage = compute(added, removed);
+		assertTrue(damage.intersects(around(3000, 0)));
+		assertTrue(damage.intersects(around(1500, 0)));
+		assertFalse(damage.intersects(around(5000, 5000)));
+	}
+
+	@Test
+	public void testChangesAcrossSeveralSnapshots() {
+		CyNetworkViewSnapshot from = networkView.createSnapshot();
+		setLocation(node1, 0, 1000);
+		networkView.createSnapshot();
+		networkView.getEdgeView(edge34).setVisualProperty(BasicVisualLexicon.EDGE_WIDTH, 10.0);
+		CyNetworkViewSnapshot to = networkView.createSnapshot();
+
+		SnapshotDamage damage = compute(from, to);
+		assertTrue(damage.intersects(around(0, 0)));
+		assertTrue(damage.intersects(around(0, 1000)));
+		assertTrue(damage.intersects(around(5100, 5000)));
+		assertFalse(damage.intersects(around(2000, 2000)));
+	}
+
+	@Test
+	public void testUnknownChanges() {
+		CyNetworkViewSnapshot from = networkView.createSnapshot();
+		setLocation(node1, 0, 1000);
+		CyNetworkViewSnapshot to = networkView.createSnapshot();
+
+		// Backwards
+		assertNull(SnapshotDamage.compute(to, from, RenderEdges.ALL, edgeDetails));
+
+		// A view default changes every node
+		networkView.setViewDefault(BasicVisualLexicon.NODE_FILL_COLOR, Color.RED);
+		CyNetworkViewSnapshot next = networkView.createSnapshot();
+		assertNull(SnapshotDamage.compute(to, next, RenderEdges.ALL, edgeDetails));
+	}
+
+	private SnapshotDamage compute(CyNetworkViewSnapshot from, CyNetworkViewSnapshot to) {
+		SnapshotDamage damage = SnapshotDamage.compute(from, to, RenderEdges.ALL, edgeDetails);
+		assertNotNull(damage);
+		return damage;
+	}
+
+	private void setLocation(CyNode node, double x, double y) {
+		networkView.getNodeView(node).setVisualProperty(BasicVisualLexicon.NODE_X_LOCATION, x);
+		networkView.getNodeView(node).setVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION, y);
+	}
+
+	private static Rectangle2D.Float around(float x, float y) {
+		return new Rectangle2D.Float(x - 1, y - 1, 2, 2);
+	}
+}
@@ -2,6 +2,7 @@ package org.cytoscape.graph.render.immed;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Shape;
 import java.util.Random;
 
 import org.apache.commons.math.MathException;
@@ -137,6 +138,21 @@ public class GraphGraphicsTest extends TestCase {
 		}
 	}
 
+	public void testCustomNodeShapeOnOtherThread() throws Exception {
+		final byte type = currentGraphGraphics.defineCustomNodeShape(
+				new float[] { -1f, -1f, 1f, -1f, 1f, 1f, -1f, 1f }, 0, 4);
+
+		// Tiles are rendered on pool threads, which must see the shapes defined on this one
+		final Shape[] shape = new Shape[1];
+		final Thread thread = new Thread(() -> shape[0] = GraphGraphics.getNodeShapes().get(type));
+		thread.start();
+		thread.join();
+
+		assertNotNull(shape[0]);
+		assertEquals(32.0, shape[0].getBounds2D().getWidth(), 1e-6);
+		assertEquals(8, currentGraphGraphics.getCustomNodeShape(type).length);
+	}
+
 	private long drawCurrentFull(Random rand) {
 		final float nodeSizeFactor = 50f;
 		float size = (float) canvasSize;
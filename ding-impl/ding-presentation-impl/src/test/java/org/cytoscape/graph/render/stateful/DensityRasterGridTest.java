@@ -0,0 +1,146 @@
+package org.cytoscape.graph.render.stateful;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2009 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import junit.framework.*;
+
+
+public class DensityRasterGridTest extends TestCase {
+	static final int SIZE = 10;
+
+	DensityRaster.Grid shape;
+	float[] grid;
+
+
+	public void setUp() {
+		// One cell per unit of node coordinates
+		shape = new DensityRaster.Grid(SIZE, SIZE, 1.0f, 0.0f, 1.0f, 0.0f);
+		grid = new float[SIZE * SIZE];
+	}
+
+	public void testLineInside() {
+		shape.addLine(grid, 1.5f, 1.5f, 5.5f, 1.5f, 1.0f);
+
+		for (int col = 1; col <= 5; col++)
+			assertEquals(1.0f, cell(col, 1));
+		assertEquals(5.0f, sum());
+	}
+
+	public void testLineOutside() {
+		shape.addLine(grid, -5.0f, -5.0f, -1.0f, -1.0f, 1.0f);
+		shape.addLine(grid, 11.0f, 2.0f, 20.0f, 8.0f, 1.0f);
+		assertEquals(0.0f, sum());
+	}
+
+	public void testVerticalLineOutside() {
+		shape.addLine(grid, -1.0f, 0.0f, -1.0f, 9.0f, 1.0f);
+		shape.addLine(grid, 12.0f, 0.0f, 12.0f, 9.0f, 1.0f);
+		assertEquals(0.0f, sum());
+	}
+
+	public void testLineClippedOnBothEnds() {
+		shape.addLine(grid, -10.0f, 4.5f, 20.0f, 4.5f, 1.0f);
+
+		// Every cell of the row, and nothing that wraps to the next row
+		for (int col = 0; col < SIZE; col++)
+			assertTrue(cell(col, 4) > 0);
+		assertEquals(rowSum(4), sum());
+	}
+
+	public void testLineClippedOnOneEnd() {
+		shape.addLine(grid, 2.5f, 7.5f, 2.5f, 100.0f, 2.0f);
+
+		for (int row = 7; row < SIZE; row++)
+			assertTrue(cell(2, row) > 0);
+		for (int row = 0; row < 7; row++)
+			assertEquals(0.0f, cell(2, row));
+		assertEquals(sum(), cell(2, 7) + cell(2, 8) + cell(2, 9));
+	}
+
+	public void testDiagonalLineClipped() {
+		shape.addLine(grid, -5.0f, -4.5f, 15.0f, 15.5f, 1.0f);
+
+		// Every row and column is crossed, only by cells along the line
+		for (int k = 0; k < SIZE; k++) {
+			float colSum = 0;
+
+			for (int i = 0; i < SIZE; i++) {
+				colSum += cell(k, i);
+
+				if (Math.abs(i - k) > 1)
+					assertEquals(0.0f, cell(i, k));
+			}
+
+			assertTrue(rowSum(k) > 0);
+			assertTrue(colSum > 0);
+		}
+	}
+
+	public void testScaledGrid() {
+		// Two units of node coordinates per cell, with the origin in cell (2, 2)
+		shape = new DensityRaster.Grid(SIZE, SIZE, 0.5f, 2.0f, 0.5f, 2.0f);
+		shape.addLine(grid, -4.0f, 1.0f, 0.0f, 1.0f, 1.0f);
+
+		for (int col = 0; col <= 2; col++)
+			assertEquals(1.0f, cell(col, 2));
+		assertEquals(3.0f, sum());
+	}
+
+	public void testGridsAreReusedCleared() {
+		// a size no other test uses, so that the spare grids are this test's own
+		final int cells = 12345;
+		float[] used = DensityRaster.takeGrid(cells);
+		used[7] = 3.0f;
+		DensityRaster.releaseGrids(java.util.Arrays.asList(used));
+
+		float[] reused = DensityRaster.takeGrid(cells);
+		assertSame(used, reused);
+		assertEquals(0.0f, reused[7]);
+		assertNotSame(reused, DensityRaster.takeGrid(cells));
+	}
+
+	private float cell(int col, int row) {
+		return grid[row * SIZE + col];
+	}
+
+	private float rowSum(int row) {
+		float sum = 0;
+
+		for (int col = 0; col < SIZE; col++)
+			sum += cell(col, row);
+
+		return sum;
+	}
+
+	private float sum() {
+		float sum = 0;
+
+		for (float value : grid)
+			sum += value;
+
+		return sum;
+	}
+}
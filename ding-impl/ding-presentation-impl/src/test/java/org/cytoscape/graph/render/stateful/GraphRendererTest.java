@@ -1,10 +1,26 @@
 package org.cytoscape.graph.render.stateful;
 
+import static org.cytoscape.graph.render.stateful.RenderDetailFlags.LOD_DENSITY_RASTER;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.util.Collections;
+
+import org.cytoscape.ding.NetworkViewTestSupport;
 import org.cytoscape.ding.impl.canvas.NetworkImageBuffer;
 import org.cytoscape.ding.impl.canvas.NetworkTransform;
 import org.cytoscape.graph.render.immed.EdgeAnchors;
 import org.cytoscape.graph.render.immed.GraphGraphics;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.CyNetworkViewSnapshot;
+import org.cytoscape.view.model.View;
 import org.cytoscape.view.presentation.property.ArrowShapeVisualProperty;
+import org.cytoscape.view.presentation.property.values.Position;
 
 import junit.framework.TestCase;
 
@@ -260,6 +276,50 @@ public class GraphRendererTest extends TestCase {
 	}
 
 
+	public void testGetNodeMargin() {
+		NetworkViewTestSupport testSupport = new NetworkViewTestSupport();
+		CyNetwork network = testSupport.getNetwork();
+		CyNode node = network.addNode();
+		CyNetworkView networkView = testSupport.getNetworkViewFactory().createNetworkView(network);
+		CyNetworkViewSnapshot snapshot = networkView.createSnapshot();
+		View<CyNode> nodeView = snapshot.getNodeView(node);
+		
+		float[] extents = new float[4];
+		assertTrue(snapshot.getSpacialIndex2D().get(nodeView.getSUID(), extents));
+		float nodeWidth = extents[2] - extents[0];
+		
+		// A label under the node, wider than it
+		String text = "A label that is much wider than the node";
+		Font font = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+		NodeDetails nodeDetails = mock(NodeDetails.class);
+		when(nodeDetails.getBorderWidth(nodeView)).thenReturn(2.0f);
+		when(nodeDetails.getLabelCount(nodeView)).thenReturn(1);
+		when(nodeDetails.getLabelText(nodeView)).thenReturn(text);
+		when(nodeDetails.getLabelFont(nodeView)).thenReturn(font);
+		when(nodeDetails.getLabelScaleFactor(nodeView)).thenReturn(1.0);
+		when(nodeDetails.getLabelWidth(nodeView)).thenReturn(1000.0);
+		when(nodeDetails.getLabelNodeAnchor(nodeView)).thenReturn(Position.SOUTH);
+		when(nodeDetails.getLabelTextAnchor(nodeView)).thenReturn(Position.NORTH);
+		
+		RenderDetailFlags flags = mock(RenderDetailFlags.class);
+		when(flags.has(anyInt())).thenReturn(true);
+		when(flags.has(LOD_DENSITY_RASTER)).thenReturn(false);
+		
+		MeasuredLineCreator measuredText = MeasuredLineCache.get(text, font, new FontRenderContext(null, true, true), 1.0, true, 1000.0);
+		double labelWidth = measuredText.getMaxLineWidth();
+		double labelHeight = measuredText.getTotalHeight();
+		assertTrue(labelWidth > nodeWidth);
+		
+		float margin = GraphRenderer.getNodeMargin(snapshot, flags, nodeDetails, Collections.singleton(nodeView));
+		assertEquals(Math.max(labelHeight, (labelWidth - nodeWidth) / 2), margin, 0.01);
+		
+		// Only the border without the labels
+		when(flags.has(RenderDetailFlags.LOD_NODE_LABELS)).thenReturn(false);
+		margin = GraphRenderer.getNodeMargin(snapshot, flags, nodeDetails, Collections.singleton(nodeView));
+		assertEquals(1.0f, margin, 0.001f);
+	}
+
+
 	private class SingleEdgeAnchor implements EdgeAnchors {
 		private float[] pt;	
 		SingleEdgeAnchor(float[] pt) {
@@ -0,0 +1,93 @@
+package org.cytoscape.graph.render.stateful;
+
+/*
+ * #%L
+ * Cytoscape Ding View/Presentation Impl (ding-presentation-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2009 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import junit.framework.*;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.*;
+import java.awt.GraphicsEnvironment;
+
+
+public class MeasuredLineCacheTest extends TestCase {
+	Font serif;
+	FontRenderContext frc;
+
+
+	public void setUp() {
+		// Forces a GraphicsEnvironment to be created, see MeasuredLineCreatorTest
+		GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
+
+		serif = new Font("Serif",Font.PLAIN,10);
+		frc = new FontRenderContext(null,true,true);
+		MeasuredLineCache.clear();
+	}
+
+	public void testHit() {
+		MeasuredLineCreator first = MeasuredLineCache.get("homer bart",serif,frc,2.0,true,100);
+		MeasuredLineCreator second = MeasuredLineCache.get("homer bart",new Font("Serif",Font.PLAIN,10),frc,2.0,true,100);
+		assertSame(first,second);
+		assertEquals(1,MeasuredLineCache.getMissCount());
+		assertEquals(1,MeasuredLineCache.getHitCount());
+	}
+
+	public void testMiss() {
+		MeasuredLineCreator first = MeasuredLineCache.get("homer bart",serif,frc,2.0,true,100);
+		assertNotSame(first,MeasuredLineCache.get("homer bart",serif,frc,2.0,true,10));
+		assertNotSame(first,MeasuredLineCache.get("homer bart",serif,frc,1.0,true,100));
+		assertNotSame(first,MeasuredLineCache.get("homer bart",serif,frc,2.0,false,100));
+		assertNotSame(first,MeasuredLineCache.get("homer",serif,frc,2.0,true,100));
+		assertEquals(5,MeasuredLineCache.getMissCount());
+		assertEquals(0,MeasuredLineCache.getHitCount());
+		assertEquals(5,MeasuredLineCache.size());
+	}
+
+	public void testSameAsCreator() {
+		MeasuredLineCreator cached = MeasuredLineCache.get("homer bart lisa marge",serif,frc,2.0,true,10);
+		MeasuredLineCreator mlc = new MeasuredLineCreator("homer bart lisa marge",serif,frc,2.0,true,10);
+		assertEquals(mlc.getMaxLineWidth(),cached.getMaxLineWidth());
+		assertEquals(mlc.getTotalHeight(),cached.getTotalHeight());
+		assertEquals(mlc.getMeasuredLines().size(),cached.getMeasuredLines().size());
+	}
+
+	public void testTextShapeIsKept() {
+		MeasuredLineCreator mlc = MeasuredLineCache.get("homer",serif,frc,2.0,true,100);
+		MeasuredLine line = mlc.getMeasuredLines().get(0);
+		Shape shape = mlc.getTextShape(line);
+		assertSame(shape,mlc.getTextShape(line));
+
+		// Centered on the origin
+		assertEquals(0.0,shape.getBounds2D().getCenterX(),1.0);
+	}
+
+	public void testClear() {
+		MeasuredLineCache.get("homer",serif,frc,2.0,true,100);
+		MeasuredLineCache.clear();
+		assertEquals(0,MeasuredLineCache.size());
+		assertEquals(0,MeasuredLineCache.getMissCount());
+	}
+}
@@ -69,4 +69,10 @@ public class CyActivator extends AbstractCyActivator {
 			registerAllServices(bc, factory, props);
 		}
 	}
+
+	@Override
+	public void stop(BundleContext bc) {
+		super.stop(bc);
+		EdgeBundlerTask.shutdownPool();
+	}
 }
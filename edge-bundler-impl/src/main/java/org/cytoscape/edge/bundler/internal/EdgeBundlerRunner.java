@@ -1,5 +1,9 @@
 package org.cytoscape.edge.bundler.internal;
 
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 /*
  * #%L
  * Cytoscape Edge Bundler Impl (edge-bundler-impl)
@@ -24,49 +28,127 @@ package org.cytoscape.edge.bundler.internal;
  * #L%
  */
 
+/**
+ * Simulates the edges from one range, for as many iterations as the {@link EdgeBundlerTask} asks.
+ * <br>
+ * Every iteration has two phases, each ended by the phaser: first the forces on the handles of
+ * the range are computed, then the handles are moved. The runners only write the forces and handles
+ * of their own edges, so they need no other synchronization. After the second phase, the runner
+ * stops if the task has set the stop flag, or if the phaser has been terminated.
+ */
 public final class EdgeBundlerRunner implements Runnable {
 
-	private final int ni;
+	private final int from;
+	private final int to;
 	private final int numNubs;
+	private final double K;
+	private final double[][][] edgePos;
 	private final boolean[][] edgeAlign;
 	private final double[][][] nubs;
 	private final double[][][] forces;
 	private final double[][] edgeCompatability;
 	private final int[][] edgeMatcher;
+	private final Phaser phaser;
+	private final AtomicBoolean stop;
+	private final AtomicReference<Throwable> failure;
 
-	public EdgeBundlerRunner(final int ni, final int numNubs, final boolean[][] edgeAlign, final double[][][] nubs, final double[][][] forces,
-			final double[][] edgeCompatability, final int[][] edgeMatcher) {
-		this.ni = ni;
+	/**
+	 * @param from the first edge of the range
+	 * @param to the end of the range (exclusive)
+	 * @param edgeMatcher the compatible edges of every edge, in both directions
+	 * @param phaser the barrier that ends every phase, registered for this runner
+	 * @param stop whether to stop after the current iteration, set by the task
+	 * @param failure where to put the error that stopped this runner, if any
+	 */
+	public EdgeBundlerRunner(final int from, final int to, final int numNubs, final double K,
+			final double[][][] edgePos, final boolean[][] edgeAlign, final double[][][] nubs,
+			final double[][][] forces, final double[][] edgeCompatability, final int[][] edgeMatcher,
+			final Phaser phaser, final AtomicBoolean stop, final AtomicReference<Throwable> failure) {
+		this.from = from;
+		this.to = to;
 		this.numNubs = numNubs;
+		this.K = K;
+		this.edgePos = edgePos;
 		this.edgeAlign = edgeAlign;
 		this.nubs = nubs;
 		this.forces = forces;
 		this.edgeCompatability = edgeCompatability;
 		this.edgeMatcher = edgeMatcher;
+		this.phaser = phaser;
+		this.stop = stop;
+		this.failure = failure;
 	}
 
 	@Override
 	public void run() {
-		final int size = edgeAlign.length;
-		for (int ei = 0; ei < size; ei++)
+		try {
+			while (true) {
+				updateForces();
+
+				if (phaser.arriveAndAwaitAdvance() < 0)
+					return;
+
+				updateNubs();
+
+				if (phaser.arriveAndAwaitAdvance() < 0 || stop.get())
+					return;
+			}
+		} catch (RuntimeException | Error e) {
+			// Release the other parties, which would otherwise wait for this runner forever
+			failure.compareAndSet(null, e);
+			phaser.forceTermination();
+		}
+	}
+
+	private void updateForces() {
+		for (int ei = from; ei < to; ei++) {
+			// Spring forces
+			for (int ni = 0; ni < numNubs; ni++) {
+				if (ni == 0) {
+					forces[ni][0][ei] = nubs[ni][0][ei] - edgePos[0][0][ei];
+					forces[ni][1][ei] = nubs[ni][1][ei] - edgePos[0][1][ei];
+				} else {
+					forces[ni][0][ei] = nubs[ni][0][ei] - nubs[ni - 1][0][ei];
+					forces[ni][1][ei] = nubs[ni][1][ei] - nubs[ni - 1][1][ei];
+				}
+
+				if (ni == numNubs - 1) {
+					forces[ni][0][ei] += nubs[ni][0][ei] - edgePos[1][0][ei];
+					forces[ni][1][ei] += nubs[ni][1][ei] - edgePos[1][1][ei];
+				} else {
+					forces[ni][0][ei] += nubs[ni][0][ei] - nubs[ni + 1][0][ei];
+					forces[ni][1][ei] += nubs[ni][1][ei] - nubs[ni + 1][1][ei];
+				}
+
+				forces[ni][0][ei] *= -K;
+				forces[ni][1][ei] *= -K;
+			}
+
+			// Electrostatic forces
 			for (int em = 0; em < edgeMatcher[ei].length; em++) {
 				final int ej = edgeMatcher[ei][em];
-				final int nj = (edgeAlign[ei][ej]) ? ni : numNubs - ni - 1;
 
-				final double diffx = (nubs[ni][0][ei] - nubs[nj][0][ej]);
-				final double diffy = (nubs[ni][1][ei] - nubs[nj][1][ej]);
+				for (int ni = 0; ni < numNubs; ni++) {
+					final int nj = (edgeAlign[ei][em]) ? ni : numNubs - ni - 1;
 
-				if (Math.abs(diffx) > 1) {
-					final double fx = edgeCompatability[ei][ej] / diffx;
-					forces[ni][0][ei] -= fx;
-					forces[nj][0][ej] += fx;
-				}
+					final double diffx = (nubs[ni][0][ei] - nubs[nj][0][ej]);
+					final double diffy = (nubs[ni][1][ei] - nubs[nj][1][ej]);
 
-				if (Math.abs(diffy) > 1) {
-					final double fy = edgeCompatability[ei][ej] / diffy;
-					forces[ni][1][ei] -= fy;
-					forces[nj][1][ej] += fy;
+					if (Math.abs(diffx) > 1)
+						forces[ni][0][ei] -= edgeCompatability[ei][em] / diffx;
+
+					if (Math.abs(diffy) > 1)
+						forces[ni][1][ei] -= edgeCompatability[ei][em] / diffy;
 				}
 			}
+		}
+	}
+
+	private void updateNubs() {
+		for (int ei = from; ei < to; ei++)
+			for (int ni = 0; ni < numNubs; ni++) {
+				nubs[ni][0][ei] += forces[ni][0][ei];
+				nubs[ni][1][ei] += forces[ni][1][ei];
+			}
 	}
 }
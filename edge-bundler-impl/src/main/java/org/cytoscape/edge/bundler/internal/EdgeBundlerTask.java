@@ -6,13 +6,17 @@ import static org.cytoscape.view.presentation.property.BasicVisualLexicon.NODE_X
 import static org.cytoscape.view.presentation.property.BasicVisualLexicon.NODE_Y_LOCATION;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 import org.cytoscape.application.CyUserLog;
 import org.cytoscape.model.CyColumn;
@@ -74,6 +78,18 @@ public class EdgeBundlerTask extends AbstractNetworkViewTask {
 	private static final Logger logger = LoggerFactory.getLogger(CyUserLog.NAME);
 	
 	private static final String BEND_MAP_COLUMN = "BEND_MAP_ID";
+	/**
+	 * Runs the {@link EdgeBundlerRunner}s of all the bundling tasks. The runners wait for each other at
+	 * the phaser, which lets the pool add threads, so the waiting runners do not keep the others from
+	 * starting.
+	 * Created on first use and shut down by the {@link CyActivator}.
+	 */
+	private static ForkJoinPool runnerPool;
+	private static boolean poolStopped;
+	/** Edge ranges are not made smaller than this, because every range costs two barriers per iteration. */
+	private static final int MIN_EDGES_PER_RANGE = 256;
+	/** Widens the pruning bounds of computeEdgeCompatability, so rounding cannot drop a compatible pair. */
+	private static final double PRUNING_MARGIN = 1e-6;
 
 	@Tunable(description = "Number of handles:")
 	public int numNubs = 3;
@@ -92,6 +108,7 @@ public class EdgeBundlerTask extends AbstractNetworkViewTask {
 
 	private double[][][] edgePos; // source/target, X/Y, edgeIndex
 	private double[][][] nubs; // nubLocation, X/Y, edgeIndex
+	/** The compatible edges of every edge in both directions, and their compatibility and alignment. */
 	private double[][] edgeCompatability;
 	private boolean[][] edgeAlign;
 	private double[] edgeLength;
@@ -203,6 +220,7 @@ public class EdgeBundlerTask extends AbstractNetworkViewTask {
 			ei++;
 		}
 
+		tm.setStatusMessage("Computing edge compatibility");
 		computeEdgeCompatability();
 
 		// Simulating physics
@@ -217,35 +235,70 @@ public class EdgeBundlerTask extends AbstractNetworkViewTask {
 		final VisualMappingFunctionFactory discreteFactory = serviceRegistrar
 				.getService(VisualMappingFunctionFactory.class, "(mapping.type=discrete)");
 
-		// Repeat the simulation [maxIterations] times.
-		for (int iteri = 0; iteri < maxIterations; iteri++) {
-			if (this.cancelled) {
-				logger.info("Edge bundling cancelled: iter=" + iteri);
-				break;
-			}
+		if (maxIterations < 1) {
+			render(edges, handleFactory, bendFactory, visualMappingManager, discreteFactory);
+			return;
+		}
 
-			tm.setProgress(iteri / maxItrDouble);
+		// The runners simulate ranges of edges until they are stopped; this thread only
+		// decides, between two iterations, whether there will be another one.
+		final int[][] ranges = partitionEdges();
+		final ForkJoinPool pool = getPool();
+		final Phaser phaser = new Phaser(ranges.length + 1);
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
 
-			updateForces(forces);
-			updateNubs(forces);
+		for (final int[] range : ranges)
+			pool.execute(new EdgeBundlerRunner(range[0], range[1], numNubs, K, edgePos, edgeAlign, nubs, forces,
+					edgeCompatability, edgeMatcher, phaser, stop, failure));
 
-			// Check convergence once in awhile
-			if (iteri % 1000 == 0 && isConverged(forces, .01)) {
-				logger.info("Edge bundling converged: iter=" + iteri);
-				break;
-			}
+		try {
+			for (int iteri = 0; iteri < maxIterations; iteri++) {
+				tm.setProgress(iteri / maxItrDouble);
+
+				// Wait for the forces; the runners then move the handles, which does not change the forces
+				if (phaser.arriveAndAwaitAdvance() < 0)
+					break;
+
+				boolean last = false;
+
+				if (this.cancelled) {
+					logger.info("Edge bundling cancelled: iter=" + (iteri + 1));
+					last = true;
+				} else if (iteri % 1000 == 0 && isConverged(forces, .01)) {
+					// Check convergence once in awhile
+					logger.info("Edge bundling converged: iter=" + iteri);
+					last = true;
+				} else if (iteri == maxIterations - 1) {
+					logger.info("Edge bundling did not converge: iter=" + iteri);
+					last = true;
+				}
 
-			if (iteri == maxIterations - 1) {
-				logger.info("Edge bundling did not converge: iter=" + iteri);
-				break;
-			}
+				stop.set(last);
 
-			if (animate && System.nanoTime() - time > 3) {
-				render(edges, handleFactory, bendFactory, visualMappingManager, discreteFactory);
-				time = System.nanoTime();
+				// Wait for the handles
+				if (phaser.arriveAndAwaitAdvance() < 0 || last)
+					break;
+
+				// The runners only read the handles while computing the next forces
+				if (animate && System.nanoTime() - time > 3) {
+					render(edges, handleFactory, bendFactory, visualMappingManager, discreteFactory);
+					time = System.nanoTime();
+				}
 			}
+		} finally {
+			// Releases the runners if this thread failed
+			stop.set(true);
+			phaser.forceTermination();
 		}
 
+		final Throwable error = failure.get();
+
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		if (error instanceof Error)
+			throw (Error) error;
+
 		render(edges, handleFactory, bendFactory, visualMappingManager, discreteFactory);
 	}
 
@@ -325,30 +378,145 @@ public class EdgeBundlerTask extends AbstractNetworkViewTask {
 		}
 	}
 
+	/**
+	 * Finds the compatible edges of every edge ei: the edges whose compatibility is above the
+	 * threshold. Only those are kept, in edgeMatcher[ei], with their compatibility and alignment
+	 * at the same positions of edgeCompatability[ei] and edgeAlign[ei].
+	 * <br>
+	 * The compatibility is a product of terms between 0 and 1, so the scale and position terms
+	 * must be above the threshold too. That bounds the length ratio of the two edges and the
+	 * distance between their midpoints, so the candidates of each edge are taken from a grid
+	 * over the midpoints instead of from all the other edges. The edges are done in parallel.
+	 */
 	private void computeEdgeCompatability() {
-		edgeCompatability = new double[edgeLength.length][];
-		edgeAlign = new boolean[edgeLength.length][];
-		edgeMatcher = new int[edgeLength.length][];
+		final int n = edgeLength.length;
+		edgeCompatability = new double[n][];
+		edgeAlign = new boolean[n][];
+		edgeMatcher = new int[n][];
+
+		final double[] midX = new double[n];
+		final double[] midY = new double[n];
+		double maxLength = 0;
+
+		for (int ei = 0; ei < n; ei++) {
+			midX[ei] = (edgePos[1][0][ei] + edgePos[0][0][ei]) / 2.0;
+			midY[ei] = (edgePos[1][1][ei] + edgePos[0][1][ei]) / 2.0;
 
-		edgeMatcher[0] = new int[0];
+			if (Double.isFinite(edgeLength[ei]))
+				maxLength = Math.max(maxLength, edgeLength[ei]);
+		}
+
+		final double threshold = COMPATABILITY_THRESHOLD;
+		final double maxRatio = maxLengthRatio(threshold) * (1 + PRUNING_MARGIN);
+		// cpos > threshold when the midpoints are closer than lavg * (1 - threshold) / threshold
+		final double reachFactor = threshold > 0 ? (1 - threshold) / threshold * (1 + PRUNING_MARGIN)
+				: Double.POSITIVE_INFINITY;
+		final double[] radius = new double[n];
+		double radiusSum = 0;
+
+		for (int ei = 0; ei < n; ei++) {
+			final double lavg = (edgeLength[ei] + Math.min(maxRatio * edgeLength[ei], maxLength)) / 2.0;
+			radius[ei] = threshold > 0 ? lavg * reachFactor : Double.POSITIVE_INFINITY;
+
+			if (Double.isFinite(radius[ei]))
+				radiusSum += radius[ei];
+		}
+
+		final EdgeGrid grid = new EdgeGrid(midX, midY, radiusSum / n);
+
+		IntStream.range(0, n).parallel().forEach(ei -> {
+			final int[] candidates = grid.findWithin(midX[ei], midY[ei], radius[ei], ei);
+			final int[] matches = new int[candidates.length];
+			final double[] compatability = new double[candidates.length];
+			final boolean[] align = new boolean[candidates.length];
+			int count = 0;
 
-		for (int ei = 1; ei < edgeLength.length; ei++) {
-			edgeCompatability[ei] = new double[ei];
-			edgeAlign[ei] = new boolean[ei];
+			for (final int ej : candidates) {
+				final double min = Math.min(edgeLength[ei], edgeLength[ej]);
+				final double max = Math.max(edgeLength[ei], edgeLength[ej]);
 
-			List<Integer> compatibleEdges = new ArrayList<Integer>(1000);
-			for (int ej = 0; ej < ei; ej++) {
-				edgeCompatability[ei][ej] = cangle(ei, ej) * cscale(ei, ej) * cpos(ei, ej) * cvis(ei, ej);
-				edgeAlign[ei][ej] = cangleSign(ei, ej) > 0;
+				if (max > maxRatio * min)
+					continue;
 
-				if (edgeCompatability[ei][ej] > COMPATABILITY_THRESHOLD)
-					compatibleEdges.add(ej);
+				final double dx = midX[ei] - midX[ej];
+				final double dy = midY[ei] - midY[ej];
+				final double reach = (min + max) / 2.0 * reachFactor;
+
+				if (dx * dx + dy * dy > reach * reach)
+					continue;
+
+				final double c = cangle(ei, ej) * cscale(ei, ej) * cpos(ei, ej) * cvis(ei, ej);
+
+				if (c > threshold) {
+					matches[count] = ej;
+					compatability[count] = c;
+					align[count] = cangleSign(ei, ej) > 0;
+					count++;
+				}
 			}
 
-			edgeMatcher[ei] = new int[compatibleEdges.size()];
-			for (int i = 0; i < compatibleEdges.size(); i++)
-				edgeMatcher[ei][i] = compatibleEdges.get(i);
+			edgeMatcher[ei] = Arrays.copyOf(matches, count);
+			edgeCompatability[ei] = Arrays.copyOf(compatability, count);
+			edgeAlign[ei] = Arrays.copyOf(align, count);
+		});
+
+		mirrorEdgeMatches();
+	}
+
+	/**
+	 * Adds every compatible pair to the row of its lower edge too, so that each edge can
+	 * compute its own forces without writing to the forces of other edges.
+	 */
+	private void mirrorEdgeMatches() {
+		final int n = edgeMatcher.length;
+		final int[] size = new int[n];
+
+		for (int ei = 0; ei < n; ei++) {
+			size[ei] += edgeMatcher[ei].length;
+
+			for (final int ej : edgeMatcher[ei])
+				size[ej]++;
 		}
+
+		final int[][] matcher = new int[n][];
+		final double[][] compatability = new double[n][];
+		final boolean[][] align = new boolean[n][];
+
+		for (int ei = 0; ei < n; ei++) {
+			matcher[ei] = Arrays.copyOf(edgeMatcher[ei], size[ei]);
+			compatability[ei] = Arrays.copyOf(edgeCompatability[ei], size[ei]);
+			align[ei] = Arrays.copyOf(edgeAlign[ei], size[ei]);
+			size[ei] = edgeMatcher[ei].length;
+		}
+
+		for (int ei = 0; ei < n; ei++) {
+			for (int em = 0; em < edgeMatcher[ei].length; em++) {
+				final int ej = edgeMatcher[ei][em];
+				final int k = size[ej]++;
+				matcher[ej][k] = ei;
+				compatability[ej][k] = edgeCompatability[ei][em];
+				align[ej][k] = edgeAlign[ei][em];
+			}
+		}
+
+		edgeMatcher = matcher;
+		edgeCompatability = compatability;
+		edgeAlign = align;
+	}
+
+	/**
+	 * @return the largest ratio of the lengths of two edges for which cscale is above the threshold,
+	 * or infinity if the threshold is not positive
+	 */
+	private static double maxLengthRatio(double threshold) {
+		if (!(threshold > 0))
+			return Double.POSITIVE_INFINITY;
+
+		// cscale = 2 / (s / 2 + 2 (s - 1) / s) with s = 1 + ratio, solved for cscale = threshold
+		final double b = 4 - 4 / threshold;
+		final double s = (-b + Math.sqrt(b * b + 16)) / 2;
+
+		return s - 1;
 	}
 
 	private double cangle(int ei, int ej) {
@@ -472,53 +640,51 @@ public class EdgeBundlerTask extends AbstractNetworkViewTask {
 		return new double[] { x, y };
 	}
 
-	private void updateForces(final double[][][] forces) {
-		// Spring forces
-		for (int ei = 0; ei < edgeLength.length; ei++) {
-			for (int ni = 0; ni < numNubs; ni++) {
-				if (ni == 0) {
-					forces[ni][0][ei] = nubs[ni][0][ei] - edgePos[0][0][ei];
-					forces[ni][1][ei] = nubs[ni][1][ei] - edgePos[0][1][ei];
-				} else {
-					forces[ni][0][ei] = nubs[ni][0][ei] - nubs[ni - 1][0][ei];
-					forces[ni][1][ei] = nubs[ni][1][ei] - nubs[ni - 1][1][ei];
-				}
+	/**
+	 * Splits the edges into ranges with about the same number of compatible edges,
+	 * one per worker of the pool at most.
+	 *
+	 * @return the first edge and the end (exclusive) of every range
+	 */
+	private int[][] partitionEdges() {
+		final int n = edgeLength.length;
+		final int count = Math.max(1, Math.min(getPool().getParallelism(), n / MIN_EDGES_PER_RANGE));
+		long total = 0;
+
+		for (int ei = 0; ei < n; ei++)
+			total += 1 + edgeMatcher[ei].length;
+
+		final int[][] ranges = new int[count][];
+		long work = 0;
+		int ei = 0;
 
-				if (ni == numNubs - 1) {
-					forces[ni][0][ei] += nubs[ni][0][ei] - edgePos[1][0][ei];
-					forces[ni][1][ei] += nubs[ni][1][ei] - edgePos[1][1][ei];
-				} else {
-					forces[ni][0][ei] += nubs[ni][0][ei] - nubs[ni + 1][0][ei];
-					forces[ni][1][ei] += nubs[ni][1][ei] - nubs[ni + 1][1][ei];
-				}
+		for (int r = 0; r < count; r++) {
+			final int from = ei;
+			final long target = total * (r + 1) / count;
 
-				forces[ni][0][ei] *= -K;
-				forces[ni][1][ei] *= -K;
+			while (ei < n && (work < target || r == count - 1))
+				work += 1 + edgeMatcher[ei++].length;
 
-			}
+			ranges[r] = new int[] { from, ei };
 		}
 
-		// Electrostatic forces
-		// For parallel processing
-		final ExecutorService exec = Executors.newCachedThreadPool();
-		for (int ni = 0; ni < numNubs; ni++)
-			exec.execute(new EdgeBundlerRunner(ni, numNubs, edgeAlign, nubs, forces, edgeCompatability, edgeMatcher));
-
-		exec.shutdown();
+		return ranges;
+	}
 
-		try {
-			exec.awaitTermination(30, TimeUnit.DAYS);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-			exec.shutdownNow();
-		}
+	private static synchronized ForkJoinPool getPool() {
+		if (poolStopped)
+			throw new RejectedExecutionException("The edge bundler bundle has been stopped");
+		if (runnerPool == null)
+			runnerPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return runnerPool;
 	}
 
-	private void updateNubs(double[][][] forces) {
-		for (int ei = 0; ei < edgeLength.length; ei++)
-			for (int ni = 0; ni < numNubs; ni++) {
-				nubs[ni][0][ei] += forces[ni][0][ei];
-				nubs[ni][1][ei] += forces[ni][1][ei];
-			}
+	/**
+	 * Stops the runners of all the bundling tasks, and keeps new tasks from starting.
+	 */
+	static synchronized void shutdownPool() {
+		poolStopped = true;
+		if (runnerPool != null)
+			runnerPool.shutdownNow();
 	}
 }
@@ -0,0 +1,190 @@
+package org.cytoscape.edge.bundler.internal;
+
+import java.util.Arrays;
+
+/*
+ * #%L
+ * Cytoscape Edge Bundler Impl (edge-bundler-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A uniform grid over points (the edge midpoints), to find the points within some distance
+ * of a location without looking at all of them.
+ * <br>
+ * Points with a coordinate that is not finite are never found.
+ * The grid is read-only once built, so it may be queried from several threads at the same time.
+ */
+final class EdgeGrid {
+
+	/** The grid never has more cells than this many per point. */
+	private static final int MAX_CELLS_PER_POINT = 4;
+
+	private final double[] x;
+	private final double[] y;
+	private final double minX;
+	private final double minY;
+	private final double cellSize;
+	private final int columns;
+	private final int rows;
+
+	/** The points of every cell: cellPoints[cellStart[c]] to cellPoints[cellStart[c + 1] - 1]. */
+	private final int[] cellStart;
+	private final int[] cellPoints;
+
+	/**
+	 * @param cellSize the preferred width of a cell, ideally close to the typical query radius;
+	 * it is increased when the grid would have too many cells
+	 */
+	EdgeGrid(double[] x, double[] y, double cellSize) {
+		this.x = x;
+		this.y = y;
+
+		final int n = x.length;
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+		for (int i = 0; i < n; i++) {
+			if (!isFinite(i))
+				continue;
+
+			minX = Math.min(minX, x[i]);
+			maxX = Math.max(maxX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+
+		if (minX > maxX)
+			minX = maxX = minY = maxY = 0;
+
+		final double extent = Math.max(maxX - minX, maxY - minY);
+
+		if (!(cellSize > 0) || cellSize > extent)
+			cellSize = extent > 0 ? extent : 1;
+
+		final long maxCells = Math.max(1L, (long) MAX_CELLS_PER_POINT * n);
+
+		while (cellCount(maxX - minX, cellSize) * cellCount(maxY - minY, cellSize) > maxCells)
+			cellSize *= 2;
+
+		this.minX = minX;
+		this.minY = minY;
+		this.cellSize = cellSize;
+		this.columns = (int) cellCount(maxX - minX, cellSize);
+		this.rows = (int) cellCount(maxY - minY, cellSize);
+
+		// Counting sort of the points by cell
+		final int[] cells = new int[n];
+		cellStart = new int[columns * rows + 1];
+
+		for (int i = 0; i < n; i++) {
+			cells[i] = isFinite(i) ? cell(column(x[i]), row(y[i])) : -1;
+
+			if (cells[i] >= 0)
+				cellStart[cells[i] + 1]++;
+		}
+
+		for (int c = 0; c < columns * rows; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		cellPoints = new int[cellStart[columns * rows]];
+		final int[] next = Arrays.copyOf(cellStart, columns * rows);
+
+		for (int i = 0; i < n; i++) {
+			if (cells[i] >= 0)
+				cellPoints[next[cells[i]]++] = i;
+		}
+	}
+
+	/**
+	 * @return the points with an index lower than maxIndex that are within radius of (px, py),
+	 * in increasing order
+	 */
+	int[] findWithin(double px, double py, double radius, int maxIndex) {
+		if (!(radius >= 0) || cellPoints.length == 0)
+			return new int[0];
+
+		final double r2 = radius * radius;
+		final int c0 = column(px - radius);
+		final int c1 = column(px + radius);
+		final int r0 = row(py - radius);
+		final int r1 = row(py + radius);
+
+		int[] found = new int[16];
+		int count = 0;
+
+		for (int r = r0; r <= r1; r++) {
+			for (int c = c0; c <= c1; c++) {
+				final int cell = cell(c, r);
+
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					final int i = cellPoints[k];
+
+					if (i >= maxIndex)
+						continue;
+
+					final double dx = x[i] - px;
+					final double dy = y[i] - py;
+
+					// An infinite radius finds every point
+					if (dx * dx + dy * dy <= r2) {
+						if (count == found.length)
+							found = Arrays.copyOf(found, count * 2);
+
+						found[count++] = i;
+					}
+				}
+			}
+		}
+
+		found = Arrays.copyOf(found, count);
+		Arrays.sort(found);
+
+		return found;
+	}
+
+	private boolean isFinite(int i) {
+		return Double.isFinite(x[i]) && Double.isFinite(y[i]);
+	}
+
+	private static long cellCount(double length, double cellSize) {
+		return (long) (length / cellSize) + 1;
+	}
+
+	private int column(double px) {
+		return clamp((px - minX) / cellSize, columns);
+	}
+
+	private int row(double py) {
+		return clamp((py - minY) / cellSize, rows);
+	}
+
+	private static int clamp(double position, int count) {
+		if (!(position > 0))
+			return 0;
+
+		return position >= count - 1 ? count - 1 : (int) position;
+	}
+
+	private int cell(int column, int row) {
+		return row * columns + column;
+	}
+}
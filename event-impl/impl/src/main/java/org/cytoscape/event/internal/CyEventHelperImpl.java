@@ -1,14 +1,17 @@
 package org.cytoscape.event.internal;
 
+import java.awt.EventQueue;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import org.cytoscape.event.CyEvent;
 import org.cytoscape.event.CyEventHelper;
@@ -47,6 +50,10 @@ public class CyEventHelperImpl implements CyEventHelper {
 	private static final Object DUMMY = new Object();
 	private static final int PAYLOAD_ACCUMULATOR_LIMIT = 100000;
 	private static final int PAYLOAD_FLUSH_CHECK_LIMIT = 3;
+	private static final long BACK_PRESSURE_TIMEOUT_MILLIS = 1000;
+	
+	// RowsSetEvent is defined in model-api, which this bundle doesn't depend on
+	private static final String ROWS_SET_EVENT = "org.cytoscape.model.events.RowsSetEvent";
 	
 	private static final boolean alwaysForce = false;
 
@@ -54,15 +61,37 @@ public class CyEventHelperImpl implements CyEventHelper {
 	private final Map<Object, Map<Class<?>, PayloadAccumulator<?,?,?>>> sourceAccMap;
 	private final ScheduledExecutorService payloadEventMonitor;
 	private final Map<Object, Object> silencedSources;
+	private final Map<String, Function<Object,Object>> coalescingKeys;
+
+	private volatile Thread payloadEventThread;
+	private volatile int highWaterMark;
+
+	// metrics, guarded by lock
+	private int queueDepth;
+	private int peakQueueDepth;
+	private long coalescedPayloads;
+	private long earlyFlushes;
+	private final DispatchStatistics flushStatistics = new DispatchStatistics("payload flush");
+	private final DispatchStatistics payloadLatencyStatistics = new DispatchStatistics("payload latency");
 
 	private final Object lock = new Object();
 
 	public CyEventHelperImpl(final CyListenerAdapter normal) {
 		this.normal = normal;
 		sourceAccMap = new LinkedHashMap<>();
-		payloadEventMonitor = Executors.newSingleThreadScheduledExecutor();
+		payloadEventMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = Executors.defaultThreadFactory().newThread(r);
+			payloadEventThread = thread;
+			return thread;
+		});
 		silencedSources = new WeakHashMap<>();
 		
+		// Repeated sets of the same row and column only deliver the last value.
+		coalescingKeys = new ConcurrentHashMap<>();
+		if (Boolean.parseBoolean(System.getProperty("coalescePayloads", "true")))
+			coalescingKeys.put(ROWS_SET_EVENT, new PropertyKeyFunction("getRow", "getColumn"));
+		highWaterMark = Integer.getInteger("payloadHighWaterMark", PAYLOAD_ACCUMULATOR_LIMIT);
+		
 		// This thread just flushes any accumulated payload events.
 		// It is scheduled to run repeatedly at a fixed interval.
 		payloadEventMonitor.scheduleAtFixedRate(
@@ -128,7 +157,8 @@ public class CyEventHelperImpl implements CyEventHelper {
 			PayloadAccumulator<S, P, E> acc = (PayloadAccumulator<S, P, E>) cmap.get(eventType);
 			if (acc == null) {
 				try {
-					acc = new PayloadAccumulator<>(source, eventType, PAYLOAD_ACCUMULATOR_LIMIT, PAYLOAD_FLUSH_CHECK_LIMIT);
+					acc = new PayloadAccumulator<>(source, eventType, PAYLOAD_ACCUMULATOR_LIMIT, PAYLOAD_FLUSH_CHECK_LIMIT,
+							coalescingKeys.get(eventType.getName()));
 					cmap.put(eventType, acc);
 				} catch (NoSuchMethodException nsme) {
 					logger.warn("Unable to add payload to event, because of missing event constructor.", nsme);
@@ -136,7 +166,49 @@ public class CyEventHelperImpl implements CyEventHelper {
 				}
 			}
 
+			final int size = acc.size();
 			acc.addPayload(payload);
+			queueDepth += acc.size() - size;
+			peakQueueDepth = Math.max(peakQueueDepth, queueDepth);
+
+			if (acc.size() >= highWaterMark && !acc.isFlushRequested()) {
+				// Flush this source now instead of waiting for the next interval. Each accumulator asks
+				// only once, the payloads added until the flush takes it go with the same event.
+				acc.setFlushRequested();
+				earlyFlushes++;
+				payloadEventMonitor.execute(() -> flushPayloadEvents(source, true));
+
+				// Make the producer wait until the payloads have been taken, so that it can't outrun
+				// the listeners. The flush thread itself may add payloads from inside a listener, it
+				// must not wait for itself, and the EDT is never blocked. The wait is bounded so that
+				// a producer that holds a lock a listener needs only stalls, rather than deadlocks.
+				if (Thread.currentThread() != payloadEventThread && !EventQueue.isDispatchThread())
+					awaitFlush(source, eventType, acc);
+			}
+		}
+	}
+
+	/**
+	 * Caller must hold the lock.
+	 */
+	private void awaitFlush(Object source, Class<?> eventType, PayloadAccumulator<?,?,?> acc) {
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BACK_PRESSURE_TIMEOUT_MILLIS);
+		while (true) {
+			Map<Class<?>, PayloadAccumulator<?, ?, ?>> cmap = sourceAccMap.get(source);
+			if (cmap == null || cmap.get(eventType) != acc)
+				return;
+
+			final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remaining <= 0) {
+				logger.debug("Timed out waiting for payload events to be flushed for source: " + source);
+				return;
+			}
+			try {
+				lock.wait(remaining);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
 		}
 	}
 
@@ -153,6 +225,7 @@ public class CyEventHelperImpl implements CyEventHelper {
 	
 	private void flushPayloadEvents(Object oneSource, boolean force) {
 		List<CyEvent<?>> flushList = new ArrayList<>();
+		final long begin = System.nanoTime();
 		
 		synchronized (lock) {
 			if(oneSource != null) {
@@ -162,12 +235,20 @@ public class CyEventHelperImpl implements CyEventHelper {
 					createPayloadEvents(source, flushList, force);
 				}
 			}
+			if(!flushList.isEmpty()) {
+				// wake up producers waiting in addEventPayload()
+				lock.notifyAll();
+			}
 		}
 
 		// Actually fire the events outside of the synchronized block.
 		for(CyEvent<?> event : flushList) {
 			normal.fireEvent(event);
 		}
+		
+		if(!flushList.isEmpty()) {
+			flushStatistics.record(System.nanoTime() - begin);
+		}
 	}
 	
 	
@@ -181,6 +262,11 @@ public class CyEventHelperImpl implements CyEventHelper {
 			PayloadAccumulator<?,?,?> acc = iter.next();
 			
 			if(alwaysForce || force || acc.checkReady()) {
+				queueDepth -= acc.size();
+				coalescedPayloads += acc.getCoalescedCount();
+				if(acc.size() > 0) {
+					payloadLatencyStatistics.record(System.nanoTime() - acc.getFirstPayloadTime());
+				}
 				try {
 					CyEvent<?> event = acc.newEventInstance();
 					if (event != null)
@@ -199,6 +285,80 @@ public class CyEventHelperImpl implements CyEventHelper {
 	}
 	
 
+	/**
+	 * Sets the number of payloads from one source for one event type at which the payloads are flushed
+	 * right away and the producer is made to wait for the flush.
+	 * Can also be set with the "payloadHighWaterMark" system property.
+	 */
+	public void setPayloadHighWaterMark(int highWaterMark) {
+		if (highWaterMark <= 0)
+			throw new IllegalArgumentException("highWaterMark must be positive");
+		this.highWaterMark = highWaterMark;
+	}
+
+	public int getPayloadHighWaterMark() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Payloads for the given event type that have the same key replace each other, only the last one
+	 * is delivered. Passing null turns coalescing off for the event type.
+	 * Only affects accumulators created after the call.
+	 */
+	public void setPayloadCoalescing(String eventType, Function<Object,Object> keyFunction) {
+		if (keyFunction == null)
+			coalescingKeys.remove(eventType);
+		else
+			coalescingKeys.put(eventType, keyFunction);
+	}
+
+	/**
+	 * Returns the number of payloads currently waiting to be delivered.
+	 */
+	public int getPayloadQueueDepth() {
+		synchronized (lock) {
+			return queueDepth;
+		}
+	}
+
+	public int getPeakPayloadQueueDepth() {
+		synchronized (lock) {
+			return peakQueueDepth;
+		}
+	}
+
+	/**
+	 * Returns the number of payloads that were dropped because a later payload replaced them.
+	 */
+	public long getCoalescedPayloadCount() {
+		synchronized (lock) {
+			return coalescedPayloads;
+		}
+	}
+
+	/**
+	 * Returns how many times the high-water mark forced a flush.
+	 */
+	public long getEarlyFlushCount() {
+		synchronized (lock) {
+			return earlyFlushes;
+		}
+	}
+
+	/**
+	 * Time spent creating and delivering the payload events of one flush.
+	 */
+	public DispatchStatistics getFlushStatistics() {
+		return flushStatistics;
+	}
+
+	/**
+	 * Time between the first payload of an event being added and the event being created.
+	 */
+	public DispatchStatistics getPayloadLatencyStatistics() {
+		return payloadLatencyStatistics;
+	}
+
 	/** 
 	 * Used only for unit testing to prevent the confusion of multiple threads running at once.
 	 */
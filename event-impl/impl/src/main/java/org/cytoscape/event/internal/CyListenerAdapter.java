@@ -25,14 +25,27 @@ package org.cytoscape.event.internal;
  */
 
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
 
 import org.cytoscape.event.CyEvent;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
 import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,14 +59,32 @@ public class CyListenerAdapter {
 	private static final ServiceComparator serviceComparator = new ServiceComparator(); 
 
 	private static final Object DUMMY = new Object();
+
+	/**
+	 * Listeners registered with this service property set to "true" may be called concurrently
+	 * with other listeners of the same event when parallel dispatch is enabled.
+	 */
+	public static final String THREAD_SAFE_LISTENER = "threadSafeListener";
+
+	// with statistics enabled, listener calls slower than this are logged
+	private static final long SLOW_LISTENER_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+	// handleEvent(listener, event), adapted to (Object,Object)void so it can be called with invokeExact
+	private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
 	
 	private final Map<Class<?>,ServiceTracker> serviceTrackers; 
+	private final Map<Class<?>,Map<Class<?>,MethodHandle>> handlers;
+	private final Map<Class<?>,DispatchStatistics> listenerStatistics;
+	private final Map<Class<?>,DispatchStatistics> eventStatistics;
 	private final BundleContext bc;
 	private final Map<Object, Object> silencedSources;
 	private final StringBuilder traceString; 
 	private final boolean printEventTrace;
 	private int fireCount;
 
+	private volatile boolean parallelDispatch;
+	private volatile boolean collectStatistics;
+
 	private final Object lock = new Object();
 	
 	/**
@@ -64,12 +95,17 @@ public class CyListenerAdapter {
 	public CyListenerAdapter(BundleContext bc) {
 		this.bc = bc;
 		serviceTrackers = new ConcurrentHashMap<Class<?>,ServiceTracker>(16, 0.75f, 2);
+		handlers = new ConcurrentHashMap<>();
+		listenerStatistics = new ConcurrentHashMap<>();
+		eventStatistics = new ConcurrentHashMap<>();
 		silencedSources = new WeakHashMap<Object, Object>();
 
 		// used only for printing a coherent event trace
 		fireCount = 0;
 		traceString = new StringBuilder();
 		printEventTrace = Boolean.parseBoolean( (String)(System.getProperty("printEventTrace","false")) );
+		parallelDispatch = Boolean.parseBoolean( (String)(System.getProperty("parallelEventDispatch","false")) );
+		collectStatistics = Boolean.parseBoolean( (String)(System.getProperty("eventDispatchStatistics","false")) );
 	}
 
 	/**
@@ -90,55 +126,109 @@ public class CyListenerAdapter {
 		
 		final Class<?> listenerClass = event.getListenerClass();
 		
-		final Object[] listeners = getListeners(listenerClass);
+		final ServiceTracker tracker = getTracker(listenerClass);
+		final Object[] listeners = getListeners(tracker);
 		if ( listeners == null ) 
 			return;
-	
-	
-		Object lastListener = null;
-		long begin = 0;
+
+		final MethodHandle handler = getHandler(listenerClass, event.getClass());
+		if ( handler == null )
+			return;
+
+		final boolean statistics = collectStatistics;
+		final long eventBegin = statistics ? System.nanoTime() : 0;
 
 		if ( printEventTrace ) {
 			fireCount++;
 			printTrace(fireCount,"EVENT START: " + event.getClass().getName());
 		}
-		
-		try {
-			final Method method = listenerClass.getMethod("handleEvent", event.getClass());
 
+		if ( parallelDispatch ) {
+			final Set<Object> threadSafe = getThreadSafeListeners(tracker);
+			final List<ForkJoinTask<?>> tasks = new ArrayList<>(threadSafe.size());
 			for (final Object listener : listeners) {
-				try {
-					lastListener = listener;
-	
-					// This call is VERY memory intensive - only use it for debugging!!!!
-					// logger.debug("event: " + event.getClass().getName() + "  listener: " + listener.getClass().getName());
-					if ( printEventTrace ) {
-						printTrace(fireCount,"listener: " + listener.getClass().getName());
-						begin = System.currentTimeMillis();
-					}
-	
-					method.invoke(listenerClass.cast(listener), event);
-	
-					if ( printEventTrace ) {
-						final long end = System.currentTimeMillis();
-						printTrace(fireCount,"listener: " + listener.getClass().getName() + " duration: " + (end - begin));
-					}
-				} catch (Exception e) {
-					logger.error("Unexpected exception while handling listener: " + listenerClass.getName(), e);
-				}
+				if ( threadSafe.contains(listener) )
+					tasks.add(ForkJoinPool.commonPool().submit(() -> invoke(handler, listener, listenerClass, event)));
+				else
+					invoke(handler, listener, listenerClass, event);
 			}
-		} catch (NoSuchMethodException e) {
-			logger.error("Listener doesn't implement \"handleEvent\" method: "
-				     + listenerClass.getName(), e);
+			// fireEvent() is synchronous, wait for the listeners running on the pool
+			for (ForkJoinTask<?> task : tasks)
+				task.join();
+		} else {
+			for (final Object listener : listeners)
+				invoke(handler, listener, listenerClass, event);
 		}
 
 		if ( printEventTrace ) {
 			printTrace(fireCount,"EVENT END  : " + event.getClass().getName());
 			fireCount--;
 		}
+
+		if ( statistics )
+			getStatistics(eventStatistics, event.getClass()).record(System.nanoTime() - eventBegin);
+	}
+
+	private void invoke(final MethodHandle handler, final Object listener, final Class<?> listenerClass, final Object event) {
+		// This call is VERY memory intensive - only use it for debugging!!!!
+		// logger.debug("event: " + event.getClass().getName() + "  listener: " + listener.getClass().getName());
+		if ( printEventTrace )
+			printTrace(fireCount,"listener: " + listener.getClass().getName());
+
+		final boolean statistics = collectStatistics;
+		final long begin = statistics || printEventTrace ? System.nanoTime() : 0;
+		try {
+			handler.invokeExact(listener, event);
+		} catch (VirtualMachineError e) {
+			throw e;
+		} catch (Throwable t) {
+			logger.error("Unexpected exception while handling listener: " + listenerClass.getName(), t);
+		}
+		if ( !statistics && !printEventTrace )
+			return;
+		final long duration = System.nanoTime() - begin;
+
+		if ( statistics ) {
+			final DispatchStatistics stats = getStatistics(listenerStatistics, listener.getClass());
+			stats.record(duration);
+			if ( duration > SLOW_LISTENER_NANOS )
+				logger.warn("Slow listener: " + listener.getClass().getName() + " took " + (duration / 1000000)
+					+ " ms to handle " + event.getClass().getName() + " (" + stats + ")");
+		}
+
+		if ( printEventTrace )
+			printTrace(fireCount,"listener: " + listener.getClass().getName() + " duration: " + (duration / 1000000));
+	}
+
+	/**
+	 * Returns handleEvent() of the listener class as a method handle, looking it up only once per
+	 * listener and event type.
+	 */
+	private MethodHandle getHandler(final Class<?> listenerClass, final Class<?> eventClass) {
+		final Map<Class<?>,MethodHandle> listenerHandlers =
+			handlers.computeIfAbsent(listenerClass, k -> new ConcurrentHashMap<>());
+		MethodHandle handler = listenerHandlers.get(eventClass);
+		if ( handler != null )
+			return handler;
+
+		try {
+			final Method method = listenerClass.getMethod("handleEvent", eventClass);
+			handler = MethodHandles.publicLookup().unreflect(method).asType(HANDLER_TYPE);
+		} catch (NoSuchMethodException e) {
+			logger.error("Listener doesn't implement \"handleEvent\" method: "
+				     + listenerClass.getName(), e);
+			return null;
+		} catch (IllegalAccessException e) {
+			logger.error("Listener \"handleEvent\" method is not accessible: "
+				     + listenerClass.getName(), e);
+			return null;
+		}
+
+		listenerHandlers.put(eventClass, handler);
+		return handler;
 	}
 
-	private Object[] getListeners(Class<?> listenerClass) {
+	private ServiceTracker getTracker(Class<?> listenerClass) {
 		ServiceTracker tracker = serviceTrackers.get(listenerClass);
 		if ( tracker == null ) {
 			//logger.debug("added new service tracker for " + listenerClass);
@@ -146,7 +236,10 @@ public class CyListenerAdapter {
 			tracker.open();
 			serviceTrackers.put( listenerClass, tracker );
 		}
+		return tracker;
+	}
 
+	private Object[] getListeners(ServiceTracker tracker) {
 		Object[] services = tracker.getServices();
 
 		if ( services == null )
@@ -156,6 +249,80 @@ public class CyListenerAdapter {
 		return services; 
 	}
 
+	private Set<Object> getThreadSafeListeners(ServiceTracker tracker) {
+		final ServiceReference[] refs = tracker.getServiceReferences();
+		if ( refs == null )
+			return Collections.emptySet();
+
+		Set<Object> threadSafe = null;
+		for (ServiceReference ref : refs) {
+			if ( Boolean.parseBoolean(String.valueOf(ref.getProperty(THREAD_SAFE_LISTENER))) ) {
+				if ( threadSafe == null )
+					threadSafe = Collections.newSetFromMap(new IdentityHashMap<>());
+				threadSafe.add(tracker.getService(ref));
+			}
+		}
+		return threadSafe == null ? Collections.emptySet() : threadSafe;
+	}
+
+	private static DispatchStatistics getStatistics(Map<Class<?>,DispatchStatistics> map, Class<?> type) {
+		DispatchStatistics stats = map.get(type);
+		if ( stats == null )
+			stats = map.computeIfAbsent(type, t -> new DispatchStatistics(t.getName()));
+		return stats;
+	}
+
+	/**
+	 * Enables or disables calling listeners registered with {@link #THREAD_SAFE_LISTENER} in parallel.
+	 * Disabled by default, can also be enabled with the "parallelEventDispatch" system property.
+	 */
+	public void setParallelDispatch(boolean parallelDispatch) {
+		this.parallelDispatch = parallelDispatch;
+	}
+
+	public boolean isParallelDispatch() {
+		return parallelDispatch;
+	}
+
+	/**
+	 * Enables or disables timing every listener call and event dispatch. Disabled by default, can also be
+	 * enabled with the "eventDispatchStatistics" system property. While enabled, listener calls that take
+	 * longer than half a second are logged as warnings together with the statistics of the listener class.
+	 */
+	public void setCollectStatistics(boolean collectStatistics) {
+		this.collectStatistics = collectStatistics;
+	}
+
+	public boolean isCollectStatistics() {
+		return collectStatistics;
+	}
+
+	/**
+	 * Returns the time spent in each listener class, slowest (by total time) first.
+	 * Empty unless statistics are collected, see {@link #setCollectStatistics(boolean)}.
+	 */
+	public List<DispatchStatistics> getListenerStatistics() {
+		return sortedStatistics(listenerStatistics);
+	}
+
+	/**
+	 * Returns the time spent dispatching each event type to all of its listeners, slowest (by total time) first.
+	 */
+	public List<DispatchStatistics> getEventStatistics() {
+		return sortedStatistics(eventStatistics);
+	}
+
+	public void resetStatistics() {
+		listenerStatistics.values().forEach(DispatchStatistics::reset);
+		eventStatistics.values().forEach(DispatchStatistics::reset);
+	}
+
+	private static List<DispatchStatistics> sortedStatistics(Map<Class<?>,DispatchStatistics> map) {
+		final List<DispatchStatistics> ret = new ArrayList<>(map.values());
+		ret.sort(Comparator.comparingLong(DispatchStatistics::getTotalNanos).reversed());
+		return ret;
+	}
+
 	void silenceEventSource(Object eventSource) {
 		synchronized (lock) {
 			silencedSources.put(eventSource, DUMMY);
@@ -169,10 +336,12 @@ public class CyListenerAdapter {
 	}
 
 	private void printTrace(int indent, String message) {
-		traceString.delete(0,traceString.length());
-		for (int i = 0; i < indent; i++ )
-			traceString.append("    ");
-		traceString.append(message);
-		System.out.println( traceString.toString() );
+		synchronized (traceString) {
+			traceString.delete(0,traceString.length());
+			for (int i = 0; i < indent; i++ )
+				traceString.append("    ");
+			traceString.append(message);
+			System.out.println( traceString.toString() );
+		}
 	}
 }
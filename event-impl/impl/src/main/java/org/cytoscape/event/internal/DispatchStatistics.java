@@ -0,0 +1,138 @@
+package org.cytoscape.event.internal;
+
+/*
+ * #%L
+ * Cytoscape Event Impl (event-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2008 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count and latency histogram for one listener class or one event type.
+ * <br>
+ * Latencies are put into power-of-two buckets: bucket 0 counts calls that took less than
+ * one microsecond, bucket i counts calls that took between 2^(i-1) and 2^i microseconds
+ * and the last bucket counts everything slower than that.
+ * All methods may be called concurrently.
+ */
+public class DispatchStatistics {
+
+	public static final int BUCKETS = 28;
+
+	private final String name;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	DispatchStatistics(String name) {
+		this.name = name;
+	}
+
+	void record(long nanos) {
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+		histogram.incrementAndGet(bucket(nanos));
+	}
+
+	static int bucket(long nanos) {
+		final long micros = nanos / 1000;
+		if (micros <= 0)
+			return 0;
+		return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * The class name of the listener or event.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	public long getMeanNanos() {
+		final long n = getCount();
+		return n == 0 ? 0 : getTotalNanos() / n;
+	}
+
+	/**
+	 * Returns a copy of the histogram buckets.
+	 */
+	public long[] getHistogram() {
+		final long[] ret = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			ret[i] = histogram.get(i);
+		return ret;
+	}
+
+	/**
+	 * Returns an upper bound for the given percentile (0 - 100) of the latency in nanoseconds,
+	 * accurate to the bucket size.
+	 */
+	public long getPercentileNanos(double percentile) {
+		final long[] buckets = getHistogram();
+		long total = 0;
+		for (long b : buckets)
+			total += b;
+		if (total == 0)
+			return 0;
+
+		final long rank = (long) Math.ceil(total * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS - 1; i++) {
+			seen += buckets[i];
+			if (seen >= rank)
+				return Math.min(getMaxNanos(), TimeUnit.MICROSECONDS.toNanos(1L << i));
+		}
+		return getMaxNanos();
+	}
+
+	void reset() {
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+		for (int i = 0; i < BUCKETS; i++)
+			histogram.set(i, 0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: calls=%d total=%.1fms mean=%.3fms p99<=%.3fms max=%.3fms",
+				name, getCount(), getTotalNanos() / 1e6, getMeanNanos() / 1e6,
+				getPercentileNanos(99) / 1e6, getMaxNanos() / 1e6);
+	}
+}
@@ -29,7 +29,10 @@ import java.lang.reflect.InvocationTargetException;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.cytoscape.event.CyPayloadEvent;
 
@@ -39,16 +42,28 @@ class PayloadAccumulator<S, P, E extends CyPayloadEvent<S, P>> {
 	private final int maxChecked;
 	
 	private List<P> payloadList;
+	
+	// When a key function is given payloads with the same key replace each other (last one wins)
+	// and the accumulator keeps them in a map instead of payloadList.
+	private final Function<Object,Object> keyFunction;
+	private Map<Object,P> payloadMap;
+	private int coalescedCount;
+	private long firstPayloadTime;
 	private final Constructor<E> constructor;
 	private Class<?> sourceClass;
 	private final S source;
 	
 	private boolean ready = true;
 	private int checkedCount = 0;
+	private boolean flushRequested;
 
 	private final Object lock = new Object();
 
 	PayloadAccumulator(S source, Class<E> eventType, int maxSize, int maxChecked) throws NoSuchMethodException {
+		this(source, eventType, maxSize, maxChecked, null);
+	}
+
+	PayloadAccumulator(S source, Class<E> eventType, int maxSize, int maxChecked, Function<Object,Object> keyFunction) throws NoSuchMethodException {
 		for (Constructor<?> cons : eventType.getConstructors()) {
 			Class<?>[] params = cons.getParameterTypes();
 			if (params.length == 2 && params[1] == Collection.class) {
@@ -64,7 +79,11 @@ class PayloadAccumulator<S, P, E extends CyPayloadEvent<S, P>> {
 		this.maxChecked = maxChecked;
 		
 		constructor = eventType.getConstructor(sourceClass, Collection.class);
-		payloadList = new ArrayList<P>();
+		this.keyFunction = keyFunction;
+		if (keyFunction == null)
+			payloadList = new ArrayList<P>();
+		else
+			payloadMap = new LinkedHashMap<>();
 	}
 
 	E newEventInstance() throws InstantiationException, IllegalAccessException, InvocationTargetException, ClassCastException {
@@ -76,18 +95,70 @@ class PayloadAccumulator<S, P, E extends CyPayloadEvent<S, P>> {
 		synchronized (lock) {
 			if (t != null) {
 				ready = false;
-				payloadList.add(t);
+				if (size() == 0)
+					firstPayloadTime = System.nanoTime();
+				if (payloadMap == null) {
+					payloadList.add(t);
+				} else {
+					// remove first so the entry moves to the end, the event lists payloads in the order of their last change
+					final Object key = keyFunction.apply(t);
+					if (payloadMap.remove(key) != null)
+						coalescedCount++;
+					payloadMap.put(key, t);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Returns the number of payloads currently held.
+	 */
+	int size() {
+		synchronized (lock) {
+			return payloadMap == null ? payloadList.size() : payloadMap.size();
+		}
+	}
+
+	/**
+	 * Returns the number of payloads that were replaced by a later payload with the same key.
+	 */
+	int getCoalescedCount() {
+		synchronized (lock) {
+			return coalescedCount;
+		}
+	}
+
+	/**
+	 * Returns the System.nanoTime() at which the oldest payload still held was added.
+	 */
+	long getFirstPayloadTime() {
+		synchronized (lock) {
+			return firstPayloadTime;
+		}
+	}
+
+	/**
+	 * Returns true once an early flush of this accumulator has been asked for.
+	 */
+	boolean isFlushRequested() {
+		synchronized (lock) {
+			return flushRequested;
+		}
+	}
+
+	void setFlushRequested() {
+		synchronized (lock) {
+			flushRequested = true;
+		}
+	}
+
 	boolean checkReady() {
 		synchronized (lock) {
 			if(++checkedCount >= maxChecked) {
 //				System.out.println("ready because of too many checks");
 				return true;
 			}
-			if(payloadList.size() >= maxSize) {
+			if(size() >= maxSize) {
 //				System.out.println("ready because buffer full");
 				return true;
 			}
@@ -106,9 +177,15 @@ class PayloadAccumulator<S, P, E extends CyPayloadEvent<S, P>> {
 	
 	private Collection<P> getPayloadCollection() {
 		synchronized (lock) {
-			if (payloadList.isEmpty())
+			if (size() == 0)
 				return null;
 
+			if (payloadMap != null) {
+				List<P> ret = new ArrayList<P>(payloadMap.values());
+				payloadMap = new LinkedHashMap<>();
+				return ret;
+			}
+
 			List<P> ret = payloadList;
 			payloadList = new ArrayList<P>();
 			return ret;
@@ -0,0 +1,83 @@
+package org.cytoscape.event.internal;
+
+/*
+ * #%L
+ * Cytoscape Event Impl (event-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2008 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Computes a coalescing key for payloads from the values of some of their getters, eg. getRow() and getColumn().
+ * <br>
+ * event-impl doesn't depend on the APIs that define the payload classes, so the getters are looked up
+ * by name the first time a payload class is seen. Payloads that don't have all the getters are
+ * never coalesced, each one gets a unique key.
+ */
+class PropertyKeyFunction implements Function<Object,Object> {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodHandle[] NO_GETTERS = new MethodHandle[0];
+
+	private final String[] getterNames;
+	private final Map<Class<?>,MethodHandle[]> getters = new ConcurrentHashMap<>();
+
+	PropertyKeyFunction(String... getterNames) {
+		this.getterNames = getterNames;
+	}
+
+	@Override
+	public Object apply(Object payload) {
+		final MethodHandle[] handles = getters.computeIfAbsent(payload.getClass(), this::lookupGetters);
+		if (handles == NO_GETTERS)
+			return new Object();
+
+		final Object[] key = new Object[handles.length];
+		try {
+			for (int i = 0; i < handles.length; i++)
+				key[i] = handles[i].invokeExact(payload);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable t) {
+			throw new IllegalStateException(t);
+		}
+		return Arrays.asList(key);
+	}
+
+	private MethodHandle[] lookupGetters(Class<?> type) {
+		final MethodHandle[] handles = new MethodHandle[getterNames.length];
+		try {
+			for (int i = 0; i < getterNames.length; i++)
+				handles[i] = MethodHandles.publicLookup().unreflect(type.getMethod(getterNames[i])).asType(GETTER_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return NO_GETTERS;
+		}
+		return handles;
+	}
+}
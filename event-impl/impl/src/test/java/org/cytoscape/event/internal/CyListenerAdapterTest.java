@@ -0,0 +1,144 @@
+package org.cytoscape.event.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Hashtable;
+import java.util.List;
+
+import org.cytoscape.event.StubCyEvent;
+import org.cytoscape.event.StubCyListener;
+import org.cytoscape.event.StubCyListenerImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.springframework.osgi.mock.MockBundleContext;
+import org.springframework.osgi.mock.MockServiceReference;
+
+/*
+ * #%L
+ * Cytoscape Event Impl (event-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2008 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+public class CyListenerAdapterTest {
+
+	private StubCyListenerImpl threadSafeService;
+	private StubCyListenerImpl service;
+	private ServiceReference threadSafeServiceRef;
+	private ServiceReference serviceRef;
+	private CyListenerAdapter adapter;
+
+	@Before
+	public void setUp() {
+		threadSafeService = new StubCyListenerImpl();
+		service = new StubCyListenerImpl();
+
+		Hashtable<String,Object> props = new Hashtable<>();
+		props.put(CyListenerAdapter.THREAD_SAFE_LISTENER, "true");
+		threadSafeServiceRef = new MockServiceReference(null, props, null);
+		serviceRef = new MockServiceReference();
+
+		BundleContext bc = new MockBundleContext() {
+			@Override
+			public ServiceReference[] getServiceReferences(String clazz, String filter) throws InvalidSyntaxException {
+				if (clazz.equals(StubCyListener.class.getName()))
+					return new ServiceReference[] { threadSafeServiceRef, serviceRef };
+				else
+					return null;
+			}
+
+			@Override
+			public Object getService(ServiceReference ref) {
+				if (ref == threadSafeServiceRef)
+					return threadSafeService;
+				else if (ref == serviceRef)
+					return service;
+				else
+					return null;
+			}
+		};
+
+		adapter = new CyListenerAdapter(bc);
+	}
+
+	@Test
+	public void testStatistics() {
+		adapter.fireEvent(new StubCyEvent("homer"));
+		assertTrue(adapter.getListenerStatistics().isEmpty());
+
+		adapter.setCollectStatistics(true);
+		for (int i = 0; i < 3; i++)
+			adapter.fireEvent(new StubCyEvent("homer"));
+
+		// both listeners have the same class, so they share one entry
+		List<DispatchStatistics> listenerStats = adapter.getListenerStatistics();
+		assertEquals(1, listenerStats.size());
+		assertEquals(StubCyListenerImpl.class.getName(), listenerStats.get(0).getName());
+		assertEquals(6, listenerStats.get(0).getCount());
+
+		List<DispatchStatistics> eventStats = adapter.getEventStatistics();
+		assertEquals(1, eventStats.size());
+		assertEquals(StubCyEvent.class.getName(), eventStats.get(0).getName());
+		assertEquals(3, eventStats.get(0).getCount());
+		assertTrue(eventStats.get(0).getMaxNanos() >= eventStats.get(0).getMeanNanos());
+
+		adapter.resetStatistics();
+		assertEquals(0, adapter.getEventStatistics().get(0).getCount());
+	}
+
+	@Test
+	public void testParallelDispatch() {
+		adapter.setParallelDispatch(true);
+		for (int i = 0; i < 10; i++)
+			adapter.fireEvent(new StubCyEvent("homer"));
+
+		// fireEvent() waits for the listeners running on the pool
+		assertEquals(10, threadSafeService.getNumCalls());
+		assertEquals(10, service.getNumCalls());
+	}
+
+	@Test
+	public void testErrorInListenerIsLogged() {
+		service = new StubCyListenerImpl() {
+			@Override
+			public void handleEvent(StubCyEvent e) {
+				super.handleEvent(e);
+				throw new AssertionError("homer");
+			}
+		};
+
+		// the error doesn't reach the caller and the other listener is still called
+		adapter.fireEvent(new StubCyEvent("homer"));
+		assertEquals(1, threadSafeService.getNumCalls());
+		assertEquals(1, service.getNumCalls());
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		assertEquals(0, DispatchStatistics.bucket(999));
+		assertEquals(1, DispatchStatistics.bucket(1000));
+		assertEquals(2, DispatchStatistics.bucket(3000));
+		assertEquals(DispatchStatistics.BUCKETS - 1, DispatchStatistics.bucket(Long.MAX_VALUE));
+	}
+}
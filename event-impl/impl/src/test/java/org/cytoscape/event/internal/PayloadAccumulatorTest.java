@@ -0,0 +1,127 @@
+package org.cytoscape.event.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.cytoscape.event.AbstractCyPayloadEvent;
+import org.cytoscape.event.CyListener;
+import org.junit.Test;
+import org.springframework.osgi.mock.MockBundleContext;
+
+/*
+ * #%L
+ * Cytoscape Event Impl (event-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2008 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+public class PayloadAccumulatorTest {
+
+	public interface TestListener extends CyListener {
+		void handleEvent(TestPayloadEvent e);
+	}
+
+	public static class TestPayloadEvent extends AbstractCyPayloadEvent<Object, String> {
+		public TestPayloadEvent(Object source, Collection<String> payload) {
+			super(source, TestListener.class, payload);
+		}
+	}
+
+	@Test
+	public void testAllPayloadsKeptWithoutKey() throws Exception {
+		PayloadAccumulator<Object, String, TestPayloadEvent> acc =
+				new PayloadAccumulator<>("source", TestPayloadEvent.class, 100, 3);
+		acc.addPayload("a1");
+		acc.addPayload("b1");
+		acc.addPayload("a2");
+		assertEquals(3, acc.size());
+
+		TestPayloadEvent event = acc.newEventInstance();
+		assertEquals(Arrays.asList("a1", "b1", "a2"), new ArrayList<>(event.getPayloadCollection()));
+		assertEquals(0, acc.size());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		// payloads with the same first letter replace each other
+		PayloadAccumulator<Object, String, TestPayloadEvent> acc =
+				new PayloadAccumulator<>("source", TestPayloadEvent.class, 100, 3, p -> ((String) p).substring(0, 1));
+		acc.addPayload("a1");
+		acc.addPayload("b1");
+		acc.addPayload("a2");
+		assertEquals(2, acc.size());
+		assertEquals(1, acc.getCoalescedCount());
+
+		// the last value wins, and is ordered by its last change
+		TestPayloadEvent event = acc.newEventInstance();
+		assertEquals(Arrays.asList("b1", "a2"), new ArrayList<>(event.getPayloadCollection()));
+		assertEquals(0, acc.size());
+	}
+
+	@Test
+	public void testHighWaterMarkForcesFlush() {
+		CyEventHelperImpl helper = new CyEventHelperImpl(new CyListenerAdapter(new MockBundleContext()));
+		try {
+			helper.setPayloadHighWaterMark(10);
+			Object source = new Object();
+			for (int i = 0; i < 25; i++) {
+				helper.addEventPayload(source, "p" + i, TestPayloadEvent.class);
+				// the producer waits for the early flush, so the queue never grows past the mark
+				assertTrue(helper.getPayloadQueueDepth() < 10);
+			}
+			assertEquals(2, helper.getEarlyFlushCount());
+			assertEquals(5, helper.getPayloadQueueDepth());
+			assertEquals(10, helper.getPeakPayloadQueueDepth());
+
+			helper.flushPayloadEvents();
+			assertEquals(0, helper.getPayloadQueueDepth());
+			assertTrue(helper.getPayloadLatencyStatistics().getCount() >= 3);
+		} finally {
+			helper.cleanup();
+		}
+	}
+
+	@Test
+	public void testEarlyFlushRequestedOncePerAccumulator() throws Exception {
+		CyEventHelperImpl helper = new CyEventHelperImpl(new CyListenerAdapter(new MockBundleContext()));
+		try {
+			helper.setPayloadHighWaterMark(10);
+			Object source = new Object();
+			// the EDT doesn't wait for the flush, so payloads keep going to an accumulator that is
+			// already over the mark
+			EventQueue.invokeAndWait(() -> {
+				for (int i = 0; i < 1000; i++)
+					helper.addEventPayload(source, "p" + i, TestPayloadEvent.class);
+			});
+			assertTrue(helper.getEarlyFlushCount() >= 1);
+			assertTrue(helper.getEarlyFlushCount() <= 100);
+
+			helper.flushPayloadEvents();
+			assertEquals(0, helper.getPayloadQueueDepth());
+		} finally {
+			helper.cleanup();
+		}
+	}
+}
@@ -140,4 +140,10 @@ public class CyActivator extends AbstractCyActivator {
 			registerService(bc, layout, CyLayoutAlgorithm.class, props);
 		}
 	}
+
+	@Override
+	public void stop(BundleContext bc) {
+		super.stop(bc);
+		LayoutPool.shutdown();
+	}
 }
@@ -0,0 +1,58 @@
+package csapps.layout;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2013 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The threads that the layouts of this bundle run their parallel work on.
+ * <br>
+ * A layout can run for minutes, so the layouts have a pool of their own instead of using the common
+ * pool, which the renderer paints the network views on. The pool is created on first use and shut
+ * down by {@link CyActivator} when the bundle stops.
+ */
+public final class LayoutPool {
+
+	private static ForkJoinPool pool;
+	private static boolean stopped;
+
+	private LayoutPool() {
+	}
+
+	public static synchronized ForkJoinPool get() {
+		if (stopped)
+			throw new RejectedExecutionException("The layout bundle has been stopped");
+		if (pool == null)
+			pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return pool;
+	}
+
+	static synchronized void shutdown() {
+		stopped = true;
+		if (pool != null)
+			pool.shutdownNow();
+	}
+}
@@ -0,0 +1,343 @@
+package csapps.layout.algorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.layout.AbstractPartitionLayoutTask;
+import org.cytoscape.view.layout.LayoutNode;
+import org.cytoscape.view.layout.LayoutPartition;
+import org.cytoscape.view.layout.PartitionUtil;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.undo.UndoSupport;
+
+import csapps.layout.LayoutPool;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A partition layout that can lay out its partitions concurrently, on a pool shared by all
+ * the layouts, and then packs them the way {@link AbstractPartitionLayoutTask} does.
+ * <br>
+ * The layouts keep the state of the partition they are working on in their fields, so every
+ * worker of the pool lays out its partitions with its own task, made by {@link #createPartitionWorker}.
+ * The workers report their progress and status messages to this task, through a task monitor of
+ * their own, and cancelling this task cancels them.
+ */
+public abstract class ConcurrentPartitionLayoutTask extends AbstractPartitionLayoutTask {
+
+
+	/** The space between packed partitions, as in AbstractPartitionLayoutTask. */
+	private static final double INCR = 100;
+
+	private final String displayName;
+	private final boolean singlePartition;
+	private final boolean concurrentPartitions;
+	private final String attrName;
+	private final UndoSupport undo;
+
+	/** The workers of the current layout. */
+	private final List<ConcurrentPartitionLayoutTask> workers = new CopyOnWriteArrayList<>();
+	/** The progress of the workers, in nodes times percent. */
+	private final AtomicLong progress = new AtomicLong();
+	private long totalProgress;
+
+	/** The task that this worker lays out partitions for, or null if this is not a worker. */
+	private ConcurrentPartitionLayoutTask parent;
+	private int partitionSize;
+	private int partitionPercent;
+
+	/**
+	 * @param concurrentPartitions if true, and the graph is partitioned, lay out the partitions concurrently
+	 */
+	public ConcurrentPartitionLayoutTask(String displayName, boolean singlePartition, boolean concurrentPartitions,
+			CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, String attrName, UndoSupport undo) {
+		super(displayName, singlePartition, networkView, nodesToLayOut, attrName, undo);
+
+		this.displayName = displayName;
+		this.singlePartition = singlePartition;
+		this.concurrentPartitions = concurrentPartitions;
+		this.attrName = attrName;
+		this.undo = undo;
+	}
+
+	/**
+	 * Creates a task of the same layout, with the same settings, that lays out some of the
+	 * partitions of this one. It is only asked to lay out partitions, one at a time.
+	 *
+	 * @return the new worker
+	 */
+	protected abstract ConcurrentPartitionLayoutTask createPartitionWorker(String displayName, String attrName,
+			UndoSupport undo);
+
+	@Override
+	public void doLayout(final TaskMonitor taskMonitor) {
+		if (!concurrentPartitions || singlePartition || parent != null) {
+			super.doLayout(taskMonitor);
+			return;
+		}
+
+		this.taskMonitor = taskMonitor;
+
+		// The workers are made first, because their constructors set up the shared edge weighter
+		final List<ConcurrentPartitionLayoutTask> newWorkers = new ArrayList<>();
+
+		// One for each thread of the pool, and one for the calling thread
+		final ForkJoinPool pool = LayoutPool.get();
+		for (int i = 0; i <= pool.getParallelism(); i++) {
+			final ConcurrentPartitionLayoutTask worker = createPartitionWorker(displayName, attrName, undo);
+			worker.parent = this;
+			worker.taskMonitor = new WorkerTaskMonitor(worker);
+			newWorkers.add(worker);
+		}
+
+		if (edgeWeighter != null)
+			edgeWeighter.reset();
+
+		final List<LayoutPartition> partitions = PartitionUtil.partition(networkView, nodesToLayOut, edgeWeighter);
+
+		if (partitions.isEmpty())
+			return;
+
+		// The packing starts at the top left corner of the partitions, before they are laid out
+		double xStart = partitions.get(0).getMinX();
+		double yStart = partitions.get(0).getMinY();
+
+		for (LayoutPartition partition : partitions) {
+			xStart = Math.min(xStart, partition.getMinX());
+			yStart = Math.min(yStart, partition.getMinY());
+		}
+
+		// The largest partitions are started first, so that they do not finish last
+		final List<LayoutPartition> queue = new ArrayList<>();
+
+		for (LayoutPartition partition : partitions) {
+			if (partition.nodeCount() > 1)
+				queue.add(partition);
+		}
+
+		queue.sort(Comparator.comparingInt(LayoutPartition::size).reversed());
+		layOutConcurrently(queue, newWorkers);
+
+		// The partitions that were not laid out are left where they are
+		if (cancelled)
+			return;
+
+		pack(partitions, xStart, yStart);
+	}
+
+	private void layOutConcurrently(final List<LayoutPartition> queue,
+			final List<ConcurrentPartitionLayoutTask> newWorkers) {
+		progress.set(0);
+		totalProgress = 0;
+
+		for (LayoutPartition partition : queue)
+			totalProgress += 100L * partition.size();
+
+		final AtomicInteger next = new AtomicInteger();
+		final int workerCount = Math.min(newWorkers.size(), queue.size());
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>(workerCount);
+
+		for (int i = 0; i < workerCount; i++) {
+			final ConcurrentPartitionLayoutTask worker = newWorkers.get(i);
+			workers.add(worker);
+
+			// Catches a cancel that came before the worker was added
+			if (cancelled)
+				worker.cancel();
+
+			// The first worker runs on the calling thread
+			if (i > 0)
+				tasks.add(pool.submit(() -> layOutPartitions(worker, queue, next)));
+		}
+
+		Throwable failure = null;
+
+		try {
+			layOutPartitions(newWorkers.get(0), queue, next);
+		} catch (RuntimeException | Error e) {
+			failure = e;
+			cancel();
+		}
+
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException | Error e) {
+				if (failure == null) {
+					failure = e;
+					cancel();
+				}
+			}
+		}
+
+		workers.clear();
+
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+
+	private static void layOutPartitions(final ConcurrentPartitionLayoutTask worker, final List<LayoutPartition> queue,
+			final AtomicInteger next) {
+		int i;
+
+		while (!worker.cancelled && (i = next.getAndIncrement()) < queue.size()) {
+			final LayoutPartition partition = queue.get(i);
+			worker.partitionSize = partition.size();
+			worker.partitionPercent = 0;
+			worker.setTaskStatus(1);
+			worker.layoutPartition(partition);
+			worker.setTaskStatus(100);
+		}
+	}
+
+	/**
+	 * Places the partitions next to each other in rows, in their original order, like
+	 * {@link AbstractPartitionLayoutTask} does.
+	 */
+	private void pack(List<LayoutPartition> partitions, double xStart, double yStart) {
+		double next_x_start = xStart;
+		double next_y_start = yStart;
+		double current_max_y = 0;
+
+		double max_dimensions = Math.sqrt((double) networkView.getModel().getNodeCount());
+		// give each node room
+		max_dimensions *= INCR;
+		max_dimensions += xStart;
+
+		for (LayoutPartition partition : partitions) {
+			if (partition.nodeCount() > 1) {
+				partition.offset(next_x_start, next_y_start);
+			} else if (partition.nodeCount() == 1) {
+				// Single node -- just put it in place
+				partition.resetNodes();
+				LayoutNode node = partition.getNodeList().get(0);
+				node.setX(next_x_start);
+				node.setY(next_y_start);
+				partition.moveNodeToLocation(node);
+			} else {
+				continue;
+			}
+
+			double last_max_x = partition.getMaxX();
+			double last_max_y = partition.getMaxY();
+
+			if (last_max_y > current_max_y)
+				current_max_y = last_max_y;
+
+			if (last_max_x > max_dimensions) {
+				next_x_start = xStart;
+				next_y_start = current_max_y + INCR;
+			} else {
+				next_x_start = last_max_x + INCR;
+			}
+		}
+
+		if (taskMonitor != null)
+			taskMonitor.setProgress(1.0);
+	}
+
+	/**
+	 * In a worker, reports the progress of the current partition to the task it works for.
+	 */
+	@Override
+	public void setTaskStatus(int percent) {
+		if (parent == null) {
+			super.setTaskStatus(percent);
+			return;
+		}
+
+		// The progress of a partition only goes up, some layouts start over from a lower value
+		percent = Math.max(partitionPercent, Math.min(100, percent));
+		final long delta = (long) (percent - partitionPercent) * partitionSize;
+		partitionPercent = percent;
+		parent.addProgress(delta);
+	}
+
+	private void addProgress(long delta) {
+		final long done = progress.addAndGet(delta);
+
+		if (taskMonitor != null && totalProgress > 0)
+			taskMonitor.setProgress((double) done / totalProgress);
+	}
+
+	@Override
+	public void cancel() {
+		super.cancel();
+
+		for (ConcurrentPartitionLayoutTask worker : workers)
+			worker.cancel();
+	}
+
+	/**
+	 * The task monitor of a worker. The progress goes to the partition the worker is laying out,
+	 * and the messages go to the monitor of the task it works for. The title stays the parent's.
+	 */
+	private static final class WorkerTaskMonitor implements TaskMonitor {
+
+		private final ConcurrentPartitionLayoutTask worker;
+
+		WorkerTaskMonitor(ConcurrentPartitionLayoutTask worker) {
+			this.worker = worker;
+		}
+
+		@Override
+		public void setTitle(String title) {
+		}
+
+		@Override
+		public void setProgress(double progress) {
+			if (progress >= 0)
+				worker.setTaskStatus((int) Math.round(progress * 100));
+		}
+
+		@Override
+		public void setStatusMessage(String statusMessage) {
+			final TaskMonitor monitor = worker.parent.taskMonitor;
+
+			if (monitor != null)
+				monitor.setStatusMessage(statusMessage);
+		}
+
+		@Override
+		public void showMessage(Level level, String message) {
+			final TaskMonitor monitor = worker.parent.taskMonitor;
+
+			if (monitor != null)
+				monitor.showMessage(level, message);
+		}
+	}
+}
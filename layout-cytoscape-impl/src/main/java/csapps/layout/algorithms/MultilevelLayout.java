@@ -0,0 +1,351 @@
+package csapps.layout.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.view.layout.EdgeWeighter;
+import org.cytoscape.view.layout.LayoutEdge;
+import org.cytoscape.view.layout.LayoutNode;
+import org.cytoscape.view.layout.LayoutPartition;
+import org.cytoscape.view.model.CyNetworkView;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A multilevel front-end for the layouts of partitions, which any partition layout can use
+ * from its layoutPartition method.
+ * <br>
+ * The partition is coarsened into smaller and smaller graphs by matching every node with
+ * (at most) one neighbor and collapsing the matched pairs. The coarsest graph is laid out
+ * from scratch. Then, from coarse to fine, the nodes of every graph start at the location of
+ * the node they were collapsed into, and the layout refines that.
+ * <br>
+ * The coarse graphs are partitions of representative nodes: every coarse node is the view of
+ * one of the nodes that were collapsed into it, and every coarse edge is one of the edges
+ * between them. So the layouts of the coarse graphs move these views around too, until the
+ * original partition is laid out. Locked nodes are never collapsed.
+ */
+public final class MultilevelLayout {
+
+	/** Graphs with at most this many nodes are not coarsened further. */
+	public static final int COARSEST_SIZE = 50;
+
+	/** Coarsening stops when a graph would keep more than this fraction of its nodes. */
+	private static final double MIN_REDUCTION = 0.9;
+
+	/** Lays out one of the graphs of a multilevel layout. */
+	@FunctionalInterface
+	public interface LevelLayout {
+
+		/**
+		 * @param level the partition to lay out
+		 * @param refining false for the coarsest graph, true for the other graphs, whose nodes
+		 * already start at the locations of the coarser graph
+		 */
+		void layoutLevel(LayoutPartition level, boolean refining);
+	}
+
+	private final CyNetwork network;
+	private final EdgeWeighter edgeWeighter;
+	private final Random random = new Random(0L);
+
+	/**
+	 * @param edgeWeighter the edge weighter of the partitions, which the coarse graphs use too
+	 */
+	public MultilevelLayout(CyNetworkView networkView, EdgeWeighter edgeWeighter) {
+		this.network = networkView.getModel();
+		this.edgeWeighter = edgeWeighter;
+	}
+
+	/**
+	 * Lays out the partition through the coarsened graphs.
+	 *
+	 * @param partition the partition to lay out
+	 * @param layout the layout of each graph, from the coarsest to the partition itself
+	 * @param cancelled tells whether the layout has been cancelled
+	 */
+	public void layoutPartition(LayoutPartition partition, LevelLayout layout, BooleanSupplier cancelled) {
+		final List<LayoutPartition> levels = new ArrayList<>();
+		final List<int[]> coarseNodes = new ArrayList<>();
+		levels.add(partition);
+
+		// Coarsen
+		while (levels.get(levels.size() - 1).nodeCount() > COARSEST_SIZE) {
+			if (cancelled.getAsBoolean())
+				return;
+
+			final LayoutPartition fine = levels.get(levels.size() - 1);
+			final int[] coarseNode = match(fine);
+
+			if (coarseNode == null)
+				break;
+
+			levels.add(collapse(fine, coarseNode));
+			coarseNodes.add(coarseNode);
+		}
+
+		// Lay out, then prolong and refine
+		for (int l = levels.size() - 1; l >= 0; l--) {
+			if (cancelled.getAsBoolean())
+				return;
+
+			final boolean refining = l < levels.size() - 1;
+
+			if (refining)
+				prolong(levels.get(l + 1), levels.get(l), coarseNodes.get(l));
+
+			layout.layoutLevel(levels.get(l), refining);
+		}
+	}
+
+	/**
+	 * Matches every unlocked node with its unmatched, unlocked neighbor of lowest degree,
+	 * visiting the nodes by increasing degree, so that leaves are collapsed first and hubs last.
+	 *
+	 * @return the index of the coarse node of every node of the partition, or null if
+	 * matching would not reduce the graph enough
+	 */
+	private static int[] match(LayoutPartition fine) {
+		final List<LayoutNode> nodes = fine.getNodeList();
+		final int n = nodes.size();
+		final Map<LayoutNode, Integer> indexes = indexNodes(nodes);
+
+		// The neighbors of every node: neighbors[adjStart[i]] to neighbors[adjStart[i + 1] - 1]
+		final int[][] ends = edgeEnds(fine, indexes);
+		final int[] adjStart = new int[n + 1];
+
+		for (int[] e : ends) {
+			adjStart[e[0] + 1]++;
+			adjStart[e[1] + 1]++;
+		}
+
+		for (int i = 0; i < n; i++)
+			adjStart[i + 1] += adjStart[i];
+
+		final int[] neighbors = new int[adjStart[n]];
+		final int[] next = Arrays.copyOf(adjStart, n);
+
+		for (int[] e : ends) {
+			neighbors[next[e[0]]++] = e[1];
+			neighbors[next[e[1]]++] = e[0];
+		}
+
+		final Integer[] order = new Integer[n];
+
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+
+		Arrays.sort(order, (a, b) -> Integer.compare(adjStart[a + 1] - adjStart[a], adjStart[b + 1] - adjStart[b]));
+
+		final int[] mate = new int[n];
+		Arrays.fill(mate, -1);
+
+		for (int v : order) {
+			if (mate[v] >= 0 || nodes.get(v).isLocked())
+				continue;
+
+			int best = -1;
+
+			for (int k = adjStart[v]; k < adjStart[v + 1]; k++) {
+				final int u = neighbors[k];
+
+				if (mate[u] >= 0 || nodes.get(u).isLocked())
+					continue;
+
+				if (best < 0 || adjStart[u + 1] - adjStart[u] < adjStart[best + 1] - adjStart[best])
+					best = u;
+			}
+
+			if (best >= 0) {
+				mate[v] = best;
+				mate[best] = v;
+			}
+		}
+
+		// A pair becomes the coarse node of its first node
+		final int[] coarseNode = new int[n];
+		int coarseCount = 0;
+
+		for (int i = 0; i < n; i++)
+			coarseNode[i] = mate[i] < 0 || mate[i] > i ? coarseCount++ : coarseNode[mate[i]];
+
+		return coarseCount > MIN_REDUCTION * n ? null : coarseNode;
+	}
+
+	/**
+	 * @return the partition of the coarse nodes, each at the center of its nodes
+	 */
+	private LayoutPartition collapse(LayoutPartition fine, int[] coarseNode) {
+		final List<LayoutNode> nodes = fine.getNodeList();
+		final int n = nodes.size();
+		int coarseCount = 0;
+
+		for (int i = 0; i < n; i++)
+			coarseCount = Math.max(coarseCount, coarseNode[i] + 1);
+
+		final int[][] ends = edgeEnds(fine, indexNodes(nodes));
+		final LayoutPartition coarse = new LayoutPartition(coarseCount, ends.length);
+
+		if (edgeWeighter != null)
+			coarse.setEdgeWeighter(edgeWeighter);
+
+		final double[] x = new double[coarseCount];
+		final double[] y = new double[coarseCount];
+		final int[] size = new int[coarseCount];
+
+		for (int i = 0; i < n; i++) {
+			final int c = coarseNode[i];
+			final LayoutNode v = nodes.get(i);
+
+			// The first node of every coarse node represents it
+			if (size[c] == 0)
+				coarse.addNode(network, v.getNodeView(), v.isLocked());
+
+			x[c] += v.getX();
+			y[c] += v.getY();
+			size[c]++;
+		}
+
+		final List<LayoutNode> coarseList = coarse.getNodeList();
+		coarse.resetNodes();
+
+		for (int c = 0; c < coarseCount; c++) {
+			final LayoutNode v = coarseList.get(c);
+
+			if (!v.isLocked()) {
+				v.setX(x[c] / size[c]);
+				v.setY(y[c] / size[c]);
+			}
+
+			coarse.moveNodeToLocation(v);
+		}
+
+		// One edge between every pair of connected coarse nodes
+		final List<LayoutEdge> edges = fine.getEdgeList();
+		final Set<Long> pairs = new HashSet<>();
+
+		for (int k = 0; k < ends.length; k++) {
+			final int s = coarseNode[ends[k][0]];
+			final int t = coarseNode[ends[k][1]];
+
+			if (s == t || !pairs.add((long) Math.min(s, t) * coarseCount + Math.max(s, t)))
+				continue;
+
+			final LayoutEdge e = edges.get(ends[k][2]);
+			coarse.addEdge(e.getEdge(), coarseList.get(s), coarseList.get(t), e.getRow());
+
+			final List<LayoutEdge> coarseEdges = coarse.getEdgeList();
+			final LayoutEdge coarseEdge = coarseEdges.get(coarseEdges.size() - 1);
+			coarseEdge.setWeight(e.getWeight());
+			coarseEdge.setLogWeight(e.getLogWeight());
+		}
+
+		return coarse;
+	}
+
+	/**
+	 * Moves the nodes of the fine partition to the locations of their coarse nodes, and spreads
+	 * the nodes that were collapsed together around them.
+	 */
+	private void prolong(LayoutPartition coarse, LayoutPartition fine, int[] coarseNode) {
+		final List<LayoutNode> coarseList = coarse.getNodeList();
+		final List<LayoutNode> nodes = fine.getNodeList();
+
+		// Spread by a fraction of the edge length of the coarse layout
+		double length = 0;
+		int count = 0;
+
+		for (LayoutEdge e : coarse.getEdgeList()) {
+			length += e.getSource().distance(e.getTarget());
+			count++;
+		}
+
+		final double spread = count > 0 && length > 0 ? length / count / 4 : 10;
+		final boolean[] placed = new boolean[coarseList.size()];
+		final double[] dx = new double[coarseList.size()];
+		final double[] dy = new double[coarseList.size()];
+
+		fine.resetNodes();
+
+		for (int i = 0; i < nodes.size(); i++) {
+			final LayoutNode v = nodes.get(i);
+			final int c = coarseNode[i];
+
+			if (!v.isLocked()) {
+				// The two nodes of a pair go to opposite sides of their coarse node
+				if (!placed[c]) {
+					final double angle = random.nextDouble() * 2 * Math.PI;
+					dx[c] = spread * Math.cos(angle);
+					dy[c] = spread * Math.sin(angle);
+					placed[c] = true;
+				} else {
+					dx[c] = -dx[c];
+					dy[c] = -dy[c];
+				}
+
+				v.setX(coarseList.get(c).getX() + dx[c]);
+				v.setY(coarseList.get(c).getY() + dy[c]);
+			}
+
+			fine.moveNodeToLocation(v);
+		}
+	}
+
+	private static Map<LayoutNode, Integer> indexNodes(List<LayoutNode> nodes) {
+		final Map<LayoutNode, Integer> indexes = new IdentityHashMap<>();
+
+		for (int i = 0; i < nodes.size(); i++)
+			indexes.put(nodes.get(i), i);
+
+		return indexes;
+	}
+
+	/**
+	 * @return the source, the target and the index of every edge between two different nodes
+	 * of the partition
+	 */
+	private static int[][] edgeEnds(LayoutPartition partition, Map<LayoutNode, Integer> indexes) {
+		final List<LayoutEdge> edges = partition.getEdgeList();
+		final List<int[]> ends = new ArrayList<>(edges.size());
+
+		for (int k = 0; k < edges.size(); k++) {
+			final Integer s = indexes.get(edges.get(k).getSource());
+			final Integer t = indexes.get(edges.get(k).getTarget());
+
+			if (s != null && t != null && !s.equals(t))
+				ends.add(new int[] { s, t, k });
+		}
+
+		return ends.toArray(new int[ends.size()][]);
+	}
+}
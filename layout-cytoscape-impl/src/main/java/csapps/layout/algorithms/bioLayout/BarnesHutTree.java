@@ -0,0 +1,365 @@
+package csapps.layout.algorithms.bioLayout;
+
+import java.util.Arrays;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * A quadtree (2D) or octree (3D) over the node positions of one iteration, used to
+ * approximate the Fruchterman-Rheingold repulsion in O(n log n) instead of O(n^2).
+ * <br>
+ * A cell whose size divided by its distance to the node is smaller than theta is treated
+ * as one body with the total weight of its nodes, placed at their weighted center.
+ * A cell is never approximated when it contains the node itself, when one of its nodes
+ * could overlap the node (so the conflict avoidance force is still exact), or when it
+ * straddles the maximum repulsion distance. Cells completely beyond that distance are skipped.
+ * <br>
+ * The tree is read-only once built, so {@link #accumulateRepulsion} may be called from
+ * several threads at the same time.
+ */
+final class BarnesHutTree {
+
+	/** Cells with this many nodes or fewer are not split. */
+	static final int LEAF_SIZE = 8;
+	/** Stops splitting cells of nodes that are all at the same location. */
+	private static final int MAX_DEPTH = 32;
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	private final double[] radius;
+	private final double[] weight;
+	private final boolean threeD;
+	private final int childSlots;
+
+	/** Node indexes, ordered so that the nodes of every cell are contiguous. */
+	private final int[] order;
+	private final int[] scratch;
+
+	private int cellCount;
+	private int[] start;
+	private int[] end;
+	private int[] firstChild;
+	private int[] childCount;
+	private double[] centerX;
+	private double[] centerY;
+	private double[] centerZ;
+	private double[] halfSize;
+	private double[] massX;
+	private double[] massY;
+	private double[] massZ;
+	private double[] mass;
+	private double[] maxRadius;
+
+	/**
+	 * @param x the x locations
+	 * @param y the y locations
+	 * @param z the z locations, ignored unless threeD is true
+	 * @param radius half of each node's width
+	 * @param weight how strongly each node repels the others
+	 * @param threeD if true, build an octree, otherwise a quadtree
+	 */
+	BarnesHutTree(double[] x, double[] y, double[] z, double[] radius, double[] weight, boolean threeD) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.radius = radius;
+		this.weight = weight;
+		this.threeD = threeD;
+		this.childSlots = threeD ? 8 : 4;
+
+		final int n = x.length;
+		order = new int[n];
+		scratch = new int[n];
+
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+
+		allocate(Math.max(16, 2 * n / LEAF_SIZE));
+
+		if (n == 0)
+			return;
+
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+
+		for (int i = 0; i < n; i++) {
+			minX = Math.min(minX, x[i]);
+			maxX = Math.max(maxX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxY = Math.max(maxY, y[i]);
+
+			if (threeD) {
+				minZ = Math.min(minZ, z[i]);
+				maxZ = Math.max(maxZ, z[i]);
+			}
+		}
+
+		if (!threeD)
+			minZ = maxZ = 0;
+
+		double half = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ)) / 2;
+		// Pad the root a little so that the nodes on its border are inside it
+		half = half * 1.001 + 1e-9;
+
+		cellCount = 1;
+		build(0, 0, n, (minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, half, 0);
+	}
+
+	int getCellCount() {
+		return cellCount;
+	}
+
+	private void build(int cell, int from, int to, double cx, double cy, double cz, double half, int depth) {
+		start[cell] = from;
+		end[cell] = to;
+		centerX[cell] = cx;
+		centerY[cell] = cy;
+		centerZ[cell] = cz;
+		halfSize[cell] = half;
+
+		double m = 0, mx = 0, my = 0, mz = 0, r = 0;
+
+		for (int k = from; k < to; k++) {
+			final int i = order[k];
+			m += weight[i];
+			mx += weight[i] * x[i];
+			my += weight[i] * y[i];
+
+			if (threeD)
+				mz += weight[i] * z[i];
+
+			r = Math.max(r, radius[i]);
+		}
+
+		mass[cell] = m;
+		maxRadius[cell] = r;
+
+		if (m > 0) {
+			massX[cell] = mx / m;
+			massY[cell] = my / m;
+			massZ[cell] = mz / m;
+		} else {
+			massX[cell] = cx;
+			massY[cell] = cy;
+			massZ[cell] = cz;
+		}
+
+		if (to - from <= LEAF_SIZE || depth >= MAX_DEPTH) {
+			childCount[cell] = 0;
+			return;
+		}
+
+		// Counting sort of the cell's nodes by octant
+		final int[] counts = new int[childSlots];
+
+		for (int k = from; k < to; k++)
+			counts[octant(order[k], cx, cy, cz)]++;
+
+		final int[] offsets = new int[childSlots];
+		int children = 0;
+
+		for (int o = 0, sum = from; o < childSlots; o++) {
+			offsets[o] = sum;
+			sum += counts[o];
+
+			if (counts[o] > 0)
+				children++;
+		}
+
+		final int[] next = offsets.clone();
+
+		for (int k = from; k < to; k++) {
+			final int i = order[k];
+			scratch[next[octant(i, cx, cy, cz)]++] = i;
+		}
+
+		System.arraycopy(scratch, from, order, from, to - from);
+
+		// The children of a cell are contiguous
+		final int first = cellCount;
+		cellCount += children;
+		ensureCapacity(cellCount);
+		firstChild[cell] = first;
+		childCount[cell] = children;
+
+		final double q = half / 2;
+
+		for (int o = 0, child = first; o < childSlots; o++) {
+			if (counts[o] == 0)
+				continue;
+
+			build(child++, offsets[o], offsets[o] + counts[o],
+					(o & 1) != 0 ? cx + q : cx - q,
+					(o & 2) != 0 ? cy + q : cy - q,
+					(o & 4) != 0 ? cz + q : cz - q,
+					q, depth + 1);
+		}
+	}
+
+	private int octant(int i, double cx, double cy, double cz) {
+		int o = 0;
+
+		if (x[i] >= cx)
+			o |= 1;
+		if (y[i] >= cy)
+			o |= 2;
+		if (threeD && z[i] >= cz)
+			o |= 4;
+
+		return o;
+	}
+
+	/**
+	 * Adds the (approximate) repulsion of all the other nodes on node v to disp, using
+	 * the same force function as BioLayoutFRAlgorithmTask: k^2/d up to maxDistance, plus
+	 * conflictAvoidance when two nodes overlap.
+	 *
+	 * @param disp x, y and z displacement to add to
+	 */
+	void accumulateRepulsion(int v, double theta, double k2, double maxDistance, double conflictAvoidance,
+			double epsilon, double[] disp) {
+		if (x.length == 0)
+			return;
+
+		final double vx = x[v];
+		final double vy = y[v];
+		final double vz = threeD ? z[v] : 0;
+		final double rv = radius[v];
+
+		final int[] stack = new int[MAX_DEPTH * (childSlots - 1) + 2];
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0) {
+			final int c = stack[--top];
+			final double h = halfSize[c];
+
+			// Distance from v to the nearest and farthest points of the cell
+			final double ax = Math.abs(vx - centerX[c]);
+			final double ay = Math.abs(vy - centerY[c]);
+			final double az = threeD ? Math.abs(vz - centerZ[c]) : 0;
+			final double nx = Math.max(ax - h, 0), ny = Math.max(ay - h, 0), nz = Math.max(az - h, 0);
+			final double near = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+			if (near > maxDistance && near > rv + maxRadius[c])
+				continue; // No node of this cell is close enough to repel v
+
+			final boolean containsV = ax <= h && ay <= h && az <= h;
+
+			if (!containsV) {
+				final double dx = vx - massX[c];
+				final double dy = vy - massY[c];
+				final double dz = threeD ? vz - massZ[c] : 0;
+				final double d = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+				if (d > 0 && 2 * h < theta * d && near > rv + maxRadius[c]) {
+					final double fx = ax + h, fy = ay + h, fz = threeD ? az + h : 0;
+					final double far = Math.sqrt(fx * fx + fy * fy + fz * fz);
+
+					if (far <= maxDistance) {
+						final double f = mass[c] * k2 / (d * d);
+						disp[0] += dx * f;
+						disp[1] += dy * f;
+						disp[2] += dz * f;
+						continue;
+					}
+				}
+			}
+
+			if (childCount[c] == 0) {
+				for (int k = start[c]; k < end[c]; k++) {
+					final int u = order[k];
+
+					if (u != v)
+						addExact(vx, vy, vz, rv, u, k2, maxDistance, conflictAvoidance, epsilon, disp);
+				}
+			} else {
+				for (int child = firstChild[c], last = child + childCount[c]; child < last; child++)
+					stack[top++] = child;
+			}
+		}
+	}
+
+	private void addExact(double vx, double vy, double vz, double rv, int u, double k2, double maxDistance,
+			double conflictAvoidance, double epsilon, double[] disp) {
+		final double dx = vx - x[u];
+		final double dy = vy - y[u];
+		final double dz = threeD ? vz - z[u] : 0;
+		double d = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+		if (d == 0.0)
+			d = epsilon;
+
+		double fr = d > maxDistance ? 0 : k2 / d;
+
+		if (d < rv + radius[u])
+			fr += conflictAvoidance;
+
+		if (Double.isNaN(fr))
+			fr = 500;
+
+		final double f = weight[u] * fr / d;
+		disp[0] += dx * f;
+		disp[1] += dy * f;
+		disp[2] += dz * f;
+	}
+
+	private void allocate(int capacity) {
+		start = new int[capacity];
+		end = new int[capacity];
+		firstChild = new int[capacity];
+		childCount = new int[capacity];
+		centerX = new double[capacity];
+		centerY = new double[capacity];
+		centerZ = new double[capacity];
+		halfSize = new double[capacity];
+		massX = new double[capacity];
+		massY = new double[capacity];
+		massZ = new double[capacity];
+		mass = new double[capacity];
+		maxRadius = new double[capacity];
+	}
+
+	private void ensureCapacity(int required) {
+		if (required <= start.length)
+			return;
+
+		final int capacity = Math.max(required, start.length * 2);
+		start = Arrays.copyOf(start, capacity);
+		end = Arrays.copyOf(end, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		childCount = Arrays.copyOf(childCount, capacity);
+		centerX = Arrays.copyOf(centerX, capacity);
+		centerY = Arrays.copyOf(centerY, capacity);
+		centerZ = Arrays.copyOf(centerZ, capacity);
+		halfSize = Arrays.copyOf(halfSize, capacity);
+		massX = Arrays.copyOf(massX, capacity);
+		massY = Arrays.copyOf(massY, capacity);
+		massZ = Arrays.copyOf(massZ, capacity);
+		mass = Arrays.copyOf(mass, capacity);
+		maxRadius = Arrays.copyOf(maxRadius, capacity);
+	}
+}
@@ -36,14 +36,15 @@ package csapps.layout.algorithms.bioLayout;
 import java.util.Set;
 
 import org.cytoscape.model.CyNode;
-import org.cytoscape.view.layout.AbstractPartitionLayoutTask;
 import org.cytoscape.view.layout.LayoutPartition;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.View;
 import org.cytoscape.work.undo.UndoSupport;
 
+import csapps.layout.algorithms.ConcurrentPartitionLayoutTask;
 
-public abstract class BioLayoutAlgorithmTask extends AbstractPartitionLayoutTask {
+
+public abstract class BioLayoutAlgorithmTask extends ConcurrentPartitionLayoutTask {
 
 	/**
 	 * A small value used to avoid division by zero
@@ -64,8 +65,8 @@ public abstract class BioLayoutAlgorithmTask extends AbstractPartitionLayoutTask
 	/**
 	 * This is the constructor for the bioLayout algorithm.
 	 */
-	public BioLayoutAlgorithmTask(final String displayName, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, final boolean singlePartition, String attrName, UndoSupport undo) {
-		super(displayName, singlePartition, networkView, nodesToLayOut,attrName, undo);
+	public BioLayoutAlgorithmTask(final String displayName, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, final boolean singlePartition, final boolean concurrentPartitions, String attrName, UndoSupport undo) {
+		super(displayName, singlePartition, concurrentPartitions, networkView, nodesToLayOut, attrName, undo);
 
 	}
 
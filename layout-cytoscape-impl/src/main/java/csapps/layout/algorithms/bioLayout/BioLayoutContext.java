@@ -38,4 +38,10 @@ public abstract class BioLayoutContext {
 	 */
 	@Tunable(description="Randomize graph before layout:", groups="Standard Settings", context="both", longDescription="Randomize graph before layout; boolean values only, ```true``` or ```false```; defaults to ```true```", exampleStringValue="true")
 	public boolean randomize = true;
+
+	/**
+	 * Partitions with more nodes than this are laid out through coarsened graphs
+	 */
+	@Tunable(description="Use multilevel layout for partitions larger than (0: never):", context="both", longDescription="Partitions with more nodes than this are coarsened by collapsing matched neighbors, the coarsest graph is laid out, and each finer graph refines the layout of the coarser one, in numeric value (0: always lay out the whole graph directly)", exampleStringValue="0")
+	public int multilevelThreshold;
 }
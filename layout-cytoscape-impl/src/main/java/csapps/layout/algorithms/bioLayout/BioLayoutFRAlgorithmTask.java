@@ -1,7 +1,9 @@
 package csapps.layout.algorithms.bioLayout;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.cytoscape.model.CyNode;
 import org.cytoscape.view.layout.LayoutEdge;
@@ -12,6 +14,9 @@ import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.View;
 import org.cytoscape.work.undo.UndoSupport;
 
+import csapps.layout.algorithms.ConcurrentPartitionLayoutTask;
+import csapps.layout.algorithms.MultilevelLayout;
+
 /*
  * #%L
  * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
@@ -38,6 +43,12 @@ import org.cytoscape.work.undo.UndoSupport;
 
 public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 	
+	/**
+	 * The graphs of a multilevel layout that start from a coarser layout
+	 * run this many times fewer iterations, at this many times lower temperature
+	 */
+	private static final int REFINING_DIVISOR = 4;
+
 	private double attraction_constant;
 	private double repulsion_constant;
 	private double gravity_constant;
@@ -58,6 +69,11 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 	private double maxVelocity_divisor = 25;
 	private double maxVelocity;
 
+	/**
+	 * The number of iterations of the current layout
+	 */
+	private int nIterations;
+
 	/**
 	 * This ArrayList is used to calculate the slope of the magnitude
 	 * of the displacement.  When the slope is (approximately) 0, we're
@@ -97,7 +113,7 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 			String attrName,
 			UndoSupport undo
 	) {		
-		super(displayName, networkView, nodesToLayOut, context.singlePartition, attrName, undo);
+		super(displayName, networkView, nodesToLayOut, context.singlePartition, context.concurrentPartitions, attrName, undo);
 
 		this.context = context;
 		this.supportWeights = supportWeights;
@@ -105,6 +121,11 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 		this.edgeWeighter.setWeightAttribute(layoutAttribute);
 
 		displacementArray = new ArrayList<>(100);
+	}
+
+	@Override
+	protected ConcurrentPartitionLayoutTask createPartitionWorker(String displayName, String attrName, UndoSupport undo) {
+		return new BioLayoutFRAlgorithmTask(displayName, networkView, nodesToLayOut, context, supportWeights, attrName, undo);
 	}
 
 	/**
@@ -143,8 +164,23 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 	 */
 	@Override
 	public void layoutPartition(LayoutPartition partition) {
+		if (context.multilevelThreshold > 0 && partition.nodeCount() > context.multilevelThreshold)
+			new MultilevelLayout(networkView, edgeWeighter).layoutPartition(partition, this::layoutLevel, () -> cancelled);
+		else
+			layoutLevel(partition, false);
+	}
+
+	/**
+	 * Lay out one partition, or one graph of a multilevel layout.  The graphs that
+	 * start from the locations of a coarser layout only need a cooler, shorter run.
+	 *
+	 * @param refining true if the nodes already start at the locations of a coarser layout
+	 */
+	private void layoutLevel(LayoutPartition partition, boolean refining) {
 		this.partition = partition;
 		LayoutPoint initialLocation = null;
+		nIterations = refining ? Math.max(1, context.nIterations / REFINING_DIVISOR) : context.nIterations;
+		displacementArray.clear();
 
 		/* Get all of our profiles */
 		/*
@@ -172,12 +208,15 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 			temp = Math.sqrt(this.width * this.height) * this.context.temperature / 100;
 		}
 
+		if (refining)
+			temp /= REFINING_DIVISOR;
+
 		// Figure out our starting point
 		initialLocation = partition.getAverageLocation();
 
 		// Randomize our points, if any points lie
 		// outside of our bounds
-		if (context.randomize)
+		if (context.randomize && !refining)
 			partition.randomizeLocations(context.layout3D);
 
 		// Calculate our force constant
@@ -191,11 +230,11 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 		
 		// Main algorithm
 		// iterProfile.start();
-		for (int i = 0; i < context.nIterations; i++) {
+		for (int i = 0; i < nIterations; i++) {
 			if (cancelled)
 				return;
 			
-			taskMonitor.setStatusMessage("Calculating new node positions: Iteration " + (i + 1) + " of " + context.nIterations + "...");
+			taskMonitor.setStatusMessage("Calculating new node positions: Iteration " + (i + 1) + " of " + nIterations + "...");
 			
 			if ((temp = doOneIteration(i, temp)) == 0) {
 				setTaskStatus(92);
@@ -225,7 +264,7 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 				}
 			}
 			
-			setTaskStatus(Math.round(2 + ((i + 1) / (float) context.nIterations) * 90));
+			setTaskStatus(Math.round(2 + ((i + 1) / (float) nIterations) * 90));
 		}
 
 		// iterProfile.done("Iterations complete in ");
@@ -305,16 +344,30 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 			}
 		}
 
-		for (LayoutNode v: partition.getNodeList()) {
-			if (cancelled)
-				return 0;
+		final List<LayoutNode> nodeList = partition.getNodeList();
+		final BarnesHutTree tree = useBarnesHut() ? createBarnesHutTree(nodeList) : null;
+		final double xCenter = xAverage;
+		final double yCenter = yAverage;
+		final double zCenter = zAverage;
+
+		// Every node only updates its own displacement, so the nodes can be done in parallel
+		IntStream.range(0, nodeList.size()).parallel().forEach(i -> {
+			LayoutNode v = nodeList.get(i);
 			
-			if (!v.isLocked()) {
+			if (cancelled || v.isLocked())
+				return;
+			
+			if (tree != null)
+				calculateRepulsion(v, i, tree);
+			else
 				calculateRepulsion(v);
-				if (gravity_constant != 0)
-					calculateGravity(v,xAverage,yAverage,zAverage);
-			}
-		}
+			
+			if (gravity_constant != 0)
+				calculateGravity(v, xCenter, yCenter, zCenter);
+		});
+		
+		if (cancelled)
+			return 0;
 
 		// repulseProfile.checkpoint();
 
@@ -484,6 +537,52 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 		}
 	}
 
+	/**
+	 * Whether to approximate the repulsive forces for the current partition.
+	 */
+	private boolean useBarnesHut() {
+		return context.barnes_hut_threshold > 0 && partition.nodeCount() > context.barnes_hut_threshold;
+	}
+
+	/**
+	 * Build the Barnes-Hut tree over the current node locations.  Locked nodes
+	 * have twice the weight, like in {@link #calculateRepulsion(LayoutNode)}.
+	 */
+	private BarnesHutTree createBarnesHutTree(List<LayoutNode> nodeList) {
+		final int n = nodeList.size();
+		final double[] x = new double[n];
+		final double[] y = new double[n];
+		final double[] z = new double[n];
+		final double[] radius = new double[n];
+		final double[] weight = new double[n];
+
+		for (int i = 0; i < n; i++) {
+			LayoutNode v = nodeList.get(i);
+			x[i] = v.getX();
+			y[i] = v.getY();
+			z[i] = v.getZ();
+			radius[i] = v.getWidth() / 2;
+			weight[i] = v.isLocked() ? 2 : 1;
+		}
+
+		return new BarnesHutTree(x, y, z, radius, weight, context.layout3D);
+	}
+
+	/**
+	 * calculate the approximate repulsive forces and offsets
+	 * for a vertex using the Barnes-Hut tree.
+	 *
+	 * @param v LayoutNode we're calculating repulsive forces for
+	 * @param index the index of v in the partition's node list
+	 * @param tree the Barnes-Hut tree for this iteration
+	 */
+	private void calculateRepulsion(LayoutNode v, int index, BarnesHutTree tree) {
+		final double[] disp = new double[3];
+		tree.accumulateRepulsion(index, context.barnes_hut_theta, repulsion_constant * repulsion_constant,
+				maxDistance, context.conflict_avoidance, EPSILON, disp);
+		v.setDisp(disp[0], disp[1], context.layout3D ? disp[2] : 0);
+	}
+
 	/**
 	 * calculate the attractive forces and offsets for
 	 * each vertex based on their connecting edges and the
@@ -613,7 +712,7 @@ public class BioLayoutFRAlgorithmTask extends BioLayoutAlgorithmTask {
 	 * @return the new temperature
 	 */
 	private double cool(double temp, int iteration) {
-		temp *= (1.0 - ((double)iteration / (double)context.nIterations));
+		temp *= (1.0 - ((double)iteration / (double)nIterations));
 
 		return temp;
 	}
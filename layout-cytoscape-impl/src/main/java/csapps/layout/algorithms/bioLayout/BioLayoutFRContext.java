@@ -24,6 +24,8 @@ package csapps.layout.algorithms.bioLayout;
  * #L%
  */
 
+import java.io.IOException;
+
 import org.cytoscape.work.Tunable;
 import org.cytoscape.work.TunableValidator;
 
@@ -79,14 +81,43 @@ public class BioLayoutFRContext extends BioLayoutContext implements TunableValid
 	@Tunable(description="Number of iterations:", context="both", longDescription="Number of iterations, in numeric value", exampleStringValue="500")
 	public int nIterations = 500;
 
+	/**
+	 * Partitions with more nodes than this approximate the repulsive
+	 * forces with a Barnes-Hut tree instead of comparing every pair of nodes.
+	 */
+	@Tunable(description="Approximate repulsion for partitions larger than (0: never):", context="both", longDescription="Partitions with more nodes than this use the Barnes-Hut approximation to calculate the repulsive forces, in numeric value (0: always calculate the exact forces)", exampleStringValue="1000")
+	public int barnes_hut_threshold = 1000;
+
+	/**
+	 * The Barnes-Hut accuracy.  A group of nodes whose size divided by its distance
+	 * is less than theta acts as a single node.  Smaller is more accurate, but slower.
+	 */
+	@Tunable(description="Barnes-Hut approximation accuracy (theta):", context="both", longDescription="The Barnes-Hut accuracy: a group of nodes whose size divided by its distance is less than this acts as a single node; smaller values are more accurate but slower, in numeric value", exampleStringValue="0.8")
+	public double barnes_hut_theta = 0.8;
+
 	@Tunable(description="Don't partition graph before layout:", groups="Standard Settings", context="both", longDescription="Don't partition graph before layout; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
 	public boolean singlePartition;
+	@Tunable(description="Lay out partitions in parallel:", groups="Standard Settings", context="both", longDescription="Lay out the partitions of the graph at the same time, on several cores, then pack them; ignored if the graph is not partitioned; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
+	public boolean concurrentPartitions;
 	
 	@Tunable(description="Layout nodes in 3D:", context="both", longDescription="Layout nodes in 3D; boolean values only, ```true``` or ```false```; defaults to ```true```", exampleStringValue="false")
 	public boolean layout3D;
 
 	@Override // TODO
 	public ValidationState getValidationState(final Appendable errMsg) {
+		if (barnes_hut_threshold < 0 || barnes_hut_theta <= 0 || barnes_hut_theta > 2) {
+			try {
+				errMsg.append("The Barnes-Hut threshold must be >= 0 and theta must be > 0 and <= 2; current values = "
+						+ barnes_hut_threshold + ", " + barnes_hut_theta);
+			} catch (IOException e) {}
+			return ValidationState.INVALID;
+		}
+		if (multilevelThreshold < 0) {
+			try {
+				errMsg.append("The multilevel threshold must be >= 0; current value = " + multilevelThreshold);
+			} catch (IOException e) {}
+			return ValidationState.INVALID;
+		}
 		return ValidationState.OK;
 	}
 
@@ -27,9 +27,7 @@ package csapps.layout.algorithms.bioLayout;
 
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -43,6 +41,8 @@ import org.cytoscape.view.model.View;
 import org.cytoscape.work.undo.UndoSupport;
 
 import csapps.layout.Profile;
+import csapps.layout.algorithms.ConcurrentPartitionLayoutTask;
+import csapps.layout.algorithms.MultilevelLayout;
 
 
 public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
@@ -92,10 +92,9 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	private double[] m_anticollisionSpringScalars;
 
 	/**
-	 * Data arrays
+	 * The spring rest lengths and strengths between all pairs of nodes
 	 */
-	private double[][] m_nodeDistanceSpringRestLengths;
-	private double[][] m_nodeDistanceSpringStrengths;
+	private SpringData m_springData;
 
 	/**
 	 * Current layout pass
@@ -126,7 +125,7 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	 *                                                  behave as if we support weights
 	 */
 	public BioLayoutKKAlgorithmTask(final String displayName, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, final BioLayoutKKContext context, final boolean supportWeights, String attrName, UndoSupport undo) {
-		super(displayName, networkView, nodesToLayOut, context.singlePartition, attrName, undo);
+		super(displayName, networkView, nodesToLayOut, context.singlePartition, context.concurrentPartitions, attrName, undo);
 		this.context = context;
 		this.supportWeights = supportWeights;
 		this.m_layoutPass = context.m_layoutPass;
@@ -139,6 +138,11 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 		this.m_disconnectedNodeDistanceSpringRestLength=context.m_disconnectedNodeDistanceSpringRestLength;
 		this.m_anticollisionSpringStrength = context.m_anticollisionSpringStrength;
 		this.m_layoutPass = 2;
+	}
+
+	@Override
+	protected ConcurrentPartitionLayoutTask createPartitionWorker(String displayName, String attrName, UndoSupport undo) {
+		return new BioLayoutKKAlgorithmTask(displayName, networkView, nodesToLayOut, context, supportWeights, attrName, undo);
 	}
 
 	/**
@@ -302,6 +306,18 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	 * Perform a layout
 	 */
 	public void layoutPartition(LayoutPartition partition) {
+		if (context.multilevelThreshold > 0 && partition.nodeCount() > context.multilevelThreshold)
+			new MultilevelLayout(networkView, edgeWeighter).layoutPartition(partition, this::layoutLevel, () -> cancelled);
+		else
+			layoutLevel(partition, false);
+	}
+
+	/**
+	 * Lay out one partition, or one graph of a multilevel layout
+	 *
+	 * @param refining true if the nodes already start at the locations of a coarser layout
+	 */
+	private void layoutLevel(LayoutPartition partition, boolean refining) {
 		LayoutPoint initialLocation = null;
 		this.partition = partition;
 		// Initialize all of our values.  This will create
@@ -348,15 +364,12 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 		PartialDerivatives partials;
 		PartialDerivatives furthestNodePartials = null;
 
-		m_nodeDistanceSpringRestLengths = new double[m_nodeCount][m_nodeCount];
-		m_nodeDistanceSpringStrengths = new double[m_nodeCount][m_nodeCount];
-
 		// Figure out our starting point
 		initialLocation = partition.getAverageLocation();
 
 		// Randomize our points, if any points lie
 		// outside of our bounds
-		if (context.randomize)
+		if (context.randomize && !refining)
 			partition.randomizeLocations();
 
 		// Calculate our edge weights
@@ -367,17 +380,18 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 			return;
 
 		taskMonitor.setProgress(0.02);
-		taskMonitor.setStatusMessage("Calculating node distances");
+		taskMonitor.setStatusMessage("Calculating spring constants");
 
-		int[][] nodeDistances = calculateNodeDistances();
+		calculateSpringData();
 
 		if (cancelled)
 			return;
 
-		taskMonitor.setProgress(0.04);
-		taskMonitor.setStatusMessage("Calculating spring constants");
-
-		calculateSpringData(nodeDistances);
+		if (context.m_pivotCount > 0) {
+			taskMonitor.setProgress(0.04);
+			taskMonitor.setStatusMessage("Calculating node distances");
+			m_springData.computePivotDistances(context.m_pivotCount, 0L);
+		}
 
 		final double percentCompletedBeforePasses = 5.0d;
 		final double percentCompletedAfterPass1 = 60.0d;
@@ -486,115 +500,31 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 		}
 	}
 
-	private int[][] calculateNodeDistances() {
-		int[][] distances = new int[m_nodeCount][];
-		LinkedList<Integer> queue = new LinkedList<Integer>();
-		boolean[] completedNodes = new boolean[m_nodeCount];
-		int toNode;
-		int fromNode;
-		int neighbor;
-		int toNodeDistance;
-		int neighborDistance;
-
-		for (LayoutNode v: partition.getNodeList()) {
-			fromNode = v.getIndex();
-
-			if (distances[fromNode] == null)
-				distances[fromNode] = new int[m_nodeCount];
-
-			Arrays.fill(distances[fromNode], Integer.MAX_VALUE);
-			distances[fromNode][fromNode] = 0;
-			Arrays.fill(completedNodes, false);
-			queue.add(Integer.valueOf(fromNode));
-
-			while (!(queue.isEmpty())) {
-				int index = ((Integer) queue.removeFirst()).intValue();
-
-				if (completedNodes[index])
-					continue;
-
-				completedNodes[index] = true;
-				toNode = index;
-				toNodeDistance = distances[fromNode][index];
-
-				if (index < fromNode) {
-					// Oh boy.  We've already got every distance from/to this node.
-					int distanceThroughToNode;
-
-					for (int i = 0; i < m_nodeCount; i++) {
-						if (distances[index][i] == Integer.MAX_VALUE)
-							continue;
-
-						distanceThroughToNode = toNodeDistance + distances[index][i];
-
-						if (distanceThroughToNode <= distances[fromNode][i]) {
-							// Any immediate neighbor of a node that's already been
-							// calculated for that does not already have a shorter path
-							// calculated from fromNode never will, and is thus complete.
-							if (distances[index][i] == 1)
-								completedNodes[i] = true;
-
-							distances[fromNode][i] = distanceThroughToNode;
-						}
-					}
-
-					// End for every node, update the distance using the distance
-					// from toNode.  So now we don't need to put any neighbors on the
-					// queue or anything, since they've already been taken care of by
-					// the previous calculation.
-					continue;
-				} // End if toNode has already had all of its distances calculated.
-
-				List<LayoutNode> neighborList = v.getNeighbors();
-				for (LayoutNode neighbor_v: neighborList) {
-					neighbor = neighbor_v.getIndex();
-
-					// We've already done everything we can here.
-					if (completedNodes[neighbor])
-						continue;
-
-					neighborDistance = distances[fromNode][neighbor];
-
-					if ((toNodeDistance != Integer.MAX_VALUE)
-					    && (neighborDistance > (toNodeDistance + 1))) {
-						distances[fromNode][neighbor] = toNodeDistance + 1;
-						queue.addLast(Integer.valueOf(neighbor));
-					}
-				}
-			}
-		}
-
-		return distances;
-	}
+	private void calculateSpringData() {
+		final List<LayoutEdge> edges = partition.getEdgeList();
+		final int edgeCount = edges.size();
+		final int[] edgeSource = new int[edgeCount];
+		final int[] edgeTarget = new int[edgeCount];
+		final double[] restLengths = new double[edgeCount];
+		final double[] strengths = new double[edgeCount];
+
+		// Calculate rest lengths and strengths of the springs between connected nodes,
+		// which are at a distance of one.  All other pairs get the 'disconnected' spring,
+		// or one for their distance through the pivots.
+		for (int i = 0; i < edgeCount; i++) {
+			LayoutEdge edge = edges.get(i);
+			double weight = context.unweighted ? edgeWeighter.defaultEdgeWeight : edge.getWeight();
 
-	private void calculateSpringData(int[][] nodeDistances) {
-		// Set all springs to the default
-		for (int node_i = 0; node_i < m_nodeCount; node_i++) {
-			Arrays.fill(m_nodeDistanceSpringRestLengths[node_i],
-			            m_disconnectedNodeDistanceSpringRestLength);
-			Arrays.fill(m_nodeDistanceSpringStrengths[node_i],
-			            m_disconnectedNodeDistanceSpringStrength);
+			edgeSource[i] = edge.getSource().getIndex();
+			edgeTarget[i] = edge.getTarget().getIndex();
+			restLengths[i] = m_nodeDistanceRestLengthConstant / weight;
+			strengths[i] = m_nodeDistanceStrengthConstant;
 		}
 
-		// Calculate rest lengths and strengths based on node distance data.
-		for (LayoutEdge edge: partition.getEdgeList()) {
-			int node_i = edge.getSource().getIndex();
-			int node_j = edge.getTarget().getIndex();
-			double weight = context.unweighted ? edgeWeighter.defaultEdgeWeight : edge.getWeight();
-			
-			// System.out.println(edge);
-			if (nodeDistances[node_i][node_j] != Integer.MAX_VALUE) {
-				// Compute spring rest lengths.
-				m_nodeDistanceSpringRestLengths[node_i][node_j] = (m_nodeDistanceRestLengthConstant * nodeDistances[node_i][node_j]) / (weight);
-				m_nodeDistanceSpringRestLengths[node_j][node_i] = m_nodeDistanceSpringRestLengths[node_i][node_j];
-				// System.out.println("Setting spring ("+node_i+","+node_j+") ["+weight+"] length to "+m_nodeDistanceSpringRestLengths[node_j][node_i]);
-				// Compute spring strengths.
-				m_nodeDistanceSpringStrengths[node_i][node_j] = m_nodeDistanceStrengthConstant / (nodeDistances[node_i][node_j] * nodeDistances[node_i][node_j]);
-				m_nodeDistanceSpringStrengths[node_j][node_i] = m_nodeDistanceSpringStrengths[node_i][node_j];
-
-				// System.out.println("Setting spring ("+node_i+","+node_j+") strength to "+m_nodeDistanceSpringStrengths[node_j][node_i]);
-			}
-		}
+		m_springData = new SpringData(m_nodeCount, edgeSource, edgeTarget, restLengths, strengths,
+		                              m_nodeDistanceRestLengthConstant, m_nodeDistanceStrengthConstant,
+		                              m_disconnectedNodeDistanceSpringRestLength,
+		                              m_disconnectedNodeDistanceSpringStrength);
 	}
 
 	/**
@@ -608,11 +538,11 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	 */
 
 	// used to calculate the x and y portions of the partial
-	private double calculateSpringPartial(int pass, double distToTouch, int nodeIndex,
-	                                      int otherNodeIndex, double eucDist, double value,
+	private double calculateSpringPartial(int pass, double distToTouch, double strength,
+	                                      double restLength, double eucDist, double value,
 	                                      double radius) {
-		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * (m_nodeDistanceSpringStrengths[nodeIndex][otherNodeIndex] * (value
-		                                                                                                                            - ((m_nodeDistanceSpringRestLengths[nodeIndex][otherNodeIndex] * value) / eucDist))));
+		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * (strength * (value
+		                                                                            - ((restLength * value) / eucDist))));
 
 		if (distToTouch < 0.0) {
 			incrementalChange += (m_anticollisionSpringScalars[pass] * (m_anticollisionSpringStrength * (value
@@ -623,11 +553,11 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	}
 
 	// used to calculate the xx and yy portions of the partial
-	private double calculateSpringPartial3(int pass, double distToTouch, int nodeIndex,
-	                                       int otherNodeIndex, double eucDist3, double value,
+	private double calculateSpringPartial3(int pass, double distToTouch, double strength,
+	                                       double restLength, double eucDist3, double value,
 	                                       double radius) {
-		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * (m_nodeDistanceSpringStrengths[nodeIndex][otherNodeIndex] * (1.0
-		                                                                                                                            - ((m_nodeDistanceSpringRestLengths[nodeIndex][otherNodeIndex] * value) / eucDist3))));
+		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * (strength * (1.0
+		                                                                            - ((restLength * value) / eucDist3))));
 
 		if (distToTouch < 0.0) {
 			incrementalChange += (m_anticollisionSpringScalars[m_layoutPass] * (m_anticollisionSpringStrength * (1.0
@@ -638,10 +568,10 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	}
 
 	// used to calculate the xy portion of the partial
-	private double calculateSpringPartialCross(int pass, double distToTouch, int nodeIndex,
-	                                           int otherNodeIndex, double eucDist3, double value,
+	private double calculateSpringPartialCross(int pass, double distToTouch, double strength,
+	                                           double restLength, double eucDist3, double value,
 	                                           double radius) {
-		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * (m_nodeDistanceSpringStrengths[nodeIndex][otherNodeIndex] * ((m_nodeDistanceSpringRestLengths[nodeIndex][otherNodeIndex] * value) / eucDist3)));
+		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * (strength * ((restLength * value) / eucDist3)));
 
 		if (distToTouch < 0.0) {
 			incrementalChange += ((m_anticollisionSpringScalars[m_layoutPass] * (m_anticollisionSpringStrength * radius * value)) / eucDist3);
@@ -651,9 +581,8 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 	}
 
 	// Calculate the potential energy
-	private double calculatePE(int pass, double distToRest, double distToTouch, int nodeIndex,
-	                           int otherNodeIndex) {
-		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * ((m_nodeDistanceSpringStrengths[nodeIndex][otherNodeIndex] * (distToRest * distToRest)) / 2));
+	private double calculatePE(int pass, double distToRest, double distToTouch, double strength) {
+		double incrementalChange = (m_nodeDistanceSpringScalars[pass] * ((strength * (distToRest * distToRest)) / 2));
 
 		if (distToTouch < 0.0) {
 			incrementalChange += (m_anticollisionSpringScalars[pass] * ((m_anticollisionSpringStrength * (distToTouch * distToTouch)) / 2));
@@ -698,6 +627,8 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 		int offsetTable = 0;
 		int nodeIndex = node.getIndex();
 
+		m_springData.select(nodeIndex);
+
 		while (iterator.hasNext()) {
 			if (partialsList == null) {
 				otherNode = (LayoutNode) iterator.next();
@@ -742,80 +673,79 @@ public class BioLayoutKKAlgorithmTask extends BioLayoutAlgorithmTask {
 
 			euclideanDistanceCubed = euclideanDistance * euclideanDistance * euclideanDistance;
 			distanceFromTouching = euclideanDistance - (nodeRadius + otherNodeRadius);
-			distanceFromRest = (euclideanDistance
-			                   - m_nodeDistanceSpringRestLengths[nodeIndex][otherNodeIndex]);
+			double strength = m_springData.getStrength(otherNodeIndex);
+			double restLength = m_springData.getRestLength(otherNodeIndex);
+			distanceFromRest = (euclideanDistance - restLength);
 
 			// calculationProfile.start();
 			if (!reversed) {
-				partials.x += calculateSpringPartial(m_layoutPass, distanceFromTouching, nodeIndex,
-				                                     otherNodeIndex, euclideanDistance, deltaX,
+				partials.x += calculateSpringPartial(m_layoutPass, distanceFromTouching, strength,
+				                                     restLength, euclideanDistance, deltaX,
 				                                     radius);
-				partials.y += calculateSpringPartial(m_layoutPass, distanceFromTouching, nodeIndex,
-				                                     otherNodeIndex, euclideanDistance, deltaY,
+				partials.y += calculateSpringPartial(m_layoutPass, distanceFromTouching, strength,
+				                                     restLength, euclideanDistance, deltaY,
 				                                     radius);
 				partials.xx += calculateSpringPartial3(m_layoutPass, distanceFromTouching,
-				                                       nodeIndex, otherNodeIndex,
+				                                       strength, restLength,
 				                                       euclideanDistanceCubed, deltaY * deltaY,
 				                                       radius);
 				partials.yy += calculateSpringPartial3(m_layoutPass, distanceFromTouching,
-				                                       nodeIndex, otherNodeIndex,
+				                                       strength, restLength,
 				                                       euclideanDistanceCubed, deltaX * deltaX,
 				                                       radius);
 				partials.xy += calculateSpringPartialCross(m_layoutPass, distanceFromTouching,
-				                                           nodeIndex, otherNodeIndex,
+				                                           strength, restLength,
 				                                           euclideanDistanceCubed, deltaX * deltaY,
 				                                           radius);
 				potentialEnergy[0] += calculatePE(m_layoutPass, distanceFromRest,
-				                                  distanceFromTouching, nodeIndex, otherNodeIndex);
+				                                  distanceFromTouching, strength);
 			}
 
 			if (otherPartials != null) {
 				if (!reversed) {
 					otherPartials.x += calculateSpringPartial(m_layoutPass, distanceFromTouching,
-					                                          otherNodeIndex, nodeIndex,
+					                                          strength, restLength,
 					                                          euclideanDistance, -deltaX, radius);
 					otherPartials.y += calculateSpringPartial(m_layoutPass, distanceFromTouching,
-					                                          otherNodeIndex, nodeIndex,
+					                                          strength, restLength,
 					                                          euclideanDistance, -deltaY, radius);
 					otherPartials.xx += calculateSpringPartial3(m_layoutPass, distanceFromTouching,
-					                                            otherNodeIndex, nodeIndex,
+					                                            strength, restLength,
 					                                            euclideanDistanceCubed,
 					                                            deltaY * deltaY, radius);
 					otherPartials.yy += calculateSpringPartial3(m_layoutPass, distanceFromTouching,
-					                                            otherNodeIndex, nodeIndex,
+					                                            strength, restLength,
 					                                            euclideanDistanceCubed,
 					                                            deltaX * deltaX, radius);
 					otherPartials.xy += calculateSpringPartialCross(m_layoutPass,
 					                                                distanceFromTouching,
-					                                                nodeIndex, otherNodeIndex,
+					                                                strength, restLength,
 					                                                euclideanDistanceCubed,
 					                                                deltaX * deltaY, radius);
 					potentialEnergy[0] += calculatePE(m_layoutPass, distanceFromRest,
-					                                  distanceFromTouching, nodeIndex,
-					                                  otherNodeIndex);
+					                                  distanceFromTouching, strength);
 				} else {
 					otherPartials.x -= calculateSpringPartial(m_layoutPass, distanceFromTouching,
-					                                          otherNodeIndex, nodeIndex,
+					                                          strength, restLength,
 					                                          euclideanDistance, -deltaX, radius);
 					otherPartials.y -= calculateSpringPartial(m_layoutPass, distanceFromTouching,
-					                                          otherNodeIndex, nodeIndex,
+					                                          strength, restLength,
 					                                          euclideanDistance, -deltaY, radius);
 					otherPartials.xx -= calculateSpringPartial3(m_layoutPass, distanceFromTouching,
-					                                            nodeIndex, otherNodeIndex,
+					                                            strength, restLength,
 					                                            euclideanDistanceCubed,
 					                                            deltaY * deltaY, radius);
 					otherPartials.yy -= calculateSpringPartial3(m_layoutPass, distanceFromTouching,
-					                                            nodeIndex, otherNodeIndex,
+					                                            strength, restLength,
 					                                            euclideanDistanceCubed,
 					                                            deltaX * deltaX, radius);
 					otherPartials.xy -= calculateSpringPartialCross(m_layoutPass,
 					                                                distanceFromTouching,
-					                                                nodeIndex, otherNodeIndex,
+					                                                strength, restLength,
 					                                                euclideanDistanceCubed,
 					                                                deltaX * deltaY, radius);
 					potentialEnergy[0] -= calculatePE(m_layoutPass, distanceFromRest,
-					                                  distanceFromTouching, nodeIndex,
-					                                  otherNodeIndex);
+					                                  distanceFromTouching, strength);
 				}
 
 				// Update the euclidean distance
@@ -24,6 +24,8 @@ package csapps.layout.algorithms.bioLayout;
  * #L%
  */
 
+import java.io.IOException;
+
 import org.cytoscape.work.Tunable;
 import org.cytoscape.work.TunableValidator;
 
@@ -43,14 +45,30 @@ public class BioLayoutKKContext extends BioLayoutContext implements TunableValid
 	public double m_disconnectedNodeDistanceSpringRestLength=2000.0;
 	@Tunable(description="Strength to apply to avoid collisions:", context="both", longDescription="Strength to apply to avoid collisions, in numeric value", exampleStringValue="0.0")
 	public double m_anticollisionSpringStrength;
+	@Tunable(description="Number of pivot nodes for distance springs (0: springs only between connected nodes):", context="both", longDescription="Number of pivot nodes used to estimate the graph distance between nodes that are not connected, so they get a spring for that distance instead of the 'disconnected' spring; uses memory proportional to the number of nodes times the number of pivots, in numeric value (0: springs only between connected nodes)", exampleStringValue="0")
+	public int m_pivotCount;
 	@Tunable(description="Number of layout passes:", context="both", longDescription="Number of layout passes, in numeric value", exampleStringValue="2")
 	public int m_layoutPass = 2;
 	@Tunable(description="Don't partition graph before layout:", groups="Standard Settings", context="both", longDescription="Don't partition graph before layout; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
 	public boolean singlePartition;
+	@Tunable(description="Lay out partitions in parallel:", groups="Standard Settings", context="both", longDescription="Lay out the partitions of the graph at the same time, on several cores, then pack them; ignored if the graph is not partitioned; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
+	public boolean concurrentPartitions;
 	@Tunable(description="Use unweighted edges:", groups="Standard Settings", context="both", longDescription="Use unweighted edges; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
 	public boolean unweighted;
 	@Override // TODO
 	public ValidationState getValidationState(final Appendable errMsg) {
+		if (m_pivotCount < 0) {
+			try {
+				errMsg.append("Number of pivot nodes must be >= 0; current value = " + m_pivotCount);
+			} catch (IOException e) {}
+			return ValidationState.INVALID;
+		}
+		if (multilevelThreshold < 0) {
+			try {
+				errMsg.append("The multilevel threshold must be >= 0; current value = " + multilevelThreshold);
+			} catch (IOException e) {}
+			return ValidationState.INVALID;
+		}
 		return ValidationState.OK;
 	}
 
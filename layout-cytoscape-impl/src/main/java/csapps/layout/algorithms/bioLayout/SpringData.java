@@ -0,0 +1,260 @@
+package csapps.layout.algorithms.bioLayout;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * The rest lengths and strengths of the springs between every pair of nodes of a
+ * Kamada-Kawai layout, in O(n + e) memory instead of two n x n matrices.
+ * <br>
+ * Connected nodes get the spring of their edge (the last one, if there are several).
+ * All other pairs get the 'disconnected' spring, unless pivot distances have been
+ * computed: then a pair gets a spring for its estimated graph distance d, with
+ * a rest length of d times the rest length constant and a strength of the strength
+ * constant divided by d squared. That takes O(n * k) memory for k pivots.
+ * <br>
+ * The distance between i and j is estimated through the pivots closest to
+ * them: min(d(i, p(j)) + d(p(j), j), d(j, p(i)) + d(p(i), i)).
+ * <br>
+ * Lookups are relative to the node passed to {@link #select}, so one instance must
+ * not be used by several threads at the same time.
+ */
+final class SpringData {
+
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final int nodeCount;
+	private final double restLengthConstant;
+	private final double strengthConstant;
+	private final double disconnectedRestLength;
+	private final double disconnectedStrength;
+
+	/** The edges of every node, in edge order: neighbors[adjStart[i]] to neighbors[adjStart[i + 1] - 1]. */
+	private final int[] adjStart;
+	private final int[] neighbors;
+	private final int[] adjEdges;
+	private final double[] edgeRestLengths;
+	private final double[] edgeStrengths;
+
+	/** Which neighbors of the selected node have been marked, and by which edge. */
+	private final int[] mark;
+	private final int[] markedEdge;
+	private int selected = -1;
+
+	private int[][] pivotDistances;
+	private int[] nearestPivot;
+	private int[] distanceToPivot;
+
+	/**
+	 * @param nodeCount the number of nodes
+	 * @param edgeSource the index of the source node of each edge
+	 * @param edgeTarget the index of the target node of each edge
+	 * @param edgeRestLengths the rest length of each edge's spring
+	 * @param edgeStrengths the strength of each edge's spring
+	 */
+	SpringData(int nodeCount, int[] edgeSource, int[] edgeTarget, double[] edgeRestLengths, double[] edgeStrengths,
+			double restLengthConstant, double strengthConstant, double disconnectedRestLength,
+			double disconnectedStrength) {
+		this.nodeCount = nodeCount;
+		this.edgeRestLengths = edgeRestLengths;
+		this.edgeStrengths = edgeStrengths;
+		this.restLengthConstant = restLengthConstant;
+		this.strengthConstant = strengthConstant;
+		this.disconnectedRestLength = disconnectedRestLength;
+		this.disconnectedStrength = disconnectedStrength;
+
+		adjStart = new int[nodeCount + 1];
+
+		for (int e = 0; e < edgeSource.length; e++) {
+			// Self-loops have no spring
+			if (edgeSource[e] != edgeTarget[e]) {
+				adjStart[edgeSource[e] + 1]++;
+				adjStart[edgeTarget[e] + 1]++;
+			}
+		}
+
+		for (int i = 0; i < nodeCount; i++)
+			adjStart[i + 1] += adjStart[i];
+
+		neighbors = new int[adjStart[nodeCount]];
+		adjEdges = new int[adjStart[nodeCount]];
+		final int[] next = Arrays.copyOf(adjStart, nodeCount);
+
+		for (int e = 0; e < edgeSource.length; e++) {
+			final int s = edgeSource[e];
+			final int t = edgeTarget[e];
+
+			if (s == t)
+				continue;
+
+			neighbors[next[s]] = t;
+			adjEdges[next[s]++] = e;
+			neighbors[next[t]] = s;
+			adjEdges[next[t]++] = e;
+		}
+
+		mark = new int[nodeCount];
+		markedEdge = new int[nodeCount];
+		Arrays.fill(mark, -1);
+	}
+
+	/**
+	 * Runs a breadth first search from pivotCount randomly chosen nodes, in parallel,
+	 * so that the pairs of nodes that are not connected get a spring for their graph distance.
+	 */
+	void computePivotDistances(int maxPivotCount, long seed) {
+		final int pivotCount = Math.min(maxPivotCount, nodeCount);
+
+		if (pivotCount <= 0)
+			return;
+
+		// A partial Fisher-Yates shuffle picks the pivots
+		final int[] nodes = new int[nodeCount];
+
+		for (int i = 0; i < nodeCount; i++)
+			nodes[i] = i;
+
+		final Random random = new Random(seed);
+
+		for (int i = 0; i < pivotCount; i++) {
+			final int j = i + random.nextInt(nodeCount - i);
+			final int tmp = nodes[i];
+			nodes[i] = nodes[j];
+			nodes[j] = tmp;
+		}
+
+		final int[] pivots = Arrays.copyOf(nodes, pivotCount);
+		final int[][] pivotDistances = new int[pivotCount][];
+
+		IntStream.range(0, pivotCount).parallel().forEach(p -> pivotDistances[p] = breadthFirstSearch(pivots[p]));
+
+		final int[] nearestPivot = new int[nodeCount];
+		final int[] distanceToPivot = new int[nodeCount];
+
+		IntStream.range(0, nodeCount).parallel().forEach(i -> {
+			int best = 0;
+
+			for (int p = 1; p < pivotCount; p++) {
+				if (pivotDistances[p][i] < pivotDistances[best][i])
+					best = p;
+			}
+
+			nearestPivot[i] = best;
+			distanceToPivot[i] = pivotDistances[best][i];
+		});
+
+		this.pivotDistances = pivotDistances;
+		this.nearestPivot = nearestPivot;
+		this.distanceToPivot = distanceToPivot;
+	}
+
+	private int[] breadthFirstSearch(int source) {
+		final int[] distances = new int[nodeCount];
+		final int[] queue = new int[nodeCount];
+		Arrays.fill(distances, UNREACHABLE);
+
+		int head = 0;
+		int tail = 0;
+		distances[source] = 0;
+		queue[tail++] = source;
+
+		while (head < tail) {
+			final int node = queue[head++];
+			final int distance = distances[node] + 1;
+
+			for (int k = adjStart[node]; k < adjStart[node + 1]; k++) {
+				final int neighbor = neighbors[k];
+
+				if (distances[neighbor] == UNREACHABLE) {
+					distances[neighbor] = distance;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	/**
+	 * Makes the following lookups return the springs between node and the other nodes.
+	 */
+	void select(int node) {
+		if (node == selected)
+			return;
+
+		selected = node;
+
+		// Later edges replace earlier ones, like they did in the spring matrices
+		for (int k = adjStart[node]; k < adjStart[node + 1]; k++) {
+			mark[neighbors[k]] = node;
+			markedEdge[neighbors[k]] = adjEdges[k];
+		}
+	}
+
+	/**
+	 * @return the rest length of the spring between the selected node and other
+	 */
+	double getRestLength(int other) {
+		if (mark[other] == selected)
+			return edgeRestLengths[markedEdge[other]];
+
+		final int distance = estimateDistance(other);
+
+		return distance == UNREACHABLE ? disconnectedRestLength : restLengthConstant * distance;
+	}
+
+	/**
+	 * @return the strength of the spring between the selected node and other
+	 */
+	double getStrength(int other) {
+		if (mark[other] == selected)
+			return edgeStrengths[markedEdge[other]];
+
+		final int distance = estimateDistance(other);
+
+		return distance == UNREACHABLE ? disconnectedStrength : strengthConstant / ((double) distance * distance);
+	}
+
+	/**
+	 * @return the estimated graph distance between the selected node and other,
+	 * or UNREACHABLE if there are no pivots or there is no path through them
+	 */
+	int estimateDistance(int other) {
+		if (pivotDistances == null)
+			return UNREACHABLE;
+
+		final int throughOther = add(pivotDistances[nearestPivot[other]][selected], distanceToPivot[other]);
+		final int throughSelected = add(pivotDistances[nearestPivot[selected]][other], distanceToPivot[selected]);
+
+		return Math.min(throughOther, throughSelected);
+	}
+
+	private static int add(int a, int b) {
+		return a == UNREACHABLE || b == UNREACHABLE ? UNREACHABLE : a + b;
+	}
+}
@@ -34,7 +34,6 @@ import java.util.Map;
 import java.util.Set;
 
 import org.cytoscape.model.CyNode;
-import org.cytoscape.view.layout.AbstractPartitionLayoutTask;
 import org.cytoscape.view.layout.LayoutEdge;
 import org.cytoscape.view.layout.LayoutNode;
 import org.cytoscape.view.layout.LayoutPartition;
@@ -43,11 +42,12 @@ import org.cytoscape.view.model.View;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.work.undo.UndoSupport;
 
+import csapps.layout.algorithms.ConcurrentPartitionLayoutTask;
 import csapps.layout.algorithms.hierarchicalLayout.Edge;
 import csapps.layout.algorithms.hierarchicalLayout.Graph;
 
 
-public class CircularLayoutAlgorithmTask extends AbstractPartitionLayoutTask {
+public class CircularLayoutAlgorithmTask extends ConcurrentPartitionLayoutTask {
 	
 	private int[][] bc;
 	private boolean[] posSet;
@@ -57,10 +57,16 @@ public class CircularLayoutAlgorithmTask extends AbstractPartitionLayoutTask {
 	private Map<Integer, View<CyNode>> nodeViews;
 	private Map<Integer, Integer> node2BiComp;
 	private boolean[] drawnBiComps;
-
+	private final CircularLayoutContext context;
 
 	public CircularLayoutAlgorithmTask(final String displayName, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, CircularLayoutContext context, UndoSupport undo) {
-		super(displayName, context.singlePartition, networkView, nodesToLayOut,"", undo);
+		super(displayName, context.singlePartition, context.concurrentPartitions, networkView, nodesToLayOut, "", undo);
+		this.context = context;
+	}
+
+	@Override
+	protected ConcurrentPartitionLayoutTask createPartitionWorker(String displayName, String attrName, UndoSupport undo) {
+		return new CircularLayoutAlgorithmTask(displayName, networkView, nodesToLayOut, context, undo);
 	}
 
 
@@ -43,6 +43,8 @@ public class CircularLayoutContext implements TunableValidator {
 	public int rightMargin = 1000;
 	@Tunable(description="Don't partition graph before layout:", groups="Standard Settings", context="both", longDescription="Don't partition graph before layout; only boolean values are allowed: ```true``` or ```false```", exampleStringValue="false")
 	public boolean singlePartition;
+	@Tunable(description="Lay out partitions in parallel:", groups="Standard Settings", context="both", longDescription="Lay out the partitions of the graph at the same time, on several cores, then pack them; ignored if the graph is not partitioned; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
+	public boolean concurrentPartitions;
 
 	@Override //TODO how to validate these values?
 	public ValidationState getValidationState(final Appendable errMsg) {
@@ -38,6 +38,8 @@ public class AttributeCircleLayoutContext  implements TunableValidator {
 	public double spacing = 100.0;
 	@Tunable(description="Don't partition graph before layout:", groups="Standard Settings", context="both", longDescription="Don't partition graph before layout, only boolean values allowed: ```true``` or ```false```", exampleStringValue="false")
 	public boolean singlePartition;
+	@Tunable(description="Lay out partitions in parallel:", groups="Standard Settings", context="both", longDescription="Lay out the partitions of the graph at the same time, on several cores, then pack them; ignored if the graph is not partitioned; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
+	public boolean concurrentPartitions;
 
 
 	@Override
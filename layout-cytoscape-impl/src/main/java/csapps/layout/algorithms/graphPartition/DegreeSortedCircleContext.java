@@ -31,6 +31,8 @@ public class DegreeSortedCircleContext implements TunableValidator {
 	
 	@Tunable(description="Don't partition graph before layout:", groups="Standard Settings", context="both", longDescription="Don't partition graph before layout; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
 	public boolean singlePartition;
+	@Tunable(description="Lay out partitions in parallel:", groups="Standard Settings", context="both", longDescription="Lay out the partitions of the graph at the same time, on several cores, then pack them; ignored if the graph is not partitioned; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
+	public boolean concurrentPartitions;
 
 	@Override // TODO
 	public ValidationState getValidationState(final Appendable errMsg) {
@@ -35,36 +35,50 @@ import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
 import org.cytoscape.model.CyTable;
-import org.cytoscape.view.layout.AbstractPartitionLayoutTask;
 import org.cytoscape.view.layout.LayoutNode;
 import org.cytoscape.view.layout.LayoutPartition;
 import org.cytoscape.view.model.CyNetworkView;
 import org.cytoscape.view.model.View;
+import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.undo.UndoSupport;
 
-public class DegreeSortedCircleLayoutTask extends AbstractPartitionLayoutTask {
+import csapps.layout.algorithms.ConcurrentPartitionLayoutTask;
+
+public class DegreeSortedCircleLayoutTask extends ConcurrentPartitionLayoutTask {
 	
 	private static final String DEGREE_ATTR_NAME = "degree.layout";
 	
 	private final CyNetwork network;
+	private final DegreeSortedCircleContext context;
 
 	/**
 	 * Creates a new GridNodeLayout object.
 	 */
 	public DegreeSortedCircleLayoutTask(final String displayName, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut,
 			DegreeSortedCircleContext context, String attrName, UndoSupport undo) {
-		super(displayName, context.singlePartition, networkView, nodesToLayOut, attrName, undo);
+		super(displayName, context.singlePartition, context.concurrentPartitions, networkView, nodesToLayOut, attrName, undo);
 
 		this.network = networkView.getModel();
+		this.context = context;
 	}
 
 	@Override
-	public void layoutPartition(LayoutPartition partition) {
-		// Create attribute
+	protected ConcurrentPartitionLayoutTask createPartitionWorker(String displayName, String attrName, UndoSupport undo) {
+		return new DegreeSortedCircleLayoutTask(displayName, networkView, nodesToLayOut, context, attrName, undo);
+	}
+
+	@Override
+	public void doLayout(TaskMonitor taskMonitor) {
+		// Create attribute, before the partitions are laid out, maybe concurrently
 		final CyTable table = network.getDefaultNodeTable();
 		if (table.getColumn(DEGREE_ATTR_NAME) == null)
 			table.createColumn(DEGREE_ATTR_NAME, Integer.class, false);
 
+		super.doLayout(taskMonitor);
+	}
+
+	@Override
+	public void layoutPartition(LayoutPartition partition) {
 		// just add the unlocked nodes
 		final List<LayoutNode> nodes = new ArrayList<LayoutNode>();
 		for (final LayoutNode ln : partition.getNodeList()) {
@@ -32,7 +32,6 @@ import java.util.Set;
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.model.CyNode;
-import org.cytoscape.view.layout.AbstractPartitionLayoutTask;
 import org.cytoscape.view.layout.LayoutNode;
 import org.cytoscape.view.layout.LayoutPartition;
 import org.cytoscape.view.model.CyNetworkView;
@@ -46,7 +45,9 @@ import cern.colt.map.tlong.OpenLongIntHashMap;
 import cern.colt.matrix.tdouble.DoubleMatrix1D;
 import cern.colt.matrix.tdouble.impl.DenseDoubleMatrix1D;
 
-public class ISOMLayoutTask  extends AbstractPartitionLayoutTask {
+import csapps.layout.algorithms.ConcurrentPartitionLayoutTask;
+
+public class ISOMLayoutTask  extends ConcurrentPartitionLayoutTask {
 
 	private int epoch;
 	private double adaption;
@@ -64,11 +65,16 @@ public class ISOMLayoutTask  extends AbstractPartitionLayoutTask {
 	private ISOMLayoutContext context;
 	
 	public ISOMLayoutTask(final String displayName, CyNetworkView networkView, Set<View<CyNode>> nodesToLayOut, ISOMLayoutContext context, String attrName, UndoSupport undo) {
-		super(displayName, context.singlePartition, networkView, nodesToLayOut, attrName, undo);
+		super(displayName, context.singlePartition, context.concurrentPartitions, networkView, nodesToLayOut, attrName, undo);
 		this.context = context;
 		network = networkView.getModel();
 		q = new LongArrayList();
 	}
+
+	@Override
+	protected ConcurrentPartitionLayoutTask createPartitionWorker(String displayName, String attrName, UndoSupport undo) {
+		return new ISOMLayoutTask(displayName, networkView, nodesToLayOut, context, attrName, undo);
+	}
 	
 	public void layoutPartition(LayoutPartition partition) {
 		this.partition = partition;
@@ -218,8 +218,14 @@ public class Graph {
 	/** True if transitive reduction routine has generated this graph */
 	private boolean reduced;
 
+	/** The edges by their source and destination, built by the first GetTheEdge */
+	private HashMap<Long, Edge> edgeIndex;
+
 	/** number of passes to do adjacency exchange */
 	static int MAX_ADJACENT_EXCHANGE_PASSES = 5;
+
+	/** maximum number of barycenter sweeps to reduce crossings */
+	static int MAX_BARYCENTER_SWEEPS = 12;
 	
 	private byte[] status;
 	private int[] d;
@@ -287,11 +293,19 @@ public class Graph {
 	 * @return  DOCUMENT ME!
 	 */
 	public Edge GetTheEdge(int a, int b) {
-		for (int i = 0; i < edge.length; i++)
-			if ((edge[i].getFrom() == a) && (edge[i].getTo() == b))
-				return edge[i];
+		if (edgeIndex == null) {
+			edgeIndex = new HashMap<Long, Edge>(2 * edge.length);
+
+			/* the first of several edges between the same nodes is the one returned */
+			for (int i = 0; i < edge.length; i++)
+				edgeIndex.putIfAbsent(edgeKey(edge[i].getFrom(), edge[i].getTo()), edge[i]);
+		}
+
+		return edgeIndex.get(edgeKey(a, b));
+	}
 
-		return null;
+	private static long edgeKey(int from, int to) {
+		return ((long) from << 32) | (to & 0xffffffffL);
 	}
 
 	/**
@@ -2450,6 +2464,17 @@ NEXTPARENT:
 			}
 		}
 
+		/* reorder the layers with barycenter sweeps, for as long as that reduces the crossings */
+		LayeredGraph layeredGraph = new LayeredGraph(nodecount, edgesFrom, vertexLayer, position);
+
+		if (layeredGraph.reduceCrossings(MAX_BARYCENTER_SWEEPS)) {
+			layeredGraph.getPositions(position);
+
+			for (x = 0; x < nodecount; x++) {
+				xPosition[x] = position[x];
+			}
+		}
+
 		/* fine tune with adjacent exchange - looking up/down for interior layers, up only for bottom layer */
 		/* first jitter the nodes to insure that no node is directly above another (from median) */
 		double jitterIncrement = Double.MIN_VALUE * 10;
@@ -8,6 +8,9 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNode;
@@ -23,6 +26,8 @@ import org.cytoscape.view.presentation.property.values.HandleFactory;
 import org.cytoscape.work.TaskMonitor;
 import org.cytoscape.work.undo.UndoSupport;
 
+import csapps.layout.LayoutPool;
+
 /*
  * #%L
  * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
@@ -49,7 +54,6 @@ import org.cytoscape.work.undo.UndoSupport;
 
 public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 
-	private HashMap<Integer, HierarchyFlowLayoutOrderNode> nodes2HFLON = new HashMap<>();
 	private final HierarchicalLayoutContext context;
 	private final CyServiceRegistrar serviceRegistrar;
 	
@@ -175,125 +179,16 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 		int[][] layer = new int[numComponents][];
 		int[][] horizontalPosition = new int[numComponents][];
 		Graph[] reduced = new Graph[component.length];
-		Graph[] reducedTmp = new Graph[component.length];
 		HashMap<Integer, Edge>[] dummy2Edge = new HashMap[component.length];
 		int[] dummyStartForComp = new int[component.length];
 		HashMap<Edge, View<CyEdge>>[] myEdges2EdgeViews = new HashMap[component.length];
 
-		for (x = 0; x < component.length; x++) {
-			/*
-			System.out.println("plain component:\n");
-			System.out.println(component[x]);
-			System.out.println("filtered component:\n");
-			System.out.println(component[x].getGraphWithoutOneOrTwoCycles());
-			System.out.println("nonmulti component:\n");
-			System.out.println(component[x].getGraphWithoutMultipleEdges());
-			int cycleEliminationPriority[] = component[x].getCycleEliminationVertexPriority();
-			System.out.println("acyclic component:\n");
-			System.out.println(component[x].getGraphWithoutCycles(cycleEliminationPriority));
-			System.out.println("reduced component:\n");
-			System.out.println(component[x].getReducedGraph());
-			System.out.println("layer assignment:\n");
-			*/
-			tm.setStatusMessage("Making acyclic transitive reduction...");
-			Thread.yield();
-
-			if (cancelled)
-				return;
-
-			reducedTmp[x] = component[x].getReducedGraph();
-			tm.setStatusMessage("Layering nodes vertically...");
-			Thread.yield();
-
-			if (cancelled)
-				return;
-
-			layer[x] = reducedTmp[x].getVertexLayers();
-
-			LinkedList<Integer> layerWithDummy = new LinkedList<>();
-
-			for (int i = 0; i < layer[x].length; i++)
-				layerWithDummy.add(Integer.valueOf(layer[x][i]));
-
-			/*
-			int y;
-			for (y=0;y<layer[x].length;y++) {
-			    System.out.println("" + y + " : " + layer[x][y]);
-			}
-			System.out.println("horizontal position:\n");
-			*/
-
-			/* Insertion of the dummy nodes in the graph */
-			Edge[] allEdges = component[x].GetEdges();
-			LinkedList<Edge> edgesWithAdd = new LinkedList<>();
-			int dummyStart = component[x].getNodecount();
-			dummyStartForComp[x] = dummyStart;
-			dummy2Edge[x] = new HashMap<>();
-
-			//System.out.println(allEdges.length);
-
-			for (int i = 0; i < allEdges.length; i++) {
-				if (cancelled)
-					return;
-				
-				int from = allEdges[i].getFrom();
-				int to = allEdges[i].getTo();
-
-				if (layer[x][from] == (layer[x][to] + 1)) {
-					edgesWithAdd.add(allEdges[i]);
-				} else {
-					if (layer[x][from] < layer[x][to]) {
-						int tmp = from;
-						from = to;
-						to = tmp;
-					}
-
-					layerWithDummy.add(Integer.valueOf(layer[x][to] + 1));
-					dummy2Edge[x].put(Integer.valueOf(layerWithDummy.size() - 1), allEdges[i]);
-					edgesWithAdd.add(new Edge(layerWithDummy.size() - 1, to));
-
-					for (int j = layer[x][to] + 2; j < layer[x][from]; j++) {
-						layerWithDummy.add(Integer.valueOf(j));
-						dummy2Edge[x].put(Integer.valueOf(layerWithDummy.size() - 1), allEdges[i]);
-						edgesWithAdd.add(new Edge(layerWithDummy.size() - 1,
-						                          layerWithDummy.size() - 2));
-					}
-
-					edgesWithAdd.add(new Edge(from, layerWithDummy.size() - 1));
-				}
-			}
-
-			allEdges = new Edge[edgesWithAdd.size()];
-			edgesWithAdd.toArray(allEdges);
-
-			reduced[x] = new Graph(layerWithDummy.size(), allEdges);
-			reduced[x].setDummyNodesStart(dummyStart);
-			reduced[x].setReduced(true);
-
-			int[] layerNew = new int[layerWithDummy.size()];
-			Iterator<Integer> iter = layerWithDummy.iterator();
-
-			for (int i = 0; i < layerNew.length; i++)
-				layerNew[i] = iter.next();
-
-			layer[x] = layerNew;
-
-			tm.setStatusMessage("Positioning nodes within layer...");
-			Thread.yield();
-
-			if (cancelled)
-				return;
+		tm.setStatusMessage("Layering nodes and positioning them within layers...");
+		layOutComponents(tm, component, layer, horizontalPosition, reduced, dummy2Edge, dummyStartForComp);
 
-			horizontalPosition[x] = reduced[x].getHorizontalPositionReverse(layer[x]);
+		if (cancelled)
+			return;
 
-			/*
-			for (y=0;y<horizontalPosition[x].length;y++) {
-			    System.out.println("" + y + " : " + horizontalPosition[x][y]);
-			}
-			*/
-			setProgress(tm, .05f, x / (float) component.length, .15f);
-		}
-		
 		tm.setProgress(0.15);
 		
 		int resize = renumber.length;
@@ -326,29 +221,23 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 
 		edges = new LinkedList<>();
 
-		for (int i = 0; i < reduced.length; i++) {
-			edge = reduced[i].GetEdges();
+		/* the index in the whole graph of every node of every component */
+		int[][] graphIndex = new int[reduced.length][];
 
-			for (int j = 0; j < edge.length; j++) { // uzasna budzevina!!!!!! // FIXME: what does this mean?
-				int from = -1;
-				int to = -1;
+		for (int i = 0; i < reduced.length; i++)
+			graphIndex[i] = new int[reduced[i].getNodecount()];
 
-				for (int k = 0; k < cI.length; k++) {
-					if (cancelled)
-						return;
-					
-					if ((cI[k] == i) && (renumber[k] == edge[j].getFrom()))
-						from = k;
+		for (int k = 0; k < cI.length; k++)
+			graphIndex[cI[k]][renumber[k]] = k;
 
-					if ((cI[k] == i) && (renumber[k] == edge[j].getTo()))
-						to = k;
+		for (int i = 0; i < reduced.length; i++) {
+			if (cancelled)
+				return;
 
-					if ((from != -1) && (to != -1))
-						break;
-				}
+			edge = reduced[i].GetEdges();
 
-				edges.add(new Edge(from, to)); //edges.add(new Edge(to, from));
-			}
+			for (int j = 0; j < edge.length; j++)
+				edges.add(new Edge(graphIndex[i][edge[j].getFrom()], graphIndex[i][edge[j].getTo()]));
 			
 			setProgress(tm, .2f, i / (float) reduced.length, .3f);
 		}
@@ -383,8 +272,6 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 				                                                      layer[cI[x]][renumber[x]],
 				                                                      horizontalPosition[cI[x]][renumber[x]],
 				                                                      x);
-
-			nodes2HFLON.put(x, flowLayoutOrder[x]);
 			
 			setProgress(tm, .3f, x / (float) resize, .4f);
 		}
@@ -392,6 +279,15 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 		tm.setProgress(0.4);
 		Arrays.sort(flowLayoutOrder);
 
+		/* the index in flowLayoutOrder of every node of the graph, and which nodes are dummy nodes */
+		int[] layoutOrderIndex = new int[resize];
+		boolean[] isDummy = new boolean[resize];
+
+		for (x = 0; x < resize; x++) {
+			layoutOrderIndex[flowLayoutOrder[x].graphIndex] = x;
+			isDummy[x] = renumber[x] >= dummyStartForComp[cI[x]];
+		}
+
 		int lastComponent = -1;
 		int lastLayer = -1;
 		int startBandY = context.topEdge;
@@ -435,7 +331,7 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 				int maxX = horizontalNodePositioning(nodeIndex
 				                                     - flowLayoutOrder[nodeIndex - 1].componentSize,
 				                                     nodeIndex - 1, flowLayoutOrder, graph,
-				                                     renumber, cI, dummyStartForComp, minXArray);
+				                                     layoutOrderIndex, isDummy, minXArray);
 				int minX = minXArray[0];
 				lastComponentEnd = nodeIndex - 1;
 
@@ -516,7 +412,7 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 		/* Set horizontal positions of last component */
 		int[] minXArray = new int[1];
 		horizontalNodePositioning(lastComponentEnd + 1, resize - 1, flowLayoutOrder, graph,
-		                          renumber, cI, dummyStartForComp, minXArray);
+		                          layoutOrderIndex, isDummy, minXArray);
 
 		int minX = minXArray[0];
 
@@ -642,26 +538,211 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 		return nodeView.getVisualProperty(BasicVisualLexicon.NODE_Y_LOCATION);
 	}
 
+	/**
+	 * Layers the nodes of every component and positions them within their layers.
+	 * The components are independent of each other, so they are laid out concurrently,
+	 * the largest ones first.
+	 */
+	private void layOutComponents(
+			TaskMonitor tm,
+			Graph[] component,
+			int[][] layer,
+			int[][] horizontalPosition,
+			Graph[] reduced,
+			HashMap<Integer, Edge>[] dummy2Edge,
+			int[] dummyStartForComp
+	) {
+		Integer[] queue = new Integer[component.length];
+
+		for (int i = 0; i < queue.length; i++)
+			queue[i] = i;
+
+		Arrays.sort(queue, (a, b) -> component[b].getNodecount() - component[a].getNodecount());
+
+		AtomicInteger next = new AtomicInteger();
+		AtomicInteger done = new AtomicInteger();
+
+		Runnable worker = () -> {
+			int i;
+
+			while (!cancelled && (i = next.getAndIncrement()) < queue.length) {
+				layOutComponent(queue[i], component, layer, horizontalPosition, reduced, dummy2Edge,
+				                dummyStartForComp);
+				setProgress(tm, .05f, done.incrementAndGet() / (float) queue.length, .15f);
+			}
+		};
+
+		ForkJoinPool pool = LayoutPool.get();
+		int workerCount = Math.min(pool.getParallelism() + 1, queue.length);
+
+		if (workerCount <= 1) {
+			worker.run();
+			return;
+		}
+
+		List<ForkJoinTask<?>> tasks = new ArrayList<>(workerCount);
+
+		// The calling thread is a worker too
+		for (int i = 1; i < workerCount; i++)
+			tasks.add(pool.submit(worker));
+
+		Throwable failure = null;
+
+		try {
+			worker.run();
+		} catch (RuntimeException | Error e) {
+			failure = e;
+			cancel();
+		}
+
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException | Error e) {
+				if (failure == null) {
+					failure = e;
+					cancel();
+				}
+			}
+		}
+
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
+		if (failure instanceof Error)
+			throw (Error) failure;
+	}
+
+	/**
+	 * Makes the acyclic transitive reduction of component x, layers its nodes, inserts dummy
+	 * nodes in the edges that span several layers and positions the nodes within the layers.
+	 */
+	private void layOutComponent(
+			int x,
+			Graph[] component,
+			int[][] layer,
+			int[][] horizontalPosition,
+			Graph[] reduced,
+			HashMap<Integer, Edge>[] dummy2Edge,
+			int[] dummyStartForComp
+	) {
+		/*
+		System.out.println("plain component:\n");
+		System.out.println(component[x]);
+		System.out.println("filtered component:\n");
+		System.out.println(component[x].getGraphWithoutOneOrTwoCycles());
+		System.out.println("nonmulti component:\n");
+		System.out.println(component[x].getGraphWithoutMultipleEdges());
+		int cycleEliminationPriority[] = component[x].getCycleEliminationVertexPriority();
+		System.out.println("acyclic component:\n");
+		System.out.println(component[x].getGraphWithoutCycles(cycleEliminationPriority));
+		System.out.println("reduced component:\n");
+		System.out.println(component[x].getReducedGraph());
+		System.out.println("layer assignment:\n");
+		*/
+		if (cancelled)
+			return;
+
+		Graph reducedTmp = component[x].getReducedGraph();
+
+		if (cancelled)
+			return;
+
+		layer[x] = reducedTmp.getVertexLayers();
+
+		LinkedList<Integer> layerWithDummy = new LinkedList<>();
+
+		for (int i = 0; i < layer[x].length; i++)
+			layerWithDummy.add(Integer.valueOf(layer[x][i]));
+
+		/*
+		int y;
+		for (y=0;y<layer[x].length;y++) {
+		    System.out.println("" + y + " : " + layer[x][y]);
+		}
+		System.out.println("horizontal position:\n");
+		*/
+
+		/* Insertion of the dummy nodes in the graph */
+		Edge[] allEdges = component[x].GetEdges();
+		LinkedList<Edge> edgesWithAdd = new LinkedList<>();
+		int dummyStart = component[x].getNodecount();
+		dummyStartForComp[x] = dummyStart;
+		dummy2Edge[x] = new HashMap<>();
+
+		//System.out.println(allEdges.length);
+
+		for (int i = 0; i < allEdges.length; i++) {
+			if (cancelled)
+				return;
+			
+			int from = allEdges[i].getFrom();
+			int to = allEdges[i].getTo();
+
+			if (layer[x][from] == (layer[x][to] + 1)) {
+				edgesWithAdd.add(allEdges[i]);
+			} else {
+				if (layer[x][from] < layer[x][to]) {
+					int tmp = from;
+					from = to;
+					to = tmp;
+				}
+
+				layerWithDummy.add(Integer.valueOf(layer[x][to] + 1));
+				dummy2Edge[x].put(Integer.valueOf(layerWithDummy.size() - 1), allEdges[i]);
+				edgesWithAdd.add(new Edge(layerWithDummy.size() - 1, to));
+
+				for (int j = layer[x][to] + 2; j < layer[x][from]; j++) {
+					layerWithDummy.add(Integer.valueOf(j));
+					dummy2Edge[x].put(Integer.valueOf(layerWithDummy.size() - 1), allEdges[i]);
+					edgesWithAdd.add(new Edge(layerWithDummy.size() - 1,
+					                          layerWithDummy.size() - 2));
+				}
+
+				edgesWithAdd.add(new Edge(from, layerWithDummy.size() - 1));
+			}
+		}
+
+		allEdges = new Edge[edgesWithAdd.size()];
+		edgesWithAdd.toArray(allEdges);
+
+		reduced[x] = new Graph(layerWithDummy.size(), allEdges);
+		reduced[x].setDummyNodesStart(dummyStart);
+		reduced[x].setReduced(true);
+
+		int[] layerNew = new int[layerWithDummy.size()];
+		Iterator<Integer> iter = layerWithDummy.iterator();
+
+		for (int i = 0; i < layerNew.length; i++)
+			layerNew[i] = iter.next();
+
+		layer[x] = layerNew;
+
+		if (cancelled)
+			return;
+
+		horizontalPosition[x] = reduced[x].getHorizontalPositionReverse(layer[x]);
+
+		/*
+		for (y=0;y<horizontalPosition[x].length;y++) {
+		    System.out.println("" + y + " : " + horizontalPosition[x][y]);
+		}
+		*/
+	}
+
 	/**
 	 * Sum length of edges between 2 consecutive layers. This is used for getting as compact
 	 * layout as possible, we want to minimize this sum by horizontal coordinate assignment
 	 */
 	private double edgeLength2Layers(
 			HierarchyFlowLayoutOrderNode[] nodes,
+			int[] layoutOrderIndex,
 			LinkedList<Integer>[] edgesFrom,
 			LinkedList<Integer>[] edgesTo,
 			int x,
-			int direct,
-			int startInd,
-			int endInd
+			int direct
 	) {
 		double layerMin = 0;
 
-		HashMap<Integer, HierarchyFlowLayoutOrderNode> nodesBak2HFLON = new HashMap<>();
-
-		for (int i = startInd; i <= endInd; i++)
-			nodesBak2HFLON.put(Integer.valueOf(nodes[i].graphIndex), nodes[i]);
-
 		if (direct == -1) {
 			int xHlp = x;
 
@@ -674,7 +755,7 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 
 				while (iterToHlp.hasNext()) {
 					Integer neigh = (Integer) iterToHlp.next();
-					layerMin += (Math.abs(nodesBak2HFLON.get(neigh).xPos - curPos) / ((double) context.nodeHorizontalSpacing));
+					layerMin += (Math.abs(nodes[layoutOrderIndex[neigh]].xPos - curPos) / ((double) context.nodeHorizontalSpacing));
 
 					// mozda ako je ivica izmedju 2 dummy cvora da duplira daljinu // FIXME: translate to english
 				}
@@ -693,7 +774,7 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 
 				while (iterToHlp.hasNext()) {
 					Integer neigh = (Integer) iterToHlp.next();
-					layerMin += (Math.abs(nodesBak2HFLON.get(neigh).xPos - curPos) / ((double) context.nodeHorizontalSpacing));
+					layerMin += (Math.abs(nodes[layoutOrderIndex[neigh]].xPos - curPos) / ((double) context.nodeHorizontalSpacing));
 				}
 
 				xHlp--;
@@ -710,7 +791,7 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 
 				while (iterFromHlp.hasNext()) {
 					Integer neigh = (Integer) iterFromHlp.next();
-					layerMin += (Math.abs(nodesBak2HFLON.get(neigh).xPos - curPos) / ((double) context.nodeHorizontalSpacing));
+					layerMin += (Math.abs(nodes[layoutOrderIndex[neigh]].xPos - curPos) / ((double) context.nodeHorizontalSpacing));
 				}
 
 				xHlp++;
@@ -727,7 +808,7 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 
 				while (iterFromHlp.hasNext()) {
 					Integer neigh = (Integer) iterFromHlp.next();
-					layerMin += (Math.abs(nodesBak2HFLON.get(neigh).xPos - curPos) / ((double) context.nodeHorizontalSpacing));
+					layerMin += (Math.abs(nodes[layoutOrderIndex[neigh]].xPos - curPos) / ((double) context.nodeHorizontalSpacing));
 				}
 
 				xHlp--;
@@ -743,10 +824,8 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 	 * @param endInd - in nodes array
 	 * @param nodes
 	 * @param theGraph
-	 * @param renumber
-	 * @param cI
-	 * @param dummyStarts - dummy nodes are always in the end, so we always remember just
-	 *                         the index of the first dummy in a graph component
+	 * @param layoutOrderIndex - the index in nodes array of every node of theGraph
+	 * @param isDummy - which nodes of theGraph are dummy nodes
 	 * @param minX2Return
 	 * @return
 	 */
@@ -755,9 +834,8 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 			int endInd,
 			HierarchyFlowLayoutOrderNode[] nodes,
 			Graph theGraph,
-			int[] renumber,
-			int[] cI,
-			int[] dummyStarts,
+			int[] layoutOrderIndex,
+			boolean[] isDummy,
 			int[] minX2Return
 	) {
 		int maxX = Integer.MIN_VALUE;
@@ -767,19 +845,12 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 		LinkedList<Integer>[] edgesTo = theGraph.GetEdgesTo();
 
 		LayerOrderNode[] lon = new LayerOrderNode[endInd - startInd + 1];
-		HashMap<Integer, LayerOrderNode> ind2Lon = new HashMap<>();
 
 		for (int i = 0; i <= (endInd - startInd); i++) {
-			boolean dum = false;
-
-			if (renumber[nodes[startInd + i].graphIndex] >= dummyStarts[cI[nodes[startInd + i].graphIndex]])
-				dum = true;
-
-			lon[i] = new LayerOrderNode(startInd + i, dum,
+			lon[i] = new LayerOrderNode(startInd + i, isDummy[nodes[startInd + i].graphIndex],
 			                            edgesFrom[nodes[startInd + i].graphIndex].size()
 			                            + edgesTo[nodes[startInd + i].graphIndex].size(),
 			                            nodes[startInd + i].layer);
-			ind2Lon.put(Integer.valueOf(startInd + i), lon[i]);
 		}
 
 		Arrays.sort(lon);
@@ -792,12 +863,15 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 		boolean newLayer = true;
 		boolean dirFirst = true;
 
+		/* the positions of the nodes that a move pushes aside, to put them back if the move is undone */
+		int[] pushedXPos = new int[16];
+
 		for (int dx = 0; dx < noOfSteps; dx++) {
 			if (cancelled)
 				return maxX;
 			
 			if (newLayer) {
-				layerMin = edgeLength2Layers(nodes, edgesFrom, edgesTo, x, direct, startInd, endInd);
+				layerMin = edgeLength2Layers(nodes, layoutOrderIndex, edgesFrom, edgesTo, x, direct);
 				newLayer = false;
 			}
 
@@ -814,15 +888,15 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 					return maxX;
 				
 				Integer neigh = (Integer) iterFrom.next();
+				HierarchyFlowLayoutOrderNode neighNode = nodes[layoutOrderIndex[neigh]];
 
-				if (nodes2HFLON.get(neigh).layer == (nodes[x].layer - 1)) {
-					idealPosXUp += nodes2HFLON.get(neigh).xPos;
+				if (neighNode.layer == (nodes[x].layer - 1)) {
+					idealPosXUp += neighNode.xPos;
 					neighsCountUp++;
 
 					// enforcing the impact of dummy nodes, it straightens the lines connected to dummy nodes
-					if ((renumber[nodes2HFLON.get(neigh).graphIndex] >= dummyStarts[cI[nodes2HFLON.get(neigh).graphIndex]])
-					    && ind2Lon.get(Integer.valueOf(x)).GetIsDummy()) {
-						idealPosXUp += (4 * nodes2HFLON.get(neigh).xPos);
+					if (isDummy[neigh] && isDummy[nodes[x].graphIndex]) {
+						idealPosXUp += (4 * neighNode.xPos);
 						neighsCountUp += 4;
 					}
 				}
@@ -835,14 +909,14 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 					return maxX;
 				
 				Integer neigh = (Integer) iterTo.next();
+				HierarchyFlowLayoutOrderNode neighNode = nodes[layoutOrderIndex[neigh]];
 
-				if (nodes2HFLON.get(neigh).layer == (nodes[x].layer + 1)) {
-					idealPosXDown += nodes2HFLON.get(neigh).xPos;
+				if (neighNode.layer == (nodes[x].layer + 1)) {
+					idealPosXDown += neighNode.xPos;
 					neighsCountDown++;
 
-					if ((renumber[nodes2HFLON.get(neigh).graphIndex] >= dummyStarts[cI[nodes2HFLON.get(neigh).graphIndex]])
-					    && ind2Lon.get(Integer.valueOf(x)).GetIsDummy()) {
-						idealPosXDown += (4 * nodes2HFLON.get(neigh).xPos);
+					if (isDummy[neigh] && isDummy[nodes[x].graphIndex]) {
+						idealPosXDown += (4 * neighNode.xPos);
 						neighsCountDown += 4;
 					}
 				}
@@ -869,43 +943,34 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 				int oldXPos = nodes[x].xPos;
 				nodes[x].xPos = idealPosX;
 
-				HierarchyFlowLayoutOrderNode[] nodesBak = new HierarchyFlowLayoutOrderNode[nodes.length];
-
-				for (int i = 0; i < nodes.length; i++)
-					nodesBak[i] = new HierarchyFlowLayoutOrderNode(nodes[i]);
-
 				if ((idealPosX > oldXPos) && (x < endInd) && (nodes[x + 1].layer == nodes[x].layer)) {
-					boolean q = false;
-
-					for (int i = x + 1; (i <= endInd) && !q; i++) {
-						//	System.out.print(nodesBak[i].xPos + " " + nodesBak[i+1].xPos + " " + x + " " + i + " ");
-						if ((nodesBak[i].layer == nodesBak[x].layer)
-						    && (nodesBak[i].xPos < (nodesBak[i - 1].xPos + context.nodeHorizontalSpacing))) {
-							nodesBak[i].xPos = nodesBak[i - 1].xPos + context.nodeHorizontalSpacing;
-
-							/*if (((LayerOrderNode)ind2Lon.get(Integer.valueOf(x))).GetPriority() < ((LayerOrderNode)ind2Lon.get(Integer.valueOf(i))).GetPriority())
-							    q = true;*/
-						} else
-
+					/* push the nodes on the right aside, and keep that if the edges do not get longer */
+					int pushed = 0;
+
+					for (int i = x + 1; i <= endInd; i++) {
+						if ((nodes[i].layer == nodes[x].layer)
+						    && (nodes[i].xPos < (nodes[i - 1].xPos + context.nodeHorizontalSpacing))) {
+							if (pushed == pushedXPos.length)
+								pushedXPos = Arrays.copyOf(pushedXPos, 2 * pushed);
+
+							pushedXPos[pushed++] = nodes[i].xPos;
+							nodes[i].xPos = nodes[i - 1].xPos + context.nodeHorizontalSpacing;
+						} else {
 							break;
+						}
 					}
 
 					if (cancelled)
 						return maxX;
 					
-					double w = edgeLength2Layers(nodesBak, edgesFrom, edgesTo, x, direct, startInd, endInd);
+					double w = edgeLength2Layers(nodes, layoutOrderIndex, edgesFrom, edgesTo, x, direct);
 
-					if (!q && (w <= layerMin)) {
+					if (w <= layerMin) {
 						layerMin = w;
-
-						for (int i = x + 1; i <= endInd; i++)
-							if ((nodes[i].layer == nodes[x].layer)
-							    && (nodes[i].xPos < (nodes[i - 1].xPos + context.nodeHorizontalSpacing))) {
-								nodes[i].xPos = nodes[i - 1].xPos + context.nodeHorizontalSpacing;
-							} else {
-								break;
-							}
 					} else {
+						for (int i = 0; i < pushed; i++)
+							nodes[x + 1 + i].xPos = pushedXPos[i];
+
 						if (nodes[x + 1].layer == nodes[x].layer)
 							nodes[x].xPos = nodes[x + 1].xPos - context.nodeHorizontalSpacing;
 						else
@@ -913,36 +978,30 @@ public class HierarchicalLayoutAlgorithmTask extends AbstractLayoutTask {
 					}
 				} else if ((idealPosX < oldXPos) && (x > 0)
 				           && (nodes[x - 1].layer == nodes[x].layer)) {
-					boolean q = false;
-
-					for (int i = x - 1; (i >= 0) && !q; i--) {
-						//System.out.print(nodesBak[i].xPos + " " + nodesBak[i+1].xPos + " " + x + " " + i + " ");
-						if ((nodesBak[i].layer == nodesBak[x].layer)
-						    && (nodesBak[i].xPos > (nodesBak[i + 1].xPos - context.nodeHorizontalSpacing))) {
-							nodesBak[i].xPos = nodesBak[i + 1].xPos - context.nodeHorizontalSpacing;
-
-							/*if (((LayerOrderNode)ind2Lon.get(Integer.valueOf(x))).GetPriority() < ((LayerOrderNode)ind2Lon.get(Integer.valueOf(i))).GetPriority())
-							{
-							    q = true;
-							}*/
-						} else
-
+					/* push the nodes on the left aside, and keep that if the edges do not get longer */
+					int pushed = 0;
+
+					for (int i = x - 1; i >= 0; i--) {
+						if ((nodes[i].layer == nodes[x].layer)
+						    && (nodes[i].xPos > (nodes[i + 1].xPos - context.nodeHorizontalSpacing))) {
+							if (pushed == pushedXPos.length)
+								pushedXPos = Arrays.copyOf(pushedXPos, 2 * pushed);
+
+							pushedXPos[pushed++] = nodes[i].xPos;
+							nodes[i].xPos = nodes[i + 1].xPos - context.nodeHorizontalSpacing;
+						} else {
 							break;
+						}
 					}
 
-					double w = edgeLength2Layers(nodesBak, edgesFrom, edgesTo, x, direct, startInd, endInd);
+					double w = edgeLength2Layers(nodes, layoutOrderIndex, edgesFrom, edgesTo, x, direct);
 
-					if (!q && (w <= layerMin)) {
+					if (w <= layerMin) {
 						layerMin = w;
-
-						for (int i = x - 1; i >= 0; i--)
-							if ((nodes[i].layer == nodes[x].layer)
-							    && (nodes[i].xPos > (nodes[i + 1].xPos - context.nodeHorizontalSpacing))) {
-								nodes[i].xPos = nodes[i + 1].xPos - context.nodeHorizontalSpacing;
-							} else {
-								break;
-							}
 					} else {
+						for (int i = 0; i < pushed; i++)
+							nodes[x - 1 - i].xPos = pushedXPos[i];
+
 						if (nodes[x - 1].layer == nodes[x].layer)
 							nodes[x].xPos = nodes[x - 1].xPos + context.nodeHorizontalSpacing;
 						else
@@ -0,0 +1,297 @@
+package csapps.layout.algorithms.hierarchicalLayout;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * The nodes of a reduced graph (where every edge goes from a layer to the layer below it)
+ * in primitive arrays, with the order of the nodes within each layer.
+ * <br>
+ * It counts the edge crossings between adjacent layers in O(E log V) with an accumulator
+ * tree (Barth, Juenger and Mutzel, "Simple and efficient bilayer cross counting"), and
+ * reorders the layers with barycenter sweeps for as long as the crossings keep decreasing.
+ */
+final class LayeredGraph {
+
+	/** The sweeps stop after this many sweeps in a row without fewer crossings. */
+	private static final int MAX_SWEEPS_WITHOUT_IMPROVEMENT = 2;
+
+	private final int nodecount;
+	private final int topLayer;
+
+	/** The neighbors in the layer below: down[downStart[v]] to down[downStart[v + 1] - 1]. */
+	private final int[] downStart;
+	private final int[] down;
+
+	/** The neighbors in the layer above: up[upStart[v]] to up[upStart[v + 1] - 1]. */
+	private final int[] upStart;
+	private final int[] up;
+
+	/** The nodes of every layer, in order. */
+	private final int[][] order;
+
+	/** The index of every node within its layer. */
+	private final int[] pos;
+
+	/**
+	 * @param edgesFrom for each node, the nodes its edges go to, in the layer below
+	 * @param vertexLayer the layer of each node, from 1 (bottom) up
+	 * @param position the position of each node within its layer, from 1
+	 */
+	LayeredGraph(int nodecount, List<Integer>[] edgesFrom, int[] vertexLayer, int[] position) {
+		this.nodecount = nodecount;
+
+		int top = 0;
+
+		for (int v = 0; v < nodecount; v++)
+			top = Math.max(top, vertexLayer[v]);
+
+		topLayer = top;
+
+		// Only edges between adjacent layers take part in the crossings
+		downStart = new int[nodecount + 1];
+		upStart = new int[nodecount + 1];
+
+		for (int v = 0; v < nodecount; v++) {
+			for (int w : edgesFrom[v]) {
+				if (vertexLayer[w] == vertexLayer[v] - 1) {
+					downStart[v + 1]++;
+					upStart[w + 1]++;
+				}
+			}
+		}
+
+		for (int v = 0; v < nodecount; v++) {
+			downStart[v + 1] += downStart[v];
+			upStart[v + 1] += upStart[v];
+		}
+
+		down = new int[downStart[nodecount]];
+		up = new int[upStart[nodecount]];
+
+		final int[] nextDown = Arrays.copyOf(downStart, nodecount);
+		final int[] nextUp = Arrays.copyOf(upStart, nodecount);
+
+		for (int v = 0; v < nodecount; v++) {
+			for (int w : edgesFrom[v]) {
+				if (vertexLayer[w] == vertexLayer[v] - 1) {
+					down[nextDown[v]++] = w;
+					up[nextUp[w]++] = v;
+				}
+			}
+		}
+
+		// The nodes of each layer, sorted by position
+		final int[] layerSize = new int[topLayer + 2];
+
+		for (int v = 0; v < nodecount; v++)
+			layerSize[vertexLayer[v]]++;
+
+		order = new int[topLayer + 2][];
+
+		for (int l = 0; l < order.length; l++)
+			order[l] = new int[layerSize[l]];
+
+		pos = new int[nodecount];
+		final Integer[] byPosition = new Integer[nodecount];
+
+		for (int v = 0; v < nodecount; v++)
+			byPosition[v] = v;
+
+		Arrays.sort(byPosition, (a, b) -> Integer.compare(position[a], position[b]));
+		Arrays.fill(layerSize, 0);
+
+		for (int v : byPosition) {
+			final int l = vertexLayer[v];
+			pos[v] = layerSize[l];
+			order[l][layerSize[l]++] = v;
+		}
+	}
+
+	/**
+	 * Reorders the layers with alternating upward and downward barycenter sweeps, until the
+	 * crossings stop decreasing or maxSweeps sweeps are done, and keeps the best order found
+	 * (which may be the initial one).
+	 *
+	 * @return true if the order has changed
+	 */
+	boolean reduceCrossings(int maxSweeps) {
+		long best = countCrossings();
+		final int[][] initialOrder = copyOrder();
+		int[][] bestOrder = null;
+		int sweepsWithoutImprovement = 0;
+
+		for (int sweep = 0; sweep < maxSweeps && best > 0; sweep++) {
+			if (sweep % 2 == 0) {
+				for (int l = 2; l <= topLayer; l++)
+					sortByBarycenter(l, downStart, down);
+			} else {
+				for (int l = topLayer - 1; l >= 1; l--)
+					sortByBarycenter(l, upStart, up);
+			}
+
+			final long crossings = countCrossings();
+
+			if (crossings < best) {
+				best = crossings;
+				bestOrder = copyOrder();
+				sweepsWithoutImprovement = 0;
+			} else if (++sweepsWithoutImprovement >= MAX_SWEEPS_WITHOUT_IMPROVEMENT) {
+				break;
+			}
+		}
+
+		if (bestOrder == null)
+			bestOrder = initialOrder;
+
+		for (int l = 0; l < order.length; l++) {
+			order[l] = bestOrder[l];
+
+			for (int i = 0; i < order[l].length; i++)
+				pos[order[l][i]] = i;
+		}
+
+		return bestOrder != initialOrder;
+	}
+
+	/**
+	 * @return the total number of edge crossings between adjacent layers
+	 */
+	long countCrossings() {
+		long crossings = 0;
+
+		for (int l = 1; l < topLayer; l++)
+			crossings += countCrossings(l);
+
+		return crossings;
+	}
+
+	/**
+	 * @return the number of crossings of the edges between layer l and the layer above it
+	 */
+	long countCrossings(int l) {
+		final int[] lower = order[l];
+		final int[] upper = order[l + 1];
+
+		// The lower ends of the edges, sorted by upper end, then by lower end
+		int edgeCount = 0;
+
+		for (int v : upper)
+			edgeCount += downStart[v + 1] - downStart[v];
+
+		final int[] southSequence = new int[edgeCount];
+		int k = 0;
+
+		for (int v : upper) {
+			final int start = k;
+
+			for (int i = downStart[v]; i < downStart[v + 1]; i++)
+				southSequence[k++] = pos[down[i]];
+
+			Arrays.sort(southSequence, start, k);
+		}
+
+		// Count the inversions of the lower ends with an accumulator tree
+		int firstIndex = 1;
+
+		while (firstIndex < lower.length)
+			firstIndex *= 2;
+
+		final int[] tree = new int[2 * firstIndex - 1];
+		firstIndex -= 1;
+		long crossings = 0;
+
+		for (int i = 0; i < edgeCount; i++) {
+			int index = southSequence[i] + firstIndex;
+			tree[index]++;
+
+			while (index > 0) {
+				if (index % 2 == 1)
+					crossings += tree[index + 1];
+
+				index = (index - 1) / 2;
+				tree[index]++;
+			}
+		}
+
+		return crossings;
+	}
+
+	/**
+	 * Writes the position of every node within its layer, from 1.
+	 */
+	void getPositions(int[] position) {
+		for (int v = 0; v < nodecount; v++)
+			position[v] = pos[v] + 1;
+	}
+
+	/**
+	 * Sorts layer l by the mean position of the neighbors of each node in the adjacent layer.
+	 * Nodes without such neighbors keep their position as their key. Ties keep their order.
+	 */
+	private void sortByBarycenter(int l, int[] start, int[] neighbors) {
+		final int[] nodes = order[l];
+		final double[] key = new double[nodes.length];
+		final Integer[] sorted = new Integer[nodes.length];
+
+		for (int i = 0; i < nodes.length; i++) {
+			final int v = nodes[i];
+			final int degree = start[v + 1] - start[v];
+
+			if (degree == 0) {
+				key[i] = i;
+			} else {
+				double sum = 0;
+
+				for (int j = start[v]; j < start[v + 1]; j++)
+					sum += pos[neighbors[j]];
+
+				key[i] = sum / degree;
+			}
+
+			sorted[i] = i;
+		}
+
+		Arrays.sort(sorted, (a, b) -> Double.compare(key[a], key[b]));
+
+		final int[] previous = nodes.clone();
+
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = previous[sorted[i]];
+			pos[nodes[i]] = i;
+		}
+	}
+
+	private int[][] copyOrder() {
+		final int[][] copy = new int[order.length][];
+
+		for (int l = 0; l < order.length; l++)
+			copy[l] = order[l].clone();
+
+		return copy;
+	}
+}
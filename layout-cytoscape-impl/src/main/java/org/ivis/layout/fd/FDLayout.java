@@ -1,11 +1,16 @@
 package org.ivis.layout.fd;
 
-import java.util.HashSet;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.ivis.util.*;
 import org.ivis.layout.*;
 
+import csapps.layout.LayoutPool;
+
 /**
  * This class implements common data and functionality for all layout styles
  * that are force-directed.
@@ -120,11 +125,28 @@ public abstract class FDLayout extends Layout
 	protected double repulsionRange;
 	
 	/**
-	 * Screen is divided into grid of squares.
-	 * At each iteration, each node is placed in its grid square(s)
-	 * Grid is re-calculated after every tenth iteration.
+	 * Geometric neighbors of each node in the repulsion range, by index in
+	 * surroundingNodes. Only neighbors with a greater index are kept, so that
+	 * each pair is in one list. Re-calculated after every tenth iteration.
+	 */
+	private int[][] surrounding;
+	private Object[] surroundingNodes;
+	
+	/**
+	 * Force buffers of the ranges of a parallel force calculation, holding the
+	 * x and y forces of each node
+	 */
+	private double[][] forceBuffers;
+	
+// -----------------------------------------------------------------------------
+// Section: Class variables
+// -----------------------------------------------------------------------------
+	
+	/**
+	 * Force calculations are split into ranges of at least this many node
+	 * pairs, edges or nodes; smaller ones are calculated in the calling thread.
 	 */
-	protected Vector[][] grid;
+	private static final int MIN_WORK_PER_RANGE = 4096;
 	
 // -----------------------------------------------------------------------------
 // Section: Constructors and initialization
@@ -253,95 +275,168 @@ public abstract class FDLayout extends Layout
 
 	/**
 	 * This method calculates the spring forces for the ends of each node.
+	 * The forces of the edges are calculated in parallel, and then applied to
+	 * the end nodes in edge order.
 	 */
 	public void calcSpringForces()
 	{
-		Object[] lEdges = this.getAllEdges();
-		FDLayoutEdge edge;
+		final Object[] lEdges = this.getAllEdges();
+		final double[] forces = new double[2 * lEdges.length];
+		final boolean[] applied = new boolean[lEdges.length];
 
-		for (int i = 0; i < lEdges.length; i++)
+		runRanges(evenRanges(lEdges.length), (range, from, to) ->
 		{
-			edge = (FDLayoutEdge) lEdges[i];
+			double[] springForce = new double[2];
 
-			this.calcSpringForce(edge, edge.idealLength);
+			for (int i = from; i < to; i++)
+			{
+				FDLayoutEdge edge = (FDLayoutEdge) lEdges[i];
+
+				if (this.calcSpringForce(edge, edge.idealLength, springForce))
+				{
+					applied[i] = true;
+					forces[2 * i] = springForce[0];
+					forces[2 * i + 1] = springForce[1];
+				}
+			}
+		});
+
+		for (int i = 0; i < lEdges.length; i++)
+		{
+			if (applied[i])
+			{
+				LEdge edge = (LEdge) lEdges[i];
+				FDLayoutNode sourceNode = (FDLayoutNode) edge.getSource();
+				FDLayoutNode targetNode = (FDLayoutNode) edge.getTarget();
+
+				sourceNode.springForceX += forces[2 * i];
+				sourceNode.springForceY += forces[2 * i + 1];
+				targetNode.springForceX -= forces[2 * i];
+				targetNode.springForceY -= forces[2 * i + 1];
+			}
 		}
 	}
 
 	/**
-	 * This method calculates the repulsion forces for each pair of nodes.
+	 * This method calculates the repulsion forces for each pair of nodes, or
+	 * for each node and its surrounding when the FR grid variant is used.
+	 * The pairs are split into ranges that are calculated in parallel, each
+	 * into its own force buffer, and the buffers are summed at the end.
 	 */
 	public void calcRepulsionForces()
 	{
-		int i, j;
-		FDLayoutNode nodeA, nodeB;
-		Object[] lNodes = this.getAllNodes();
-		HashSet<FDLayoutNode> processedNodeSet;
+		final Object[] lNodes = this.getAllNodes();
+		final int nodeCount = lNodes.length;
+		final int[][] surrounding;
 		
 		if (this.useFRGridVariant)
 		{
-			// grid is a vector matrix that holds CoSENodes.
-			// be sure to convert the Object type to CoSENode.
-			
-			if (this.totalIterations % FDLayoutConstants.GRID_CALCULATION_CHECK_PERIOD == 1)
+			if (this.totalIterations % FDLayoutConstants.GRID_CALCULATION_CHECK_PERIOD == 1 ||
+				this.surroundingNodes != lNodes)
 			{
-				this.grid = this.calcGrid(this.graphManager.getRoot());
-				
-				// put all nodes to proper grid cells
-				for (i = 0; i < lNodes.length; i++)
-				{
-					nodeA = (FDLayoutNode) lNodes[i];
-					this.addNodeToGrid(nodeA, this.grid, 
-						this.graphManager.getRoot().getLeft(),
-						this.graphManager.getRoot().getTop());
-				}
+				this.calcSurrounding(lNodes);
 			}
 			
-			processedNodeSet = new HashSet<FDLayoutNode>();
-			
-			// calculate repulsion forces between each nodes and its surrounding
-			for (i = 0; i < lNodes.length; i++)
-			{
-				nodeA = (FDLayoutNode) lNodes[i];
-				this.calculateRepulsionForceOfANode(this.grid, nodeA, processedNodeSet);
-				processedNodeSet.add(nodeA);
-			}			
+			surrounding = this.surrounding;
 		}
 		else
 		{
-			for (i = 0; i < lNodes.length; i++)
+			surrounding = null;
+		}
+		
+		long[] work = new long[nodeCount + 1];
+		
+		for (int i = 0; i < nodeCount; i++)
+		{
+			work[i + 1] = work[i] +
+				(surrounding != null ? surrounding[i].length : nodeCount - 1 - i);
+		}
+		
+		int[] ranges = splitRanges(work);
+		double[][] buffers = this.getForceBuffers(ranges.length - 1, nodeCount);
+		
+		runRanges(ranges, (range, from, to) ->
+		{
+			double[] buffer = buffers[range];
+			double[] repulsionForce = new double[2];
+			double[] overlapAmount = new double[2];
+			double[] clipPoints = new double[4];
+			
+			for (int i = from; i < to; i++)
 			{
-				nodeA = (FDLayoutNode) lNodes[i];
-
-				for (j = i + 1; j < lNodes.length; j++)
+				FDLayoutNode nodeA = (FDLayoutNode) lNodes[i];
+				int count = surrounding != null ? surrounding[i].length : nodeCount - 1 - i;
+				
+				for (int k = 0; k < count; k++)
 				{
-					nodeB = (FDLayoutNode) lNodes[j];
-
-					// If both nodes are not members of the same graph, skip.
-					if (nodeA.getOwner() != nodeB.getOwner())
+					int j = surrounding != null ? surrounding[i][k] : i + 1 + k;
+					FDLayoutNode nodeB = (FDLayoutNode) lNodes[j];
+					
+					// The surrounding only holds nodes that repel each other
+					if (surrounding == null && !this.isRepulsionApplied(nodeA, nodeB))
 					{
 						continue;
 					}
-
-					this.calcRepulsionForce(nodeA, nodeB);
+					
+					this.calcRepulsionForce(nodeA, nodeB, repulsionForce,
+						overlapAmount, clipPoints);
+					
+					buffer[2 * i] -= repulsionForce[0];
+					buffer[2 * i + 1] -= repulsionForce[1];
+					buffer[2 * j] += repulsionForce[0];
+					buffer[2 * j + 1] += repulsionForce[1];
 				}
 			}
+		});
+		
+		// sum the buffers of all ranges into the first one
+		
+		if (ranges.length > 2)
+		{
+			runRanges(evenRanges(nodeCount), (range, from, to) ->
+			{
+				for (int r = 1; r < ranges.length - 1; r++)
+				{
+					for (int i = 2 * from; i < 2 * to; i++)
+					{
+						buffers[0][i] += buffers[r][i];
+					}
+				}
+			});
 		}
+		
+		for (int i = 0; i < nodeCount; i++)
+		{
+			FDLayoutNode node = (FDLayoutNode) lNodes[i];
+			node.repulsionForceX += buffers[0][2 * i];
+			node.repulsionForceY += buffers[0][2 * i + 1];
+		}
+	}
+
+	/**
+	 * This method returns whether the input nodes repel each other; only nodes
+	 * of the same graph do. It is called from several threads at the same time.
+	 */
+	protected boolean isRepulsionApplied(FDLayoutNode nodeA, FDLayoutNode nodeB)
+	{
+		return nodeA.getOwner() == nodeB.getOwner();
 	}
 
 	/**
 	 * This method calculates gravitational forces to keep components together.
+	 * The nodes are independent, so they are calculated in parallel.
 	 */
 	public void calcGravitationalForces()
 	{
-		FDLayoutNode node;
-		Object[] lNodes = this.getAllNodesToApplyGravitation();
+		final Object[] lNodes = this.getAllNodesToApplyGravitation();
 
-		for (int i = 0; i < lNodes.length; i++)
+		runRanges(evenRanges(lNodes.length), (range, from, to) ->
 		{
-			node = (FDLayoutNode) lNodes[i];
-
-			this.calcGravitationalForce(node);
-		}
+			for (int i = from; i < to; i++)
+			{
+				this.calcGravitationalForce((FDLayoutNode) lNodes[i]);
+			}
+		});
 	}
 
 	/**
@@ -379,6 +474,32 @@ public abstract class FDLayout extends Layout
 	 * on the input ideal length.
 	 */
 	protected void calcSpringForce(LEdge edge, double idealLength)
+	{
+		double[] springForce = new double[2];
+
+		if (this.calcSpringForce(edge, idealLength, springForce))
+		{
+			FDLayoutNode sourceNode = (FDLayoutNode) edge.getSource();
+			FDLayoutNode targetNode = (FDLayoutNode) edge.getTarget();
+
+			// Apply forces on the end nodes
+			sourceNode.springForceX += springForce[0];
+			sourceNode.springForceY += springForce[1];
+			targetNode.springForceX -= springForce[0];
+			targetNode.springForceY -= springForce[1];
+		}
+	}
+
+	/**
+	 * This method calculates the spring force for the source of input edge
+	 * based on the input ideal length, without applying it; the target gets
+	 * the opposite force. It returns false if there is no spring force, that
+	 * is if the end nodes overlap. Only the length of the edge is updated, so
+	 * different edges can be calculated at the same time.
+	 */
+	protected boolean calcSpringForce(LEdge edge,
+		double idealLength,
+		double[] springForceXY)
 	{
 		FDLayoutNode sourceNode = (FDLayoutNode) edge.getSource();
 		FDLayoutNode targetNode = (FDLayoutNode) edge.getTarget();
@@ -400,7 +521,7 @@ public abstract class FDLayout extends Layout
 
 			if (edge.isOverlapingSourceAndTarget())
 			{
-				return;
+				return false;
 			}
 		}
 
@@ -437,11 +558,10 @@ public abstract class FDLayout extends Layout
 		springForceX = springForce * (edge.getLengthX() / length);
 		springForceY = springForce * (edge.getLengthY() / length);
 
-		// Apply forces on the end nodes
-		sourceNode.springForceX += springForceX;
-		sourceNode.springForceY += springForceY;
-		targetNode.springForceX -= springForceX;
-		targetNode.springForceY -= springForceY;
+		springForceXY[0] = springForceX;
+		springForceXY[1] = springForceY;
+
+		return true;
 	}
 
 	/**
@@ -449,8 +569,30 @@ public abstract class FDLayout extends Layout
 	 */
 	protected void calcRepulsionForce(FDLayoutNode nodeA, FDLayoutNode nodeB)
 	{
-		double[] overlapAmount = new double[2];
-		double[] clipPoints = new double[4];
+		double[] repulsionForce = new double[2];
+
+		this.calcRepulsionForce(nodeA, nodeB, repulsionForce,
+			new double[2], new double[4]);
+
+		// Apply forces on the two nodes
+		nodeA.repulsionForceX -= repulsionForce[0];
+		nodeA.repulsionForceY -= repulsionForce[1];
+		nodeB.repulsionForceX += repulsionForce[0];
+		nodeB.repulsionForceY += repulsionForce[1];
+	}
+
+	/**
+	 * This method calculates the repulsion force on nodeB for the input node
+	 * pair, without applying it; nodeA gets the opposite force. overlapAmount
+	 * and clipPoints are work arrays of length 2 and 4. The nodes are only
+	 * read, so different pairs can be calculated at the same time.
+	 */
+	protected void calcRepulsionForce(FDLayoutNode nodeA,
+		FDLayoutNode nodeB,
+		double[] repulsionForceXY,
+		double[] overlapAmount,
+		double[] clipPoints)
+	{
 		double distanceX;
 		double distanceY;
 		double distanceSquared;
@@ -527,11 +669,8 @@ public abstract class FDLayout extends Layout
 			repulsionForceY = repulsionForce * distanceY / distance;
 		}
 
-		// Apply forces on the two nodes
-		nodeA.repulsionForceX -= repulsionForceX;
-		nodeA.repulsionForceY -= repulsionForceY;
-		nodeB.repulsionForceX += repulsionForceX;
-		nodeB.repulsionForceY += repulsionForceY;
+		repulsionForceXY[0] = repulsionForceX;
+		repulsionForceXY[1] = repulsionForceY;
 	}
 
 	/**
@@ -646,124 +785,198 @@ public abstract class FDLayout extends Layout
 // Section: FR-Grid Variant Repulsion Force Calculation
 // -----------------------------------------------------------------------------
 	/**
-	 * This method creates the empty grid with proper dimensions
+	 * This method puts the input nodes into a grid of squares as large as the
+	 * repulsion range, and finds the surrounding of each node from its grid
+	 * squares and the squares around them, in parallel.
 	 */
-	protected Vector[][] calcGrid(LGraph g)
+	private void calcSurrounding(final Object[] lNodes)
 	{
-		int i, j;
-		Vector[][] grid;
+		final int nodeCount = lNodes.length;
+		double[] nodeLeft = new double[nodeCount];
+		double[] nodeTop = new double[nodeCount];
+		double[] nodeRight = new double[nodeCount];
+		double[] nodeBottom = new double[nodeCount];
 		
-		int sizeX = 0;
-		int sizeY = 0;
+		for (int i = 0; i < nodeCount; i++)
+		{
+			RectangleD rect = ((FDLayoutNode) lNodes[i]).getRect();
+			nodeLeft[i] = rect.x;
+			nodeTop[i] = rect.y;
+			nodeRight[i] = rect.x + rect.width;
+			nodeBottom[i] = rect.y + rect.height;
+		}
 		
-		sizeX = (int) Math.ceil((g.getRight() - g.getLeft()) / this.repulsionRange);
-		sizeY = (int) Math.ceil((g.getBottom() - g.getTop()) / this.repulsionRange);
-
-		grid = new Vector[sizeX][sizeY];
+		final FDLayoutGrid grid = new FDLayoutGrid(nodeLeft, nodeTop,
+			nodeRight, nodeBottom, this.repulsionRange);
+		final int[][] surrounding = new int[nodeCount][];
+		
+		runRanges(evenRanges(nodeCount), (range, from, to) ->
+		{
+			for (int i = from; i < to; i++)
+			{
+				FDLayoutNode nodeA = (FDLayoutNode) lNodes[i];
+				int[] candidates = grid.getSurroundingCandidates(i);
+				int count = 0;
+				
+				for (int j : candidates)
+				{
+					FDLayoutNode nodeB = (FDLayoutNode) lNodes[j];
+					
+					// If both nodes do not repel each other, skip.
+					if (!this.isRepulsionApplied(nodeA, nodeB))
+					{
+						continue;
+					}
+					
+					double distanceX = Math.abs(nodeA.getCenterX()-nodeB.getCenterX()) - 
+						((nodeA.getWidth()/2) + (nodeB.getWidth()/2));
+					double distanceY = Math.abs(nodeA.getCenterY()-nodeB.getCenterY()) - 
+						((nodeA.getHeight()/2) + (nodeB.getHeight()/2));
+					
+					// if the distance between nodeA and nodeB 
+					// is less then calculation range
+					if ((distanceX <= this.repulsionRange) && (distanceY <= this.repulsionRange))
+					{
+						//then add nodeB to surrounding of nodeA
+						candidates[count++] = j;
+					}
+				}
+				
+				surrounding[i] = Arrays.copyOf(candidates, count);
+			}
+		});
 		
-		for (i = 0; i < sizeX; i++)
+		this.surrounding = surrounding;
+		this.surroundingNodes = lNodes;
+	}
+	
+	/**
+	 * This method returns force buffers for the input number of ranges and
+	 * nodes, cleared, reusing those of the previous calculation if possible.
+	 */
+	private double[][] getForceBuffers(int rangeCount, int nodeCount)
+	{
+		if (this.forceBuffers == null ||
+			this.forceBuffers.length < rangeCount ||
+			this.forceBuffers[0].length != 2 * nodeCount)
 		{
-			for (j = 0; j < sizeY; j++)
+			this.forceBuffers = new double[rangeCount][2 * nodeCount];
+		}
+		else
+		{
+			for (int r = 0; r < rangeCount; r++)
 			{
-				grid[i][j] = new Vector();
+				Arrays.fill(this.forceBuffers[r], 0.0);
 			}
 		}
-		return grid;
+		
+		return this.forceBuffers;
 	}
 	
 	/**
-	 * This method adds input node v to the proper grid squares, 
-	 * and also sets the grid start and finish points of v 
+	 * This method splits the items into ranges of about the same work, where
+	 * work[i + 1] - work[i] is the work of item i, at most one range for each
+	 * thread of the pool. It returns the first item of each range, followed by
+	 * the number of items.
 	 */
-	protected void addNodeToGrid(FDLayoutNode v, 
-		Vector[][] grid, 
-		double left, 
-		double top)
+	private static int[] splitRanges(long[] work)
 	{
-		int startX = 0;
-		int finishX = 0;
-		int startY = 0;
-		int finishY = 0;
-		
-		startX = (int) Math.floor((v.getRect().x - left) / this.repulsionRange);
-		finishX = (int) Math.floor((v.getRect().width + v.getRect().x - left) / this.repulsionRange);
-		startY = (int) Math.floor((v.getRect().y - top) / this.repulsionRange);
-		finishY = (int) Math.floor((v.getRect().height + v.getRect().y - top) / this.repulsionRange);
+		int itemCount = work.length - 1;
+		long totalWork = work[itemCount];
+		int rangeCount = (int) Math.max(1,
+			Math.min(LayoutPool.get().getParallelism(), totalWork / MIN_WORK_PER_RANGE));
+		int[] ranges = new int[rangeCount + 1];
+		int item = 0;
 		
-		for (int i = startX; i <= finishX; i++)
+		for (int r = 1; r < rangeCount; r++)
 		{
-			for (int j = startY; j <= finishY; j++)
+			long rangeEnd = totalWork * r / rangeCount;
+			
+			while (item < itemCount && work[item + 1] <= rangeEnd)
 			{
-				grid[i][j].add(v);
-				v.setGridCoordinates(startX, finishX, startY, finishY); 
+				item++;
 			}
+			
+			ranges[r] = item;
 		}
+		
+		ranges[rangeCount] = itemCount;
+		
+		return ranges;
 	}
 	
 	/**
-	 * This method finds surrounding nodes of nodeA in repulsion range.
-	 * And calculates the repulsion forces between nodeA and its surrounding.
-	 * During the calculation, ignores the nodes that have already been processed.
+	 * This method splits the input number of items, all of the same work, into
+	 * ranges as {@link #splitRanges} does.
 	 */
-	protected void calculateRepulsionForceOfANode (Vector[][] grid, 
-		FDLayoutNode nodeA,
-		HashSet<FDLayoutNode> processedNodeSet)
+	private static int[] evenRanges(int itemCount)
 	{
-		int i,j;
+		long[] work = new long[itemCount + 1];
 		
-		if (this.totalIterations % FDLayoutConstants.GRID_CALCULATION_CHECK_PERIOD == 1)
+		for (int i = 0; i < itemCount; i++)
 		{
-			HashSet<Object> surrounding = new HashSet<Object>();
-			FDLayoutNode nodeB;
-			
-			for (i = (nodeA.startX-1); i < (nodeA.finishX+2); i++)
+			work[i + 1] = work[i] + 1;
+		}
+		
+		return splitRanges(work);
+	}
+	
+	/**
+	 * This method runs the input task on each range, in the pool, or in the
+	 * calling thread if there is only one range. It returns when all ranges
+	 * are done, and throws the first exception of a range, if any.
+	 */
+	private static void runRanges(int[] ranges, RangeTask task)
+	{
+		int rangeCount = ranges.length - 1;
+		
+		if (rangeCount == 1)
+		{
+			task.run(0, ranges[0], ranges[1]);
+			return;
+		}
+		
+		ForkJoinPool pool = LayoutPool.get();
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(rangeCount);
+		
+		for (int r = 0; r < rangeCount; r++)
+		{
+			final int range = r;
+			tasks.add(pool.submit(() ->
+				task.run(range, ranges[range], ranges[range + 1])));
+		}
+		
+		RuntimeException failure = null;
+		
+		for (ForkJoinTask<?> forkJoinTask : tasks)
+		{
+			try
 			{
-				for (j = (nodeA.startY-1); j < (nodeA.finishY+2); j++)
+				forkJoinTask.join();
+			}
+			catch (RuntimeException e)
+			{
+				if (failure == null)
 				{
-					if (!((i < 0) || (j < 0) || (i >= grid.length) || (j >= grid[0].length)))
-					{
-						for (Object obj : grid[i][j])
-						{ 
-							nodeB = (FDLayoutNode) obj;
-							
-							// If both nodes are not members of the same graph, 
-							// or both nodes are the same, skip.
-							if ((nodeA.getOwner() != nodeB.getOwner()) 
-								|| (nodeA == nodeB))
-							{
-								continue;
-							}
-							
-							// check if the repulsion force between 
-							// nodeA and nodeB has already been calculated
-							if (!processedNodeSet.contains(nodeB) && !surrounding.contains(nodeB))
-							{	
-								double distanceX = Math.abs(nodeA.getCenterX()-nodeB.getCenterX()) - 
-									((nodeA.getWidth()/2) + (nodeB.getWidth()/2));
-								double distanceY = Math.abs(nodeA.getCenterY()-nodeB.getCenterY()) - 
-									((nodeA.getHeight()/2) + (nodeB.getHeight()/2));
-								
-								// if the distance between nodeA and nodeB 
-								// is less then calculation range
-								if ((distanceX <= this.repulsionRange) && (distanceY <= this.repulsionRange))
-								{
-									//then add nodeB to surrounding of nodeA
-									surrounding.add(nodeB);
-								}
-							}
-						}
-					}
+					failure = e;
 				}
 			}
-			nodeA.surrounding = surrounding.toArray();
 		}
-
-		for (i = 0; i < nodeA.surrounding.length; i++)
-		{
-			this.calcRepulsionForce(nodeA, (FDLayoutNode) nodeA.surrounding[i]);
-		}		
 		
+		if (failure != null)
+		{
+			throw failure;
+		}
 	}
+	
+	/**
+	 * A force calculation for a range of items
+	 */
+	private interface RangeTask
+	{
+		void run(int range, int from, int to);
+	}
+	
 	/**
 	 * This method calculates repulsion range
 	 * Also it can be used to calculate the height of a grid's edge
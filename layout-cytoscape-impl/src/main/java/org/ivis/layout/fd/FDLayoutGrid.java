@@ -0,0 +1,230 @@
+package org.ivis.layout.fd;
+
+import java.util.Arrays;
+
+/**
+ * This class implements the grid of the FR grid variant with primitive arrays.
+ * Each node is put into every grid square that its rectangle falls into, and
+ * the nodes of all squares are kept in one array, ordered by square. Once
+ * built, the grid is read-only, so it can be queried from several threads at
+ * the same time.
+ */
+class FDLayoutGrid
+{
+// -----------------------------------------------------------------------------
+// Section: Class variables
+// -----------------------------------------------------------------------------
+	/**
+	 * Maximum number of grid squares per node. Squares are made larger than
+	 * requested when there would be more of them.
+	 */
+	private static final int MAX_SQUARES_PER_NODE = 4;
+
+// -----------------------------------------------------------------------------
+// Section: Instance variables
+// -----------------------------------------------------------------------------
+	/**
+	 * Top left corner of the grid and edge length of its squares
+	 */
+	private double left;
+	private double top;
+	private double squareSize;
+
+	/**
+	 * Number of grid squares in x and y directions
+	 */
+	private int columns;
+	private int rows;
+
+	/**
+	 * Start and finish grid coordinates of each node
+	 */
+	private int[] startX;
+	private int[] finishX;
+	private int[] startY;
+	private int[] finishY;
+
+	/**
+	 * Nodes of each grid square: squareNodes[squareStart[s]] to
+	 * squareNodes[squareStart[s + 1] - 1]
+	 */
+	private int[] squareStart;
+	private int[] squareNodes;
+
+// -----------------------------------------------------------------------------
+// Section: Constructors and initialization
+// -----------------------------------------------------------------------------
+	/**
+	 * Constructor, which puts the input node rectangles into a grid of squares
+	 * at least as large as the input square size.
+	 */
+	FDLayoutGrid(double[] nodeLeft,
+		double[] nodeTop,
+		double[] nodeRight,
+		double[] nodeBottom,
+		double squareSize)
+	{
+		int nodeCount = nodeLeft.length;
+		double right = -Double.MAX_VALUE;
+		double bottom = -Double.MAX_VALUE;
+
+		this.left = Double.MAX_VALUE;
+		this.top = Double.MAX_VALUE;
+
+		for (int i = 0; i < nodeCount; i++)
+		{
+			this.left = Math.min(this.left, nodeLeft[i]);
+			this.top = Math.min(this.top, nodeTop[i]);
+			right = Math.max(right, nodeRight[i]);
+			bottom = Math.max(bottom, nodeBottom[i]);
+		}
+
+		if (nodeCount == 0)
+		{
+			this.left = this.top = right = bottom = 0;
+		}
+
+		double extent = Math.max(right - this.left, bottom - this.top);
+
+		if (!(squareSize > 0))
+		{
+			squareSize = extent > 0 ? extent : 1;
+		}
+
+		long maxSquares = Math.max(1L, (long) MAX_SQUARES_PER_NODE * nodeCount);
+
+		while (squareCount(right - this.left, squareSize) *
+			squareCount(bottom - this.top, squareSize) > maxSquares)
+		{
+			squareSize *= 2;
+		}
+
+		this.squareSize = squareSize;
+		this.columns = (int) squareCount(right - this.left, squareSize);
+		this.rows = (int) squareCount(bottom - this.top, squareSize);
+
+		this.startX = new int[nodeCount];
+		this.finishX = new int[nodeCount];
+		this.startY = new int[nodeCount];
+		this.finishY = new int[nodeCount];
+		this.squareStart = new int[this.columns * this.rows + 1];
+
+		// count the nodes of each square, then place them (counting sort)
+
+		for (int i = 0; i < nodeCount; i++)
+		{
+			this.startX[i] = this.column(nodeLeft[i]);
+			this.finishX[i] = this.column(nodeRight[i]);
+			this.startY[i] = this.row(nodeTop[i]);
+			this.finishY[i] = this.row(nodeBottom[i]);
+
+			for (int y = this.startY[i]; y <= this.finishY[i]; y++)
+			{
+				for (int x = this.startX[i]; x <= this.finishX[i]; x++)
+				{
+					this.squareStart[y * this.columns + x + 1]++;
+				}
+			}
+		}
+
+		for (int s = 0; s < this.columns * this.rows; s++)
+		{
+			this.squareStart[s + 1] += this.squareStart[s];
+		}
+
+		this.squareNodes = new int[this.squareStart[this.columns * this.rows]];
+		int[] next = Arrays.copyOf(this.squareStart, this.columns * this.rows);
+
+		for (int i = 0; i < nodeCount; i++)
+		{
+			for (int y = this.startY[i]; y <= this.finishY[i]; y++)
+			{
+				for (int x = this.startX[i]; x <= this.finishX[i]; x++)
+				{
+					this.squareNodes[next[y * this.columns + x]++] = i;
+				}
+			}
+		}
+	}
+
+// -----------------------------------------------------------------------------
+// Section: Remaining methods
+// -----------------------------------------------------------------------------
+	/**
+	 * This method returns the nodes with an index greater than that of the
+	 * input node that are in its grid squares or in the squares around them,
+	 * in increasing order. These include all such nodes that are closer to the
+	 * input node than the square size, in both x and y directions.
+	 */
+	int[] getSurroundingCandidates(int node)
+	{
+		int[] candidates = new int[16];
+		int count = 0;
+		int x0 = Math.max(this.startX[node] - 1, 0);
+		int x1 = Math.min(this.finishX[node] + 1, this.columns - 1);
+		int y0 = Math.max(this.startY[node] - 1, 0);
+		int y1 = Math.min(this.finishY[node] + 1, this.rows - 1);
+
+		for (int y = y0; y <= y1; y++)
+		{
+			for (int x = x0; x <= x1; x++)
+			{
+				int square = y * this.columns + x;
+
+				for (int k = this.squareStart[square];
+					k < this.squareStart[square + 1];
+					k++)
+				{
+					if (this.squareNodes[k] > node)
+					{
+						if (count == candidates.length)
+						{
+							candidates = Arrays.copyOf(candidates, 2 * count);
+						}
+
+						candidates[count++] = this.squareNodes[k];
+					}
+				}
+			}
+		}
+
+		// nodes spanning several squares are found more than once
+		Arrays.sort(candidates, 0, count);
+		int unique = 0;
+
+		for (int k = 0; k < count; k++)
+		{
+			if (unique == 0 || candidates[k] != candidates[unique - 1])
+			{
+				candidates[unique++] = candidates[k];
+			}
+		}
+
+		return Arrays.copyOf(candidates, unique);
+	}
+
+	private static long squareCount(double length, double squareSize)
+	{
+		return (long) (length / squareSize) + 1;
+	}
+
+	private int column(double x)
+	{
+		return clamp((x - this.left) / this.squareSize, this.columns);
+	}
+
+	private int row(double y)
+	{
+		return clamp((y - this.top) / this.squareSize, this.rows);
+	}
+
+	private static int clamp(double position, int count)
+	{
+		if (!(position > 0))
+		{
+			return 0;
+		}
+
+		return position >= count - 1 ? count - 1 : (int) position;
+	}
+}
@@ -35,19 +35,6 @@ public abstract class FDLayoutNode extends LNode
 	public double displacementX;
 	public double displacementY;
 
-	/**
-	 * Start and finish grid coordinates that this node is fallen into
-	 */
-	public int startX;
-	public int finishX;
-	public int startY;
-	public int finishY;
-	
-	/**
-	 * Geometric neighbors of this node 
-	 */
-	public Object[] surrounding;
-	
 // -----------------------------------------------------------------------------
 // Section: Constructors and initialization
 // -----------------------------------------------------------------------------
@@ -67,21 +54,6 @@ public abstract class FDLayoutNode extends LNode
 		super(gm, loc, size, vNode);
 	}
 
-// -----------------------------------------------------------------------------
-// Section: FR-Grid Variant Repulsion Force Calculation
-// -----------------------------------------------------------------------------
-	/**
-	 * This method sets start and finish grid coordinates
-	 */
-	public void setGridCoordinates(int _startX, int _finishX, int _startY, int _finishY)
-	{
-		this.startX = _startX;
-		this.finishX = _finishX;
-		this.startY = _startY;
-		this.finishY = _finishY;
-
-	}
-
 // -----------------------------------------------------------------------------
 // Section: Remaining methods
 // -----------------------------------------------------------------------------
@@ -2,11 +2,9 @@ package org.ivis.layout.sbgn;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
-import java.util.Vector;
 
 import org.ivis.layout.LEdge;
 import org.ivis.layout.LGraph;
@@ -1333,170 +1331,25 @@ public class SbgnPDLayout extends CoSELayout
 		}
 	}
 
-	@Override
-	/**	 
-	 * This method calculates the repulsion forces for each pair of nodes.
-	 * Modification: Do not calculate repulsion for port & process nodes
-	 */
-	public void calcRepulsionForces()
-	{
-		int i, j;
-		FDLayoutNode nodeA, nodeB;
-		Object[] lNodes = this.getAllNodes();
-		HashSet<FDLayoutNode> processedNodeSet;
-
-		if (this.useFRGridVariant)
-		{
-			// grid is a vector matrix that holds CoSENodes.
-			// be sure to convert the Object type to CoSENode.
-
-			if (this.totalIterations
-					% FDLayoutConstants.GRID_CALCULATION_CHECK_PERIOD == 1)
-			{
-				this.grid = this.calcGrid(this.graphManager.getRoot());
-
-				// put all nodes to proper grid cells
-				for (i = 0; i < lNodes.length; i++)
-				{
-					nodeA = (FDLayoutNode) lNodes[i];
-					this.addNodeToGrid(nodeA, this.grid, this.graphManager
-							.getRoot().getLeft(), this.graphManager.getRoot()
-							.getTop());
-				}
-			}
-
-			processedNodeSet = new HashSet<FDLayoutNode>();
-
-			// calculate repulsion forces between each nodes and its surrounding
-			for (i = 0; i < lNodes.length; i++)
-			{
-				nodeA = (FDLayoutNode) lNodes[i];
-				this.calculateRepulsionForceOfANode(this.grid, nodeA,
-						processedNodeSet);
-				processedNodeSet.add(nodeA);
-			}
-		}
-		else
-		{
-			for (i = 0; i < lNodes.length; i++)
-			{
-				nodeA = (FDLayoutNode) lNodes[i];
-
-				for (j = i + 1; j < lNodes.length; j++)
-				{
-					nodeB = (FDLayoutNode) lNodes[j];
-
-					// If both nodes are not members of the same graph, skip.
-					if (nodeA.getOwner() != nodeB.getOwner())
-					{
-						continue;
-					}
-
-					if (nodeA.type != null
-							&& nodeB.type != null
-							&& nodeA.getOwner().equals(nodeB.getOwner())
-							&& (nodeA.type.equals(SbgnPDConstants.INPUT_PORT)
-									|| nodeA.type
-											.equals(SbgnPDConstants.OUTPUT_PORT)
-									|| nodeB.type
-											.equals(SbgnPDConstants.INPUT_PORT) || nodeB.type
-										.equals(SbgnPDConstants.OUTPUT_PORT)))
-					{
-						continue;
-					}
-
-					this.calcRepulsionForce(nodeA, nodeB);
-				}
-			}
-		}
-	}
-
 	@Override
 	/**
-	 * This method finds surrounding nodes of nodeA in repulsion range.
-	 * And calculates the repulsion forces between nodeA and its surrounding.
-	 * During the calculation, ignores the nodes that have already been processed.
+	 * This method returns whether the input nodes repel each other.
 	 * Modification: Do not calculate repulsion for port & process nodes
 	 */
-	protected void calculateRepulsionForceOfANode(Vector[][] grid,
-			FDLayoutNode nodeA, HashSet<FDLayoutNode> processedNodeSet)
+	protected boolean isRepulsionApplied(FDLayoutNode nodeA, FDLayoutNode nodeB)
 	{
-		int i, j;
-
-		if (this.totalIterations
-				% FDLayoutConstants.GRID_CALCULATION_CHECK_PERIOD == 1)
+		// If both nodes are not members of the same graph, skip.
+		if (!super.isRepulsionApplied(nodeA, nodeB))
 		{
-			HashSet<Object> surrounding = new HashSet<Object>();
-			FDLayoutNode nodeB;
-
-			for (i = (nodeA.startX - 1); i < (nodeA.finishX + 2); i++)
-			{
-				for (j = (nodeA.startY - 1); j < (nodeA.finishY + 2); j++)
-				{
-					if (!((i < 0) || (j < 0) || (i >= grid.length) || (j >= grid[0].length)))
-					{
-						for (Object obj : grid[i][j])
-						{
-							nodeB = (FDLayoutNode) obj;
-
-							// If both nodes are not members of the same graph,
-							// or both nodes are the same, skip.
-							if ((nodeA.getOwner() != nodeB.getOwner())
-									|| (nodeA == nodeB))
-							{
-								continue;
-							}
-
-							if (nodeA.type != null
-									&& nodeB.type != null
-									&& nodeA.getOwner()
-											.equals(nodeB.getOwner())
-									&& (nodeA.type
-											.equals(SbgnPDConstants.INPUT_PORT)
-											|| nodeA.type
-													.equals(SbgnPDConstants.OUTPUT_PORT)
-											|| nodeB.type
-													.equals(SbgnPDConstants.INPUT_PORT) || nodeB.type
-												.equals(SbgnPDConstants.OUTPUT_PORT)))
-							{
-								continue;
-							}
-
-							// check if the repulsion force between
-							// nodeA and nodeB has already been calculated
-							if (!processedNodeSet.contains(nodeB)
-									&& !surrounding.contains(nodeB))
-							{
-								double distanceX = Math.abs(nodeA.getCenterX()
-										- nodeB.getCenterX())
-										- ((nodeA.getWidth() / 2) + (nodeB
-												.getWidth() / 2));
-								double distanceY = Math.abs(nodeA.getCenterY()
-										- nodeB.getCenterY())
-										- ((nodeA.getHeight() / 2) + (nodeB
-												.getHeight() / 2));
-
-								// if the distance between nodeA and nodeB
-								// is less then calculation range
-								if ((distanceX <= this.repulsionRange)
-										&& (distanceY <= this.repulsionRange))
-								{
-									// then add nodeB to surrounding of nodeA
-									surrounding.add(nodeB);
-								}
-							}
-
-						}
-					}
-				}
-			}
-			nodeA.surrounding = surrounding.toArray();
+			return false;
 		}
 
-		for (i = 0; i < nodeA.surrounding.length; i++)
-		{
-			this.calcRepulsionForce(nodeA, (FDLayoutNode) nodeA.surrounding[i]);
-		}
+		return !(nodeA.type != null
+				&& nodeB.type != null
+				&& (nodeA.type.equals(SbgnPDConstants.INPUT_PORT)
+						|| nodeA.type.equals(SbgnPDConstants.OUTPUT_PORT)
+						|| nodeB.type.equals(SbgnPDConstants.INPUT_PORT)
+						|| nodeB.type.equals(SbgnPDConstants.OUTPUT_PORT)));
 	}
 
 	/**
@@ -0,0 +1,123 @@
+package csapps.layout.algorithms;
+
+import static org.cytoscape.view.presentation.property.BasicVisualLexicon.NODE_X_LOCATION;
+import static org.cytoscape.view.presentation.property.BasicVisualLexicon.NODE_Y_LOCATION;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.view.layout.CyLayoutAlgorithm;
+import org.cytoscape.view.model.CyNetworkView;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.network.NetworkViewFactoryTestSupport;
+import org.cytoscape.work.TaskMonitor;
+import org.cytoscape.work.undo.UndoSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+import csapps.layout.algorithms.bioLayout.BioLayoutFRAlgorithmTask;
+import csapps.layout.algorithms.bioLayout.BioLayoutFRContext;
+import csapps.layout.algorithms.bioLayout.BioLayoutKKAlgorithmTask;
+import csapps.layout.algorithms.bioLayout.BioLayoutKKContext;
+import csapps.layout.algorithms.graphPartition.DegreeSortedCircleContext;
+import csapps.layout.algorithms.graphPartition.DegreeSortedCircleLayoutTask;
+
+/*
+ * #%L
+ * Cytoscape Layout Algorithms Impl (layout-cytoscape-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+public class ConcurrentPartitionLayoutTaskTest {
+
+	private CyNetworkView networkView;
+	private TaskMonitor taskMonitor;
+	private UndoSupport undo;
+
+	@Before
+	public void setUp() {
+		// Two triangles, so that there are two partitions to lay out concurrently
+		CyNetwork network = new NetworkTestSupport().getNetwork();
+
+		for (int i = 0; i < 2; i++) {
+			CyNode a = network.addNode();
+			CyNode b = network.addNode();
+			CyNode c = network.addNode();
+			network.addEdge(a, b, false);
+			network.addEdge(b, c, false);
+			network.addEdge(c, a, false);
+		}
+
+		networkView = new NetworkViewFactoryTestSupport().getNetworkViewFactory().createNetworkView(network);
+		taskMonitor = mock(TaskMonitor.class);
+		undo = mock(UndoSupport.class);
+	}
+
+	@Test
+	public void testFruchtermanReingold() throws Exception {
+		BioLayoutFRContext context = new BioLayoutFRContext();
+		context.concurrentPartitions = true;
+		context.nIterations = 10;
+
+		new BioLayoutFRAlgorithmTask("fr", networkView, CyLayoutAlgorithm.ALL_NODE_VIEWS, context, false, null, undo)
+				.run(taskMonitor);
+		assertLaidOut();
+	}
+
+	@Test
+	public void testKamadaKawai() throws Exception {
+		BioLayoutKKContext context = new BioLayoutKKContext();
+		context.concurrentPartitions = true;
+
+		new BioLayoutKKAlgorithmTask("kk", networkView, CyLayoutAlgorithm.ALL_NODE_VIEWS, context, false, null, undo)
+				.run(taskMonitor);
+		assertLaidOut();
+	}
+
+	@Test
+	public void testDegreeSortedCircle() throws Exception {
+		DegreeSortedCircleContext context = new DegreeSortedCircleContext();
+		context.concurrentPartitions = true;
+
+		new DegreeSortedCircleLayoutTask("degree", networkView, CyLayoutAlgorithm.ALL_NODE_VIEWS, context, null, undo)
+				.run(taskMonitor);
+		assertLaidOut();
+
+		CyNetwork network = networkView.getModel();
+		assertNotNull(network.getDefaultNodeTable().getColumn("degree.layout"));
+		for (CyNode node : network.getNodeList())
+			assertEquals(Integer.valueOf(2), network.getRow(node).get("degree.layout", Integer.class));
+	}
+
+	private void assertLaidOut() {
+		assertEquals(6, networkView.getNodeViews().size());
+
+		for (View<CyNode> nodeView : networkView.getNodeViews()) {
+			Double x = nodeView.getVisualProperty(NODE_X_LOCATION);
+			Double y = nodeView.getVisualProperty(NODE_Y_LOCATION);
+			assertTrue(Double.isFinite(x) && Double.isFinite(y));
+		}
+	}
+}
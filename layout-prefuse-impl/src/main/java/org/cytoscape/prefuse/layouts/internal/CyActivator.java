@@ -31,6 +31,8 @@ import org.cytoscape.view.layout.CyLayoutAlgorithm;
 import org.cytoscape.work.undo.UndoSupport;
 import org.osgi.framework.BundleContext;
 
+import prefuse.util.force.ForceSimulator;
+
 import static org.cytoscape.work.ServiceProperties.*;
 
 public class CyActivator extends AbstractCyActivator {
@@ -51,5 +53,11 @@ public class CyActivator extends AbstractCyActivator {
         forceDirectedLayoutProps.setProperty(MENU_GRAVITY,"10.5");
 		registerService(bc,forceDirectedLayout,CyLayoutAlgorithm.class, forceDirectedLayoutProps);
 	}
+
+	@Override
+	public void stop(BundleContext bc) {
+		super.stop(bc);
+		ForceSimulator.shutdownPool();
+	}
 }
 
@@ -44,6 +44,8 @@ public class ForceDirectedLayoutContext implements TunableValidator {
 	public double defaultSpringLength = 50.0;
 	@Tunable(description="Default Node Mass:", context="both", longDescription="Default Node Mass, in numeric value", exampleStringValue="3.0")
 	public double defaultNodeMass = 3.0;
+	@Tunable(description="Convergence Threshold:", context="both", longDescription="Stop iterating once the nodes move less than this mean distance per iteration, in numeric value; 0 runs all the iterations", exampleStringValue="0.5")
+	public double convergenceThreshold = 0.5;
 	@Tunable(description="Force deterministic layouts (slower):", context="both", longDescription="Force deterministic layouts (slower); boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
 	public boolean isDeterministic;
 	@Tunable(description="Don't partition graph before layout:", groups="Standard Settings", context="both", longDescription="Don't partition graph before layout; boolean values only, ```true``` or ```false```; defaults to ```false```", exampleStringValue="false")
@@ -60,9 +62,11 @@ public class ForceDirectedLayoutContext implements TunableValidator {
 			errMsg.append("Default spring length must be > 0; current value = "+defaultSpringLength);
 		if (!isPositive(defaultNodeMass))
 			errMsg.append("Default node mass must be > 0; current value = "+defaultNodeMass);
+		if (!(convergenceThreshold >= 0.0))
+			errMsg.append("Convergence threshold must be >= 0; current value = "+convergenceThreshold);
 		} catch (IOException e) {}
 		return isPositive(numIterations) && isPositive(defaultSpringCoefficient)
-		       && isPositive(defaultSpringLength) && isPositive(defaultNodeMass)
+		       && isPositive(defaultSpringLength) && isPositive(defaultNodeMass) && convergenceThreshold >= 0.0
 			? ValidationState.OK : ValidationState.INVALID;
 	}
 
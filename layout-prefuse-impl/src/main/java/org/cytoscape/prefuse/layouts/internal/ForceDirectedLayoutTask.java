@@ -53,6 +53,9 @@ import prefuse.util.force.StateMonitor;
  */
 public class ForceDirectedLayoutTask extends AbstractParallelPartitionLayoutTask {
 
+	/** Partitions with at least this many nodes have their forces computed on several threads. */
+	private static final int PARALLEL_THRESHOLD = 1000;
+
 	// private ForceSimulator m_fsim;
 	private ForceDirectedLayout.Integrators integrator;
 	private final ForceDirectedLayoutContext context;
@@ -111,6 +114,7 @@ public class ForceDirectedLayoutTask extends AbstractParallelPartitionLayoutTask
 
 		List<LayoutNode> nodeList = part.getNodeList();
 		List<LayoutEdge> edgeList = part.getEdgeList();
+		m_fsim.setParallel(nodeList.size() >= PARALLEL_THRESHOLD);
 
 		if (context.isDeterministic) {
 			Collections.sort(nodeList);
@@ -155,6 +159,11 @@ public class ForceDirectedLayoutTask extends AbstractParallelPartitionLayoutTask
 
 		// perform layout
 		long timestep = 1000L;
+		ForceItem[] items = new ForceItem[nodeList.size()];
+		float[] previous = new float[2 * items.length];
+
+		for (int k = 0; k < items.length; k++)
+			items[k] = forceItems.get(nodeList.get(k));
 
 		for (int i = 0; i < context.numIterations; i++) {
 			if (cancelled)
@@ -169,6 +178,10 @@ public class ForceDirectedLayoutTask extends AbstractParallelPartitionLayoutTask
 			long step = timestep + 50;
 			m_fsim.runSimulator(step);
 			// setTaskStatus((int) (((double) i / (double) context.numIterations) * 90. + 5));
+
+			// Stop early once the nodes have (almost) stopped moving
+			if (getMeanDisplacement(items, previous) < context.convergenceThreshold)
+				break;
 		}
 
 		// update positions
@@ -187,6 +200,27 @@ public class ForceDirectedLayoutTask extends AbstractParallelPartitionLayoutTask
 		}
 	}
 	
+	/**
+	 * Get the mean distance that the items have moved since the last call, and
+	 * store their current locations.
+	 * @param previous the item locations of the last call, as x and y pairs
+	 */
+	private static double getMeanDisplacement(ForceItem[] items, float[] previous) {
+		if (items.length == 0)
+			return 0.0;
+
+		double sum = 0.0;
+
+		for (int k = 0; k < items.length; k++) {
+			float[] location = items[k].location;
+			sum += Math.hypot(location[0] - previous[2 * k], location[1] - previous[2 * k + 1]);
+			previous[2 * k] = location[0];
+			previous[2 * k + 1] = location[1];
+		}
+
+		return sum / items.length;
+	}
+
 	@Override
 	public void cancel() {
 		super.cancel();
@@ -2,8 +2,6 @@
  * @author ruschein
  */
 package prefuse.util.force;
-
-import java.util.Iterator;
 
 //
 // ************************   WARNING:  B R O K E N !!! ************************
@@ -53,13 +51,8 @@ public class BackwardEulerIntegrator implements Integrator {
 	@Override
 	public void integrate(final ForceSimulator sim, final long timestep) {
 		float speedLimit = sim.getSpeedLimit();
-		Iterator<ForceItem> iter = sim.getItems();
 
-		while (iter.hasNext()) {
-			if (monitor.isCancelled())
-				return;
-			
-			ForceItem item = iter.next();
+		sim.forEachItem(item -> {
 			float coeff = timestep / item.mass;
 			item.velocity[0] += coeff * item.force[0];
 			item.velocity[1] += coeff * item.force[1];
@@ -73,6 +66,6 @@ public class BackwardEulerIntegrator implements Integrator {
 				item.velocity[0] = speedLimit * vx / v;
 				item.velocity[1] = speedLimit * vy / v;
 			}
-		}
+		});
 	}
 }
@@ -1,7 +1,5 @@
 package prefuse.util.force;
 
-import java.util.Iterator;
-
 /*
  * #%L
  * Cytoscape Prefuse Layout Impl (layout-prefuse-impl)
@@ -45,13 +43,8 @@ public class EulerIntegrator implements Integrator {
 	@Override
 	public void integrate(ForceSimulator sim, long timestep) {
 		float speedLimit = sim.getSpeedLimit();
-		Iterator<ForceItem> iter = sim.getItems();
 		
-		while (iter.hasNext()) {
-			if (monitor.isCancelled())
-				return;
-			
-			ForceItem item = iter.next();
+		sim.forEachItem(item -> {
 			item.location[0] += timestep * item.velocity[0];
 			item.location[1] += timestep * item.velocity[1];
 			float coeff = timestep / item.mass;
@@ -65,6 +58,6 @@ public class EulerIntegrator implements Integrator {
 				item.velocity[0] = speedLimit * vx / v;
 				item.velocity[1] = speedLimit * vy / v;
 			}
-		}
+		});
 	}
 }
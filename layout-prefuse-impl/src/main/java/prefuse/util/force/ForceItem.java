@@ -64,6 +64,8 @@ public class ForceItem implements Cloneable {
         return item;
     }
     
+    /** The index of this ForceItem in the item store of its simulator. */
+    int index = -1;
     /** The mass value of this ForceItem. */
     public float   mass;
     /** The values of the forces acting on this ForceItem. */
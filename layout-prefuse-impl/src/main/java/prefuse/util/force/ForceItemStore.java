@@ -0,0 +1,83 @@
+package prefuse.util.force;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * #%L
+ * Cytoscape Prefuse Layout Impl (layout-prefuse-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+/**
+ * Primitive arrays (struct-of-arrays) with the locations and masses of the
+ * ForceItems of a {@link ForceSimulator}, so that force functions can scan
+ * them without going through every item's own arrays. Item i of the store is
+ * the ForceItem whose index is i.
+ * <br>
+ * The store is refreshed before the forces of a timestep are computed, and is
+ * read-only while they are.
+ */
+final class ForceItemStore {
+
+	private float[] x = new float[0];
+	private float[] y = new float[0];
+	private float[] mass = new float[0];
+	private int size;
+
+	/**
+	 * Copies the locations and masses of the given items, and numbers them.
+	 */
+	void load(List<ForceItem> items) {
+		size = items.size();
+
+		if (x.length < size) {
+			final int capacity = Math.max(size, x.length * 2);
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+			mass = Arrays.copyOf(mass, capacity);
+		}
+
+		for (int i = 0; i < size; i++) {
+			final ForceItem item = items.get(i);
+			item.index = i;
+			x[i] = item.location[0];
+			y[i] = item.location[1];
+			mass[i] = item.mass;
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	float getX(int i) {
+		return x[i];
+	}
+
+	float getY(int i) {
+		return y[i];
+	}
+
+	float getMass(int i) {
+		return mass[i];
+	}
+}
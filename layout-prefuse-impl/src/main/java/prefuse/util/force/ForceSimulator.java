@@ -3,6 +3,11 @@ package prefuse.util.force;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /*
  * #%L
@@ -32,11 +37,22 @@ import java.util.Iterator;
  * Manages a simulation of physical forces acting on bodies. To create a
  * custom ForceSimulator, add the desired {@link Force} functions and choose an
  * appropriate {@link Integrator}.
+ * <br>
+ * In parallel mode, the items and springs are split into fixed-size chunks
+ * whose forces are computed on several threads. The force functions then
+ * replace their random noise (for items at the same location) by noise that
+ * only depends on the items, so the results do not depend on the threads.
  *
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class ForceSimulator {
 
+    /** Computes the forces of all simulators in parallel mode, created on first use, see {@link #shutdownPool()}. */
+    private static ForkJoinPool forcePool;
+    private static boolean poolStopped;
+    /** The number of items or springs of a parallel chunk. */
+    private static final int CHUNK_SIZE = 1024;
+
     private ArrayList<ForceItem> items;
     private ArrayList<Spring> springs;
     private Force[] iforces;
@@ -44,6 +60,9 @@ public class ForceSimulator {
     private int iflen, sflen;
     private Integrator integrator;
     private float speedLimit = 1.0f;
+    private boolean parallel;
+    private final ForceItemStore store = new ForceItemStore();
+    private float[] springForces = new float[0];
     
     private final StateMonitor monitor;
     
@@ -88,6 +107,32 @@ public class ForceSimulator {
         speedLimit = limit;
     }
     
+    /**
+     * @return true if the forces are computed on several threads
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+    
+    /**
+     * Set whether the forces, and the integration, are computed on several
+     * threads. All the force functions must then support being called for
+     * different items at the same time. Parallel results are deterministic,
+     * but differ slightly from serial ones.
+     * @param parallel true to use several threads
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+    
+    /**
+     * Get the primitive copy of the locations and masses of the items, as of
+     * the last time the forces were accumulated.
+     */
+    ForceItemStore getItemStore() {
+        return store;
+    }
+    
     /**
      * Get the Integrator used by this simulator.
      * @return the Integrator
@@ -245,6 +290,8 @@ public class ForceSimulator {
      * Accumulate all forces acting on the items in this simulation
      */
     protected void accumulate() {
+    	store.load(items);
+    	
     	// Init
 		for (int i = 0; i < iflen && !monitor.isCancelled(); i++)
 			iforces[i].init(this);
@@ -252,20 +299,51 @@ public class ForceSimulator {
 			sforces[i].init(this);
 		
 		// Update forces
-		updateForceItems(items);
-		updateSprings(springs);
+		if (parallel) {
+			forEachItem(this::updateForceItem);
+			updateSpringsInParallel();
+		} else {
+			updateForceItems(items);
+			updateSprings(springs);
+		}
     }
+    
+    /**
+     * Runs the action on every item, in parallel mode on several threads,
+     * unless the simulation is cancelled.
+     */
+	void forEachItem(Consumer<ForceItem> action) {
+		if (!parallel) {
+			for (ForceItem item : items) {
+				if (monitor.isCancelled())
+					return;
+				
+				action.accept(item);
+			}
+			
+			return;
+		}
+		
+		runChunks(items.size(), (from, to) -> {
+			for (int i = from; i < to && !monitor.isCancelled(); i++)
+				action.accept(items.get(i));
+		});
+	}
+
+	private void updateForceItem(ForceItem item) {
+		item.force[0] = 0.0f;
+		item.force[1] = 0.0f;
+		
+		for (int i = 0; i < iflen && !monitor.isCancelled(); i++)
+			iforces[i].getForce(item);
+	}
 
 	private void updateForceItems(Collection<ForceItem> list) {
 		for (ForceItem item : list) {
 			if (monitor.isCancelled())
 				return;
 			
-			item.force[0] = 0.0f;
-			item.force[1] = 0.0f;
-			
-			for (int i = 0; i < iflen && !monitor.isCancelled(); i++)
-				iforces[i].getForce(item);
+			updateForceItem(item);
 		}
 	}
 	
@@ -278,4 +356,118 @@ public class ForceSimulator {
 				sforces[i].getForce(s);
 		}
 	}
+	
+	/**
+	 * Computes the force of every spring on its first item in parallel, and then
+	 * applies the forces to the items in spring order, as updateSprings does.
+	 */
+	private void updateSpringsInParallel() {
+		for (int i = 0; i < sflen; i++) {
+			// Only SpringForce can compute the force of a spring without applying it
+			if (!(sforces[i] instanceof SpringForce)) {
+				updateSprings(springs);
+				return;
+			}
+		}
+		
+		final int count = springs.size();
+		
+		if (springForces.length < 2 * count)
+			springForces = new float[2 * count];
+		
+		final float[] forces = springForces;
+		
+		runChunks(count, (from, to) -> {
+			final float[] force = new float[2];
+			
+			for (int k = from; k < to && !monitor.isCancelled(); k++) {
+				forces[2 * k] = 0;
+				forces[2 * k + 1] = 0;
+				
+				for (int i = 0; i < sflen; i++) {
+					((SpringForce) sforces[i]).calcForce(springs.get(k), k, force);
+					forces[2 * k] += force[0];
+					forces[2 * k + 1] += force[1];
+				}
+			}
+		});
+		
+		for (int k = 0; k < count; k++) {
+			if (monitor.isCancelled())
+				return;
+			
+			final Spring s = springs.get(k);
+			s.item1.force[0] += forces[2 * k];
+			s.item1.force[1] += forces[2 * k + 1];
+			s.item2.force[0] += -forces[2 * k];
+			s.item2.force[1] += -forces[2 * k + 1];
+		}
+	}
+	
+	/**
+	 * Runs the chunks of 0 to count on the pool, and waits for all of them.
+	 */
+	private static void runChunks(int count, Chunk chunk) {
+		if (count <= CHUNK_SIZE) {
+			chunk.run(0, count);
+			return;
+		}
+		
+		final ForkJoinPool pool = getPool();
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		
+		for (int from = 0; from < count; from += CHUNK_SIZE) {
+			final int start = from;
+			tasks.add(pool.submit(() -> chunk.run(start, Math.min(start + CHUNK_SIZE, count))));
+		}
+		
+		RuntimeException failure = null;
+		
+		for (ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (RuntimeException e) {
+				if (failure == null)
+					failure = e;
+			}
+		}
+		
+		if (failure != null)
+			throw failure;
+	}
+	
+	private static synchronized ForkJoinPool getPool() {
+		if (poolStopped)
+			throw new RejectedExecutionException("The layout bundle has been stopped");
+		if (forcePool == null)
+			forcePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return forcePool;
+	}
+	
+	/**
+	 * Stops the threads of the parallel mode, and keeps new simulations from using them;
+	 * called when the bundle stops.
+	 */
+	public static synchronized void shutdownPool() {
+		poolStopped = true;
+		if (forcePool != null)
+			forcePool.shutdownNow();
+	}
+	
+	/**
+	 * @return a pseudo-random value in [-0.5, 0.5) that only depends on the arguments,
+	 * used instead of random noise in parallel mode
+	 */
+	static float noise(int a, int b, int c, int d) {
+		long z = ((a * 0x9E3779B97F4A7C15L + b) * 0x9E3779B97F4A7C15L + c) * 0x9E3779B97F4A7C15L + d;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		
+		return (z >>> 40) / (float) (1 << 24) - 0.5f;
+	}
+	
+	private interface Chunk {
+		void run(int from, int to);
+	}
 }
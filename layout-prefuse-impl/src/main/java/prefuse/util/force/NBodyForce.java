@@ -1,8 +1,6 @@
 package prefuse.util.force;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Random;
 
 /*
@@ -36,6 +34,10 @@ import java.util.Random;
  * using a quad-tree with aggregated mass values to compute the n-body
  * force in O(N log N) time, where N is the number of ForceItems.</p>
  * 
+ * <p>The quad-tree is kept in primitive arrays, built over the
+ * {@link ForceItemStore} of the simulator, and is read-only once built, so
+ * the forces of different items can be computed in parallel.</p>
+ * 
  * <p>The algorithm used is that of J. Barnes and P. Hut, in their research
  * paper <i>A Hierarchical  O(n log n) force calculation algorithm</i>, Nature, 
  *  v.324, December 1986. For more details on the algorithm, see one of
@@ -76,11 +78,29 @@ public class NBodyForce extends AbstractForce {
     public static final int MIN_DISTANCE = 1;
     public static final int BARNES_HUT_THETA = 2;
     
+    private static final int INITIAL_CAPACITY = 64;
+    
     private float xMin, xMax, yMin, yMax;
-    private QuadTreeNodeFactory factory = new QuadTreeNodeFactory();
-    private QuadTreeNode root;
+    
+    /*
+     * The quadtree, in arrays with one entry per tree node; node 0 is the root.
+     * A node holds at most one item (or none), and the items of a node and its
+     * children are its subtree.
+     */
+    private int nodeCount;
+    private int[] children = new int[4 * INITIAL_CAPACITY]; // 4 per node, 0 if none
+    private boolean[] hasChildren = new boolean[INITIAL_CAPACITY];
+    private int[] value = new int[INITIAL_CAPACITY]; // item index, or -1 if none
+    private float[] mass = new float[INITIAL_CAPACITY]; // total mass of the subtree
+    private float[] comX = new float[INITIAL_CAPACITY]; // center of mass of the subtree
+    private float[] comY = new float[INITIAL_CAPACITY];
+    
+    private ForceItemStore store;
+    private boolean parallel;
+    private int generation;
     
     private Random rand; // deterministic randomness
+    private final ThreadLocal<TraversalStack> stacks = ThreadLocal.withInitial(TraversalStack::new);
 
     private final StateMonitor monitor;
     
@@ -108,7 +128,7 @@ public class NBodyForce extends AbstractForce {
 		params = new float[] { gravConstant, minDistance, theta };
 		minValues = new float[] { DEFAULT_MIN_GRAV_CONSTANT, DEFAULT_MIN_DISTANCE, DEFAULT_MIN_THETA };
 		maxValues = new float[] { DEFAULT_MAX_GRAV_CONSTANT, DEFAULT_MAX_DISTANCE, DEFAULT_MAX_THETA };
-		root = factory.getQuadTreeNode();
+		clear();
 		rand = new Random(12345678L); // deterministic randomness
 	}
 
@@ -143,42 +163,62 @@ public class NBodyForce extends AbstractForce {
      * Clears the quadtree of all entries.
      */
 	public void clear() {
-		clearHelper(root);
-		root = factory.getQuadTreeNode();
+		Arrays.fill(children, 0, 4 * nodeCount, 0);
+		nodeCount = 0;
+		newNode();
 	}
 
-	private void clearHelper(QuadTreeNode n) {
-		for (int i = 0; i < n.children.length; i++) {
-			if (n.children[i] != null)
-				clearHelper(n.children[i]);
+	private int newNode() {
+		if (nodeCount == value.length) {
+			final int capacity = 2 * nodeCount;
+			children = Arrays.copyOf(children, 4 * capacity);
+			hasChildren = Arrays.copyOf(hasChildren, capacity);
+			value = Arrays.copyOf(value, capacity);
+			mass = Arrays.copyOf(mass, capacity);
+			comX = Arrays.copyOf(comX, capacity);
+			comY = Arrays.copyOf(comY, capacity);
 		}
 		
-		factory.reclaim(n);
+		final int n = nodeCount++;
+		hasChildren[n] = false;
+		value[n] = -1;
+		mass[n] = 0;
+		comX[n] = 0;
+		comY[n] = 0;
+		
+		return n;
 	}
 
 	/**
 	 * Initialize the simulation with the provided enclosing simulation. After this
 	 * call has been made, the simulation can be queried for the n-body force acting
 	 * on a given item.
+	 * <br>
+	 * The quadtree is built over the item store of the simulation, and is not
+	 * modified by {@link #getForce(ForceItem)}, so the forces of different items
+	 * can be queried from several threads at the same time.
 	 * 
 	 * @param fsim the enclosing ForceSimulator
 	 */
     @Override
     public void init(ForceSimulator fsim) {
         clear(); // clear internal state
+        store = fsim.getItemStore();
+        parallel = fsim.isParallel();
+        generation++;
+        
+        final int count = store.size();
         
         // compute and squarify bounds of quadtree
         float x1 = Float.MAX_VALUE, y1 = Float.MAX_VALUE;
         float x2 = Float.MIN_VALUE, y2 = Float.MIN_VALUE;
-        Iterator<ForceItem> itemIter = fsim.getItems();
 		
-        while (itemIter.hasNext()) {
+        for (int p = 0; p < count; p++) {
         	if (monitor.isCancelled())
         		return;
         	
-			ForceItem item = itemIter.next();
-			float x = item.location[0];
-            float y = item.location[1];
+			float x = store.getX(p);
+            float y = store.getY(p);
 			if (x < x1) x1 = x;
 			if (y < y1) y1 = y;
 			if (x > x2) x2 = x;
@@ -195,216 +235,226 @@ public class NBodyForce extends AbstractForce {
 		setBounds(x1, y1, x2, y2);
 		
 		// insert items into quadtree
-		itemIter = fsim.getItems();
-
-		while (itemIter.hasNext()) {
+		for (int p = 0; p < count; p++) {
 			if (monitor.isCancelled())
         		return;
 			
-			ForceItem item = itemIter.next();
-			insert(item);
+			insert(p);
 		}
 
 		// calculate magnitudes and centers of mass
-		calcMass(root, fsim);
+		calcMass();
 	}
 
 	/**
-     * Inserts an item into the quadtree.
-     * @param item the ForceItem to add.
-     * @throws IllegalStateException if the current location of the item is
-     *  outside the bounds of the quadtree
+     * Inserts an item of the store into the quadtree.
+     * By construction, each leaf will contain either 1 or 0 items.
+     * @param p the index of the item to add.
      */
-    public void insert(ForceItem item) {
-        // insert item into the quadtrees
-        insert(item, root, xMin, yMin, xMax, yMax);
-    }
+	private void insert(int p) {
+		int n = 0;
+		float x1 = xMin, y1 = yMin, x2 = xMax, y2 = yMax;
 
-	private void insert(ForceItem p, QuadTreeNode n, float x1, float y1, float x2, float y2) {
-        // try to insert particle p at node n in the quadtree
-        // by construction, each leaf will contain either 1 or 0 particles
-		if (n.hasChildren) {
-			// n contains more than 1 particle
-			insertHelper(p, n, x1, y1, x2, y2);
-		} else if (n.value != null) {
-			// n contains 1 particle
-			if (isSameLocation(n.value, p)) {
-				insertHelper(p, n, x1, y1, x2, y2);
-			} else {
-				ForceItem v = n.value;
-				n.value = null;
-				insertHelper(v, n, x1, y1, x2, y2);
-				insertHelper(p, n, x1, y1, x2, y2);
+		while (true) {
+			if (!hasChildren[n]) {
+				if (value[n] < 0) {
+					// n is empty, so is a leaf
+					value[n] = p;
+					return;
+				}
+				
+				if (!isSameLocation(value[n], p)) {
+					// n contains 1 item, which moves down into a new leaf
+					final int v = value[n];
+					value[n] = -1;
+					final int child = getChild(n, v, x1, y1, x2, y2);
+					value[child] = v;
+				}
 			}
-		} else {
-			// n is empty, so is a leaf
-			n.value = p;
+			
+			// n contains more than 1 item (or one at the same location), so go down
+			final float splitx = (x1 + x2) / 2;
+			final float splity = (y1 + y2) / 2;
+			final int i = quadrant(p, splitx, splity);
+			n = getChild(n, p, x1, y1, x2, y2);
+			
+			// update bounds
+			if (i == 1 || i == 3)
+				x1 = splitx;
+			else
+				x2 = splitx;
+			
+			if (i > 1)
+				y1 = splity;
+			else
+				y2 = splity;
 		}
 	}
 
-	private static boolean isSameLocation(ForceItem f1, ForceItem f2) {
-		float dx = Math.abs(f1.location[0] - f2.location[0]);
-		float dy = Math.abs(f1.location[1] - f2.location[1]);
-		
-		return dx < 0.01 && dy < 0.01;
-	}
-    
-	private void insertHelper(ForceItem p, QuadTreeNode n, float x1, float y1, float x2, float y2) {
-		float x = p.location[0], y = p.location[1];
-		float splitx = (x1 + x2) / 2;
-		float splity = (y1 + y2) / 2;
-		int i = (x >= splitx ? 1 : 0) + (y >= splity ? 2 : 0);
+	/**
+	 * @return the child of n in which item p belongs, created if necessary
+	 */
+	private int getChild(int n, int p, float x1, float y1, float x2, float y2) {
+		final int i = quadrant(p, (x1 + x2) / 2, (y1 + y2) / 2);
 
 		// create new child node, if necessary
-		if (n.children[i] == null) {
-			n.children[i] = factory.getQuadTreeNode();
-			n.hasChildren = true;
+		if (children[4 * n + i] == 0) {
+			final int child = newNode();
+			children[4 * n + i] = child;
+			hasChildren[n] = true;
 		}
+		
+		return children[4 * n + i];
+	}
 
-		// update bounds
-		if (i == 1 || i == 3)
-			x1 = splitx;
-		else
-			x2 = splitx;
-
-		if (i > 1)
-			y1 = splity;
-		else
-			y2 = splity;
-
-		// recurse
-		insert(p, n.children[i], x1, y1, x2, y2);
+	private int quadrant(int p, float splitx, float splity) {
+		return (store.getX(p) >= splitx ? 1 : 0) + (store.getY(p) >= splity ? 2 : 0);
 	}
 
-	private void calcMass(QuadTreeNode n, ForceSimulator fsim) {
-		float xcom = 0, ycom = 0;
-		n.mass = 0;
+	private boolean isSameLocation(int p1, int p2) {
+		float dx = Math.abs(store.getX(p1) - store.getX(p2));
+		float dy = Math.abs(store.getY(p1) - store.getY(p2));
+		
+		return dx < 0.01 && dy < 0.01;
+	}
+
+	private void calcMass() {
+		// Children are always created after their parents
+		for (int n = nodeCount - 1; n >= 0; n--) {
+			float xcom = 0, ycom = 0;
+			mass[n] = 0;
 
-		if (n.hasChildren) {
-			for (int i = 0; i < n.children.length; i++) {
-				if (monitor.isCancelled())
-					return;
+			if (hasChildren[n]) {
+				for (int i = 0; i < 4; i++) {
+					final int c = children[4 * n + i];
 
-				if (n.children[i] != null) {
-					calcMass(n.children[i], fsim);
-					n.mass += n.children[i].mass;
-					xcom += n.children[i].mass * n.children[i].com[0];
-					ycom += n.children[i].mass * n.children[i].com[1];
+					if (c != 0) {
+						mass[n] += mass[c];
+						xcom += mass[c] * comX[c];
+						ycom += mass[c] * comY[c];
+					}
 				}
 			}
-		}
 
-		if (n.value != null) {
-			n.mass += n.value.mass;
-			xcom += n.value.mass * n.value.location[0];
-			ycom += n.value.mass * n.value.location[1];
-		}
+			if (value[n] >= 0) {
+				final int v = value[n];
+				mass[n] += store.getMass(v);
+				xcom += store.getMass(v) * store.getX(v);
+				ycom += store.getMass(v) * store.getY(v);
+			}
 
-		n.com[0] = xcom / n.mass;
-		n.com[1] = ycom / n.mass;
+			comX[n] = xcom / mass[n];
+			comY[n] = ycom / mass[n];
+		}
 	}
 
     /**
      * Calculates the force vector acting on the given item.
+     * In parallel mode, this may be called for different items at the same time.
      * @param item the ForceItem for which to compute the force
      */
     @Override
     public void getForce(ForceItem item) {
-		forceHelper(item, root, xMin, yMin, xMax, yMax);
-    }
-    
-	private void forceHelper(ForceItem item, QuadTreeNode n, float x1, float y1, float x2, float y2) {
-		float dx = n.com[0] - item.location[0];
-		float dy = n.com[1] - item.location[1];
-		float r = (float) Math.sqrt(dx * dx + dy * dy);
-		boolean same = false;
-        
-		if (r == 0.0f) {
-			// if items are in the exact same place, add some noise
-			dx = (rand.nextFloat() - 0.5f) / 50.0f;
-			dy = (rand.nextFloat() - 0.5f) / 50.0f;
-			r = (float) Math.sqrt(dx * dx + dy * dy);
-			same = true;
-		}
+		final int p = item.index;
+		final float px = store.getX(p);
+		final float py = store.getY(p);
+		final float pmass = store.getMass(p);
+		final TraversalStack stack = stacks.get();
+		stack.push(0, xMin, yMin, xMax, yMax);
 		
-        boolean minDist = params[MIN_DISTANCE]>0f && r>params[MIN_DISTANCE];
-        
-        // the Barnes-Hut approximation criteria is if the ratio of the size of the quadtree box
-        // to the distance between the point and the box's center of mass is beneath some threshold theta.
-		if ((!n.hasChildren && n.value != item) || (!same && (x2 - x1) / r < params[BARNES_HUT_THETA])) {
-			if (minDist)
-				return;
+		// Depth-first, children before the item of their parent
+		while (stack.size > 0) {
+			final int top = --stack.size;
+			final int entry = stack.node[top];
 			
-			// either only 1 particle or we meet criteria for Barnes-Hut approximation, so calc force
-			float v = params[GRAVITATIONAL_CONST] * item.mass * n.mass / (r * r * r);
-			item.force[0] += v * dx;
-			item.force[1] += v * dy;
-		} else if (n.hasChildren) {
-			// recurse for more accurate calculation
-			float splitx = (x1 + x2) / 2;
-			float splity = (y1 + y2) / 2;
+			if (entry < 0) {
+				// the item of node -entry - 1, at offset (dx, dy) and distance r
+				final int n = -entry - 1;
+				final float dx = stack.x1[top], dy = stack.y1[top], r = stack.x2[top];
+				float v = params[GRAVITATIONAL_CONST] * pmass * store.getMass(value[n]) / (r * r * r);
+				item.force[0] += v * dx;
+				item.force[1] += v * dy;
+				continue;
+			}
 			
-			for (int i = 0; i < n.children.length; i++) {
-				if (n.children[i] != null) {
-					forceHelper(item, n.children[i], (i == 1 || i == 3 ? splitx : x1), (i > 1 ? splity : y1),
-							(i == 1 || i == 3 ? x2 : splitx), (i > 1 ? y2 : splity));
+			final int n = entry;
+			final float x1 = stack.x1[top], y1 = stack.y1[top], x2 = stack.x2[top], y2 = stack.y2[top];
+			float dx = comX[n] - px;
+			float dy = comY[n] - py;
+			float r = (float) Math.sqrt(dx * dx + dy * dy);
+			boolean same = false;
+	        
+			if (r == 0.0f) {
+				// if items are in the exact same place, add some noise
+				if (parallel) {
+					dx = ForceSimulator.noise(generation, p, n, 0) / 50.0f;
+					dy = ForceSimulator.noise(generation, p, n, 1) / 50.0f;
+				} else {
+					dx = (rand.nextFloat() - 0.5f) / 50.0f;
+					dy = (rand.nextFloat() - 0.5f) / 50.0f;
 				}
+				
+				r = (float) Math.sqrt(dx * dx + dy * dy);
+				same = true;
 			}
 			
-			if (minDist)
-				return;
-			
-			if (n.value != null && n.value != item) {
-				float v = params[GRAVITATIONAL_CONST] * item.mass * n.value.mass / (r * r * r);
+	        boolean minDist = params[MIN_DISTANCE]>0f && r>params[MIN_DISTANCE];
+	        
+	        // the Barnes-Hut approximation criteria is if the ratio of the size of the quadtree box
+	        // to the distance between the point and the box's center of mass is beneath some threshold theta.
+			if ((!hasChildren[n] && value[n] != p) || (!same && (x2 - x1) / r < params[BARNES_HUT_THETA])) {
+				if (minDist)
+					continue;
+				
+				// either only 1 particle or we meet criteria for Barnes-Hut approximation, so calc force
+				float v = params[GRAVITATIONAL_CONST] * pmass * mass[n] / (r * r * r);
 				item.force[0] += v * dx;
 				item.force[1] += v * dy;
+			} else if (hasChildren[n]) {
+				// go down for more accurate calculation
+				if (!minDist && value[n] >= 0 && value[n] != p)
+					stack.push(-n - 1, dx, dy, r, 0);
+				
+				float splitx = (x1 + x2) / 2;
+				float splity = (y1 + y2) / 2;
+				
+				for (int i = 3; i >= 0; i--) {
+					if (children[4 * n + i] != 0) {
+						stack.push(children[4 * n + i], (i == 1 || i == 3 ? splitx : x1), (i > 1 ? splity : y1),
+								(i == 1 || i == 3 ? x2 : splitx), (i > 1 ? y2 : splity));
+					}
+				}
 			}
 		}
 	}
 
-    /**
-	 * Represents a node in the quadtree.
+	/**
+	 * The quadtree nodes left to visit for one item, with their bounds.
 	 */
-	public static final class QuadTreeNode {
+	private static final class TraversalStack {
 
-		public QuadTreeNode() {
-			com = new float[] { 0.0f, 0.0f };
-			children = new QuadTreeNode[4];
-		}
+		int size;
+		int[] node = new int[64];
+		float[] x1 = new float[64];
+		float[] y1 = new float[64];
+		float[] x2 = new float[64];
+		float[] y2 = new float[64];
 
-		boolean hasChildren = false;
-		float mass; // total mass held by this node
-		float[] com; // center of mass of this node
-		ForceItem value; // ForceItem in this node, null if node has children
-		QuadTreeNode[] children; // children nodes
-	}
+		void push(int n, float nx1, float ny1, float nx2, float ny2) {
+			if (size == node.length) {
+				node = Arrays.copyOf(node, 2 * size);
+				x1 = Arrays.copyOf(x1, 2 * size);
+				y1 = Arrays.copyOf(y1, 2 * size);
+				x2 = Arrays.copyOf(x2, 2 * size);
+				y2 = Arrays.copyOf(y2, 2 * size);
+			}
 
-    /**
-     * Helper class to minimize number of object creations across multiple
-     * uses of the quadtree.
-     */
-    public static final class QuadTreeNodeFactory {
-
-		private int maxNodes = 50000;
-		private ArrayList<QuadTreeNode> nodes = new ArrayList<>();
-
-		public QuadTreeNode getQuadTreeNode() {
-			if (nodes.size() > 0)
-				return (QuadTreeNode) nodes.remove(nodes.size() - 1);
-			else
-				return new QuadTreeNode();
-		}
-
-		public void reclaim(QuadTreeNode n) {
-			n.mass = 0;
-			n.com[0] = 0.0f;
-			n.com[1] = 0.0f;
-			n.value = null;
-			n.hasChildren = false;
-			Arrays.fill(n.children, null);
-
-			if (nodes.size() < maxNodes)
-				nodes.add(n);
+			node[size] = n;
+			x1[size] = nx1;
+			y1[size] = ny1;
+			x2[size] = nx2;
+			y2[size] = ny2;
+			size++;
 		}
 	}
 }
@@ -1,7 +1,5 @@
 package prefuse.util.force;
 
-import java.util.Iterator;
-
 /*
  * #%L
  * Cytoscape Prefuse Layout Impl (layout-prefuse-impl)
@@ -43,20 +41,12 @@ public class RungeKuttaIntegrator implements Integrator {
 	
 	@Override
     public void integrate(ForceSimulator sim, long timestep) {
-        float speedLimit = sim.getSpeedLimit();
-        float vx, vy, v, coeff;
-        float[][] k, l;
+        final float speedLimit = sim.getSpeedLimit();
         
-		Iterator<ForceItem> iter = sim.getItems();
-		
-		while (iter.hasNext()) {
-			if (monitor.isCancelled())
-				return;
-			
-			ForceItem item = iter.next();
-			coeff = timestep / item.mass;
-			k = item.k;
-			l = item.l;
+		sim.forEachItem(item -> {
+			float coeff = timestep / item.mass;
+			float[][] k = item.k;
+			float[][] l = item.l;
 			item.plocation[0] = item.location[0];
 			item.plocation[1] = item.location[1];
 			k[0][0] = timestep * item.velocity[0];
@@ -67,24 +57,18 @@ public class RungeKuttaIntegrator implements Integrator {
 			// Set the position to the new predicted position
 			item.location[0] += 0.5f * k[0][0];
 			item.location[1] += 0.5f * k[0][1];
-		}
+		});
 
 		// recalculate forces
 		sim.accumulate();
 
-		iter = sim.getItems();
-
-		while (iter.hasNext()) {
-			if (monitor.isCancelled())
-				return;
-			
-			ForceItem item = iter.next();
-			coeff = timestep / item.mass;
-			k = item.k;
-			l = item.l;
-			vx = item.velocity[0] + .5f * l[0][0];
-			vy = item.velocity[1] + .5f * l[0][1];
-			v = (float) Math.sqrt(vx * vx + vy * vy);
+		sim.forEachItem(item -> {
+			float coeff = timestep / item.mass;
+			float[][] k = item.k;
+			float[][] l = item.l;
+			float vx = item.velocity[0] + .5f * l[0][0];
+			float vy = item.velocity[1] + .5f * l[0][1];
+			float v = (float) Math.sqrt(vx * vx + vy * vy);
 			
 			if (v > speedLimit) {
 				vx = speedLimit * vx / v;
@@ -99,24 +83,18 @@ public class RungeKuttaIntegrator implements Integrator {
 			// Set the position to the new predicted position
 			item.location[0] = item.plocation[0] + 0.5f * k[1][0];
 			item.location[1] = item.plocation[1] + 0.5f * k[1][1];
-		}
+		});
 
 		// recalculate forces
 		sim.accumulate();
 
-		iter = sim.getItems();
-
-		while (iter.hasNext()) {
-			if (monitor.isCancelled())
-				return;
-			
-			ForceItem item = iter.next();
-			coeff = timestep / item.mass;
-			k = item.k;
-			l = item.l;
-			vx = item.velocity[0] + .5f * l[1][0];
-			vy = item.velocity[1] + .5f * l[1][1];
-			v = (float) Math.sqrt(vx * vx + vy * vy);
+		sim.forEachItem(item -> {
+			float coeff = timestep / item.mass;
+			float[][] k = item.k;
+			float[][] l = item.l;
+			float vx = item.velocity[0] + .5f * l[1][0];
+			float vy = item.velocity[1] + .5f * l[1][1];
+			float v = (float) Math.sqrt(vx * vx + vy * vy);
 			
 			if (v > speedLimit) {
 				vx = speedLimit * vx / v;
@@ -131,25 +109,19 @@ public class RungeKuttaIntegrator implements Integrator {
 			// Set the position to the new predicted position
 			item.location[0] = item.plocation[0] + 0.5f * k[2][0];
 			item.location[1] = item.plocation[1] + 0.5f * k[2][1];
-		}
+		});
 
 		// recalculate forces
 		sim.accumulate();
 
-		iter = sim.getItems();
-		
-		while (iter.hasNext()) {
-			if (monitor.isCancelled())
-				return;
-			
-			ForceItem item = iter.next();
-			coeff = timestep / item.mass;
-			k = item.k;
-			l = item.l;
+		sim.forEachItem(item -> {
+			float coeff = timestep / item.mass;
+			float[][] k = item.k;
+			float[][] l = item.l;
 			float[] p = item.plocation;
-			vx = item.velocity[0] + l[2][0];
-			vy = item.velocity[1] + l[2][1];
-			v = (float) Math.sqrt(vx * vx + vy * vy);
+			float vx = item.velocity[0] + l[2][0];
+			float vy = item.velocity[1] + l[2][1];
+			float v = (float) Math.sqrt(vx * vx + vy * vy);
 			
 			if (v > speedLimit) {
 				vx = speedLimit * vx / v;
@@ -174,6 +146,6 @@ public class RungeKuttaIntegrator implements Integrator {
 			
 			item.velocity[0] += vx;
 			item.velocity[1] += vy;
-		}
+		});
 	}
 }
@@ -38,6 +38,8 @@ public class SpringForce extends AbstractForce {
         = new String[] { "SpringCoefficient", "DefaultSpringLength" };
 
     private Random rand = null; // deterministic randomness
+    private int generation;
+    private final float[] force = new float[2];
     
     public static final float DEFAULT_SPRING_COEFF = 1E-4f;
     public static final float DEFAULT_MAX_SPRING_COEFF = 1E-3f;
@@ -86,12 +88,36 @@ public class SpringForce extends AbstractForce {
         return pnames;
     } 
     
+    /**
+     * @see prefuse.util.force.AbstractForce#init(prefuse.util.force.ForceSimulator)
+     */
+    public void init(ForceSimulator fsim) {
+        generation++;
+    }
+    
     /**
      * Calculates the force vector acting on the items due to the given spring.
      * @param s the Spring for which to compute the force
      * @see prefuse.util.force.Force#getForce(prefuse.util.force.Spring)
      */
     public void getForce(Spring s) {
+        calcForce(s, -1, force);
+        s.item1.force[0] += force[0];
+        s.item1.force[1] += force[1];
+        s.item2.force[0] += -force[0];
+        s.item2.force[1] += -force[1];
+    }
+    
+    /**
+     * Calculates the force vector acting on the first item of the given spring,
+     * without applying it; the second item gets the opposite force.
+     * @param s the Spring for which to compute the force
+     * @param key if not negative, identifies the spring, whose ends get noise
+     * that only depends on it if they are at the same location; this may then
+     * be called for different springs at the same time
+     * @param force receives the x and y force
+     */
+    void calcForce(Spring s, int key, float[] force) {
         ForceItem item1 = s.item1;
         ForceItem item2 = s.item2;
         float length = (s.length < 0 ? params[SPRING_LENGTH] : s.length);
@@ -100,16 +126,19 @@ public class SpringForce extends AbstractForce {
         float dx = x2-x1, dy = y2-y1;
         float r  = (float)Math.sqrt(dx*dx+dy*dy);
         if ( r == 0.0 ) {
-            dx = (rand.nextFloat()-0.5f) / 50.0f;
-            dy = (rand.nextFloat()-0.5f) / 50.0f;
+            if ( key >= 0 ) {
+                dx = ForceSimulator.noise(generation, key, 0, 0) / 50.0f;
+                dy = ForceSimulator.noise(generation, key, 0, 1) / 50.0f;
+            } else {
+                dx = (rand.nextFloat()-0.5f) / 50.0f;
+                dy = (rand.nextFloat()-0.5f) / 50.0f;
+            }
             r  = (float)Math.sqrt(dx*dx+dy*dy);
         }
         float d  = r-length;
         float coeff = (s.coeff < 0 ? params[SPRING_COEFF] : s.coeff)*d/r;
-        item1.force[0] += coeff*dx;
-        item1.force[1] += coeff*dy;
-        item2.force[0] += -coeff*dx;
-        item2.force[1] += -coeff*dy;
+        force[0] = coeff*dx;
+        force[1] = coeff*dy;
     }
     
 } // end of class SpringForce
@@ -10,6 +10,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
 
 import org.cytoscape.application.CyUserLog;
 import org.cytoscape.equations.Equation;
@@ -96,14 +99,22 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	private final Interpreter interpreter;
 	private final int defaultInitSize;
 
-	String lastInternalError;
+	volatile String lastInternalError;
 
 	private Map<String, VirtualColumn> virtualColumnMap;
 
 	private SavePolicy savePolicy;
 	private boolean fireEvents;
 	
-	private final Object lock = new Object();
+	// Reads (getX, getListX, isSetX, getMatchingRows...) share the read lock so that parallel
+	// readers don't serialize on one monitor, structural changes and writes take the write lock.
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Lock readLock = lock.readLock();
+	private final Lock writeLock = lock.writeLock();
+	
+	// The Interpreter and currentlyActiveAttributes (used to detect recursive equations) are not
+	// thread safe, equations are evaluated under this lock even when only the read lock is held.
+	private final Object equationLock = new Object();
 	
 	/**
 	 * Creates a new CyTableImpl object.
@@ -127,7 +138,7 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		this.isImmutable = !isMutable;
 		this.suid = SUIDFactory.getNextSUID();
 		this.eventHelper = eventHelper;
-		this.columnFactory = columnFactory;
+		this.columnFactory = columnFactory.createTableFactory();
 		this.interpreter = interpreter;
 		this.savePolicy = savePolicy;
 		this.fireEvents = false;
@@ -142,7 +153,7 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		rowList = new ArrayList<>();
 		
 		dependents = new HashMap<>();
-		normalizedColumnNames = new HashMap<>();
+		normalizedColumnNames = new ConcurrentHashMap<>(); // written to by readers
 		
 		VirtualColumnInfo virtualInfo = NonVirtualColumnInfo.create(true);
 		final String normalizedPKName = normalizeColumnName(primaryKey);
@@ -159,7 +170,7 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		// for getMatchingRows()
 		
 		// MKTODO (this is very strange, why is the primary key column implemented as a map???)
-		attributes.put(normalizedPKName, columnFactory.create(primaryKeyType, primaryKeyType, null, defaultInitSize));
+		attributes.put(normalizedPKName, this.columnFactory.create(primaryKeyType, primaryKeyType, null, defaultInitSize));
 
 		virtualColumnMap = new HashMap<>();
 	}
@@ -170,7 +181,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	
 	@Override
 	public void swap(final CyTable otherTable) {
-		synchronized (lock) {
+		writeLock.lock();
+		try {
 			final CyTableImpl other = (CyTableImpl)otherTable;
 	
 			final Set<String> tempCurrentlyActiveAttributes = currentlyActiveAttributes;
@@ -232,11 +244,14 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			final SavePolicy tempSavePolicy = savePolicy;
 			savePolicy = other.savePolicy;
 			other.savePolicy = tempSavePolicy;
+		} finally {
+			writeLock.unlock();
 		}
 	}
 
 	void updateColumnName(final String oldColumnName, final String newColumnName) {
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			if (currentlyActiveAttributes.remove(oldColumnName)) {
 				currentlyActiveAttributes.add(newColumnName);
 			}
@@ -264,6 +279,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 				dependents.remove(normalizedOldColName);
 				dependents.put(normalizedNewColName, columnDependents);
 			}
+		} finally {
+			writeLock.unlock();
 		}
 
 		eventHelper.fireEvent(new ColumnNameChangedEvent(this, oldColumnName, newColumnName));
@@ -295,13 +312,16 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	
 	@Override
 	public CyTable.Mutability getMutability() {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			if (isImmutable)
 				return Mutability.PERMANENTLY_IMMUTABLE;
 			else if (getDependentCount() == 0)
 				return Mutability.MUTABLE;
 			else
 				return Mutability.IMMUTABLE_DUE_TO_VIRT_COLUMN_REFERENCES;
+		} finally {
+			readLock.unlock();
 		}
 	}
 
@@ -328,12 +348,15 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	public void setTitle(String title) {
 		boolean valueChanged;
 		String oldTitle = null;
-		synchronized (lock) {
+		writeLock.lock();
+		try {
 			valueChanged = !this.title.equals(title);
 			if (valueChanged) {
 				oldTitle = this.title;
 				this.title = title;
 			}
+		} finally {
+			writeLock.unlock();
 		}
 		if (valueChanged && fireEvents) {
 			if(fireEvents)
@@ -343,8 +366,11 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 
 	@Override
 	public Collection<CyColumn> getColumns() {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			return new ArrayList<>(colList);
+		} finally {
+			readLock.unlock();
 		}
 	}
 
@@ -366,7 +392,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	@Override
 	public void deleteColumn(final String columnName) {
 		Long suid = null;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			if (columnName == null)
 				throw new NullPointerException("\"columnName\" must not be null.");
 
@@ -390,11 +417,16 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 					VirtualColumnInfo info = cyColumn.getVirtualColumnInfo();
 					((CyTableImpl) info.getSourceTable()).removeDependent(info.getSourceColumn(), cyColumn);
 				} else {
-					attributes.remove(normalizedColName);
+					// Releases the row ordinals that the column shares with the rest of the table
+					final ColumnData keyValuePairs = attributes.remove(normalizedColName);
+					if (keyValuePairs != null)
+						keyValuePairs.dispose();
 					colList.remove(types.get(normalizedColName));
 					types.remove(normalizedColName);
 				}
 			}
+		} finally {
+			writeLock.unlock();
 		}
 
 		// This event must be synchronous!
@@ -429,7 +461,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	public <T> void createColumn(final String columnName, final Class<? extends T> type,
 				     final boolean isImmutable, final T defaultValue) {
 		Long suid;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			if (columnName == null)
 				throw new NullPointerException("column name is null");
 			
@@ -461,6 +494,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			attributes.put(normalizedColName, columnFactory.create(primaryKeyType, type, null, defaultInitSize));
 			colList.add(types.get(normalizedColName));
 			
+		} finally {
+			writeLock.unlock();
 		}
 		
 		eventHelper.fireEvent(new ColumnCreatedEvent(this, columnName, suid));
@@ -477,7 +512,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	public <T> void createListColumn(final String columnName, final Class<T> listElementType,
 					 final boolean isImmutable, final List<T> defaultValue) {
 		Long suid;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			if (columnName == null)
 				throw new NullPointerException("column name is null");
 
@@ -504,6 +540,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			suid = column.getSUID();
 			attributes.put(normalizedColName, columnFactory.create(primaryKeyType, List.class, listElementType, defaultInitSize));
 			colList.add(types.get(normalizedColName));
+		} finally {
+			writeLock.unlock();
 		}
 
 		eventHelper.fireEvent(new ColumnCreatedEvent(this, columnName, suid));
@@ -516,12 +554,15 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		if (type == null)
 			throw new NullPointerException("column type is null.");
 
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			List<T> l = new ArrayList<>();
 			for(Object key : rows.keySet()) {
 				l.add((T)getValue(key, columnName, type));
 			}
 			return l;
+		} finally {
+			readLock.unlock();
 		}
 	}
 
@@ -577,7 +618,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 
 	@Override
 	public Collection<CyRow> getMatchingRows(final String columnName, final Object value) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			final VirtualColumn virtColumn = virtualColumnMap.get(normalizedColName);
 			
@@ -591,12 +633,15 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			
 			final ColumnData keyToValueMap = attributes.get(normalizedColName);
 			return keyToValueMap.getMatchingRows(rows, value);
+		} finally {
+			readLock.unlock();
 		}
 	}
 	
 	@Override
 	public <T> Collection<T> getMatchingKeys(String columnName, Object value, Class<T> type) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			final VirtualColumn virtColumn = virtualColumnMap.get(normalizedColName);
 			
@@ -610,12 +655,15 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			
 			final ColumnData keyToValueMap = attributes.get(normalizedColName);
 			return keyToValueMap.getMatchingKeys(value, type);
+		} finally {
+			readLock.unlock();
 		}
 	}
 
 	@Override
 	public int countMatchingRows(final String columnName, final Object value) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			final VirtualColumn virtColumn = virtualColumnMap.get(normalizedColName);
 			
@@ -624,6 +672,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			
 			final ColumnData keyToValueMap = attributes.get(normalizedColName);
 			return keyToValueMap.countMatchingRows(value);
+		} finally {
+			readLock.unlock();
 		}
 	}
 
@@ -638,7 +688,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		final VirtualColumn virtColumn;
 		
 		boolean changed = true;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			
 			if (types.get(normalizedColName) == null)
@@ -682,6 +733,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 					changed = keyToValueMap.put(key, newValue);
 				}
 			}
+		} finally {
+			writeLock.unlock();
 		}
 
 		if (fireEvents && changed && virtColumn == null) {
@@ -692,7 +745,9 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 
 	
 	private Object evalEquation(Equation equation, Object key, String columnName, Appendable errorsMessages) {
-		return EqnSupport.evalEquation(equation, key, interpreter, currentlyActiveAttributes, columnName, errorsMessages, this);
+		synchronized (equationLock) {
+			return EqnSupport.evalEquation(equation, key, interpreter, currentlyActiveAttributes, columnName, errorsMessages, this);
+		}
 	}
 	
 	/**
@@ -713,12 +768,15 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		
 		// ...then fire events for all dependents
 		Set<CyColumn> columnDependents;
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			String normalizedColumnName = normalizeColumnName(columnName);
 			columnDependents = dependents.get(normalizedColumnName);
 			if (columnDependents == null) {
 				return;
 			}
+		} finally {
+			readLock.unlock();
 		}
 		
 		for (CyColumn dependent : columnDependents) {
@@ -751,7 +809,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		final VirtualColumn virtColumn;
 		
 		boolean changed = true;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			final CyColumn column = types.get(normalizedColName);
 			CyRow row = rows.get(key);
@@ -791,6 +850,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 					newValue = rawValue;
 				}
 			}
+		} finally {
+			writeLock.unlock();
 		}
 
 		if (fireEvents && changed && virtColumn == null) {
@@ -803,7 +864,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		boolean changed = true;
 		final VirtualColumn virtColumn;
 		
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			virtColumn = virtualColumnMap.get(normalizedColName);
 			
@@ -816,6 +878,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 
 				changed = keyToValueMap.remove(key);
 			}
+		} finally {
+			writeLock.unlock();
 		}
 
 		if (fireEvents && changed && virtColumn == null) {
@@ -825,14 +889,18 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	}
 
 	Object getValueOrEquation(final Object key, final String columnName) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			return getValueOrEquation(key, columnName, virtualColumnMap.get(normalizedColName));
+		} finally {
+			readLock.unlock();
 		}
 	}
 
 	private final Object getValueOrEquation(final Object key, final String columnName, final VirtualColumn virtColumn) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			
 			if (primaryKey.equalsIgnoreCase(normalizedColName))
@@ -846,6 +914,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 				return null;
 			
 			return keyToValueMap.get(key);
+		} finally {
+			readLock.unlock();
 		}
 	}
 
@@ -855,10 +925,13 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		lastInternalError = null;
 
 		Object value;
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			value = getValue(key, columnName, type);
 			if (value == null)
 				return getDefaultValue(columnName, defaultValue);
+		} finally {
+			readLock.unlock();
 		}
 		return type.cast(value);
 	}
@@ -908,7 +981,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 
 	private <T> List<T> getListX(final Object key, final String columnName,
 							   final Class<? extends T> listElementType, final List<T> defaultValue) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			CyColumn type = types.get(normalizedColName);
 			
@@ -946,11 +1020,14 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 				return (List)result;
 			} else
 				return (List)vl;
+		} finally {
+			readLock.unlock();
 		}
 	}
 
 	private <T> boolean isSetX(final Object key, final String columnName) {
-		synchronized (lock) {
+		readLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(columnName);
 			
 			if (primaryKey.equalsIgnoreCase(normalizedColName))
@@ -965,6 +1042,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 				
 				return keyToValueMap != null && keyToValueMap.get(key) != null;
 			}
+		} finally {
+			readLock.unlock();
 		}
 	}
 
@@ -1009,7 +1088,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 		String targetName = "failed to create column"; 
 
 		Long suid = null;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			final String normalizedColName = normalizeColumnName(virtualColumnName);
 			if (types.containsKey(normalizedColName))
 				throw new IllegalArgumentException("column already exists with name: '" + virtualColumnName
@@ -1044,6 +1124,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 			attributes.put(normalizedTargetName, columnFactory.create(primaryKeyType, sourceColumn.getType(), sourceColumn.getListElementType(), defaultInitSize));
 			virtualColumnMap.put(normalizedTargetName, virtualColumn);
 			colList.add(types.get(normalizedTargetName));
+		} finally {
+			writeLock.unlock();
 		}
 
 		eventHelper.fireEvent(new ColumnCreatedEvent(this, targetName, suid));
@@ -1054,7 +1136,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	//          why no ColumnDeletedEvent events are being fired by it!  Also this deletes
 	//          (intentionally!) immutable columns!
 	void removeAllVirtColumns() {
-		synchronized (lock) {
+		writeLock.lock();
+		try {
 			if (getDependentCount() > 0)
 				return;
 	
@@ -1066,13 +1149,16 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 				((CyTableImpl) info.getSourceTable()).removeDependent(info.getSourceColumn(), column);
 			}
 			virtualColumnMap.clear();
+		} finally {
+			writeLock.unlock();
 		}
 	}
 
 	@Override
 	public final void addVirtualColumns(final CyTable sourceTable, final String targetJoinKeyName,
 			final boolean isImmutable) {
-		synchronized (lock) {
+		writeLock.lock();
+		try {
 			if (sourceTable == null)
 				throw new NullPointerException("\"sourceTable\" argument must never be null.");
 			if (targetJoinKeyName == null)
@@ -1108,6 +1194,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	
 				addVirtualColumn(columnName, columnName, sourceTable, targetJoinKeyName, isImmutable);
 			}
+		} finally {
+			writeLock.unlock();
 		}
 	}
 
@@ -1143,7 +1231,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 	@Override
 	public boolean deleteRows(final Collection<?> primaryKeys) {
 		boolean changed = false;
-		synchronized(lock) {
+		writeLock.lock();
+		try {
 			// collect the attribute maps for the columns, faster to normalize column names outside the main loop
 			Collection<CyColumn> columns = getColumns();
 			List<ColumnData> attributeMaps = new ArrayList<>(columns.size());
@@ -1171,6 +1260,8 @@ public final class CyTableImpl implements CyTable, TableAddedListener {
 				}
 			}
 			rowList.removeAll(rowsToRemoveFromList);
+		} finally {
+			writeLock.unlock();
 		}
 		if(changed)
 			eventHelper.fireEvent(new RowsDeletedEvent( this,  (Collection<Object>) primaryKeys));
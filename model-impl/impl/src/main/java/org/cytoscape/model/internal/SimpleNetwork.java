@@ -35,6 +35,7 @@ import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNode;
 	
 import cern.colt.map.tobject.OpenLongObjectHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 
 
 /**
@@ -56,13 +57,23 @@ class SimpleNetwork {
 	private final OpenLongObjectHashMap nodePointers;
 	private final OpenLongObjectHashMap edgePointers;
 
-	private int nodeCount;
-	private int edgeCount;
+	// volatile so that the counts can be read without taking the lock
+	private volatile int nodeCount;
+	private volatile int edgeCount;
 	
 	private NodePointer firstNode;
 	
 	private Object lock = new Object();
 
+	// Incremented on every topology change, a TopologySnapshot is current as long as its version matches.
+	private volatile long version;
+	private volatile TopologySnapshot topology;
+
+	// Adjacency reads that went through the lock since the last topology change. Once they add up
+	// to the size of the network the snapshot is built, the adjacency reads after that don't lock.
+	// Only a heuristic, racy increments don't matter.
+	private int lockedReads;
+
 	SimpleNetwork(final long suid) {
 		this.suid = suid; 
 		nodeCount = 0;
@@ -77,15 +88,86 @@ class SimpleNetwork {
 	}
 
 	public int getNodeCount() {
-		synchronized (lock) {
-			return nodeCount;
-		}
+		return nodeCount;
 	}
 
 	public int getEdgeCount() {
+		return edgeCount;
+	}
+
+	/**
+	 * Returns an immutable int-indexed adjacency view of this network meant for graph algorithms.
+	 * The view is cached and can be read without any locking, it is rebuilt on the
+	 * first call after the topology has changed.
+	 */
+	public TopologySnapshot getTopologySnapshot() {
+		TopologySnapshot snapshot = topology;
+		if (snapshot != null && snapshot.getVersion() == version)
+			return snapshot;
+
 		synchronized (lock) {
-			return edgeCount;
+			snapshot = topology;
+			if (snapshot != null && snapshot.getVersion() == version)
+				return snapshot;
+
+			snapshot = buildTopologySnapshot();
+			topology = snapshot;
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Returns the snapshot to answer an adjacency query from, or null if the query should walk the
+	 * linked lists under the lock. Building the snapshot costs about as much as reading the adjacency
+	 * of every node once, so it is only built after that many reads without a topology change.
+	 */
+	private TopologySnapshot getReadSnapshot() {
+		final TopologySnapshot snapshot = topology;
+		if (snapshot != null && snapshot.getVersion() == version)
+			return snapshot;
+		if (++lockedReads <= nodeCount + edgeCount)
+			return null;
+		return getTopologySnapshot();
+	}
+
+	/**
+	 * Caller must hold the lock.
+	 */
+	private void topologyChanged() {
+		version++;
+		lockedReads = 0;
+	}
+
+	/**
+	 * Caller must hold the lock.
+	 */
+	private TopologySnapshot buildTopologySnapshot() {
+		final CyNode[] nodes = new CyNode[nodeCount];
+		final CyEdge[] edges = new CyEdge[edgeCount];
+		final int[] source = new int[edgeCount];
+		final int[] target = new int[edgeCount];
+		final boolean[] directed = new boolean[edgeCount];
+
+		final Long2IntOpenHashMap nodeIndex = new Long2IntOpenHashMap(nodeCount);
+		nodeIndex.defaultReturnValue(-1);
+		int i = 0;
+		for (NodePointer node = firstNode; node != null; node = node.nextNode, i++) {
+			nodes[i] = node.cyNode;
+			nodeIndex.put(node.index, i);
+		}
+
+		// every edge is in exactly one outgoing list
+		int e = 0;
+		for (NodePointer node = firstNode; node != null; node = node.nextNode) {
+			for (EdgePointer edge = node.firstOutEdge; edge != null; edge = edge.nextOutEdge, e++) {
+				edges[e] = edge.cyEdge;
+				source[e] = nodeIndex.get(edge.source.index);
+				target[e] = nodeIndex.get(edge.target.index);
+				directed[e] = edge.directed;
+			}
 		}
+
+		return new TopologySnapshot(version, nodes, nodeIndex, edges, source, target, directed);
 	}
 
 	public CyEdge getEdge(final long e) {
@@ -159,6 +241,10 @@ class SimpleNetwork {
 	}
 
 	public List<CyNode> getNeighborList(final CyNode n, final CyEdge.Type e) {
+		final TopologySnapshot snapshot = getReadSnapshot();
+		if (snapshot != null)
+			return snapshot.getNeighborList(n, e);
+
 		synchronized (lock) {
 			if (!containsNode(n)) 
 				return Collections.emptyList(); 
@@ -177,6 +263,10 @@ class SimpleNetwork {
 	}
 
 	public List<CyEdge> getAdjacentEdgeList(final CyNode n, final CyEdge.Type e) {
+		final TopologySnapshot snapshot = getReadSnapshot();
+		if (snapshot != null)
+			return snapshot.getAdjacentEdgeList(n, e);
+
 		synchronized (lock) {
 			if (!containsNode(n)) 
 				return Collections.emptyList(); 
@@ -194,6 +284,10 @@ class SimpleNetwork {
 	}
 
 	public Iterable<CyEdge> getAdjacentEdgeIterable(final CyNode n, final CyEdge.Type e) {
+		final TopologySnapshot snapshot = getReadSnapshot();
+		if (snapshot != null)
+			return snapshot.getAdjacentEdgeList(n, e);
+
 		synchronized (lock) {
 			if (!containsNode(n)) 
 				return Collections.emptyList();
@@ -262,10 +356,15 @@ class SimpleNetwork {
 		if (containsNode(node))
 			return node;
 
-		final NodePointer n = new NodePointer(node);
-		nodePointers.put(node.getSUID(), n);
-		nodeCount++;
-		firstNode = n.insert(firstNode);
+		// callers synchronize on the network, take the lock as well so that
+		// getTopologySnapshot() never sees a half inserted node
+		synchronized (lock) {
+			final NodePointer n = new NodePointer(node);
+			nodePointers.put(node.getSUID(), n);
+			nodeCount++;
+			firstNode = n.insert(firstNode);
+			topologyChanged();
+		}
 
 		return node;
 	}
@@ -288,6 +387,7 @@ class SimpleNetwork {
 				firstNode = node.remove(firstNode);
 	
 				nodeCount--;
+				topologyChanged();
 				madeChanges = true;
 			}
 		}
@@ -320,6 +420,7 @@ class SimpleNetwork {
 			edgePointers.put(edge.getSUID(),e);
 
 			edgeCount++;
+			topologyChanged();
 		}
 
 		return edge; 
@@ -341,6 +442,7 @@ class SimpleNetwork {
 				e.remove();
 	
 				edgeCount--;
+				topologyChanged();
 				madeChanges = true;
 			}
 		}
@@ -0,0 +1,294 @@
+package org.cytoscape.model.internal;
+
+/*
+ * #%L
+ * Cytoscape Model Impl (model-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2008 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNode;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * An immutable, int-indexed view of the topology of a network at a point in time.
+ * <br>
+ * Nodes and edges are numbered 0..n-1 and 0..m-1, the adjacency is stored in CSR form
+ * (one offsets array and one flat array of edge indices) so that graph algorithms can walk
+ * it without locking and without allocating. Instances are obtained from
+ * {@link SimpleNetwork#getTopologySnapshot()}, they are not updated when the network changes.
+ * <br>
+ * The incident edges of each node are stored in four contiguous runs:
+ * undirected, directed outgoing, directed self-loops and directed incoming.
+ * That way every {@link CyEdge.Type} maps onto a single range and each edge is visited once per node.
+ */
+public final class TopologySnapshot {
+
+	private final long version;
+
+	private final CyNode[] nodes;
+	private final CyEdge[] edges;
+	private final Long2IntOpenHashMap nodeIndex;
+	private final Long2IntOpenHashMap edgeIndex;
+
+	private final int[] edgeSource;
+	private final int[] edgeTarget;
+	private final boolean[] edgeDirected;
+
+	// adjacency of node n is adjEdges[adjStart[n]] .. adjEdges[adjStart[n+1]-1]
+	private final int[] adjStart;
+	private final int[] outStart;
+	private final int[] selfStart;
+	private final int[] inStart;
+	private final int[] adjEdges;
+
+
+	/**
+	 * @param nodeIndex maps the SUID of each node to its position in nodes, must return -1 for other SUIDs
+	 */
+	TopologySnapshot(long version, CyNode[] nodes, Long2IntOpenHashMap nodeIndex, CyEdge[] edges,
+			int[] edgeSource, int[] edgeTarget, boolean[] edgeDirected) {
+		this.version = version;
+		this.nodes = nodes;
+		this.nodeIndex = nodeIndex;
+		this.edges = edges;
+		this.edgeSource = edgeSource;
+		this.edgeTarget = edgeTarget;
+		this.edgeDirected = edgeDirected;
+
+		edgeIndex = new Long2IntOpenHashMap(edges.length);
+		edgeIndex.defaultReturnValue(-1);
+		for(int i = 0; i < edges.length; i++)
+			edgeIndex.put(edges[i].getSUID().longValue(), i);
+
+		final int n = nodes.length;
+		final int[] und  = new int[n];
+		final int[] out  = new int[n];
+		final int[] self = new int[n];
+		final int[] in   = new int[n];
+
+		for(int e = 0; e < edges.length; e++) {
+			int s = edgeSource[e];
+			int t = edgeTarget[e];
+			if(!edgeDirected[e]) {
+				und[s]++;
+				if(s != t)
+					und[t]++;
+			} else if(s == t) {
+				self[s]++;
+			} else {
+				out[s]++;
+				in[t]++;
+			}
+		}
+
+		adjStart  = new int[n + 1];
+		outStart  = new int[n];
+		selfStart = new int[n];
+		inStart   = new int[n];
+		for(int v = 0; v < n; v++) {
+			outStart[v]  = adjStart[v] + und[v];
+			selfStart[v] = outStart[v] + out[v];
+			inStart[v]   = selfStart[v] + self[v];
+			adjStart[v + 1] = inStart[v] + in[v];
+		}
+
+		// Reuse the counters as insertion cursors.
+		System.arraycopy(adjStart, 0, und, 0, n);
+		System.arraycopy(outStart, 0, out, 0, n);
+		System.arraycopy(selfStart, 0, self, 0, n);
+		System.arraycopy(inStart, 0, in, 0, n);
+
+		adjEdges = new int[adjStart[n]];
+		for(int e = 0; e < edges.length; e++) {
+			int s = edgeSource[e];
+			int t = edgeTarget[e];
+			if(!edgeDirected[e]) {
+				adjEdges[und[s]++] = e;
+				if(s != t)
+					adjEdges[und[t]++] = e;
+			} else if(s == t) {
+				adjEdges[self[s]++] = e;
+			} else {
+				adjEdges[out[s]++] = e;
+				adjEdges[in[t]++] = e;
+			}
+		}
+	}
+
+
+	/**
+	 * Used by SimpleNetwork to decide if the snapshot is still current.
+	 */
+	long getVersion() {
+		return version;
+	}
+
+	public int getNodeCount() {
+		return nodes.length;
+	}
+
+	public int getEdgeCount() {
+		return edges.length;
+	}
+
+	public CyNode getNode(int node) {
+		return nodes[node];
+	}
+
+	public CyEdge getEdge(int edge) {
+		return edges[edge];
+	}
+
+	/**
+	 * Returns the index of the given node, or -1 if the node was not in the network when the snapshot was taken.
+	 */
+	public int getNodeIndex(CyNode node) {
+		return node == null ? -1 : nodeIndex.get(node.getSUID().longValue());
+	}
+
+	/**
+	 * Returns the index of the given edge, or -1 if the edge was not in the network when the snapshot was taken.
+	 */
+	public int getEdgeIndex(CyEdge edge) {
+		return edge == null ? -1 : edgeIndex.get(edge.getSUID().longValue());
+	}
+
+	public int getSource(int edge) {
+		return edgeSource[edge];
+	}
+
+	public int getTarget(int edge) {
+		return edgeTarget[edge];
+	}
+
+	public boolean isDirected(int edge) {
+		return edgeDirected[edge];
+	}
+
+	/**
+	 * Returns the node at the other end of the edge, or the node itself for a self-loop.
+	 */
+	public int getNeighbor(int node, int edge) {
+		return node ^ edgeSource[edge] ^ edgeTarget[edge];
+	}
+
+	/**
+	 * Returns the first position in {@link #getAdjacentEdgeAt(int)} of the edges of the given type adjacent to the node.
+	 */
+	public int getAdjacentStart(int node, CyEdge.Type type) {
+		switch(type) {
+			case OUTGOING:
+			case DIRECTED:
+				return outStart[node];
+			case INCOMING:
+				return selfStart[node];
+			case UNDIRECTED:
+			case ANY:
+			default:
+				return adjStart[node];
+		}
+	}
+
+	/**
+	 * Returns the position after the last edge of the given type adjacent to the node.
+	 */
+	public int getAdjacentEnd(int node, CyEdge.Type type) {
+		switch(type) {
+			case UNDIRECTED:
+				return outStart[node];
+			case OUTGOING:
+				return inStart[node];
+			case INCOMING:
+			case DIRECTED:
+			case ANY:
+			default:
+				return adjStart[node + 1];
+		}
+	}
+
+	/**
+	 * Returns the edge stored at a position between {@link #getAdjacentStart(int, CyEdge.Type)} and
+	 * {@link #getAdjacentEnd(int, CyEdge.Type)}.
+	 */
+	public int getAdjacentEdgeAt(int position) {
+		return adjEdges[position];
+	}
+
+	public int getDegree(int node, CyEdge.Type type) {
+		return getAdjacentEnd(node, type) - getAdjacentStart(node, type);
+	}
+
+	/**
+	 * Returns a copy of the indices of the edges of the given type adjacent to the node.
+	 */
+	public int[] getAdjacentEdges(int node, CyEdge.Type type) {
+		return Arrays.copyOfRange(adjEdges, getAdjacentStart(node, type), getAdjacentEnd(node, type));
+	}
+
+	/**
+	 * Returns the indices of the neighbors of the node along edges of the given type,
+	 * a neighbor connected by several edges is returned once per edge.
+	 */
+	public int[] getNeighbors(int node, CyEdge.Type type) {
+		final int start = getAdjacentStart(node, type);
+		final int[] neighbors = new int[getAdjacentEnd(node, type) - start];
+		for(int i = 0; i < neighbors.length; i++)
+			neighbors[i] = getNeighbor(node, adjEdges[start + i]);
+		return neighbors;
+	}
+
+	/**
+	 * Same as {@link SimpleNetwork#getNeighborList(CyNode, CyEdge.Type)}, without locking.
+	 */
+	List<CyNode> getNeighborList(CyNode node, CyEdge.Type type) {
+		final int n = getNodeIndex(node);
+		if(n < 0)
+			return Collections.emptyList();
+		final int start = getAdjacentStart(n, type);
+		final int end = getAdjacentEnd(n, type);
+		final List<CyNode> neighbors = new ArrayList<>(end - start);
+		for(int i = start; i < end; i++)
+			neighbors.add(nodes[getNeighbor(n, adjEdges[i])]);
+		return neighbors;
+	}
+
+	/**
+	 * Same as {@link SimpleNetwork#getAdjacentEdgeList(CyNode, CyEdge.Type)}, without locking.
+	 */
+	List<CyEdge> getAdjacentEdgeList(CyNode node, CyEdge.Type type) {
+		final int n = getNodeIndex(node);
+		if(n < 0)
+			return Collections.emptyList();
+		final int start = getAdjacentStart(n, type);
+		final int end = getAdjacentEnd(n, type);
+		final List<CyEdge> adjacent = new ArrayList<>(end - start);
+		for(int i = start; i < end; i++)
+			adjacent.add(edges[adjEdges[i]]);
+		return adjacent;
+	}
+}
@@ -54,4 +54,9 @@ public class CanonicalStringPoolFilter implements ColumnData {
 		return delegate.keySet();
 	}
 
+	@Override
+	public void dispose() {
+		delegate.dispose();
+	}
+
 }
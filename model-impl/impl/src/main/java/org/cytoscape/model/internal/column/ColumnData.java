@@ -20,5 +20,12 @@ public interface ColumnData {
 	int countMatchingRows(Object value);
 	Collection<CyRow> getMatchingRows(Map<Object, CyRow> rows, Object value);
 	<T> Collection<T> getMatchingKeys(Object value, Class<T> type);
+	
+	/**
+	 * Called when the column is deleted from its table. Columns that share state with the
+	 * other columns of the table (eg. row ordinals) must release it.
+	 */
+	default void dispose() {
+	}
 
 }
@@ -9,9 +9,17 @@ public interface ColumnDataFactory {
 	List<?> createList(Class<?> elementType, List<?> data);
 
 	void clearCache();
+	
+	/**
+	 * Returns the factory that a single table uses to create its columns. Factories that share
+	 * state between the columns of a table return a new instance, by default the factory is shared.
+	 */
+	default ColumnDataFactory createTableFactory() {
+		return this;
+	}
 
 	
 	public static ColumnDataFactory createDefaultFactory() {
-		return new ColumnDataFactoryFastUtil();
+		return new ColumnDataFactoryColumnar();
 	}
 }
@@ -0,0 +1,87 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.List;
+
+/**
+ * Creates dense, array based columns for tables keyed by SUID (Long). The SUID to row ordinal
+ * mapping is stored once per table and shared by all of its columns, see {@link RowOrdinals}.
+ * <ul>
+ * <li>Integer, Long, Double columns are stored in primitive arrays.</li>
+ * <li>Boolean columns are stored as a bitmap.</li>
+ * <li>String columns are dictionary encoded.</li>
+ * <li>List columns store a reference to the list in an array, the list elements are stored in primitive lists.</li>
+ * </ul>
+ * Tables with other key types fall back to {@link ColumnDataFactoryFastUtil}.
+ */
+public class ColumnDataFactoryColumnar implements ColumnDataFactory {
+
+	private final CanonicalStringPool stringPool;
+	private final ColumnDataFactoryFastUtil fallback;
+	
+	public ColumnDataFactoryColumnar() {
+		this.stringPool = new CanonicalStringPool();
+		this.fallback = new ColumnDataFactoryFastUtil(stringPool, true);
+	}
+	
+	@Override
+	public void clearCache() {
+		stringPool.clear();
+	}
+	
+	@Override
+	public ColumnDataFactory createTableFactory() {
+		return new TableFactory();
+	}
+	
+	@Override
+	public ColumnData create(Class<?> primaryKeyType, Class<?> type, Class<?> listElementType, int defaultInitSize) {
+		// The row ordinals must be shared by all the columns of a table, so columns can only be
+		// created through the table factory.
+		return createTableFactory().create(primaryKeyType, type, listElementType, defaultInitSize);
+	}
+
+	@Override
+	public List<?> createList(Class<?> elementType, List<?> data) {
+		return fallback.createList(elementType, data);
+	}
+	
+	
+	private class TableFactory implements ColumnDataFactory {
+		
+		private RowOrdinals ordinals;
+		
+		@Override
+		public ColumnData create(Class<?> primaryKeyType, Class<?> type, Class<?> listElementType, int defaultInitSize) {
+			if(!Long.class.equals(primaryKeyType)) {
+				return fallback.create(primaryKeyType, type, listElementType, defaultInitSize);
+			}
+			if(ordinals == null) {
+				ordinals = new RowOrdinals(defaultInitSize);
+			}
+			
+			// Dense columns cannot hold Equation objects, EquationSupport stores them on the side.
+			if(Integer.class.equals(type)) {
+				return new EquationSupport(new IndexedColumn(new DenseIntColumn(ordinals)));
+			} else if(Long.class.equals(type)) {
+				return new EquationSupport(new IndexedColumn(new DenseLongColumn(ordinals)));
+			} else if(Double.class.equals(type)) {
+				return new EquationSupport(new IndexedColumn(new DenseDoubleColumn(ordinals)));
+			} else if(String.class.equals(type)) {
+				return new EquationSupport(new IndexedColumn(new DenseStringColumn(ordinals, stringPool)));
+			} else if(Boolean.class.equals(type)) {
+				return new EquationSupport(new IndexedColumn(new DenseBooleanColumn(ordinals)));
+			}
+			return new DenseObjectColumn(ordinals);
+		}
+		
+		@Override
+		public List<?> createList(Class<?> elementType, List<?> data) {
+			return fallback.createList(elementType, data);
+		}
+		
+		@Override
+		public void clearCache() {
+			ColumnDataFactoryColumnar.this.clearCache();
+		}
+	}
+}
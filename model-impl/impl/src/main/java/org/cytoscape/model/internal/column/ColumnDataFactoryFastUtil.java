@@ -17,7 +17,24 @@ import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
 public class ColumnDataFactoryFastUtil implements ColumnDataFactory {
 
-	private final CanonicalStringPool stringPool = new CanonicalStringPool();
+	private final CanonicalStringPool stringPool;
+	private final boolean indexColumns;
+	
+	public ColumnDataFactoryFastUtil() {
+		this(true);
+	}
+	
+	/**
+	 * @param indexColumns if true scalar columns get a lazily built value index, see {@link IndexedColumn}
+	 */
+	public ColumnDataFactoryFastUtil(boolean indexColumns) {
+		this(new CanonicalStringPool(), indexColumns);
+	}
+	
+	ColumnDataFactoryFastUtil(CanonicalStringPool stringPool, boolean indexColumns) {
+		this.stringPool = stringPool;
+		this.indexColumns = indexColumns;
+	}
 	
 	@Override
 	public void clearCache() {
@@ -31,19 +48,27 @@ public class ColumnDataFactoryFastUtil implements ColumnDataFactory {
 		// Primitive maps require a wrapper to hold the Equations.
 		if(Long.class.equals(primaryKeyType)) {
 			if(Integer.class.equals(type)) {
-				return new EquationSupport(new MapColumn((Map)new Long2IntOpenHashMap()));
+				return new EquationSupport(index(new MapColumn((Map)new Long2IntOpenHashMap())));
 			} else if(Long.class.equals(type)) {
-				return new EquationSupport(new MapColumn((Map)new Long2LongOpenHashMap()));
+				return new EquationSupport(index(new MapColumn((Map)new Long2LongOpenHashMap())));
 			} else if(Double.class.equals(type)) {
-				return new EquationSupport(new MapColumn((Map)new Long2DoubleOpenHashMap()));
+				return new EquationSupport(index(new MapColumn((Map)new Long2DoubleOpenHashMap())));
 			} else if(String.class.equals(type)) {
-				return new CanonicalStringPoolFilter(stringPool, new MapColumn((Map)new Long2ObjectOpenHashMap()));
+				return new CanonicalStringPoolFilter(stringPool, index(new MapColumn((Map)new Long2ObjectOpenHashMap())));
 			} else if(Boolean.class.equals(type)) {
 				return new EquationSupport(new LongToBooleanColumn(() -> new LongOpenHashSet()));
 			}
 		}
 		
-		return new MapColumn(new HashMap<>(defaultInitSize));
+		if(List.class.equals(type)) {
+			// List values are mutable, they can't be used as keys in the index
+			return new MapColumn(new HashMap<>(defaultInitSize));
+		}
+		return index(new MapColumn(new HashMap<>(defaultInitSize)));
+	}
+	
+	private ColumnData index(ColumnData columnData) {
+		return indexColumns ? new IndexedColumn(columnData) : columnData;
 	}
 
 	@SuppressWarnings("unchecked")
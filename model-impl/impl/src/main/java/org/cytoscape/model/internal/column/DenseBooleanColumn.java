@@ -0,0 +1,48 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.Arrays;
+
+/**
+ * Stores Boolean values as a bitmap indexed by row ordinal.
+ */
+class DenseBooleanColumn extends DenseColumn {
+
+	private long[] values = new long[0];
+
+	DenseBooleanColumn(RowOrdinals ordinals) {
+		super(ordinals);
+	}
+
+	@Override
+	protected void ensureCapacity(int capacity) {
+		int words = (capacity + 63) >>> 6;
+		if(words > values.length) {
+			values = Arrays.copyOf(values, grow(values.length, words));
+		}
+	}
+
+	private boolean getBit(int ordinal) {
+		return (values[ordinal >>> 6] & (1L << ordinal)) != 0;
+	}
+
+	@Override
+	protected Object getValue(int ordinal) {
+		return getBit(ordinal) ? Boolean.TRUE : Boolean.FALSE;
+	}
+
+	@Override
+	protected boolean setValue(int ordinal, Object value, boolean isNew) {
+		boolean v = ((Boolean)value).booleanValue();
+		boolean prev = getBit(ordinal);
+		if(v)
+			values[ordinal >>> 6] |= (1L << ordinal);
+		else
+			values[ordinal >>> 6] &= ~(1L << ordinal);
+		return isNew || prev != v;
+	}
+
+	@Override
+	protected boolean matches(int ordinal, Object value) {
+		return value instanceof Boolean && getBit(ordinal) == (Boolean)value;
+	}
+}
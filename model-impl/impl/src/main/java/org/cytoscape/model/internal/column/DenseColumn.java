@@ -0,0 +1,216 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.cytoscape.model.CyRow;
+
+/**
+ * Base class for columns that store their values in arrays indexed by the row ordinals of the table.
+ * Which ordinals have a value is tracked by a bitmap, so the value arrays can be primitive.
+ * <br>
+ * Only supports Long keys (SUIDs).
+ */
+abstract class DenseColumn implements ColumnData {
+
+	protected final RowOrdinals ordinals;
+	private long[] present = new long[0];
+	private int size;
+
+	DenseColumn(RowOrdinals ordinals) {
+		this.ordinals = ordinals;
+	}
+
+	/**
+	 * Returns the new length of an array that must hold at least minLength elements.
+	 */
+	static int grow(int length, int minLength) {
+		return Math.max(minLength, Math.max(16, length + (length >> 1)));
+	}
+
+	/**
+	 * Make sure the value arrays can hold at least the given number of elements.
+	 */
+	protected abstract void ensureCapacity(int capacity);
+
+	protected abstract Object getValue(int ordinal);
+
+	/**
+	 * Stores the value, returns true if it is different from the value that was there before.
+	 * If isNew is true there was no previous value.
+	 */
+	protected abstract boolean setValue(int ordinal, Object value, boolean isNew);
+
+	/**
+	 * Called when the value is removed, subclasses that hold references should release them.
+	 */
+	protected void clearValue(int ordinal) {
+	}
+
+	protected abstract boolean matches(int ordinal, Object value);
+
+
+	protected final boolean isPresent(int ordinal) {
+		int word = ordinal >>> 6;
+		return word < present.length && (present[word] & (1L << ordinal)) != 0;
+	}
+
+	/**
+	 * Returns the ordinal of the key if it has a value in this column, -1 otherwise.
+	 */
+	protected final int ordinalOf(Object key) {
+		if(!(key instanceof Long))
+			return -1;
+		int ordinal = ordinals.get((Long)key);
+		return ordinal >= 0 && isPresent(ordinal) ? ordinal : -1;
+	}
+
+	@Override
+	public Object get(Object key) {
+		int ordinal = ordinalOf(key);
+		return ordinal < 0 ? null : getValue(ordinal);
+	}
+
+	@Override
+	public boolean put(Object key, Object value) {
+		if(value == null)
+			return remove(key);
+
+		int ordinal = ordinalOf(key);
+		if(ordinal >= 0)
+			return setValue(ordinal, value, false);
+
+		ordinal = ordinals.acquire((Long)key);
+		int words = (ordinals.capacity() + 63) >>> 6;
+		if(words > present.length) {
+			present = Arrays.copyOf(present, grow(present.length, words));
+		}
+		ensureCapacity(ordinals.capacity());
+		present[ordinal >>> 6] |= (1L << ordinal);
+		size++;
+		setValue(ordinal, value, true);
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		int ordinal = ordinalOf(key);
+		if(ordinal < 0)
+			return false;
+		clearValue(ordinal);
+		present[ordinal >>> 6] &= ~(1L << ordinal);
+		size--;
+		ordinals.release(ordinal);
+		return true;
+	}
+
+	/**
+	 * Removes all the values, so their row ordinals can be recycled once no other column uses them.
+	 */
+	@Override
+	public void dispose() {
+		for(int ordinal = nextPresent(0); ordinal >= 0; ordinal = nextPresent(ordinal + 1)) {
+			clearValue(ordinal);
+			ordinals.release(ordinal);
+		}
+		present = new long[0];
+		size = 0;
+	}
+
+	/**
+	 * Returns the index of the next ordinal that has a value, starting at the given ordinal, or -1.
+	 */
+	protected final int nextPresent(int from) {
+		int word = from >>> 6;
+		if(word >= present.length)
+			return -1;
+		long bits = present[word] & (-1L << from);
+		while(true) {
+			if(bits != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			if(++word == present.length)
+				return -1;
+			bits = present[word];
+		}
+	}
+
+	@Override
+	public Set<Object> keySet() {
+		return new AbstractSet<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				return new Iterator<Object>() {
+					int next = nextPresent(0);
+
+					@Override
+					public boolean hasNext() {
+						return next >= 0;
+					}
+
+					@Override
+					public Object next() {
+						if(next < 0)
+							throw new NoSuchElementException();
+						Long key = ordinals.getKey(next);
+						next = nextPresent(next + 1);
+						return key;
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object key) {
+				return ordinalOf(key) >= 0;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public int countMatchingRows(Object value) {
+		if(value == null)
+			return 0;
+		int count = 0;
+		for(int ordinal = nextPresent(0); ordinal >= 0; ordinal = nextPresent(ordinal + 1)) {
+			if(matches(ordinal, value))
+				count++;
+		}
+		return count;
+	}
+
+	@Override
+	public Collection<CyRow> getMatchingRows(Map<Object, CyRow> rows, Object value) {
+		List<CyRow> matchingRows = new ArrayList<>();
+		if(value == null)
+			return matchingRows;
+		for(int ordinal = nextPresent(0); ordinal >= 0; ordinal = nextPresent(ordinal + 1)) {
+			if(matches(ordinal, value))
+				matchingRows.add(rows.get(ordinals.getKey(ordinal)));
+		}
+		return matchingRows;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Collection<T> getMatchingKeys(Object value, Class<T> type) {
+		List<T> matchingKeys = new ArrayList<>();
+		if(value == null)
+			return matchingKeys;
+		for(int ordinal = nextPresent(0); ordinal >= 0; ordinal = nextPresent(ordinal + 1)) {
+			if(matches(ordinal, value))
+				matchingKeys.add((T)(Long)ordinals.getKey(ordinal));
+		}
+		return matchingKeys;
+	}
+}
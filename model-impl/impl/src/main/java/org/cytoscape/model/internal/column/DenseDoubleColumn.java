@@ -0,0 +1,40 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.Arrays;
+
+/**
+ * Stores Double values in a primitive array indexed by row ordinal.
+ */
+class DenseDoubleColumn extends DenseColumn {
+
+	private double[] values = new double[0];
+
+	DenseDoubleColumn(RowOrdinals ordinals) {
+		super(ordinals);
+	}
+
+	@Override
+	protected void ensureCapacity(int capacity) {
+		if(capacity > values.length) {
+			values = Arrays.copyOf(values, grow(values.length, capacity));
+		}
+	}
+
+	@Override
+	protected Object getValue(int ordinal) {
+		return values[ordinal];
+	}
+
+	@Override
+	protected boolean setValue(int ordinal, Object value, boolean isNew) {
+		double v = ((Double)value).doubleValue();
+		double prev = values[ordinal];
+		values[ordinal] = v;
+		return isNew || Double.doubleToLongBits(prev) != Double.doubleToLongBits(v);
+	}
+
+	@Override
+	protected boolean matches(int ordinal, Object value) {
+		return value instanceof Double && Double.doubleToLongBits(values[ordinal]) == Double.doubleToLongBits((Double)value);
+	}
+}
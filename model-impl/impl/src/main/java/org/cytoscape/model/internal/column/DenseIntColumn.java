@@ -0,0 +1,40 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.Arrays;
+
+/**
+ * Stores Integer values in a primitive array indexed by row ordinal.
+ */
+class DenseIntColumn extends DenseColumn {
+
+	private int[] values = new int[0];
+
+	DenseIntColumn(RowOrdinals ordinals) {
+		super(ordinals);
+	}
+
+	@Override
+	protected void ensureCapacity(int capacity) {
+		if(capacity > values.length) {
+			values = Arrays.copyOf(values, grow(values.length, capacity));
+		}
+	}
+
+	@Override
+	protected Object getValue(int ordinal) {
+		return values[ordinal];
+	}
+
+	@Override
+	protected boolean setValue(int ordinal, Object value, boolean isNew) {
+		int v = ((Integer)value).intValue();
+		int prev = values[ordinal];
+		values[ordinal] = v;
+		return isNew || prev != v;
+	}
+
+	@Override
+	protected boolean matches(int ordinal, Object value) {
+		return value instanceof Integer && values[ordinal] == (Integer)value;
+	}
+}
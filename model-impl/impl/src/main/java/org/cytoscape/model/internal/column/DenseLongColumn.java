@@ -0,0 +1,40 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.Arrays;
+
+/**
+ * Stores Long values in a primitive array indexed by row ordinal.
+ */
+class DenseLongColumn extends DenseColumn {
+
+	private long[] values = new long[0];
+
+	DenseLongColumn(RowOrdinals ordinals) {
+		super(ordinals);
+	}
+
+	@Override
+	protected void ensureCapacity(int capacity) {
+		if(capacity > values.length) {
+			values = Arrays.copyOf(values, grow(values.length, capacity));
+		}
+	}
+
+	@Override
+	protected Object getValue(int ordinal) {
+		return values[ordinal];
+	}
+
+	@Override
+	protected boolean setValue(int ordinal, Object value, boolean isNew) {
+		long v = ((Long)value).longValue();
+		long prev = values[ordinal];
+		values[ordinal] = v;
+		return isNew || prev != v;
+	}
+
+	@Override
+	protected boolean matches(int ordinal, Object value) {
+		return value instanceof Long && values[ordinal] == (Long)value;
+	}
+}
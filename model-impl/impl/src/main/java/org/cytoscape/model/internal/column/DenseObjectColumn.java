@@ -0,0 +1,46 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.Arrays;
+
+/**
+ * Stores object references in an array indexed by row ordinal. Used for list columns,
+ * the list element data is already held in primitive lists created by {@link ColumnDataFactory#createList}.
+ * Because a CyListImpl is a live, mutable view of the cell it must be stored as is.
+ */
+class DenseObjectColumn extends DenseColumn {
+
+	private Object[] values = new Object[0];
+
+	DenseObjectColumn(RowOrdinals ordinals) {
+		super(ordinals);
+	}
+
+	@Override
+	protected void ensureCapacity(int capacity) {
+		if(capacity > values.length) {
+			values = Arrays.copyOf(values, grow(values.length, capacity));
+		}
+	}
+
+	@Override
+	protected Object getValue(int ordinal) {
+		return values[ordinal];
+	}
+
+	@Override
+	protected boolean setValue(int ordinal, Object value, boolean isNew) {
+		Object prev = values[ordinal];
+		values[ordinal] = value;
+		return isNew || !value.equals(prev);
+	}
+
+	@Override
+	protected void clearValue(int ordinal) {
+		values[ordinal] = null;
+	}
+
+	@Override
+	protected boolean matches(int ordinal, Object value) {
+		return values[ordinal].equals(value);
+	}
+}
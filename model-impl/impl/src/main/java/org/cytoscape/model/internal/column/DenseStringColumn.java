@@ -0,0 +1,118 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * Dictionary encoded String column. Each distinct value is stored once in a per-column dictionary
+ * and rows hold an int code into the dictionary. New dictionary entries are canonicalized through the
+ * {@link CanonicalStringPool} so that columns share String instances.
+ * Dictionary entries are reference counted and recycled when no row uses them anymore.
+ */
+class DenseStringColumn extends DenseColumn {
+
+	private final CanonicalStringPool stringPool;
+
+	private int[] codes = new int[0];
+
+	// dictionary
+	private final Object2IntOpenHashMap<String> stringToCode = new Object2IntOpenHashMap<>();
+	private final List<String> codeToString = new ArrayList<>();
+	private final IntArrayList codeRefCounts = new IntArrayList();
+	private final IntArrayList freeCodes = new IntArrayList();
+
+
+	DenseStringColumn(RowOrdinals ordinals, CanonicalStringPool stringPool) {
+		super(ordinals);
+		this.stringPool = stringPool;
+		stringToCode.defaultReturnValue(-1);
+	}
+
+	@Override
+	protected void ensureCapacity(int capacity) {
+		if(capacity > codes.length) {
+			codes = Arrays.copyOf(codes, grow(codes.length, capacity));
+		}
+	}
+
+	private int acquireCode(String s) {
+		int code = stringToCode.getInt(s);
+		if(code < 0) {
+			s = stringPool.canonicalize(s);
+			if(freeCodes.isEmpty()) {
+				code = codeToString.size();
+				codeToString.add(s);
+				codeRefCounts.add(0);
+			} else {
+				code = freeCodes.popInt();
+				codeToString.set(code, s);
+			}
+			stringToCode.put(s, code);
+		}
+		codeRefCounts.set(code, codeRefCounts.getInt(code) + 1);
+		return code;
+	}
+
+	private void releaseCode(int code) {
+		int refs = codeRefCounts.getInt(code) - 1;
+		codeRefCounts.set(code, refs);
+		if(refs == 0) {
+			stringToCode.removeInt(codeToString.get(code));
+			codeToString.set(code, null);
+			freeCodes.add(code);
+		}
+	}
+
+	@Override
+	protected Object getValue(int ordinal) {
+		return codeToString.get(codes[ordinal]);
+	}
+
+	@Override
+	protected boolean setValue(int ordinal, Object value, boolean isNew) {
+		int code = acquireCode((String)value);
+		if(isNew) {
+			codes[ordinal] = code;
+			return true;
+		}
+		int prev = codes[ordinal];
+		codes[ordinal] = code;
+		releaseCode(prev);
+		return prev != code;
+	}
+
+	@Override
+	protected void clearValue(int ordinal) {
+		releaseCode(codes[ordinal]);
+	}
+
+	@Override
+	protected boolean matches(int ordinal, Object value) {
+		return codeToString.get(codes[ordinal]).equals(value);
+	}
+
+	@Override
+	public int countMatchingRows(Object value) {
+		// compare codes instead of strings
+		int code = value instanceof String ? stringToCode.getInt(value) : -1;
+		if(code < 0)
+			return 0;
+		int count = 0;
+		for(int ordinal = nextPresent(0); ordinal >= 0; ordinal = nextPresent(ordinal + 1)) {
+			if(codes[ordinal] == code)
+				count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Number of distinct values currently in the dictionary, used for testing.
+	 */
+	int getDictionarySize() {
+		return stringToCode.size();
+	}
+}
@@ -67,4 +67,10 @@ public class EquationSupport implements ColumnData {
 	public <T> Collection<T> getMatchingKeys(Object value, Class<T> type) {
 		return delegate.getMatchingKeys(value, type);
 	}
+
+	@Override
+	public void dispose() {
+		equations.clear();
+		delegate.dispose();
+	}
 }
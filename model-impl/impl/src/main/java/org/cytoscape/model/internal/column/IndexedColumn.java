@@ -0,0 +1,198 @@
+package org.cytoscape.model.internal.column;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cytoscape.model.CyRow;
+
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+
+/**
+ * Adds a value-to-keys secondary index to a column so that getMatchingRows(), getMatchingKeys()
+ * and countMatchingRows() don't have to scan the whole column.
+ * <br>
+ * The index is built the first time one of those methods is called and is then maintained by put() and remove().
+ * It is only softly referenced, if the garbage collector clears it under memory pressure it will
+ * be rebuilt by the next lookup.
+ */
+public class IndexedColumn implements ColumnData {
+
+	private final ColumnData delegate;
+	private volatile SoftReference<ValueIndex> indexRef = new SoftReference<>(null);
+
+	public IndexedColumn(ColumnData delegate) {
+		this.delegate = delegate;
+	}
+
+
+	private ValueIndex getIndex() {
+		ValueIndex index = indexRef.get();
+		if(index == null) {
+			// CyTableImpl allows concurrent readers, make sure only one of them builds the index
+			synchronized(this) {
+				index = indexRef.get();
+				if(index == null) {
+					index = new ValueIndex();
+					for(Object key : delegate.keySet()) {
+						Object value = delegate.get(key);
+						if(value != null) {
+							index.add(value, key);
+						}
+					}
+					indexRef = new SoftReference<>(index);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns true if the index is currently built, used for testing.
+	 */
+	boolean isIndexed() {
+		return indexRef.get() != null;
+	}
+
+	/**
+	 * Drops the index, it will be rebuilt on the next lookup.
+	 */
+	public void clearIndex() {
+		indexRef.clear();
+	}
+
+
+	@Override
+	public boolean put(Object key, Object value) {
+		ValueIndex index = indexRef.get();
+		if(index == null)
+			return delegate.put(key, value);
+
+		Object prev = delegate.get(key);
+		boolean changed = delegate.put(key, value);
+		if(changed) {
+			if(prev != null)
+				index.remove(prev, key);
+			// The delegate may convert the value (eg. canonicalize or unbox/rebox), so index what it actually stored.
+			Object stored = delegate.get(key);
+			if(stored != null)
+				index.add(stored, key);
+		}
+		return changed;
+	}
+
+	@Override
+	public boolean remove(Object key) {
+		ValueIndex index = indexRef.get();
+		if(index == null)
+			return delegate.remove(key);
+
+		Object prev = delegate.get(key);
+		boolean changed = delegate.remove(key);
+		if(changed && prev != null) {
+			index.remove(prev, key);
+		}
+		return changed;
+	}
+
+	@Override
+	public Object get(Object key) {
+		return delegate.get(key);
+	}
+
+	@Override
+	public Set<Object> keySet() {
+		return delegate.keySet();
+	}
+
+	@Override
+	public int countMatchingRows(Object value) {
+		return getIndex().count(value);
+	}
+
+	@Override
+	public Collection<CyRow> getMatchingRows(Map<Object, CyRow> rows, Object value) {
+		Collection<Object> keys = getIndex().keys(value);
+		List<CyRow> matchingRows = new ArrayList<>(keys.size());
+		for(Object key : keys) {
+			matchingRows.add(rows.get(key));
+		}
+		return matchingRows;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> Collection<T> getMatchingKeys(Object value, Class<T> type) {
+		return new ArrayList<>((Collection<T>)getIndex().keys(value));
+	}
+
+	@Override
+	public void dispose() {
+		clearIndex();
+		delegate.dispose();
+	}
+
+
+	/**
+	 * Maps each value to its key. Most columns have many unique values, so the key is stored
+	 * directly and only promoted to a KeySet when a second key with the same value is added.
+	 */
+	private static class ValueIndex {
+
+		private final Map<Object,Object> valueToKeys = new Object2ObjectOpenHashMap<>();
+
+		void add(Object value, Object key) {
+			Object keys = valueToKeys.get(value);
+			if(keys == null) {
+				valueToKeys.put(value, key);
+			} else if(keys instanceof KeySet) {
+				((KeySet)keys).add(key);
+			} else if(!keys.equals(key)) {
+				KeySet set = new KeySet();
+				set.add(keys);
+				set.add(key);
+				valueToKeys.put(value, set);
+			}
+		}
+
+		void remove(Object value, Object key) {
+			Object keys = valueToKeys.get(value);
+			if(keys instanceof KeySet) {
+				KeySet set = (KeySet) keys;
+				set.remove(key);
+				if(set.size() == 1)
+					valueToKeys.put(value, set.iterator().next());
+			} else if(keys != null && keys.equals(key)) {
+				valueToKeys.remove(value);
+			}
+		}
+
+		int count(Object value) {
+			Object keys = valueToKeys.get(value);
+			if(keys == null)
+				return 0;
+			if(keys instanceof KeySet)
+				return ((KeySet)keys).size();
+			return 1;
+		}
+
+		Collection<Object> keys(Object value) {
+			Object keys = valueToKeys.get(value);
+			if(keys == null)
+				return Collections.emptyList();
+			if(keys instanceof KeySet)
+				return (KeySet)keys;
+			return Collections.singletonList(keys);
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static class KeySet extends ObjectOpenHashSet<Object> {
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.cytoscape.model.internal.column;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * Maps the SUID keys of one table to dense row ordinals that are shared by all the
+ * {@link DenseColumn}s of the table, so the key lookup is only stored once per table.
+ * <br>
+ * Each ordinal is reference counted by the columns that have a value for it. When the count drops
+ * to zero (the row has no values left in any column) the ordinal is recycled.
+ * <br>
+ * Not thread safe, CyTableImpl synchronizes all access to its columns.
+ */
+class RowOrdinals {
+
+	private final Long2IntOpenHashMap keyToOrdinal;
+	private final IntArrayList freeOrdinals = new IntArrayList();
+	private long[] ordinalToKey;
+	private int[] refCounts;
+	private int capacity; // one past the highest ordinal ever assigned
+
+	RowOrdinals(int initSize) {
+		keyToOrdinal = new Long2IntOpenHashMap(initSize);
+		keyToOrdinal.defaultReturnValue(-1);
+		ordinalToKey = new long[0];
+		refCounts = new int[0];
+	}
+
+	/**
+	 * Returns the ordinal of the key, or -1 if the key has no values in any column.
+	 */
+	int get(long key) {
+		return keyToOrdinal.get(key);
+	}
+
+	/**
+	 * Returns the ordinal for the key, assigning a new one if required, and increments its reference count.
+	 */
+	int acquire(long key) {
+		int ordinal = keyToOrdinal.get(key);
+		if(ordinal < 0) {
+			if(freeOrdinals.isEmpty()) {
+				ordinal = capacity++;
+				if(ordinal >= ordinalToKey.length) {
+					int newLength = DenseColumn.grow(ordinalToKey.length, ordinal + 1);
+					ordinalToKey = Arrays.copyOf(ordinalToKey, newLength);
+					refCounts = Arrays.copyOf(refCounts, newLength);
+				}
+			} else {
+				ordinal = freeOrdinals.popInt();
+			}
+			keyToOrdinal.put(key, ordinal);
+			ordinalToKey[ordinal] = key;
+		}
+		refCounts[ordinal]++;
+		return ordinal;
+	}
+
+	/**
+	 * Decrements the reference count of the ordinal, the ordinal is recycled when it reaches zero.
+	 */
+	void release(int ordinal) {
+		if(--refCounts[ordinal] == 0) {
+			keyToOrdinal.remove(ordinalToKey[ordinal]);
+			freeOrdinals.add(ordinal);
+		}
+	}
+
+	long getKey(int ordinal) {
+		return ordinalToKey[ordinal];
+	}
+
+	/**
+	 * Columns must be able to store values for ordinals up to (but not including) this value.
+	 */
+	int capacity() {
+		return capacity;
+	}
+
+	int size() {
+		return keyToOrdinal.size();
+	}
+}
@@ -0,0 +1,189 @@
+package org.cytoscape.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.cytoscape.equations.EquationCompiler;
+import org.cytoscape.equations.Interpreter;
+import org.cytoscape.equations.internal.EquationCompilerImpl;
+import org.cytoscape.equations.internal.EquationParserImpl;
+import org.cytoscape.equations.internal.interpreter.InterpreterImpl;
+import org.cytoscape.event.DummyCyEventHelper;
+import org.cytoscape.model.internal.CyTableImpl;
+import org.cytoscape.model.internal.column.ColumnDataFactory;
+import org.cytoscape.service.util.CyServiceRegistrar;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads on CyTableImpl share a read lock, these tests make sure that concurrent readers and writers
+ * see consistent values, and that read throughput grows with the number of reader threads.
+ */
+public class CyTableConcurrencyTest {
+
+	private static final int ROWS = 10000;
+
+	private CyTable table;
+	private EquationCompiler compiler;
+	private Interpreter interpreter;
+
+	@Before
+	public void setUp() {
+		interpreter = new InterpreterImpl();
+		compiler = new EquationCompilerImpl(new EquationParserImpl(mock(CyServiceRegistrar.class)));
+		table = new CyTableImpl("test", CyIdentifiable.SUID, Long.class, false, true, SavePolicy.SESSION_FILE,
+				new DummyCyEventHelper(), ColumnDataFactory.createDefaultFactory(), interpreter, 1000);
+		table.createColumn("value", Integer.class, false);
+		table.createColumn("name", String.class, false);
+
+		for(long key = 0; key < ROWS; key++) {
+			CyRow row = table.getRow(key);
+			row.set("value", (int)key);
+			row.set("name", "n" + (key % 100));
+		}
+	}
+
+
+	@Test
+	public void testConcurrentReadersAndWriter() throws Exception {
+		int readers = Math.max(2, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+		AtomicBoolean done = new AtomicBoolean(false);
+		CountDownLatch start = new CountDownLatch(1);
+
+		List<Future<?>> futures = new ArrayList<>();
+		for(int t = 0; t < readers; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				while(!done.get()) {
+					for(long key = 0; key < ROWS; key += 7) {
+						CyRow row = table.getRow(key);
+						Integer value = row.get("value", Integer.class);
+						// the writer only ever sets value to key or -key
+						assertTrue(value == key || value == -key);
+						assertTrue(row.isSet("name"));
+					}
+					assertEquals(ROWS / 100, table.countMatchingRows("name", "n42"));
+				}
+				return null;
+			}));
+		}
+
+		futures.add(executor.submit(() -> {
+			start.await();
+			for(int i = 0; i < 5; i++) {
+				for(long key = 0; key < ROWS; key++) {
+					int value = table.getRow(key).get("value", Integer.class);
+					table.getRow(key).set("value", -value);
+				}
+			}
+			done.set(true);
+			return null;
+		}));
+
+		start.countDown();
+		for(Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS); // rethrows assertion failures
+		}
+		executor.shutdown();
+
+		for(long key = 0; key < ROWS; key++) {
+			assertEquals(Integer.valueOf((int)-key), table.getRow(key).get("value", Integer.class));
+		}
+	}
+
+
+	@Test
+	public void testConcurrentEquationEvaluation() throws Exception {
+		// The interpreter is not thread safe, equation evaluation must still be serialized
+		table.createColumn("x", Double.class, false);
+		table.createColumn("doubled", Double.class, false);
+		Map<String,Class<?>> variableTypes = new HashMap<>();
+		variableTypes.put("x", Double.class);
+		assertTrue(compiler.compile("=$x*2", variableTypes));
+		for(long key = 0; key < ROWS; key++) {
+			table.getRow(key).set("x", (double)key);
+			table.getRow(key).set("doubled", compiler.getEquation());
+		}
+
+		int readers = Math.max(2, Runtime.getRuntime().availableProcessors());
+		ExecutorService executor = Executors.newFixedThreadPool(readers);
+		List<Future<?>> futures = new ArrayList<>();
+		for(int t = 0; t < readers; t++) {
+			futures.add(executor.submit(() -> {
+				for(long key = 0; key < ROWS; key++) {
+					assertEquals(Double.valueOf(key * 2), table.getRow(key).get("doubled", Double.class));
+				}
+				return null;
+			}));
+		}
+		for(Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+	}
+
+
+	/**
+	 * Compares the read throughput of one thread with that of several. With a single monitor the
+	 * throughput stays flat or drops, with the read lock it should grow with the number of cores.
+	 * The bound is kept loose, so that a loaded build machine does not fail it.
+	 */
+	@Test
+	public void testReadThroughputScales() throws Exception {
+		int threads = Math.min(4, Runtime.getRuntime().availableProcessors());
+		assumeTrue("needs more than one core", threads > 1);
+
+		readThroughput(1, 200); // warm up
+		long single = readThroughput(1, 500);
+		long parallel = readThroughput(threads, 500);
+		assertTrue(String.format("%d threads read %,d/s, 1 thread %,d/s", threads, parallel, single),
+				parallel > single * 1.2);
+	}
+
+	/**
+	 * Reads all the rows over and over on the given number of threads.
+	 * @return the number of values read per second
+	 */
+	private long readThroughput(int threads, long millis) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Long>> futures = new ArrayList<>();
+		for(int t = 0; t < threads; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+				long reads = 0;
+				while(System.nanoTime() < deadline) {
+					for(long key = 0; key < ROWS; key++) {
+						CyRow row = table.getRow(key);
+						row.get("value", Integer.class);
+						row.get("name", String.class);
+						reads += 2;
+					}
+				}
+				return reads;
+			}));
+		}
+		start.countDown();
+		long total = 0;
+		for(Future<Long> future : futures) {
+			total += future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		return total * 1000 / millis;
+	}
+}
@@ -0,0 +1,170 @@
+package org.cytoscape.model.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopologySnapshotTest {
+
+	private CySubNetworkImpl network;
+
+	@Before
+	public void setUp() {
+		CyNetwork net = new NetworkTestSupport().getNetwork();
+		network = (CySubNetworkImpl) net;
+	}
+
+
+	@Test
+	public void testSnapshotMatchesAdjacencyLists() {
+		Random random = new Random(42);
+		List<CyNode> nodes = new ArrayList<>();
+		for(int i = 0; i < 50; i++)
+			nodes.add(network.addNode());
+		for(int i = 0; i < 200; i++) {
+			CyNode s = nodes.get(random.nextInt(nodes.size()));
+			CyNode t = nodes.get(random.nextInt(nodes.size()));
+			boolean directed = random.nextBoolean();
+			// SimpleNetwork does not count undirected self-loops consistently, leave them out
+			if(s == t)
+				directed = true;
+			network.addEdge(s, t, directed);
+		}
+		network.removeNodes(nodes.subList(0, 5));
+
+		assertSnapshot(network, network.getTopologySnapshot());
+
+		// nodes removed from the sub-network are still in the root network
+		CyRootNetworkImpl root = (CyRootNetworkImpl) network.getRootNetwork();
+		assertEquals(50, root.getTopologySnapshot().getNodeCount());
+		assertSnapshot(root, root.getTopologySnapshot());
+	}
+
+	private void assertSnapshot(SimpleNetwork net, TopologySnapshot snapshot) {
+		assertEquals(net.getNodeCount(), snapshot.getNodeCount());
+		assertEquals(net.getEdgeCount(), snapshot.getEdgeCount());
+
+		for(CyNode node : net.getNodeList()) {
+			int n = snapshot.getNodeIndex(node);
+			assertSame(node, snapshot.getNode(n));
+
+			for(CyEdge.Type type : CyEdge.Type.values()) {
+				// the adjacency lists may themselves be read from the snapshot, compare with the edge list
+				Set<CyEdge> expected = new HashSet<>();
+				Set<CyNode> expectedNeighbors = new HashSet<>();
+				for(CyEdge edge : net.getEdgeList()) {
+					if(isAdjacent(node, edge, type)) {
+						expected.add(edge);
+						expectedNeighbors.add(edge.getSource() == node ? edge.getTarget() : edge.getSource());
+					}
+				}
+				assertEquals(type.toString(), expected.size(), snapshot.getDegree(n, type));
+
+				Set<CyEdge> actual = new HashSet<>();
+				for(int e : snapshot.getAdjacentEdges(n, type))
+					actual.add(snapshot.getEdge(e));
+				assertEquals(type.toString(), expected, actual);
+
+				Set<CyNode> actualNeighbors = new HashSet<>();
+				for(int neighbor : snapshot.getNeighbors(n, type))
+					actualNeighbors.add(snapshot.getNode(neighbor));
+				assertEquals(type.toString(), expectedNeighbors, actualNeighbors);
+
+				List<CyEdge> adjacent = net.getAdjacentEdgeList(node, type);
+				assertEquals(type.toString(), expected.size(), adjacent.size());
+				assertEquals(type.toString(), expected, new HashSet<>(adjacent));
+				assertEquals(type.toString(), expectedNeighbors, new HashSet<>(net.getNeighborList(node, type)));
+			}
+		}
+
+		for(CyEdge edge : net.getEdgeList()) {
+			int e = snapshot.getEdgeIndex(edge);
+			assertSame(edge, snapshot.getEdge(e));
+			assertSame(edge.getSource(), snapshot.getNode(snapshot.getSource(e)));
+			assertSame(edge.getTarget(), snapshot.getNode(snapshot.getTarget(e)));
+			assertEquals(edge.isDirected(), snapshot.isDirected(e));
+		}
+	}
+
+	private static boolean isAdjacent(CyNode node, CyEdge edge, CyEdge.Type type) {
+		boolean source = edge.getSource() == node;
+		boolean target = edge.getTarget() == node;
+		switch(type) {
+			case UNDIRECTED: return !edge.isDirected() && (source || target);
+			case DIRECTED:   return edge.isDirected() && (source || target);
+			case OUTGOING:   return edge.isDirected() && source;
+			case INCOMING:   return edge.isDirected() && target;
+			default:         return source || target;
+		}
+	}
+
+	@Test
+	public void testAdjacencyReadsSwitchToSnapshot() {
+		Random random = new Random(7);
+		List<CyNode> nodes = new ArrayList<>();
+		for(int i = 0; i < 10; i++)
+			nodes.add(network.addNode());
+		for(int i = 0; i < 20; i++)
+			network.addEdge(nodes.get(random.nextInt(10)), nodes.get(random.nextInt(10)), true);
+
+		// fewer reads than nodes plus edges walk the linked lists under the lock
+		List<Set<CyEdge>> locked = new ArrayList<>();
+		for(CyNode node : nodes)
+			locked.add(new HashSet<>(network.getAdjacentEdgeList(node, CyEdge.Type.ANY)));
+
+		// enough reads for the snapshot to be built, the answers must not change
+		for(int pass = 0; pass < 5; pass++) {
+			for(int i = 0; i < nodes.size(); i++) {
+				List<CyEdge> adjacent = network.getAdjacentEdgeList(nodes.get(i), CyEdge.Type.ANY);
+				assertEquals(locked.get(i).size(), adjacent.size());
+				assertEquals(locked.get(i), new HashSet<>(adjacent));
+				Set<CyEdge> iterated = new HashSet<>();
+				for(CyEdge edge : network.getAdjacentEdgeIterable(nodes.get(i), CyEdge.Type.ANY))
+					iterated.add(edge);
+				assertEquals(locked.get(i), iterated);
+			}
+		}
+
+		// a change is seen by the next read
+		CyEdge edge = network.addEdge(nodes.get(0), nodes.get(1), false);
+		assertTrue(network.getAdjacentEdgeList(nodes.get(0), CyEdge.Type.UNDIRECTED).contains(edge));
+		assertTrue(network.getNeighborList(nodes.get(1), CyEdge.Type.UNDIRECTED).contains(nodes.get(0)));
+		network.removeEdges(List.of(edge));
+		assertEquals(0, network.getAdjacentEdgeList(nodes.get(0), CyEdge.Type.UNDIRECTED).size());
+		assertEquals(0, network.getAdjacentEdgeList(network.addNode(), CyEdge.Type.ANY).size());
+	}
+
+	@Test
+	public void testSnapshotIsCachedUntilModified() {
+		CyNode n1 = network.addNode();
+		CyNode n2 = network.addNode();
+		TopologySnapshot snapshot = network.getTopologySnapshot();
+		assertSame(snapshot, network.getTopologySnapshot());
+		assertEquals(0, snapshot.getEdgeCount());
+
+		CyEdge edge = network.addEdge(n1, n2, true);
+		TopologySnapshot modified = network.getTopologySnapshot();
+		assertNotSame(snapshot, modified);
+		assertEquals(-1, snapshot.getEdgeIndex(edge));
+		assertEquals(1, modified.getDegree(modified.getNodeIndex(n1), CyEdge.Type.OUTGOING));
+		assertEquals(0, modified.getDegree(modified.getNodeIndex(n1), CyEdge.Type.INCOMING));
+		assertEquals(1, modified.getDegree(modified.getNodeIndex(n2), CyEdge.Type.INCOMING));
+
+		network.removeEdges(List.of(edge));
+		assertEquals(0, network.getTopologySnapshot().getEdgeCount());
+	}
+}
@@ -1,17 +1,25 @@
 package org.cytoscape.model.internal.column;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 
 import org.cytoscape.equations.Equation;
+import org.cytoscape.model.CyRow;
 import org.junit.Test;
 
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
 public class ColumnDataTest {
 
 	private static Equation createEquation(String name) {
@@ -135,6 +143,157 @@ public class ColumnDataTest {
 	}
 	
 	
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void testIndexedColumn() {
+		IndexedColumn columnData = new IndexedColumn(new MapColumn((Map)new Long2IntOpenHashMap()));
+		
+		columnData.put(1l, 10);
+		columnData.put(2l, 20);
+		columnData.put(3l, 10);
+		
+		// index is built lazily on the first lookup
+		assertFalse(columnData.isIndexed());
+		assertEquals(2, columnData.countMatchingRows(10));
+		assertTrue(columnData.isIndexed());
+		assertEquals(1, columnData.countMatchingRows(20));
+		assertEquals(0, columnData.countMatchingRows(30));
+		assertEquals(0, columnData.countMatchingRows(null));
+		
+		// index is maintained by put() and remove()
+		columnData.put(2l, 10);
+		columnData.put(4l, 30);
+		columnData.remove(1l);
+		assertEquals(2, columnData.countMatchingRows(10));
+		assertEquals(0, columnData.countMatchingRows(20));
+		assertEquals(1, columnData.countMatchingRows(30));
+		
+		Collection<Long> keys = columnData.getMatchingKeys(10, Long.class);
+		assertEquals(new HashSet<>(Arrays.asList(2l, 3l)), new HashSet<>(keys));
+		
+		columnData.put(3l, null);
+		assertEquals(Arrays.asList(2l), new ArrayList<>(columnData.getMatchingKeys(10, Long.class)));
+		
+		Map<Object,CyRow> rows = new HashMap<>();
+		CyRow row2 = mock(CyRow.class);
+		rows.put(2l, row2);
+		assertEquals(Arrays.asList(row2), new ArrayList<>(columnData.getMatchingRows(rows, 10)));
+		
+		// dropping the index (eg. under memory pressure) is transparent
+		columnData.clearIndex();
+		assertFalse(columnData.isIndexed());
+		assertEquals(1, columnData.countMatchingRows(10));
+		assertEquals(1, columnData.countMatchingRows(30));
+	}
+	
+	
+	@Test
+	public void testDenseColumnsShareRowOrdinals() {
+		ColumnDataFactory factory = new ColumnDataFactoryColumnar().createTableFactory();
+		ColumnData intColumn = factory.create(Long.class, Integer.class, null, 10);
+		ColumnData doubleColumn = factory.create(Long.class, Double.class, null, 10);
+		ColumnData boolColumn = factory.create(Long.class, Boolean.class, null, 10);
+		
+		for(long key = 1; key <= 100; key++) {
+			intColumn.put(key, (int)key);
+			doubleColumn.put(key, key / 2.0);
+			boolColumn.put(key, key % 2 == 0);
+		}
+		
+		assertEquals(100, intColumn.keySet().size());
+		assertEquals(42, intColumn.get(42l));
+		assertEquals(21.0, doubleColumn.get(42l));
+		assertEquals(true, boolColumn.get(42l));
+		assertEquals(false, boolColumn.get(43l));
+		assertNull(intColumn.get(101l));
+		assertNull(intColumn.get("not a long"));
+		
+		assertFalse(intColumn.put(42l, 42));
+		assertTrue(intColumn.put(42l, 7));
+		assertEquals(2, intColumn.countMatchingRows(7));
+		assertEquals(50, boolColumn.countMatchingRows(true));
+		
+		// the row ordinal is recycled only once the row is gone from every column
+		intColumn.remove(50l);
+		doubleColumn.remove(50l);
+		assertTrue(boolColumn.keySet().contains(50l));
+		assertEquals(true, boolColumn.get(50l));
+		boolColumn.remove(50l);
+		assertNull(boolColumn.get(50l));
+		
+		intColumn.put(1000l, 1000);
+		assertEquals(1000, intColumn.get(1000l));
+		assertNull(doubleColumn.get(1000l));
+		assertNull(boolColumn.get(1000l));
+		assertEquals(100, intColumn.keySet().size());
+		assertTrue(intColumn.keySet().contains(1000l));
+		assertFalse(intColumn.keySet().contains(50l));
+		
+		// equations are stored on the side
+		Equation equation = createEquation("TestEquation");
+		doubleColumn.put(10l, equation);
+		assertSame(equation, doubleColumn.get(10l));
+		doubleColumn.put(10l, 1.5);
+		assertEquals(1.5, doubleColumn.get(10l));
+	}
+	
+	
+	@Test
+	public void testDisposeReleasesRowOrdinals() {
+		RowOrdinals ordinals = new RowOrdinals(10);
+		ColumnData keyColumn = new IndexedColumn(new DenseLongColumn(ordinals));
+		ColumnData deletedColumn = new EquationSupport(new IndexedColumn(new DenseStringColumn(ordinals, new CanonicalStringPool())));
+		
+		for(long key = 1; key <= 100; key++) {
+			keyColumn.put(key, key);
+			deletedColumn.put(key, "value " + key);
+		}
+		deletedColumn.put(101l, createEquation("TestEquation"));
+		assertEquals(100, ordinals.size());
+		
+		// the deleted column no longer keeps the rows alive
+		deletedColumn.dispose();
+		for(long key = 1; key <= 100; key++) {
+			keyColumn.remove(key);
+		}
+		assertEquals(0, ordinals.size());
+		assertEquals(0, deletedColumn.keySet().size());
+		
+		// and the ordinals are recycled
+		for(long key = 201; key <= 300; key++) {
+			keyColumn.put(key, key);
+		}
+		assertEquals(100, ordinals.size());
+		assertEquals(100, ordinals.capacity());
+	}
+	
 	
+	@Test
+	public void testDenseStringColumn() {
+		CanonicalStringPool stringPool = new CanonicalStringPool();
+		DenseStringColumn columnData = new DenseStringColumn(new RowOrdinals(10), stringPool);
+		
+		String a = new String("apple");
+		columnData.put(1l, a);
+		columnData.put(2l, new String("apple"));
+		columnData.put(3l, "banana");
+		
+		assertSame(a, columnData.get(1l));
+		assertSame(a, columnData.get(2l));
+		assertEquals(2, columnData.getDictionarySize());
+		assertEquals(2, columnData.countMatchingRows("apple"));
+		assertEquals(0, columnData.countMatchingRows("carrot"));
+		assertEquals(new HashSet<>(Arrays.asList(1l, 2l)), new HashSet<>(columnData.getMatchingKeys("apple", Long.class)));
+		
+		assertFalse(columnData.put(3l, "banana"));
+		assertTrue(columnData.put(3l, "apple"));
+		assertEquals(1, columnData.getDictionarySize());
+		
+		columnData.remove(1l);
+		columnData.remove(2l);
+		columnData.remove(3l);
+		assertEquals(0, columnData.getDictionarySize());
+		assertEquals(0, columnData.keySet().size());
+	}
 	
 }
@@ -1,6 +1,6 @@
 package org.cytoscape.search.internal;
 
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.Directory;
 
 /*
  * #%L
@@ -27,6 +27,9 @@ import org.apache.lucene.store.RAMDirectory;
  */
 
 
+import java.util.Collection;
+
+import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
 
 public interface EnhancedSearch {
@@ -54,7 +57,7 @@ public interface EnhancedSearch {
 	 * @param network        CyNetwork object
 	 * @return               the index for this network
 	 */
-	RAMDirectory getNetworkIndex(CyNetwork network);
+	Directory getNetworkIndex(CyNetwork network);
 
 	/**
 	 * Gets the indexing status of a specified network.
@@ -70,7 +73,7 @@ public interface EnhancedSearch {
 	 * @param network        CyNetwork object
 	 * @param index          the index that suits this network
 	 */
-	void setNetworkIndex(CyNetwork network, RAMDirectory index);
+	void setNetworkIndex(CyNetwork network, Directory index);
 
 	/**
 	 * Sets the indexing status of the specified network.
@@ -80,4 +83,15 @@ public interface EnhancedSearch {
 	 */
 	void setNetworkIndexStatus(CyNetwork network, Status status);
 
+	/**
+	 * Adds or replaces the documents of the given nodes and edges and deletes the documents
+	 * of the given SUIDs in the index of the specified network. Does nothing if the network has
+	 * no index yet or is waiting to be re-indexed.
+	 * 
+	 * @param network        CyNetwork object
+	 * @param updated        nodes and edges that were added or whose attributes changed
+	 * @param deleted        SUIDs of nodes and edges that were removed
+	 */
+	void updateNetworkIndex(CyNetwork network, Collection<? extends CyIdentifiable> updated, Collection<Long> deleted);
+
 }
@@ -26,30 +26,55 @@ package org.cytoscape.search.internal;
 
 
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.NumericField;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.RAMDirectory;
-import org.cytoscape.model.CyEdge;
+import org.cytoscape.application.CyUserLog;
 import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
-import org.cytoscape.model.CyNode;
 import org.cytoscape.model.CyRow;
 import org.cytoscape.model.CyTable;
 import org.cytoscape.model.CyTableUtil;
 import org.cytoscape.search.internal.util.CaseInsensitiveWhitespaceAnalyzer;
 import org.cytoscape.work.TaskMonitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 public class EnhancedSearchIndex implements Callable {
-	private static final int PROGRESS_UPDATE_INTERVAL = 10000;
+	private static final long PROGRESS_UPDATE_MILLIS = 500;
+	private static final double RAM_BUFFER_SIZE_MB = 64;
+	
+	private static final Logger logger = LoggerFactory.getLogger(CyUserLog.NAME);
+	
+	/**
+	 * If this system property names a directory the indexes are written below it and memory-mapped,
+	 * instead of being kept on the Java heap. This only moves the indexes off the heap, they are not
+	 * reopened when a session is loaded again: the SUIDs of the nodes and edges are reassigned by every
+	 * session load, so each network gets a new directory that is deleted with its index.
+	 */
+	public static final String INDEX_DIR_PROPERTY = "cytoscape.search.indexDir";
+	
 	private CyNetwork network;
 	private TaskMonitor taskMonitor;
 	protected EnhancedSearchIndex(CyNetwork network, TaskMonitor taskMonitor) {
@@ -61,58 +86,114 @@ public class EnhancedSearchIndex implements Callable {
 	 * Lets search be called from an ExecutorService
 	 */
 	@Override
-	public RAMDirectory call() throws Exception {
-		RAMDirectory idx = EnhancedSearchIndex.buildIndex(this.network, this.taskMonitor);
+	public Directory call() throws Exception {
+		Directory idx = EnhancedSearchIndex.buildIndex(this.network, this.taskMonitor);
 		return idx;
 	}
 	
+	/**
+	 * Creates an empty directory for the index of the given network, memory-mapped on disk
+	 * if {@link #INDEX_DIR_PROPERTY} is set, in the heap otherwise.
+	 */
+	static Directory createDirectory(CyNetwork network) throws IOException {
+		String root = System.getProperty(INDEX_DIR_PROPERTY);
+		if (root == null || root.isEmpty())
+			return new RAMDirectory();
+		
+		File rootDir = new File(root);
+		Files.createDirectories(rootDir.toPath());
+		File dir = Files.createTempDirectory(rootDir.toPath(), "network-" + network.getSUID() + "-").toFile();
+		return new MMapDirectory(dir);
+	}
 
-	public static RAMDirectory buildIndex(CyNetwork network, TaskMonitor taskMonitor) {
+	public static Directory buildIndex(CyNetwork network, TaskMonitor taskMonitor) {
 		if(network == null)
 			throw new NullPointerException("Network is null.");
+		Directory idx = null;
+		boolean built = false;
 		try {
-			RAMDirectory idx = new RAMDirectory();
+			idx = createDirectory(network);
 			// Make a writer to create the index
 			Analyzer analyzer = new CaseInsensitiveWhitespaceAnalyzer();
-			IndexWriter writer = new IndexWriter(idx, analyzer, IndexWriter.MaxFieldLength.UNLIMITED);
+			IndexWriter writer = new IndexWriter(idx, analyzer, true, IndexWriter.MaxFieldLength.UNLIMITED);
+
+			writer.setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB);
 
 			// Add a document for each graph object - node and edge
-			List<CyNode> nodeList = network.getNodeList();
-			List<CyEdge> edgeList = network.getEdgeList();
-			int totalElements = nodeList.size() + edgeList.size();
-			int counter = 0;
+			int totalElements = network.getNodeCount() + network.getEdgeCount();
 			taskMonitor.setProgress(0.0);
 			
-			for (CyNode cyNode : nodeList) {
-				writer.addDocument(createDocument(network, cyNode, EnhancedSearch.NODE_TYPE, cyNode.getSUID()));
-				counter += 1;
-				if (counter % PROGRESS_UPDATE_INTERVAL == 0) {
-					taskMonitor.setProgress(updateProgress(counter, totalElements));
-				}
-			}
-		
-			for (CyEdge cyEdge : edgeList) {
-				writer.addDocument(createDocument(network, cyEdge, EnhancedSearch.EDGE_TYPE, cyEdge.getSUID()));
-				counter += 1;
-				if (counter % PROGRESS_UPDATE_INTERVAL == 0) {
-					taskMonitor.setProgress(updateProgress(counter, totalElements));
+			final int threads = Runtime.getRuntime().availableProcessors();
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				ParallelIndexer indexer = new ParallelIndexer(network, writer, executor, threads);
+				List<Future<?>> futures = new ArrayList<>();
+				indexer.submit(network.getDefaultNodeTable(), EnhancedSearch.NODE_TYPE, futures);
+				indexer.submit(network.getDefaultEdgeTable(), EnhancedSearch.EDGE_TYPE, futures);
+				
+				for (Future<?> future : futures) {
+					while (true) {
+						try {
+							future.get(PROGRESS_UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+							break;
+						} catch (TimeoutException te) {
+							taskMonitor.setProgress(updateProgress(indexer.getIndexedCount(), totalElements));
+						}
+					}
 				}
+			} catch (InterruptedException ie) {
+				// the indexing task was cancelled
+				writer.rollback();
+				Thread.currentThread().interrupt();
+				return null;
+			} catch (ExecutionException ee) {
+				writer.rollback();
+				if (ee.getCause() instanceof IOException)
+					throw (IOException) ee.getCause();
+				throw new RuntimeException(ee.getCause());
+			} finally {
+				executor.shutdownNow();
 			}
-			taskMonitor.setStatusMessage("Optimizing index");
-			taskMonitor.setProgress(0.5);
-			// Optimize and close the writer to finish building the index
-			writer.optimize();
+			
+			// Close the writer to finish building the index. The index is updated incrementally
+			// afterwards, so there is no point in optimizing it down to a single segment.
 			writer.close();
 
+			built = true;
 			return idx;
 		} catch (IOException ioe) {
 			ioe.printStackTrace();
 			return null;
 		} finally {
+			// a cancelled or failed build must not leave its files behind
+			if (!built)
+				dispose(idx);
 			taskMonitor.setProgress(0.95);
 		}
 	}
 	
+	/**
+	 * Closes the directory and, if it is on disk, deletes its files.
+	 */
+	static void dispose(Directory idx) {
+		if (idx == null)
+			return;
+		try {
+			idx.close();
+		} catch (IOException ioe) {
+			logger.debug("Unable to close search index", ioe);
+		}
+		if (idx instanceof FSDirectory) {
+			final File dir = ((FSDirectory) idx).getFile();
+			final File[] files = dir.listFiles();
+			if (files != null) {
+				for (File file : files)
+					file.delete();
+			}
+			dir.delete();
+		}
+	}
+	
 	/**
 	 * Generates a percent complete by dividing {@code processedElementCount} by
 	 * {@code totalElements} 
@@ -131,7 +212,7 @@ public class EnhancedSearchIndex implements Callable {
 	 * Make a Document object with an un-indexed identifier field and indexed
 	 * attribute fields
 	 */
-	private static Document createDocument(CyNetwork network, CyIdentifiable graphObject, String graphObjectType, long index) {
+	static Document createDocument(CyNetwork network, CyIdentifiable graphObject, String graphObjectType, long index) {
 		Document doc = new Document();
 		String identifier = Long.toString(index);
 		
@@ -151,13 +232,13 @@ public class EnhancedSearchIndex implements Callable {
 			Class<?> valueType = cyDataTable.getColumn(attrName).getType();
 			
 			if (valueType == String.class) {
-				String attrValue = network.getRow(graphObject).get(attrName, String.class);
+				String attrValue = cyRow.get(attrName, String.class);
 				if (attrValue == null){
 					continue;
 				}				
 				doc.add(new Field(attrIndexingName, attrValue, Field.Store.YES, Field.Index.ANALYZED));
 			} else if (valueType == Integer.class) {
-				Integer attrValue = network.getRow(graphObject).get(attrName, Integer.class);
+				Integer attrValue = cyRow.get(attrName, Integer.class);
 				if (attrValue == null){
 					continue;
 				}
@@ -165,7 +246,7 @@ public class EnhancedSearchIndex implements Callable {
 				field.setIntValue(attrValue);
 				doc.add(field);
 			} else if (valueType == Long.class) {
-				Long attrValue = network.getRow(graphObject).get(attrName, Long.class);
+				Long attrValue = cyRow.get(attrName, Long.class);
 				if(attrValue == null) {
 					continue;
 				}
@@ -173,7 +254,7 @@ public class EnhancedSearchIndex implements Callable {
 				field.setLongValue(attrValue);
 				doc.add(field);
 			} else if (valueType == Double.class) {	
-				Double attrValue = network.getRow(graphObject).get(attrName, Double.class);
+				Double attrValue = cyRow.get(attrName, Double.class);
 				if(attrValue == null){
 					continue;
 				}
@@ -181,12 +262,12 @@ public class EnhancedSearchIndex implements Callable {
 				field.setDoubleValue(attrValue);
 				doc.add(field);
 			} else if (valueType == Boolean.class) {
-				Boolean attrValue = network.getRow(graphObject).get(attrName, Boolean.class);
+				Boolean attrValue = cyRow.get(attrName, Boolean.class);
 				if (attrValue != null){
 					doc.add(new Field(attrIndexingName, attrValue.toString(), Field.Store.YES, Field.Index.ANALYZED));					
 				}
 			} else if (valueType == List.class) {
-				List<?> attrValueList = network.getRow(graphObject).get(attrName, List.class);
+				List<?> attrValueList = cyRow.get(attrName, List.class);
 				if (attrValueList != null) {
 					for (int j = 0; j < attrValueList.size(); j++) {
 						String attrValue = attrValueList.get(j).toString();
@@ -25,18 +25,46 @@ package org.cytoscape.search.internal;
  */
 
 
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.cytoscape.application.CyUserLog;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.search.internal.util.CaseInsensitiveWhitespaceAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class EnhancedSearchManager implements EnhancedSearch {
+	
+	private static final Logger logger = LoggerFactory.getLogger(CyUserLog.NAME);
+	
+	/**
+	 * Incremental updates that touch more than this fraction of a network's nodes and edges
+	 * are not applied, the network is re-indexed from scratch by the next search instead.
+	 */
+	private static final double MAX_UPDATE_FRACTION = 0.5;
+	
 	// Keeps the index for each network
-	private Map<CyNetwork,RAMDirectory> networkIndexMap = new HashMap<>();
+	private Map<CyNetwork,Directory> networkIndexMap = new HashMap<>();
 
 	// Keeps indexing status of each network
 	private Map<CyNetwork,Status> networkIndexStatusMap = new HashMap<>();
+	
+	// SUIDs of nodes and edges that are about to be removed, deleted from the index once the removal is done
+	private Map<CyNetwork,Set<Long>> pendingDeletes = new HashMap<>();
 
 	public EnhancedSearchManager(){
 		
@@ -49,8 +77,9 @@ public class EnhancedSearchManager implements EnhancedSearch {
 	 * @param network        CyNetwork object
 	 */
 	public synchronized void removeNetworkIndex(CyNetwork network) {
-		networkIndexMap.remove(network);
+		EnhancedSearchIndex.dispose(networkIndexMap.remove(network));
 		networkIndexStatusMap.remove(network);
+		pendingDeletes.remove(network);
 	}
 
 	/**
@@ -59,7 +88,7 @@ public class EnhancedSearchManager implements EnhancedSearch {
 	 * @param network        CyNetwork object
 	 * @return               the index for this network
 	 */
-	public synchronized RAMDirectory getNetworkIndex(CyNetwork network) {
+	public synchronized Directory getNetworkIndex(CyNetwork network) {
 		return networkIndexMap.get(network);
 	}
 
@@ -79,8 +108,10 @@ public class EnhancedSearchManager implements EnhancedSearch {
 	 * @param network        CyNetwork object
 	 * @param index          the index that suits this network
 	 */
-	public synchronized void setNetworkIndex(CyNetwork network, RAMDirectory index) {
-		networkIndexMap.put(network, index);
+	public synchronized void setNetworkIndex(CyNetwork network, Directory index) {
+		Directory old = networkIndexMap.put(network, index);
+		if (old != index)
+			EnhancedSearchIndex.dispose(old);
 		networkIndexStatusMap.put(network, Status.INDEX_SET);
 	}
 
@@ -98,11 +129,79 @@ public class EnhancedSearchManager implements EnhancedSearch {
 		}
 	}	
 
+	/**
+	 * Returns the networks that currently have an index.
+	 */
+	public synchronized List<CyNetwork> getIndexedNetworks() {
+		return new ArrayList<>(networkIndexMap.keySet());
+	}
+
+	@Override
+	public synchronized void updateNetworkIndex(CyNetwork network, Collection<? extends CyIdentifiable> updated, Collection<Long> deleted) {
+		final Directory idx = networkIndexMap.get(network);
+		if (idx == null || networkIndexStatusMap.get(network) != Status.INDEX_SET)
+			return;
+		if (updated.isEmpty() && deleted.isEmpty())
+			return;
+		
+		// For large changes it is cheaper to build a new index than to replace most of the documents one by one
+		final int total = network.getNodeCount() + network.getEdgeCount();
+		if (updated.size() + deleted.size() > total * MAX_UPDATE_FRACTION) {
+			networkIndexStatusMap.put(network, Status.REINDEX);
+			return;
+		}
+		
+		try {
+			final IndexWriter writer = new IndexWriter(idx, new CaseInsensitiveWhitespaceAnalyzer(), false, IndexWriter.MaxFieldLength.UNLIMITED);
+			try {
+				for (Long suid : deleted)
+					writer.deleteDocuments(new Term(EnhancedSearch.INDEX_FIELD, suid.toString()));
+				
+				for (CyIdentifiable graphObject : updated) {
+					final String type;
+					if (graphObject instanceof CyNode && network.containsNode((CyNode) graphObject))
+						type = EnhancedSearch.NODE_TYPE;
+					else if (graphObject instanceof CyEdge && network.containsEdge((CyEdge) graphObject))
+						type = EnhancedSearch.EDGE_TYPE;
+					else
+						continue;
+					
+					final long suid = graphObject.getSUID();
+					writer.updateDocument(new Term(EnhancedSearch.INDEX_FIELD, Long.toString(suid)),
+							EnhancedSearchIndex.createDocument(network, graphObject, type, suid));
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException ioe) {
+			logger.warn("Unable to update the search index, the network will be re-indexed", ioe);
+			networkIndexStatusMap.put(network, Status.REINDEX);
+		}
+	}
+
+	/**
+	 * Remembers nodes and edges that are about to be removed from the network, their documents are
+	 * deleted by {@link #flushPendingDeletes(CyNetwork)} once the removal has happened.
+	 */
+	public synchronized void addPendingDeletes(CyNetwork network, Collection<Long> suids) {
+		if (!networkIndexMap.containsKey(network))
+			return;
+		pendingDeletes.computeIfAbsent(network, n -> new HashSet<>()).addAll(suids);
+	}
+
+	public synchronized void flushPendingDeletes(CyNetwork network) {
+		final Set<Long> suids = pendingDeletes.remove(network);
+		if (suids != null)
+			updateNetworkIndex(network, new ArrayList<CyIdentifiable>(), suids);
+	}
+
 	/**
 	 * Set the state of the Manger to its original 
 	 */
-	public void clear(){
+	public synchronized void clear(){
+		networkIndexMap.values().forEach(EnhancedSearchIndex::dispose);
 		networkIndexMap.clear();
 		networkIndexStatusMap.clear();
+		pendingDeletes.clear();
 	}
 }
@@ -25,11 +25,29 @@ package org.cytoscape.search.internal;
  */
 
 import java.awt.Component;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.cytoscape.application.events.SetCurrentNetworkViewEvent;
 import org.cytoscape.application.events.SetCurrentNetworkViewListener;
 import org.cytoscape.application.swing.AbstractToolBarComponent;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyIdentifiable;
 import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.events.AboutToRemoveEdgesEvent;
+import org.cytoscape.model.events.AboutToRemoveEdgesListener;
+import org.cytoscape.model.events.AboutToRemoveNodesEvent;
+import org.cytoscape.model.events.AboutToRemoveNodesListener;
+import org.cytoscape.model.events.AddedEdgesEvent;
+import org.cytoscape.model.events.AddedEdgesListener;
+import org.cytoscape.model.events.AddedNodesEvent;
+import org.cytoscape.model.events.AddedNodesListener;
 import org.cytoscape.model.events.ColumnDeletedEvent;
 import org.cytoscape.model.events.ColumnDeletedListener;
 import org.cytoscape.model.events.ColumnNameChangedEvent;
@@ -40,6 +58,7 @@ import org.cytoscape.model.events.RemovedEdgesEvent;
 import org.cytoscape.model.events.RemovedEdgesListener;
 import org.cytoscape.model.events.RemovedNodesEvent;
 import org.cytoscape.model.events.RemovedNodesListener;
+import org.cytoscape.model.events.RowSetRecord;
 import org.cytoscape.model.events.RowsSetEvent;
 import org.cytoscape.model.events.RowsSetListener;
 import org.cytoscape.search.internal.ui.EnhancedSearchPanel;
@@ -51,7 +70,8 @@ import org.cytoscape.session.events.SessionLoadedListener;
 public class EnhancedSearchPlugin extends AbstractToolBarComponent
 	implements SetCurrentNetworkViewListener, NetworkAboutToBeDestroyedListener,
 	           SessionLoadedListener,RowsSetListener, ColumnDeletedListener, RemovedNodesListener,
-	           RemovedEdgesListener, ColumnNameChangedListener {
+	           RemovedEdgesListener, ColumnNameChangedListener, AddedNodesListener, AddedEdgesListener,
+	           AboutToRemoveNodesListener, AboutToRemoveEdgesListener {
 	
 	private final EnhancedSearchManager searchMgr;
 	private final EnhancedSearchPanel searchPnl; 
@@ -105,19 +125,77 @@ public class EnhancedSearchPlugin extends AbstractToolBarComponent
 	
 	@Override
 	public void handleEvent(RowsSetEvent e) {
-		if(!e.containsColumn(CyNetwork.SELECTED)) {
-			attributeChanged = true;
+		// The index only needs updating when attributes of indexed networks change,
+		// and selection changes are by far the most common row updates.
+		if (attributeChanged || e.containsColumn(CyNetwork.SELECTED))
+			return;
+		
+		final CyTable table = e.getSource();
+		for (CyNetwork network : searchMgr.getIndexedNetworks()) {
+			final boolean nodeTable = table == network.getDefaultNodeTable();
+			final boolean edgeTable = table == network.getDefaultEdgeTable();
+			if (!nodeTable && !edgeTable)
+				continue;
+			
+			final Set<Long> suids = new HashSet<>();
+			for (RowSetRecord record : e.getPayloadCollection()) {
+				final Long suid = record.getRow().get(CyIdentifiable.SUID, Long.class);
+				if (suid != null)
+					suids.add(suid);
+			}
+			
+			final List<CyIdentifiable> updated = new ArrayList<>(suids.size());
+			for (Long suid : suids) {
+				final CyIdentifiable graphObject = nodeTable ? network.getNode(suid) : network.getEdge(suid);
+				if (graphObject != null)
+					updated.add(graphObject);
+			}
+			searchMgr.updateNetworkIndex(network, updated, Collections.emptyList());
 		}
 	}
 
+	@Override
+	public void handleEvent(AddedNodesEvent e) {
+		searchMgr.updateNetworkIndex(e.getSource(), e.getPayloadCollection(), Collections.emptyList());
+	}
+
+	@Override
+	public void handleEvent(AddedEdgesEvent e) {
+		searchMgr.updateNetworkIndex(e.getSource(), e.getPayloadCollection(), Collections.emptyList());
+	}
+
+	@Override
+	public void handleEvent(AboutToRemoveNodesEvent e) {
+		final CyNetwork network = e.getSource();
+		if (searchMgr.getNetworkIndex(network) == null)
+			return;
+		
+		final Collection<Long> suids = new ArrayList<>();
+		for (CyNode node : e.getNodes()) {
+			suids.add(node.getSUID());
+			// adjacent edges are removed along with the node
+			for (CyEdge edge : network.getAdjacentEdgeIterable(node, CyEdge.Type.ANY))
+				suids.add(edge.getSUID());
+		}
+		searchMgr.addPendingDeletes(network, suids);
+	}
+
+	@Override
+	public void handleEvent(AboutToRemoveEdgesEvent e) {
+		final Collection<Long> suids = new ArrayList<>();
+		for (CyEdge edge : e.getEdges())
+			suids.add(edge.getSUID());
+		searchMgr.addPendingDeletes(e.getSource(), suids);
+	}
+
 	@Override
 	public void handleEvent(RemovedNodesEvent e) {
-		attributeChanged = true;
+		searchMgr.flushPendingDeletes(e.getSource());
 	}
 
 	@Override
 	public void handleEvent(RemovedEdgesEvent e) {
-		attributeChanged = true;
+		searchMgr.flushPendingDeletes(e.getSource());
 	}
 
 }
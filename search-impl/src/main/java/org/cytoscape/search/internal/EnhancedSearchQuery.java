@@ -14,7 +14,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Searcher;
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.Directory;
 import org.cytoscape.application.CyUserLog;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.search.internal.util.AttributeFields;
@@ -52,13 +52,13 @@ public class EnhancedSearchQuery implements Callable {
 
 	private static final Logger logger = LoggerFactory.getLogger(CyUserLog.NAME);
 	
-	private final RAMDirectory idx;
+	private final Directory idx;
 	private final CyNetwork network;
 	private SearchResults results;
 	private Searcher searcher;
 	private final String query;
 
-	public EnhancedSearchQuery(CyNetwork network, RAMDirectory index, final String query) {
+	public EnhancedSearchQuery(CyNetwork network, Directory index, final String query) {
 		this.network = network;
 		this.idx = index;
 		this.query = query;
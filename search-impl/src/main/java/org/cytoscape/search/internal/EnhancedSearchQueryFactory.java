@@ -1,6 +1,6 @@
 package org.cytoscape.search.internal;
 
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.Directory;
 import org.cytoscape.model.CyNetwork;
 
 /*
@@ -29,7 +29,7 @@ import org.cytoscape.model.CyNetwork;
 
 public class EnhancedSearchQueryFactory {
 	
-	public EnhancedSearchQuery getEnhancedSearchQuery(CyNetwork network, RAMDirectory idx, final String query) {
+	public EnhancedSearchQuery getEnhancedSearchQuery(CyNetwork network, Directory idx, final String query) {
 		return new EnhancedSearchQuery(network, idx, query);
 	}
 }
@@ -28,7 +28,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.Directory;
 import org.cytoscape.application.CyUserLog;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.search.internal.EnhancedSearch.Status;
@@ -107,7 +107,7 @@ public class IndexAndSearchTask extends AbstractNetworkTask implements Observabl
 		ExecutorService executor = Executors.newSingleThreadExecutor();
 		try {
 			// Index the given network or use existing index
-			RAMDirectory idx = null;
+			Directory idx = null;
 			final Status status = enhancedSearch.getNetworkIndexStatus(network);
 			
 			if (status != null && status.equals(Status.INDEX_SET) && !EnhancedSearchPlugin.attributeChanged) {
@@ -160,7 +160,7 @@ public class IndexAndSearchTask extends AbstractNetworkTask implements Observabl
 	 * @param network
 	 * @param idx
 	 */
-	private void executeQuery(ExecutorService executor, CyNetwork network, RAMDirectory idx) {
+	private void executeQuery(ExecutorService executor, CyNetwork network, Directory idx) {
 		Future<SearchResults> futureTask = executor.submit(queryFactory.getEnhancedSearchQuery(network, idx, query));
 		
 		try {
@@ -188,8 +188,8 @@ public class IndexAndSearchTask extends AbstractNetworkTask implements Observabl
 	 * @param taskMonitor Monitor used to report progress
 	 * @return
 	 */
-	private RAMDirectory getIndex(ExecutorService executor, CyNetwork network, TaskMonitor taskMonitor) {
-		Future<RAMDirectory> futureTask = executor.submit(indexFactory.getEnhancedSearchIndex(network, taskMonitor));
+	private Directory getIndex(ExecutorService executor, CyNetwork network, TaskMonitor taskMonitor) {
+		Future<Directory> futureTask = executor.submit(indexFactory.getEnhancedSearchIndex(network, taskMonitor));
 		
 		try {
 			while(futureTask.isDone() == false) {
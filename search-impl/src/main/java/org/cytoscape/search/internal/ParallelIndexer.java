@@ -0,0 +1,224 @@
+package org.cytoscape.search.internal;
+
+/*
+ * #%L
+ * Cytoscape Search Impl (search-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as 
+ * published by the Free Software Foundation, either version 2.1 of the 
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public 
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.IndexWriter;
+import org.cytoscape.model.CyColumn;
+import org.cytoscape.model.CyIdentifiable;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyRow;
+import org.cytoscape.model.CyTable;
+import org.cytoscape.model.CyTableUtil;
+
+/**
+ * Builds the documents of a network's nodes or edges on several threads and adds them to one shared
+ * IndexWriter (IndexWriter.addDocument() is thread safe).
+ * <br>
+ * The indexed columns are looked up once up front, instead of looking up the column names and types
+ * again for every graph object. The graph objects are then split into ranges, each worker reuses a single
+ * Document and its Field instances for all the graph objects of its range.
+ * <br>
+ * Every value is read from the row of its own graph object. The table may change while the index is
+ * being built, values read column by column could not be matched reliably to their rows.
+ */
+class ParallelIndexer {
+
+	private static final int MIN_ROWS_PER_TASK = 2000;
+
+	private final CyNetwork network;
+	private final IndexWriter writer;
+	private final ExecutorService executor;
+	private final int threads;
+	private final AtomicInteger indexedCount = new AtomicInteger();
+
+	ParallelIndexer(CyNetwork network, IndexWriter writer, ExecutorService executor, int threads) {
+		this.network = network;
+		this.writer = writer;
+		this.executor = executor;
+		this.threads = threads;
+	}
+
+	/**
+	 * Number of documents added so far, can be called from any thread.
+	 */
+	int getIndexedCount() {
+		return indexedCount.get();
+	}
+
+	/**
+	 * Looks up the indexed columns of the table and submits the tasks that index its rows.
+	 * 
+	 * @param table  the default node or edge table of the network
+	 * @param type   {@link EnhancedSearch#NODE_TYPE} or {@link EnhancedSearch#EDGE_TYPE}
+	 */
+	void submit(CyTable table, String type, List<Future<?>> futures) {
+		final List<IndexedColumn> columns = new ArrayList<>();
+		for (String name : CyTableUtil.getColumnNames(table)) {
+			if (name == null)
+				continue;
+			final CyColumn column = table.getColumn(name);
+			if (column == null || !isIndexed(column.getType()))
+				continue;
+			columns.add(new IndexedColumn(name, column.getType(), column.getListElementType()));
+		}
+
+		final List<? extends CyIdentifiable> graphObjects = EnhancedSearch.NODE_TYPE.equals(type) ?
+				network.getNodeList() : network.getEdgeList();
+		final int rows = graphObjects.size();
+		final int chunk = Math.max(MIN_ROWS_PER_TASK, (rows + threads - 1) / Math.max(1, threads));
+		for (int from = 0; from < rows; from += chunk)
+			futures.add(executor.submit(new IndexTask(type, graphObjects.subList(from, Math.min(rows, from + chunk)), columns)));
+	}
+
+	private static boolean isIndexed(Class<?> type) {
+		return type == String.class || type == Integer.class || type == Long.class || type == Double.class
+				|| type == Boolean.class || type == List.class;
+	}
+
+
+	private static class IndexedColumn {
+		final String name;
+		final String indexingName;
+		final Class<?> type;
+		final Class<?> listElementType;
+
+		IndexedColumn(String name, Class<?> type, Class<?> listElementType) {
+			this.name = name;
+			this.indexingName = name.toLowerCase();
+			this.type = type;
+			this.listElementType = listElementType;
+		}
+	}
+
+	/**
+	 * Indexes a range of the graph objects listed by {@link ParallelIndexer#submit}.
+	 */
+	private class IndexTask implements Callable<Void> {
+
+		private final String type;
+		private final List<? extends CyIdentifiable> graphObjects;
+		private final List<IndexedColumn> columns;
+
+		IndexTask(String type, List<? extends CyIdentifiable> graphObjects, List<IndexedColumn> columns) {
+			this.type = type;
+			this.graphObjects = graphObjects;
+			this.columns = columns;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			final Document doc = new Document();
+			final Field idField = new Field(EnhancedSearch.INDEX_FIELD, "", Field.Store.YES, Field.Index.ANALYZED);
+			final Field typeField = new Field(EnhancedSearch.TYPE_FIELD, type, Field.Store.YES, Field.Index.ANALYZED);
+
+			// one reusable field per column, list columns need one field per element
+			final Field[] textFields = new Field[columns.size()];
+			final NumericField[] numericFields = new NumericField[columns.size()];
+			final List<List<Field>> listFields = new ArrayList<>(columns.size());
+			for (int c = 0; c < columns.size(); c++) {
+				final IndexedColumn column = columns.get(c);
+				if (column.type == String.class || column.type == Boolean.class)
+					textFields[c] = new Field(column.indexingName, "", Field.Store.YES, Field.Index.ANALYZED);
+				else if (column.type != List.class)
+					numericFields[c] = new NumericField(column.indexingName);
+				listFields.add(column.type == List.class ? new ArrayList<>() : null);
+			}
+
+			for (CyIdentifiable graphObject : graphObjects) {
+				if (Thread.currentThread().isInterrupted())
+					return null;
+
+				final CyRow row;
+				try {
+					row = network.getRow(graphObject);
+				} catch (IllegalArgumentException e) {
+					// removed from the network since the list was taken
+					continue;
+				}
+
+				doc.getFields().clear();
+				idField.setValue(graphObject.getSUID().toString());
+				doc.add(idField);
+				doc.add(typeField);
+
+				for (int c = 0; c < columns.size(); c++) {
+					final IndexedColumn column = columns.get(c);
+					final Object value = getValue(row, column);
+					if (value == null)
+						continue;
+
+					if (column.type == String.class || column.type == Boolean.class) {
+						textFields[c].setValue(value.toString());
+						doc.add(textFields[c]);
+					} else if (column.type == Integer.class) {
+						doc.add(numericFields[c].setIntValue((Integer) value));
+					} else if (column.type == Long.class) {
+						doc.add(numericFields[c].setLongValue((Long) value));
+					} else if (column.type == Double.class) {
+						doc.add(numericFields[c].setDoubleValue((Double) value));
+					} else {
+						final List<Field> fields = listFields.get(c);
+						int used = 0;
+						for (Object element : (List<?>) value) {
+							if (element == null)
+								continue;
+							if (used == fields.size())
+								fields.add(new Field(column.indexingName, "", Field.Store.YES, Field.Index.ANALYZED));
+							final Field field = fields.get(used++);
+							field.setValue(element.toString());
+							doc.add(field);
+						}
+					}
+				}
+
+				writer.addDocument(doc);
+				indexedCount.incrementAndGet();
+			}
+			return null;
+		}
+
+		private Object getValue(CyRow row, IndexedColumn column) {
+			try {
+				if (column.type == List.class)
+					return row.getList(column.name, column.listElementType);
+				return row.get(column.name, column.type);
+			} catch (IllegalArgumentException e) {
+				// the column was deleted or replaced since the columns were looked up
+				return null;
+			}
+		}
+	}
+}
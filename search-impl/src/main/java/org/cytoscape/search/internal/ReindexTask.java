@@ -25,7 +25,7 @@ package org.cytoscape.search.internal;
  */
 
 
-import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.store.Directory;
 import org.cytoscape.model.CyNetwork;
 import org.cytoscape.task.AbstractNetworkTask;
 import org.cytoscape.work.TaskMonitor;
@@ -47,7 +47,7 @@ public class ReindexTask extends AbstractNetworkTask {
 	public void run(final TaskMonitor taskMonitor) {
 
 		// Index the given network or use existing index
-		RAMDirectory idx = null;
+		Directory idx = null;
 
 		taskMonitor.setStatusMessage("Re-indexing network");
 		
@@ -0,0 +1,156 @@
+package org.cytoscape.search.internal;
+
+/*
+ * #%L
+ * Cytoscape Search Impl (search-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.store.Directory;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Test;
+
+public class EnhancedSearchIndexTest {
+
+	@Test
+	public void testParallelIndexing() throws Exception {
+		CyNetwork network = new NetworkTestSupport().getNetwork();
+		network.getDefaultNodeTable().createColumn("score", Integer.class, false);
+		network.getDefaultNodeTable().createListColumn("aliases", String.class, false);
+		network.getDefaultEdgeTable().createColumn("weight", Double.class, false);
+
+		// enough rows for several worker tasks
+		CyNode previous = null;
+		for (int i = 0; i < 10000; i++) {
+			CyNode node = network.addNode();
+			network.getRow(node).set(CyNetwork.NAME, "node" + i);
+			network.getRow(node).set("score", i);
+			if (i % 1000 == 0)
+				network.getRow(node).set("aliases", Arrays.asList("thousand" + i, "round"));
+			if (previous != null) {
+				CyEdge edge = network.addEdge(previous, node, true);
+				network.getRow(edge).set("weight", i / 2.0);
+			}
+			previous = node;
+		}
+
+		Directory idx = EnhancedSearchIndex.buildIndex(network, mock(TaskMonitor.class));
+
+		assertEquals(1, search(network, idx, "node1234").getNodeHitCount());
+		assertEquals(10, search(network, idx, "score:[10 TO 19]").getNodeHitCount());
+		assertEquals(10, search(network, idx, "aliases:round").getNodeHitCount());
+		assertEquals(1, search(network, idx, "aliases:thousand3000").getNodeHitCount());
+		assertEquals(3, search(network, idx, "weight:[1.0 TO 2.0]").getEdgeHitCount());
+	}
+
+	@Test
+	public void testIndexingWhileRowsChange() throws Exception {
+		final CyNetwork network = new NetworkTestSupport().getNetwork();
+		final List<CyNode> nodes = new ArrayList<>();
+		for (int i = 0; i < 20000; i++)
+			nodes.add(addNode(network));
+
+		// remove nodes and add new ones while the index is being built
+		final AtomicBoolean done = new AtomicBoolean();
+		final Thread mutator = new Thread(() -> {
+			int i = 0;
+			while (!done.get() && i < nodes.size()) {
+				network.removeNodes(Arrays.asList(nodes.get(i)));
+				addNode(network);
+				i += 7;
+			}
+		});
+		mutator.start();
+		Directory idx;
+		try {
+			idx = EnhancedSearchIndex.buildIndex(network, mock(TaskMonitor.class));
+		} finally {
+			done.set(true);
+			mutator.join();
+		}
+
+		// every document must hold the values of the graph object it is indexed under
+		IndexReader reader = IndexReader.open(idx, true);
+		try {
+			assertTrue(reader.numDocs() > 0);
+			for (int i = 0; i < reader.maxDoc(); i++) {
+				if (reader.isDeleted(i))
+					continue;
+				Document doc = reader.document(i);
+				String name = doc.get(CyNetwork.NAME.toLowerCase());
+				// a node added by the mutator may be indexed before its name is set
+				if (name != null)
+					assertEquals("node" + doc.get(EnhancedSearch.INDEX_FIELD), name);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testCancelledBuildDeletesDirectory() throws Exception {
+		CyNetwork network = new NetworkTestSupport().getNetwork();
+		for (int i = 0; i < 10; i++)
+			addNode(network);
+
+		File root = Files.createTempDirectory("search-index-test").toFile();
+		System.setProperty(EnhancedSearchIndex.INDEX_DIR_PROPERTY, root.getPath());
+		try {
+			// the interrupt cancels the build while it waits for its workers
+			Thread.currentThread().interrupt();
+			Directory idx = EnhancedSearchIndex.buildIndex(network, mock(TaskMonitor.class));
+			assertTrue(Thread.interrupted());
+			assertNull(idx);
+			assertEquals(0, root.list().length);
+		} finally {
+			System.clearProperty(EnhancedSearchIndex.INDEX_DIR_PROPERTY);
+			root.delete();
+		}
+	}
+
+	private static CyNode addNode(CyNetwork network) {
+		CyNode node = network.addNode();
+		network.getRow(node).set(CyNetwork.NAME, "node" + node.getSUID());
+		return node;
+	}
+
+	private static SearchResults search(CyNetwork network, Directory idx, String query) throws Exception {
+		return new EnhancedSearchQuery(network, idx, query).call();
+	}
+}
@@ -0,0 +1,107 @@
+package org.cytoscape.search.internal;
+
+/*
+ * #%L
+ * Cytoscape Search Impl (search-impl)
+ * $Id:$
+ * $HeadURL:$
+ * %%
+ * Copyright (C) 2006 - 2021 The Cytoscape Consortium
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 2.1 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-2.1.html>.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.lucene.store.Directory;
+import org.cytoscape.model.CyEdge;
+import org.cytoscape.model.CyNetwork;
+import org.cytoscape.model.CyNode;
+import org.cytoscape.model.NetworkTestSupport;
+import org.cytoscape.work.TaskMonitor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EnhancedSearchManagerTest {
+
+	private CyNetwork network;
+	private CyNode n1, n2;
+	private CyEdge edge;
+	private EnhancedSearchManager searchMgr;
+
+	@Before
+	public void setUp() {
+		network = new NetworkTestSupport().getNetwork();
+		n1 = network.addNode();
+		n2 = network.addNode();
+		edge = network.addEdge(n1, n2, true);
+		network.getRow(n1).set(CyNetwork.NAME, "alpha");
+		network.getRow(n2).set(CyNetwork.NAME, "beta");
+		network.getRow(edge).set(CyNetwork.NAME, "alpha-beta");
+		for (int i = 0; i < 10; i++)
+			network.getRow(network.addNode()).set(CyNetwork.NAME, "node" + i);
+
+		searchMgr = new EnhancedSearchManager();
+		Directory idx = EnhancedSearchIndex.buildIndex(network, mock(TaskMonitor.class));
+		assertNotNull(idx);
+		searchMgr.setNetworkIndex(network, idx);
+	}
+
+	private SearchResults search(String query) throws Exception {
+		return new EnhancedSearchQuery(network, searchMgr.getNetworkIndex(network), query).call();
+	}
+
+	@Test
+	public void testUpdatedAttribute() throws Exception {
+		assertEquals(1, search("alpha").getNodeHitCount());
+
+		network.getRow(n1).set(CyNetwork.NAME, "gamma");
+		searchMgr.updateNetworkIndex(network, Collections.singletonList(n1), Collections.emptyList());
+
+		assertEquals(0, search("alpha").getNodeHitCount());
+		assertEquals(Arrays.asList(n1.getSUID().toString()), search("gamma").getNodeHits());
+		assertEquals(10, search("node*").getNodeHitCount());
+	}
+
+	@Test
+	public void testAddedAndRemovedNodes() throws Exception {
+		CyNode n3 = network.addNode();
+		network.getRow(n3).set(CyNetwork.NAME, "delta");
+		searchMgr.updateNetworkIndex(network, Collections.singletonList(n3), Collections.emptyList());
+		assertEquals(1, search("delta").getNodeHitCount());
+
+		// removing a node also removes the documents of its edges
+		searchMgr.addPendingDeletes(network, Arrays.asList(n1.getSUID(), edge.getSUID()));
+		network.removeNodes(Collections.singletonList(n1));
+		searchMgr.flushPendingDeletes(network);
+		assertEquals(0, search("alpha").getNodeHitCount());
+		assertEquals(0, search("alpha-beta").getEdgeHitCount());
+		assertEquals(1, search("beta").getNodeHitCount());
+	}
+
+	@Test
+	public void testLargeUpdateRequestsReindex() {
+		for (CyNode node : network.getNodeList())
+			network.getRow(node).set(CyNetwork.NAME, "gamma");
+		searchMgr.updateNetworkIndex(network, network.getNodeList(), Collections.emptyList());
+		assertEquals(EnhancedSearch.Status.REINDEX, searchMgr.getNetworkIndexStatus(network));
+	}
+}
@@ -0,0 +1,96 @@
+package org.cytoscape.view.model.internal.base;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Records the SUIDs of the views that changed between the snapshots of a {@link VPStore},
+ * so that a renderer can find what changed since the last snapshot it painted without comparing them.
+ * <br>
+ * Only the changes between the last MAX_SNAPSHOTS snapshots are kept. Above MAX_CHANGES changes between
+ * two snapshots everything is considered to have changed, a renderer would paint everything again anyway.
+ * <br>
+ * Changes are only recorded once the first snapshot has been taken.
+ */
+public class ChangeLog {
+
+	private static final int MAX_SNAPSHOTS = 32;
+	private static final int MAX_CHANGES = 1 << 16;
+
+	// Everything changed between two snapshots
+	private static final Long[] ALL = new Long[0];
+
+	private final Set<Long> pending = new HashSet<>();
+	private boolean pendingAll;
+
+	// The changes before each of the last snapshots, the last one is for 'version'
+	private final ArrayDeque<Long[]> recent = new ArrayDeque<>();
+	private long version;
+
+
+	public synchronized void add(Long suid) {
+		if(version == 0 || pendingAll)
+			return;
+		pending.add(suid);
+		if(pending.size() > MAX_CHANGES)
+			addAll();
+	}
+
+	public synchronized void addAll() {
+		pendingAll = true;
+		pending.clear();
+	}
+
+	/**
+	 * Ends the changes of the current snapshot, returns the version of the new snapshot.
+	 */
+	synchronized long snapshot() {
+		if(version > 0) {
+			recent.addLast(pendingAll ? ALL : pending.toArray(new Long[pending.size()]));
+			if(recent.size() > MAX_SNAPSHOTS)
+				recent.removeFirst();
+		}
+		pending.clear();
+		pendingAll = false;
+		return ++version;
+	}
+
+	/**
+	 * Returns true if the changes from the snapshot with version 'from' to the one with version 'to' are known.
+	 */
+	synchronized boolean isKnown(long from, long to) {
+		if(from > to || from < version - recent.size())
+			return false;
+
+		Iterator<Long[]> it = recent.descendingIterator();
+		for(long v = version; v > from; v--) {
+			Long[] changes = it.next();
+			if(v <= to && changes == ALL)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Passes the SUIDs that changed from the snapshot with version 'from' to the one with version 'to'
+	 * to the consumer, a SUID may be passed more than once. Returns false if the changes are not known.
+	 */
+	synchronized boolean getChanges(long from, long to, Consumer<Long> consumer) {
+		if(!isKnown(from, to))
+			return false;
+
+		Iterator<Long[]> it = recent.descendingIterator();
+		for(long v = version; v > from; v--) {
+			Long[] changes = it.next();
+			if(v <= to) {
+				for(Long suid : changes) {
+					consumer.accept(suid);
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -2,6 +2,7 @@ package org.cytoscape.view.model.internal.base;
 
 import java.util.Collection;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.cytoscape.view.model.VisualLexicon;
@@ -28,11 +29,17 @@ public class VPStore {
 	private final Class<?> type;
 	private Map<Object,Set<Long>> tracked = HashMap.empty();
 	
+	// Shared by the store and its snapshots, the version tells the snapshots apart.
+	private final ChangeLog changeLog;
+	private final long changeVersion;
+	
 	
 	public VPStore(Class<?> type, VisualLexicon visualLexicon, VPStoreViewConfig config) {
 		this.type = type;
 		this.visualLexicon = visualLexicon;
 		this.config = config == null ? new NullViewConfigImpl() : config;
+		this.changeLog = new ChangeLog();
+		this.changeVersion = 0;
 	}
 	
 	protected VPStore(VPStore other) {
@@ -44,6 +51,8 @@ public class VPStore {
 		this.defaultValues = other.defaultValues;
 		this.tracked = other.tracked;
 		this.config = other.config;
+		this.changeLog = other.changeLog;
+		this.changeVersion = changeLog.snapshot();
 	}
 
 	public VPStore createSnapshot() {
@@ -89,7 +98,30 @@ public class VPStore {
 			return map.put(suid, values);
 	}
 	
+	/**
+	 * Records that the view was added or changed in a way that is not stored here.
+	 */
+	public void setChanged(Long suid) {
+		changeLog.add(suid);
+	}
+	
+	/**
+	 * Returns true if the SUIDs of the views that changed since the given snapshot of this store are known.
+	 */
+	public boolean isChangeKnown(VPStore since) {
+		return since.changeLog == changeLog && changeLog.isKnown(since.changeVersion, changeVersion);
+	}
+	
+	/**
+	 * Passes the SUIDs of the views that were added, removed or changed since the given snapshot of
+	 * this store to the consumer, returns false if they are not known.
+	 */
+	public boolean getChangedSince(VPStore since, Consumer<Long> consumer) {
+		return since.changeLog == changeLog && changeLog.getChanges(since.changeVersion, changeVersion, consumer);
+	}
+	
 	public void remove(Long suid) {
+		changeLog.add(suid);
 		visualProperties = visualProperties.remove(suid);
 		allLocks = allLocks.remove(suid);
 		directLocks = directLocks.remove(suid);
@@ -102,10 +134,13 @@ public class VPStore {
 	}
 	 
 	protected <T, V extends T> boolean setVisualProperty(Long suid, VisualProperty<? extends T> vp, V value) {
-		if(setSpecialVisualProperty(suid, vp, value))
+		if(setSpecialVisualProperty(suid, vp, value)) {
+			changeLog.add(suid);
 			return true;
+		}
 		var prevValue = getVisualPropertiesMap(suid).getOrElse(vp, null);
 		if(!Objects.equals(prevValue, value)) {
+			changeLog.add(suid);
 			visualProperties = put(visualProperties, suid, vp, value);
 			updateTrackedVP(suid, vp);
 			return true;
@@ -171,6 +206,8 @@ public class VPStore {
 			}
 		});
 		
+		if(changed[0])
+			changeLog.add(suid);
 		return changed[0];
 	}
 	
@@ -227,6 +264,8 @@ public class VPStore {
 	}
 	
 	public <T, V extends T> void setViewDefault(VisualProperty<? extends T> vp, V value) {
+		if(!Objects.equals(value, defaultValues.getOrElse(vp, null)))
+			changeLog.addAll();
 		defaultValues = defaultValues.put(vp, value);
 	}
 	
@@ -156,6 +156,7 @@ public class CyNetworkViewImpl extends CyViewBase<CyNetwork> implements CyNetwor
 		synchronized (nodeLock) {
 			dataSuidToNode = dataSuidToNode.put(model.getSUID(), view);
 			viewSuidToNode = viewSuidToNode.put(view.getSUID(), view);
+			nodeVPs.setChanged(view.getSUID());
 			setDirty();
 		}
 		
@@ -175,6 +176,7 @@ public class CyNetworkViewImpl extends CyViewBase<CyNetwork> implements CyNetwor
 			dataSuidToEdge = dataSuidToEdge.put(edge.getSUID(), view);
 			viewSuidToEdge = viewSuidToEdge.put(view.getSUID(), view);
 			updateAdjacentEdgeMap(view, true);
+			edgeVPs.setChanged(view.getSUID());
 			setDirty();
 		}
 		
@@ -20,7 +20,7 @@ import org.cytoscape.view.model.internal.network.CyEdgeViewImpl;
 import org.cytoscape.view.model.internal.network.CyNetworkViewImpl;
 import org.cytoscape.view.model.internal.network.CyNodeViewImpl;
 import org.cytoscape.view.model.internal.network.VPNetworkStore;
-import org.cytoscape.view.model.internal.network.spacial.SimpleSpacialIndex2DSnapshotImpl;
+import org.cytoscape.view.model.internal.network.spacial.RTreeSpacialIndex2DSnapshotImpl;
 import org.cytoscape.view.model.spacial.SpacialIndex2D;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 
@@ -82,7 +82,7 @@ public class CyNetworkViewSnapshotImpl extends CyViewSnapshotBase<CyNetwork> imp
 		this.netVPs = netVPs;
 		this.isBVL = lexicon instanceof BasicVisualLexicon;
 		
-		this.spacialIndex = new SimpleSpacialIndex2DSnapshotImpl(this);
+		this.spacialIndex = new RTreeSpacialIndex2DSnapshotImpl(this);
 	}
 	
 	@Override
@@ -301,9 +301,24 @@ public class CyNetworkViewSnapshotImpl extends CyViewSnapshotBase<CyNetwork> imp
 		return (SnapshotNodeInfo) node;
 	}
 	
+	/**
+	 * If the key is an earlier snapshot of the same network view, returns the nodes that were added, removed
+	 * or changed since, see {@link #isTrackedNodeKey(Object)}. Removed nodes are the views of the earlier snapshot.
+	 */
 	@Override
 	public Collection<View<CyNode>> getTrackedNodes(Object key) {
 		java.util.HashSet<View<CyNode>> nodes = new java.util.HashSet<>();
+		if(key instanceof CyNetworkViewSnapshotImpl) {
+			var since = (CyNetworkViewSnapshotImpl) key;
+			nodeVPs.getChangedSince(since.nodeVPs, suid -> {
+				View<CyNode> nv = getNodeView(suid);
+				if(nv == null)
+					nv = since.getNodeView(suid);
+				if(nv != null)
+					nodes.add(nv);
+			});
+			return nodes;
+		}
 		for(Long suid : nodeVPs.getTracked(key)) {
 			View<CyNode> nv = getNodeView(suid);
 			if(nv != null) {
@@ -315,17 +330,40 @@ public class CyNetworkViewSnapshotImpl extends CyViewSnapshotBase<CyNetwork> imp
 	
 	@Override
 	public int getTrackedNodeCount(Object key) {
+		if(key instanceof CyNetworkViewSnapshotImpl)
+			return getTrackedNodes(key).size();
 		return nodeVPs.getTracked(key).size();
 	}
 	
+	/**
+	 * Also returns true for an earlier snapshot of the same network view, if the nodes that
+	 * changed since are still known. They are only known for the last few snapshots.
+	 */
 	@Override
 	public boolean isTrackedNodeKey(Object key) {
+		if(key instanceof CyNetworkViewSnapshotImpl)
+			return nodeVPs.isChangeKnown(((CyNetworkViewSnapshotImpl) key).nodeVPs);
 		return nodeVPs.isTrackedKey(key);
 	}
 	
+	/**
+	 * If the key is an earlier snapshot of the same network view, returns the edges that were added, removed
+	 * or changed since, see {@link #isTrackedEdgeKey(Object)}. Removed edges are the views of the earlier snapshot.
+	 */
 	@Override
 	public Collection<View<CyEdge>> getTrackedEdges(Object key) {
 		java.util.HashSet<View<CyEdge>> edges = new java.util.HashSet<>();
+		if(key instanceof CyNetworkViewSnapshotImpl) {
+			var since = (CyNetworkViewSnapshotImpl) key;
+			edgeVPs.getChangedSince(since.edgeVPs, suid -> {
+				View<CyEdge> ev = getEdgeView(suid);
+				if(ev == null)
+					ev = since.getEdgeView(suid);
+				if(ev != null)
+					edges.add(ev);
+			});
+			return edges;
+		}
 		for(Long suid : edgeVPs.getTracked(key)) {
 			View<CyEdge> ev = getEdgeView(suid);
 			if(ev != null) {
@@ -337,11 +375,19 @@ public class CyNetworkViewSnapshotImpl extends CyViewSnapshotBase<CyNetwork> imp
 
 	@Override
 	public int getTrackedEdgeCount(Object key) {
+		if(key instanceof CyNetworkViewSnapshotImpl)
+			return getTrackedEdges(key).size();
 		return edgeVPs.getTracked(key).size();
 	}
 	
+	/**
+	 * Also returns true for an earlier snapshot of the same network view, if the edges that
+	 * changed since are still known. They are only known for the last few snapshots.
+	 */
 	@Override
 	public boolean isTrackedEdgeKey(Object key) {
+		if(key instanceof CyNetworkViewSnapshotImpl)
+			return edgeVPs.isChangeKnown(((CyNetworkViewSnapshotImpl) key).edgeVPs);
 		return edgeVPs.isTrackedKey(key);
 	}
 	
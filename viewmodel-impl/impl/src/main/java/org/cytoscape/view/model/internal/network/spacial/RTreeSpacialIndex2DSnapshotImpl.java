@@ -0,0 +1,499 @@
+package org.cytoscape.view.model.internal.network.spacial;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.cytoscape.model.CyNode;
+import org.cytoscape.view.model.View;
+import org.cytoscape.view.model.internal.network.snapshot.CyNetworkViewSnapshotImpl;
+import org.cytoscape.view.model.internal.network.snapshot.CyNodeViewSnapshotImpl;
+import org.cytoscape.view.model.spacial.SpacialIndex2D;
+import org.cytoscape.view.model.spacial.SpacialIndex2DEnumerator;
+
+/**
+ * A static R-tree over the visible nodes of a snapshot, bulk loaded using the
+ * Sort-Tile-Recursive (STR) algorithm the first time a spacial query is made.
+ * <br>
+ * Entries are numbered by their rank in Z order, so the results of an overlap query can be
+ * put back into Z order by sorting an int array instead of comparing boxed Z values.
+ */
+public class RTreeSpacialIndex2DSnapshotImpl implements SpacialIndex2D<Long> {
+
+	/** Maximum number of children of a tree node. */
+	public static final int DEFAULT_MAX_BRANCHES = 16;
+
+	private final CyNetworkViewSnapshotImpl snapshot;
+	private final int maxBranches;
+
+	// The snapshot is immutable so we can cache whatever we want
+	private volatile Tree tree;
+	private CachedQueryResults cachedQueryResults;
+
+
+	public RTreeSpacialIndex2DSnapshotImpl(CyNetworkViewSnapshotImpl snapshot) {
+		this(snapshot, DEFAULT_MAX_BRANCHES);
+	}
+
+	public RTreeSpacialIndex2DSnapshotImpl(CyNetworkViewSnapshotImpl snapshot, int maxBranches) {
+		if(maxBranches < 2)
+			throw new IllegalArgumentException("maxBranches must be at least 2");
+		this.snapshot = snapshot;
+		this.maxBranches = maxBranches;
+	}
+
+
+	private Tree getTree() {
+		var t = tree;
+		if(t == null) {
+			synchronized(this) {
+				t = tree;
+				if(t == null) {
+					t = tree = new Tree(snapshot, maxBranches);
+				}
+			}
+		}
+		return t;
+	}
+
+
+	@Override
+	public void getMBR(float[] extents) {
+		var root = getTree().root;
+		if(extents != null) {
+			extents[X_MIN] = (float) root.xMin;
+			extents[Y_MIN] = (float) root.yMin;
+			extents[X_MAX] = (float) root.xMax;
+			extents[Y_MAX] = (float) root.yMax;
+		}
+	}
+
+	@Override
+	public void getMBR(double[] extents) {
+		var root = getTree().root;
+		if(extents != null) {
+			extents[X_MIN] = root.xMin;
+			extents[Y_MIN] = root.yMin;
+			extents[X_MAX] = root.xMax;
+			extents[Y_MAX] = root.yMax;
+		}
+	}
+
+	@Override
+	public boolean exists(Long suid) {
+		return snapshot.getNodeView(suid) != null;
+	}
+
+	@Override
+	public boolean get(Long suid, float[] extents) {
+		var node = snapshot.getNodeView(suid);
+		if(node == null)
+			return false;
+		copyExtents(node, extents);
+		return true;
+	}
+
+	@Override
+	public boolean get(Long suid, double[] extents) {
+		var node = snapshot.getNodeView(suid);
+		if(node == null)
+			return false;
+		copyExtents(node, extents);
+		return true;
+	}
+
+	private static void copyExtents(CyNodeViewSnapshotImpl node, float[] extents) {
+		if(extents != null) {
+			double x = node.x;
+			double y = node.y;
+			double h = node.h;
+			double w = node.w;
+			extents[X_MIN] = (float) (x - (w/2));
+			extents[X_MAX] = (float) (x + (w/2));
+			extents[Y_MIN] = (float) (y - (h/2));
+			extents[Y_MAX] = (float) (y + (h/2));
+		}
+	}
+
+	private static void copyExtents(CyNodeViewSnapshotImpl node, double[] extents) {
+		if(extents != null) {
+			double x = node.x;
+			double y = node.y;
+			double h = node.h;
+			double w = node.w;
+			extents[X_MIN] = x - (w/2);
+			extents[X_MAX] = x + (w/2);
+			extents[Y_MIN] = y - (h/2);
+			extents[Y_MAX] = y + (h/2);
+		}
+	}
+
+	@Override
+	public int size() {
+		return snapshot.getNodeCount();
+	}
+
+	@Override
+	public SpacialIndex2DEnumerator<Long> queryAll() {
+		var t = getTree();
+		return new RTreeEnumerator(t, null, t.nodes.length);
+	}
+
+	@Override
+	public SpacialIndex2DEnumerator<Long> queryOverlap(float xMin, float yMin, float xMax, float yMax) {
+		var t = getTree();
+		var root = t.root;
+		if(xMin <= root.xMin && yMin <= root.yMin && xMax >= root.xMax && yMax >= root.yMax) {
+			return queryAll();
+		}
+
+		// This method is not synchronized, get a reference before doing the test just in case the reference changes
+		var cached = cachedQueryResults;
+		if(cached != null && cached.matches(xMin, yMin, xMax, yMax)) {
+			return new RTreeEnumerator(t, cached.entries, cached.entries.length);
+		}
+
+		int[] entries = t.overlap(xMin, yMin, xMax, yMax);
+		Arrays.sort(entries); // entry index is the Z rank
+		cachedQueryResults = new CachedQueryResults(xMin, yMin, xMax, yMax, entries);
+		return new RTreeEnumerator(t, entries, entries.length);
+	}
+
+	/**
+	 * Returns the nodes whose extents contain the given point, in Z order.
+	 */
+	public SpacialIndex2DEnumerator<Long> queryPoint(float x, float y) {
+		var t = getTree();
+		int[] entries = t.overlap(x, y, x, y);
+		Arrays.sort(entries);
+		return new RTreeEnumerator(t, entries, entries.length);
+	}
+
+	/**
+	 * Returns up to k nodes closest to the given point, ordered by the distance from the
+	 * point to the node extents (nearest first). Nodes that contain the point have a distance of 0,
+	 * ties are broken by Z order.
+	 */
+	public SpacialIndex2DEnumerator<Long> queryNearest(float x, float y, int k) {
+		var t = getTree();
+		int[] entries = t.nearest(x, y, k);
+		return new RTreeEnumerator(t, entries, entries.length);
+	}
+
+
+	private static boolean intersects(double x1, double y1, double x2, double y2, double a1, double b1, double a2, double b2) {
+		return x1 <= a2 && a1 <= x2 && y1 <= b2 && b1 <= y2;
+	}
+
+	private static double distanceSq(double x, double y, double xMin, double yMin, double xMax, double yMax) {
+		double dx = x < xMin ? xMin - x : (x > xMax ? x - xMax : 0);
+		double dy = y < yMin ? yMin - y : (y > yMax ? y - yMax : 0);
+		return dx*dx + dy*dy;
+	}
+
+
+	/**
+	 * A node of the R-tree. For leaves the children are entry indices, otherwise they are
+	 * indices into the list of tree nodes of the level below.
+	 */
+	private static class TreeNode {
+		final boolean leaf;
+		final int[] children;
+		double xMin, yMin, xMax, yMax;
+
+		TreeNode(boolean leaf, int[] children) {
+			this.leaf = leaf;
+			this.children = children;
+		}
+	}
+
+
+	private static class Tree {
+
+		// Entry arrays, indexed by Z rank
+		final CyNodeViewSnapshotImpl[] nodes;
+		final double[] xMins, yMins, xMaxs, yMaxs;
+
+		final TreeNode root;
+
+		Tree(CyNetworkViewSnapshotImpl snapshot, int maxBranches) {
+			List<CyNodeViewSnapshotImpl> nodeViews = snapshot.getSnapshotNodeViews();
+			Comparator<View<CyNode>> zOrder = Comparator.comparing(node -> snapshot.getZ(node.getSUID()));
+			nodeViews.sort(zOrder); // stable sort, same ordering as the old linear scan
+
+			int n = nodeViews.size();
+			nodes = nodeViews.toArray(new CyNodeViewSnapshotImpl[n]);
+			xMins = new double[n];
+			yMins = new double[n];
+			xMaxs = new double[n];
+			yMaxs = new double[n];
+			for(int i = 0; i < n; i++) {
+				var node = nodes[i];
+				xMins[i] = node.x - (node.w/2);
+				xMaxs[i] = node.x + (node.w/2);
+				yMins[i] = node.y - (node.h/2);
+				yMaxs[i] = node.y + (node.h/2);
+			}
+
+			root = bulkLoad(maxBranches);
+		}
+
+		private TreeNode bulkLoad(int maxBranches) {
+			int n = nodes.length;
+			if(n == 0) {
+				return new TreeNode(true, new int[0]); // MBR is all zeros
+			}
+
+			// Pack the entries into leaves
+			List<TreeNode> level = new ArrayList<>();
+			double[] cx = new double[n];
+			double[] cy = new double[n];
+			for(int i = 0; i < n; i++) {
+				cx[i] = (xMins[i] + xMaxs[i]) / 2;
+				cy[i] = (yMins[i] + yMaxs[i]) / 2;
+			}
+			for(int[] group : strPartition(n, cx, cy, maxBranches)) {
+				TreeNode leaf = new TreeNode(true, group);
+				computeLeafMBR(leaf);
+				level.add(leaf);
+			}
+
+			// Pack each level into the level above until there is a single root
+			while(level.size() > 1) {
+				int m = level.size();
+				double[] lx = new double[m];
+				double[] ly = new double[m];
+				for(int i = 0; i < m; i++) {
+					TreeNode tn = level.get(i);
+					lx[i] = (tn.xMin + tn.xMax) / 2;
+					ly[i] = (tn.yMin + tn.yMax) / 2;
+				}
+				List<TreeNode> parents = new ArrayList<>();
+				for(int[] group : strPartition(m, lx, ly, maxBranches)) {
+					TreeNode[] kids = new TreeNode[group.length];
+					for(int i = 0; i < group.length; i++) {
+						kids[i] = level.get(group[i]);
+					}
+					parents.add(new InternalTreeNode(kids));
+				}
+				level = parents;
+			}
+			return level.get(0);
+		}
+
+		/**
+		 * Sort-Tile-Recursive: sort by x, cut into vertical slices, sort each slice by y
+		 * and cut it into groups of at most maxBranches.
+		 */
+		private static List<int[]> strPartition(int n, double[] cx, double[] cy, int maxBranches) {
+			Integer[] order = new Integer[n];
+			for(int i = 0; i < n; i++)
+				order[i] = i;
+
+			Arrays.sort(order, (a, b) -> Double.compare(cx[a], cx[b]));
+
+			int leafCount = (n + maxBranches - 1) / maxBranches;
+			int sliceCount = (int) Math.ceil(Math.sqrt(leafCount));
+			int sliceSize = sliceCount * maxBranches;
+
+			List<int[]> groups = new ArrayList<>(leafCount);
+			for(int start = 0; start < n; start += sliceSize) {
+				int end = Math.min(start + sliceSize, n);
+				Arrays.sort(order, start, end, (a, b) -> Double.compare(cy[a], cy[b]));
+				for(int g = start; g < end; g += maxBranches) {
+					int gEnd = Math.min(g + maxBranches, end);
+					int[] group = new int[gEnd - g];
+					for(int i = g; i < gEnd; i++) {
+						group[i - g] = order[i];
+					}
+					groups.add(group);
+				}
+			}
+			return groups;
+		}
+
+		private void computeLeafMBR(TreeNode leaf) {
+			double xMin = Double.POSITIVE_INFINITY, yMin = Double.POSITIVE_INFINITY;
+			double xMax = Double.NEGATIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+			for(int e : leaf.children) {
+				xMin = Math.min(xMin, xMins[e]);
+				yMin = Math.min(yMin, yMins[e]);
+				xMax = Math.max(xMax, xMaxs[e]);
+				yMax = Math.max(yMax, yMaxs[e]);
+			}
+			leaf.xMin = xMin;
+			leaf.yMin = yMin;
+			leaf.xMax = xMax;
+			leaf.yMax = yMax;
+		}
+
+		int[] overlap(double xMin, double yMin, double xMax, double yMax) {
+			int[] result = new int[16];
+			int count = 0;
+
+			TreeNode[] stack = new TreeNode[64];
+			int top = 0;
+			stack[top++] = root;
+
+			while(top > 0) {
+				TreeNode tn = stack[--top];
+				if(!intersects(xMin, yMin, xMax, yMax, tn.xMin, tn.yMin, tn.xMax, tn.yMax))
+					continue;
+
+				if(tn.leaf) {
+					for(int e : tn.children) {
+						if(intersects(xMin, yMin, xMax, yMax, xMins[e], yMins[e], xMaxs[e], yMaxs[e])) {
+							if(count == result.length)
+								result = Arrays.copyOf(result, count * 2);
+							result[count++] = e;
+						}
+					}
+				} else {
+					for(TreeNode kid : ((InternalTreeNode)tn).kids) {
+						if(top == stack.length)
+							stack = Arrays.copyOf(stack, top * 2);
+						stack[top++] = kid;
+					}
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		int[] nearest(double x, double y, int k) {
+			if(k <= 0 || nodes.length == 0)
+				return new int[0];
+
+			// Best-first search, a queue item is either a tree node or an entry
+			PriorityQueue<QueueItem> queue = new PriorityQueue<>();
+			queue.add(new QueueItem(distanceSq(x, y, root.xMin, root.yMin, root.xMax, root.yMax), root, -1));
+
+			int[] result = new int[Math.min(k, nodes.length)];
+			int count = 0;
+
+			while(!queue.isEmpty() && count < result.length) {
+				QueueItem item = queue.poll();
+				if(item.treeNode == null) {
+					result[count++] = item.entry;
+				} else if(item.treeNode.leaf) {
+					for(int e : item.treeNode.children) {
+						queue.add(new QueueItem(distanceSq(x, y, xMins[e], yMins[e], xMaxs[e], yMaxs[e]), null, e));
+					}
+				} else {
+					for(TreeNode kid : ((InternalTreeNode)item.treeNode).kids) {
+						queue.add(new QueueItem(distanceSq(x, y, kid.xMin, kid.yMin, kid.xMax, kid.yMax), kid, -1));
+					}
+				}
+			}
+			return count == result.length ? result : Arrays.copyOf(result, count);
+		}
+	}
+
+
+	private static class InternalTreeNode extends TreeNode {
+		final TreeNode[] kids;
+
+		InternalTreeNode(TreeNode[] kids) {
+			super(false, null);
+			this.kids = kids;
+			double xMin = Double.POSITIVE_INFINITY, yMin = Double.POSITIVE_INFINITY;
+			double xMax = Double.NEGATIVE_INFINITY, yMax = Double.NEGATIVE_INFINITY;
+			for(TreeNode kid : kids) {
+				xMin = Math.min(xMin, kid.xMin);
+				yMin = Math.min(yMin, kid.yMin);
+				xMax = Math.max(xMax, kid.xMax);
+				yMax = Math.max(yMax, kid.yMax);
+			}
+			this.xMin = xMin;
+			this.yMin = yMin;
+			this.xMax = xMax;
+			this.yMax = yMax;
+		}
+	}
+
+
+	private static class QueueItem implements Comparable<QueueItem> {
+		final double distance;
+		final TreeNode treeNode;
+		final int entry;
+
+		QueueItem(double distance, TreeNode treeNode, int entry) {
+			this.distance = distance;
+			this.treeNode = treeNode;
+			this.entry = entry;
+		}
+
+		@Override
+		public int compareTo(QueueItem other) {
+			int c = Double.compare(distance, other.distance);
+			if(c != 0)
+				return c;
+			// expand tree nodes before reporting entries at the same distance so that ties come out in Z order
+			if(treeNode != null || other.treeNode != null)
+				return Boolean.compare(treeNode == null, other.treeNode == null);
+			return Integer.compare(entry, other.entry);
+		}
+	}
+
+
+	private static class CachedQueryResults {
+
+		private final float xMin;
+		private final float yMin;
+		private final float xMax;
+		private final float yMax;
+		private final int[] entries;
+
+		public CachedQueryResults(float xMin, float yMin, float xMax, float yMax, int[] entries) {
+			this.xMin = xMin;
+			this.yMin = yMin;
+			this.xMax = xMax;
+			this.yMax = yMax;
+			this.entries = entries;
+		}
+
+		public boolean matches(float xMin, float yMin, float xMax, float yMax) {
+			return this.xMin == xMin && this.yMin == yMin && this.xMax == xMax && this.yMax == yMax;
+		}
+	}
+
+
+	private static class RTreeEnumerator implements SpacialIndex2DEnumerator<Long> {
+
+		private final Tree tree;
+		private final int[] entries; // null means all entries in Z order
+		private final int size;
+		private int index = 0;
+
+		public RTreeEnumerator(Tree tree, int[] entries, int size) {
+			this.tree = tree;
+			this.entries = entries;
+			this.size = size;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < size;
+		}
+
+		@Override
+		public Long nextExtents(float[] extents) {
+			int e = entries == null ? index : entries[index];
+			index++;
+			if(extents != null) {
+				extents[X_MIN] = (float) tree.xMins[e];
+				extents[Y_MIN] = (float) tree.yMins[e];
+				extents[X_MAX] = (float) tree.xMaxs[e];
+				extents[Y_MAX] = (float) tree.yMaxs[e];
+			}
+			return tree.nodes[e].getSUID();
+		}
+	}
+
+}
@@ -664,6 +664,52 @@ public class NetworkViewImplTest {
 	}
 	
 	
+	@Test
+	public void testTrackedChangesSinceSnapshot() {
+		CyNetworkViewImpl netView = createSquareTestNetworkView();
+		CyNetwork network = netView.getModel();
+		
+		List<CyNode> nodes = network.getNodeList();
+		View<CyNode> n0 = netView.getNodeView(nodes.get(0));
+		View<CyNode> n1 = netView.getNodeView(nodes.get(1));
+		View<CyEdge> e0 = netView.getEdgeView(network.getEdgeList().get(0));
+		
+		CyNetworkViewSnapshot s1 = netView.createSnapshot();
+		assertTrue(s1.isTrackedNodeKey(s1));
+		assertTrue(s1.getTrackedNodes(s1).isEmpty());
+		
+		n0.setVisualProperty(NODE_X_LOCATION, 100.0);
+		CyNetworkViewSnapshot s2 = netView.createSnapshot();
+		n1.setVisualProperty(NODE_FILL_COLOR, Color.RED);
+		e0.setVisualProperty(EDGE_WIDTH, 5.0);
+		CyNetworkViewSnapshot s3 = netView.createSnapshot();
+		
+		assertTrue(s2.isTrackedNodeKey(s1));
+		assertEquals(asSuidSet(List.of(n0)), asSuidSet(s2.getTrackedNodes(s1)));
+		assertTrue(s2.getTrackedEdges(s1).isEmpty());
+		
+		assertEquals(asSuidSet(List.of(n1)), asSuidSet(s3.getTrackedNodes(s2)));
+		assertEquals(asSuidSet(List.of(e0)), asSuidSet(s3.getTrackedEdges(s2)));
+		assertEquals(asSuidSet(List.of(n0, n1)), asSuidSet(s3.getTrackedNodes(s1)));
+		assertEquals(2, s3.getTrackedNodeCount(s1));
+		
+		// removed views are reported with their last view
+		CyNode removed = nodes.get(2);
+		View<CyNode> removedView = netView.getNodeView(removed);
+		netView.removeNode(removed);
+		CyNetworkViewSnapshot s4 = netView.createSnapshot();
+		assertEquals(asSuidSet(List.of(removedView)), asSuidSet(s4.getTrackedNodes(s3)));
+		assertEquals(2, s4.getTrackedEdgeCount(s3));
+		
+		// the changes are not known backwards, or after a view default changed every view
+		assertFalse(s1.isTrackedNodeKey(s3));
+		netView.setViewDefault(NODE_FILL_COLOR, Color.BLUE);
+		CyNetworkViewSnapshot s5 = netView.createSnapshot();
+		assertFalse(s5.isTrackedNodeKey(s4));
+		assertTrue(s5.isTrackedEdgeKey(s4));
+	}
+	
+	
 	@Test
 	public void testRemovingANodeRemovesItsVPs() {
 		final String NODE_LABEL_STARTS_WITH_A = "nodeLabel.starta";
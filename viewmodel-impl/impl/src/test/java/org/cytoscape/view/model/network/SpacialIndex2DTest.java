@@ -19,9 +19,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import org.cytoscape.model.CyEdge;
 import org.cytoscape.model.CyNetwork;
@@ -30,6 +32,7 @@ import org.cytoscape.model.NetworkTestSupport;
 import org.cytoscape.view.model.CyNetworkViewSnapshot;
 import org.cytoscape.view.model.View;
 import org.cytoscape.view.model.internal.network.CyNetworkViewImpl;
+import org.cytoscape.view.model.internal.network.spacial.RTreeSpacialIndex2DSnapshotImpl;
 import org.cytoscape.view.model.spacial.SpacialIndex2D;
 import org.cytoscape.view.model.spacial.SpacialIndex2DEnumerator;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
@@ -279,4 +282,71 @@ public class SpacialIndex2DTest {
 		assertEquals(expectedOrder, suids2);
 	}
 	
-}
\ No newline at end of file
+	@Test
+	public void testOverlapMatchesLinearScan() {
+		CyNetwork network = networkSupport.getNetwork();
+		List<CyNode> nodes = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			nodes.add(network.addNode());
+		}
+		
+		CyNetworkViewImpl networkView = createNetworkView(network);
+		Random random = new Random(42);
+		for(int i = 0; i < nodes.size(); i++) {
+			float x = random.nextInt(1000);
+			float y = random.nextInt(1000);
+			setGeometry(networkView.getNodeView(nodes.get(i)), x, y, 10, 6, random.nextInt(100));
+		}
+		
+		CyNetworkViewSnapshot snapshot = networkView.createSnapshot();
+		SpacialIndex2D<Long> spacialIndex = snapshot.getSpacialIndex2D();
+		List<Long> allSuids = enumToList(spacialIndex.queryAll());
+		Map<Long,float[]> allExtents = toMap(spacialIndex.queryAll());
+		assertEquals(nodes.size(), allSuids.size());
+		
+		for(int q = 0; q < 50; q++) {
+			float xMin = random.nextInt(1000);
+			float yMin = random.nextInt(1000);
+			float xMax = xMin + random.nextInt(200);
+			float yMax = yMin + random.nextInt(200);
+			
+			// brute force, filtering queryAll() keeps the Z order
+			List<Long> expected = new ArrayList<>();
+			for(Long suid : allSuids) {
+				float[] e = allExtents.get(suid);
+				if(xMin <= e[2] && e[0] <= xMax && yMin <= e[3] && e[1] <= yMax) {
+					expected.add(suid);
+				}
+			}
+			assertEquals(expected, enumToList(spacialIndex.queryOverlap(xMin, yMin, xMax, yMax)));
+		}
+	}
+	
+	
+	@Test
+	public void testPointAndNearestQueries() {
+		CyNetwork network = networkSupport.getNetwork();
+		CyNode n1 = network.addNode();
+		CyNode n2 = network.addNode();
+		CyNode n3 = network.addNode();
+		
+		CyNetworkViewImpl networkView = createNetworkView(network);
+		View<CyNode> nv1 = networkView.getNodeView(n1);
+		setGeometry(nv1, 4, 2, 4, 2, 2);
+		View<CyNode> nv2 = networkView.getNodeView(n2);
+		setGeometry(nv2, 5, 2, 4, 2, 1);
+		View<CyNode> nv3 = networkView.getNodeView(n3);
+		setGeometry(nv3, 20, 20, 4, 2, 3);
+		
+		RTreeSpacialIndex2DSnapshotImpl spacialIndex = (RTreeSpacialIndex2DSnapshotImpl) networkView.createSnapshot().getSpacialIndex2D();
+		
+		assertEquals(Arrays.asList(nv2.getSUID(), nv1.getSUID()), enumToList(spacialIndex.queryPoint(4.5f, 2)));
+		assertEquals(Arrays.asList(nv2.getSUID()), enumToList(spacialIndex.queryPoint(6.5f, 2)));
+		assertEquals(0, spacialIndex.queryPoint(12, 12).size());
+		
+		assertEquals(Arrays.asList(nv3.getSUID()), enumToList(spacialIndex.queryNearest(17, 17, 1)));
+		assertEquals(Arrays.asList(nv1.getSUID(), nv2.getSUID(), nv3.getSUID()), enumToList(spacialIndex.queryNearest(0, 2, 3)));
+		assertEquals(3, spacialIndex.queryNearest(0, 0, 10).size());
+	}
+	
+}
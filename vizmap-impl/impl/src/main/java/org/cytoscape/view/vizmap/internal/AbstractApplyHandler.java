@@ -124,12 +124,7 @@ public abstract class AbstractApplyHandler<T extends CyIdentifiable> implements
 
 	protected void applyDefaultValue(final View<T> view, final VisualProperty<?> vp, final VisualLexicon lexicon) {
 		// This is the view default value.
-		Object value = style.getDefaultValue(vp);
-
-		if (value == null) {
-			((VisualStyleImpl) style).getStyleDefaults().put(vp, vp.getDefault());
-			value = style.getDefaultValue(vp);
-		}
+		Object value = ((VisualStyleImpl) style).getOrCreateDefaultValue(vp);
 		
 		final Set<VisualPropertyDependency<?>> depSet = dependencyParents.get(vp);
 		
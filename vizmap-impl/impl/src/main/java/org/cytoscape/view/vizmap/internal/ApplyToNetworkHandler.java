@@ -1,14 +1,18 @@
 package org.cytoscape.view.vizmap.internal;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.cytoscape.application.CyApplicationManager;
 import org.cytoscape.application.CyUserLog;
@@ -28,6 +32,7 @@ import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.view.vizmap.VisualMappingFunction;
 import org.cytoscape.view.vizmap.VisualPropertyDependency;
 import org.cytoscape.view.vizmap.VisualStyle;
+import org.cytoscape.view.vizmap.internal.mappings.ContinuousMappingImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,6 +63,15 @@ import org.slf4j.LoggerFactory;
 public class ApplyToNetworkHandler extends AbstractApplyHandler<CyNetwork> {
 	
 	private static final Logger logger = LoggerFactory.getLogger(CyUserLog.NAME);
+	
+	/**
+	 * Applies the styles of all the network views; created on first use and shut down by the {@link CyActivator}.
+	 */
+	private static ForkJoinPool applyPool;
+	private static boolean poolStopped;
+	
+	/** Mapping tasks with fewer views than this are not split any further. */
+	static final int MIN_CHUNK_SIZE = 256;
 
 	ApplyToNetworkHandler(final VisualStyle style, final CyServiceRegistrar serviceRegistrar) {
 		super(style, serviceRegistrar, CyNetwork.class, BasicVisualLexicon.NETWORK);
@@ -68,8 +82,6 @@ public class ApplyToNetworkHandler extends AbstractApplyHandler<CyNetwork> {
 		final CyNetworkView netView = (CyNetworkView) view;
 		final Collection<View<CyNode>> nodeViews = netView.getNodeViews();
 		final Collection<View<CyEdge>> edgeViews = netView.getEdgeViews();
-		final Collection<View<CyNetwork>> networkViewSet = new HashSet<>();
-		networkViewSet.add(netView);
 		
 		// Make sure the dependency maps are up to date
 		updateDependencyMaps();
@@ -89,27 +101,64 @@ public class ApplyToNetworkHandler extends AbstractApplyHandler<CyNetwork> {
 				.getRenderingEngineFactory(NetworkViewRenderer.DEFAULT_CONTEXT)
 				.getVisualLexicon();
 		
-		applyDefaultsInParallel(netView, lexicon.getVisualLexiconNode(BasicVisualLexicon.NODE));
-		applyDefaultsInParallel(netView, lexicon.getVisualLexiconNode(BasicVisualLexicon.EDGE));
-		applyDefaultsInParallel(netView, lexicon.getVisualLexiconNode(BasicVisualLexicon.NETWORK));
+		final ForkJoinPool pool = getPool();
+		
+		// Node, edge and network defaults are guarded by different locks, so each group gets one task
+		final List<ForkJoinTask<?>> defaultTasks = new ArrayList<>();
+		defaultTasks.add(pool.submit(() -> applyDefaults(netView, lexicon.getVisualLexiconNode(BasicVisualLexicon.NODE))));
+		defaultTasks.add(pool.submit(() -> applyDefaults(netView, lexicon.getVisualLexiconNode(BasicVisualLexicon.EDGE))));
+		defaultTasks.add(pool.submit(() -> applyDefaults(netView, lexicon.getVisualLexiconNode(BasicVisualLexicon.NETWORK))));
+		joinAll(defaultTasks, "Create apply default failed");
 
 		applyDependencies(netView);
 		
-		final ExecutorService exe = Executors.newCachedThreadPool();
-		exe.submit(new ApplyMappingsTask(netView, nodeViews, BasicVisualLexicon.NODE, lexicon));
-		exe.submit(new ApplyMappingsTask(netView, edgeViews, BasicVisualLexicon.EDGE, lexicon));
-		exe.submit(new ApplyMappingsTask(netView, networkViewSet, BasicVisualLexicon.NETWORK, lexicon));
+		final CyNetwork net = netView.getModel();
+		final List<ForkJoinTask<?>> mappingTasks = new ArrayList<>();
+		submitMappings(pool, net, nodeViews, getMappedProperties(lexicon, BasicVisualLexicon.NODE), mappingTasks);
+		submitMappings(pool, net, edgeViews, getMappedProperties(lexicon, BasicVisualLexicon.EDGE), mappingTasks);
+		submitMappings(pool, net, Collections.singletonList(netView), getMappedProperties(lexicon, BasicVisualLexicon.NETWORK), mappingTasks);
+		joinAll(mappingTasks, "Create apply operation failed.");
+	}
+	
+	private void submitMappings(final ForkJoinPool pool, final CyNetwork net,
+			final Collection<? extends View<? extends CyIdentifiable>> views, final List<MappedProperty> mappedProperties, final List<ForkJoinTask<?>> tasks) {
+		if (mappedProperties.isEmpty() || views.isEmpty())
+			return;
 		
-		try {
-			exe.shutdown();
-			exe.awaitTermination(15, TimeUnit.MINUTES);
-		} catch (Exception ex) {
-			logger.warn("Create apply operation failed.", ex);
+		final View<?>[] array = views.toArray(new View<?>[views.size()]);
+		// Split into a few chunks per worker so that idle workers have something to steal
+		final int chunkSize = Math.max(MIN_CHUNK_SIZE, array.length / (pool.getParallelism() * 4));
+		tasks.add(pool.submit(new ApplyMappingsTask(net, array, 0, array.length, chunkSize, mappedProperties)));
+	}
+	
+	private static synchronized ForkJoinPool getPool() {
+		if (poolStopped)
+			throw new RejectedExecutionException("The visual mapping bundle has been stopped");
+		if (applyPool == null)
+			applyPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		return applyPool;
+	}
+	
+	/**
+	 * Stops the running style applies, and keeps new ones from starting.
+	 */
+	static synchronized void shutdownPool() {
+		poolStopped = true;
+		if (applyPool != null)
+			applyPool.shutdownNow();
+	}
+	
+	private static void joinAll(final List<ForkJoinTask<?>> tasks, final String message) {
+		for (final ForkJoinTask<?> task : tasks) {
+			try {
+				task.join();
+			} catch (Exception ex) {
+				logger.warn(message, ex);
+			}
 		}
 	}
 	
-	private void applyDefaultsInParallel(final CyNetworkView netView, final VisualLexiconNode rootNode) {
-		final ExecutorService exe = Executors.newCachedThreadPool();
+	private void applyDefaults(final CyNetworkView netView, final VisualLexiconNode rootNode) {
 		final Deque<VisualLexiconNode> deque = new ArrayDeque<>();
 		deque.addAll(rootNode.getChildren());
 		
@@ -123,104 +172,151 @@ public class ApplyToNetworkHandler extends AbstractApplyHandler<CyNetwork> {
 			final Collection<VisualLexiconNode> children = node.getChildren();
 
 			if (children.isEmpty()) {
-				Object defaultValue = style.getDefaultValue(vp);
-	
-				if (defaultValue == null) {
-					((VisualStyleImpl) style).getStyleDefaults().put(vp, vp.getDefault());
-					defaultValue = style.getDefaultValue(vp);
-				}
-				
-				exe.submit(new ApplyDefaultTask(netView, vp, defaultValue));
+				// The style's defaults map is shared by the three tasks, it is only filled in under its lock
+				final Object defaultValue = ((VisualStyleImpl) style).getOrCreateDefaultValue(vp);
+				netView.setViewDefault(vp, defaultValue);
 			}
 			
 			deque.addAll(children);
 		}
+	}
+	
+	/**
+	 * Collects the visual properties under the given root that have a mapping in this style.
+	 */
+	private List<MappedProperty> getMappedProperties(final VisualLexicon lexicon, final VisualProperty<?> rootVisualProperty) {
+		final Class<?> targetDataType = rootVisualProperty.getTargetDataType();
+		final List<MappedProperty> mappedProperties = new ArrayList<>();
+		final LinkedList<VisualLexiconNode> descendants = new LinkedList<>();
+		descendants.addAll(lexicon.getVisualLexiconNode(rootVisualProperty).getChildren());
 		
-		try {
-			exe.shutdown();
-			exe.awaitTermination(10, TimeUnit.MINUTES);
-		} catch (Exception ex) {
-			logger.warn("Create apply default failed", ex);
-		} finally {
-
+		while (!descendants.isEmpty()) {
+			final VisualLexiconNode node = descendants.pop();
+			final VisualProperty<?> vp = node.getVisualProperty();
+			
+			if (vp.getTargetDataType() != targetDataType)
+				continue; // Because NETWORK has node/edge properties as descendants as well
+			
+			final VisualMappingFunction<?, ?> mapping = style.getVisualMappingFunction(vp);
+			
+			if (mapping != null) {
+				// If this property has already received a propagated value from a previous
+				// enabled dependency, do not apply this mapping's value over it.
+				final boolean propagate = isParentOfDependency(vp) || isChildOfEnabledDependency(vp);
+				mappedProperties.add(new MappedProperty(vp, mapping, propagate, dependencyParents.get(vp)));
+			}
+			
+			descendants.addAll(node.getChildren());
 		}
+		
+		return mappedProperties;
 	}
 	
-	private final class ApplyDefaultTask implements Runnable {
+	private static final class MappedProperty {
 		
-		private final CyNetworkView netView;
 		private final VisualProperty<?> vp;
-		private final Object defaultValue;
+		private final VisualMappingFunction<?, ?> mapping;
+		private final boolean propagate;
+		private final Set<VisualPropertyDependency<?>> depSet;
 		
-		ApplyDefaultTask(final CyNetworkView netView, final VisualProperty<?> vp, final Object defaultValue) {
+		MappedProperty(final VisualProperty<?> vp, final VisualMappingFunction<?, ?> mapping, final boolean propagate,
+				final Set<VisualPropertyDependency<?>> depSet) {
 			this.vp = vp;
-			this.netView = netView;
-			this.defaultValue = defaultValue;
-		}
-		
-		@Override
-		public void run() {
-			netView.setViewDefault(vp, defaultValue);
+			this.mapping = mapping;
+			this.propagate = propagate;
+			this.depSet = depSet;
 		}
 	}
 
-	private final class ApplyMappingsTask implements Runnable {
+	/**
+	 * Applies the mappings to a range of views. Ranges larger than the chunk size are split in two.
+	 * <br>
+	 * A chunk first evaluates every mapping over its rows without holding any view lock, and then
+	 * writes all the values inside a single {@link View#batch} call, so the view lock is taken
+	 * and the view is marked dirty only once per chunk.
+	 */
+	private final class ApplyMappingsTask extends RecursiveAction {
 
-		private final CyNetworkView netView;
-		private final Collection<? extends View<? extends CyIdentifiable>> views;
-		private final VisualProperty<?> rootVisualProperty;
-		private final VisualLexicon lexicon;
-		
-		ApplyMappingsTask(final CyNetworkView netView,
-						  final Collection<? extends View<? extends CyIdentifiable>> views,
-						  final VisualProperty<?> rootVisualProperty,
-						  final VisualLexicon lexicon) {
-			this.netView = netView;
+		private static final long serialVersionUID = 1L;
+		
+		private final CyNetwork net;
+		private final View<?>[] views;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final List<MappedProperty> mappedProperties;
+		
+		ApplyMappingsTask(final CyNetwork net, final View<?>[] views, final int from, final int to,
+				final int chunkSize, final List<MappedProperty> mappedProperties) {
+			this.net = net;
 			this.views = views;
-			this.rootVisualProperty = rootVisualProperty;
-			this.lexicon = lexicon;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.mappedProperties = mappedProperties;
 		}
 		
 		@Override
-		public void run() {
-			final Class<? extends CyIdentifiable> targetDataType = rootVisualProperty.getTargetDataType();
-			final LinkedList<VisualLexiconNode> descendants = new LinkedList<>();
-			descendants.addAll(lexicon.getVisualLexiconNode(rootVisualProperty).getChildren());
+		@SuppressWarnings("unchecked")
+		protected void compute() {
+			if (to - from > chunkSize) {
+				final int mid = (from + to) >>> 1;
+				invokeAll(
+						new ApplyMappingsTask(net, views, from, mid, chunkSize, mappedProperties),
+						new ApplyMappingsTask(net, views, mid, to, chunkSize, mappedProperties)
+				);
+				return;
+			}
+			
+			final int size = to - from;
+			final CyRow[] rows = new CyRow[size];
+			
+			for (int i = 0; i < size; i++)
+				rows[i] = net.getRow((CyIdentifiable) views[from + i].getModel());
 			
-			while (!descendants.isEmpty()) {
-				final VisualLexiconNode node = descendants.pop();
-				final VisualProperty<?> vp = node.getVisualProperty();
+			// One pass over the chunk's rows per mapping
+			final Object[][] values = new Object[mappedProperties.size()][];
+			
+			for (int m = 0; m < values.length; m++) {
+				final VisualMappingFunction<?, ?> mapping = mappedProperties.get(m).mapping;
+				final Object[] mapped = new Object[size];
 				
-				if (vp.getTargetDataType() != targetDataType)
-					continue; // Because NETWORK has node/edge properties as descendants as well
+				if (mapping instanceof ContinuousMappingImpl) {
+					// Continuous mappings map the whole chunk at once
+					((ContinuousMappingImpl<?, ?>) mapping).getMappedValues(rows, mapped);
+				} else {
+					for (int i = 0; i < size; i++)
+						mapped[i] = mapping.getMappedValue(rows[i]);
+				}
 				
-				final VisualMappingFunction<?, ?> mapping = style.getVisualMappingFunction(vp);
-
-				if (mapping != null) {
-					final CyNetwork net = netView.getModel();
-					final Set<VisualPropertyDependency<?>> depSet = dependencyParents.get(vp);
-
-					for (final View<? extends CyIdentifiable> view : views) {
-						final Object value = mapping.getMappedValue(net.getRow(view.getModel()));
+				values[m] = mapped;
+			}
+			
+			views[from].batch(v -> {
+				for (int m = 0; m < values.length; m++) {
+					final MappedProperty mp = mappedProperties.get(m);
+					final Object[] mapped = values[m];
+					
+					for (int i = 0; i < size; i++) {
+						final Object value = mapped[i];
+						
+						if (value == null)
+							continue;
+						
+						final View<? extends CyIdentifiable> view = (View<? extends CyIdentifiable>) views[from + i];
 						
-						if (value != null) {
-							// If this property has already received a propagated value from a previous
-							// enabled dependency, do not apply this mapping's value over it.
-							if (!isParentOfDependency(vp) && !isChildOfEnabledDependency(vp)) {
-								view.setVisualProperty(vp, value);
-							} else if (depSet != null) {
-								for (final VisualPropertyDependency<?> dep : depSet) {
-									// The dependency has a higher priority over children's mappings when enabled.
-									if (dep.isDependencyEnabled())
-										propagateValue(view, vp, value, dep.getVisualProperties(), false);
-								}
+						if (!mp.propagate) {
+							view.setVisualProperty(mp.vp, value);
+						} else if (mp.depSet != null) {
+							for (final VisualPropertyDependency<?> dep : mp.depSet) {
+								// The dependency has a higher priority over children's mappings when enabled.
+								if (dep.isDependencyEnabled())
+									propagateValue(view, mp.vp, value, dep.getVisualProperties(), false);
 							}
 						}
 					}
 				}
-				
-				descendants.addAll(node.getChildren());
-			}
+			}, true);
 		}
 	}
 	
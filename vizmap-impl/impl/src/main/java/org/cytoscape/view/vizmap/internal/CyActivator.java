@@ -77,4 +77,10 @@ public class CyActivator extends AbstractCyActivator {
 		TableVisualMappingManagerImpl tableMappingManager = new TableVisualMappingManagerImpl(visualStyleFactory, serviceRegistrar);
 		registerAllServices(bc, tableMappingManager);
 	}
+
+	@Override
+	public void stop(BundleContext bc) {
+		super.stop(bc);
+		ApplyToNetworkHandler.shutdownPool();
+	}
 }
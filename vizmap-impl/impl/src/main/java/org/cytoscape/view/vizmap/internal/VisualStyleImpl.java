@@ -236,6 +236,24 @@ public class VisualStyleImpl
 		}
 	}
 
+	/**
+	 * Returns the style default of the given property, first setting it to the property's own
+	 * default if the style has none. Doesn't fire a style change, like getStyleDefaults().put().
+	 */
+	@SuppressWarnings("unchecked")
+	<V> V getOrCreateDefaultValue(final VisualProperty<V> vp) {
+		synchronized (lock) {
+			V value = (V) styleDefaults.get(vp);
+			
+			if (value == null) {
+				value = vp.getDefault();
+				styleDefaults.put(vp, value);
+			}
+			
+			return value;
+		}
+	}
+
 	Map<VisualProperty<?>, Object> getStyleDefaults() {
 		return this.styleDefaults;
 	}
@@ -6,7 +6,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.cytoscape.event.CyEvent;
 import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.event.CyPayloadEvent;
 import org.cytoscape.model.CyRow;
 import org.cytoscape.view.model.VisualProperty;
 import org.cytoscape.view.vizmap.events.VisualMappingFunctionChangeRecord;
@@ -15,6 +17,7 @@ import org.cytoscape.view.vizmap.internal.mappings.interpolators.FlatInterpolato
 import org.cytoscape.view.vizmap.internal.mappings.interpolators.Interpolator;
 import org.cytoscape.view.vizmap.internal.mappings.interpolators.LinearNumberToColorInterpolator;
 import org.cytoscape.view.vizmap.internal.mappings.interpolators.LinearNumberToNumberInterpolator;
+import org.cytoscape.view.vizmap.internal.mappings.interpolators.NumberInterpolator;
 import org.cytoscape.view.vizmap.mappings.AbstractVisualMappingFunction;
 import org.cytoscape.view.vizmap.mappings.BoundaryRangeValues;
 import org.cytoscape.view.vizmap.mappings.ContinuousMapping;
@@ -65,6 +68,17 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 	private List<ContinuousMappingPoint<K, V>> points;
 	
 	private final Object lock = new Object();
+	
+	/** The system property with the default lookup table size of new mappings. */
+	public static final String LOOKUP_TABLE_SIZE_PROPERTY = "continuousMappingLookupTableSize";
+	
+	private volatile int lookupTableSize = Integer.getInteger(LOOKUP_TABLE_SIZE_PROPERTY, 0);
+	
+	/** The points as they were last compiled, or null when they have changed since. */
+	private volatile CompiledPoints<K, V> compiled;
+	
+	/** Given to the points, so that a point that changes also throws the compiled points away. */
+	private final CyEventHelper pointEventHelper;
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	public ContinuousMappingImpl(final String attrName, final Class<K> attrType, final VisualProperty<V> vp, final CyEventHelper eventHelper) {
@@ -75,6 +89,7 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 			throw new IllegalArgumentException("Column type should be Number.");
 		
 		this.points = new ArrayList<>();
+		this.pointEventHelper = new PointEventHelper();
 
 		// TODO FIXME use factory here.
 		// Create Interpolator
@@ -94,7 +109,8 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 	@Override
 	public void addPoint(K value, BoundaryRangeValues<V> brv) {
 		synchronized (lock) {
-			points.add(new ContinuousMappingPoint<>(value, brv, this, eventHelper));
+			points.add(new ContinuousMappingPoint<>(value, brv, this, pointEventHelper));
+			compiled = null;
 		}
 		eventHelper.addEventPayload(this, new VisualMappingFunctionChangeRecord(), VisualMappingFunctionChangedEvent.class);
 	}
@@ -103,6 +119,7 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 	public void removePoint(int index) {
 		synchronized (lock) {
 			points.remove(index);
+			compiled = null;
 		}
 		eventHelper.addEventPayload(this, new VisualMappingFunctionChangeRecord(), VisualMappingFunctionChangedEvent.class);
 	}
@@ -139,94 +156,140 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 		return value;
 	}
 
-	private V getRangeValue(K domainValue) {
-		if (points.isEmpty() || domainValue == null ||
-				(domainValue instanceof Number && Double.isNaN(((Number)domainValue).doubleValue())))
-			return null;
+	/**
+	 * Maps the values of the mapping column of all the given rows, as {@link #getMappedValue(CyRow)} does
+	 * for each row, but reads the points only once.
+	 * 
+	 * @param rows the rows, which may be null
+	 * @param values receives the mapped value of each row
+	 */
+	public void getMappedValues(final CyRow[] rows, final Object[] values) {
+		final double[] domainValues = new double[rows.length];
 		
-		ContinuousMappingPoint<K, V> firstPoint = points.get(0);
-		K minDomain = firstPoint.getValue();
-
-		// if given domain value is smaller than any in our list,
-		// return the range value for the smallest domain value we have.
-		int firstCmp = compareValues(domainValue, minDomain);
-
-		if (firstCmp <= 0) {
-			BoundaryRangeValues<V> bv = firstPoint.getRange();
-
-			if (firstCmp < 0)
-				return bv.lesserValue;
-			else
-				return bv.equalValue;
+		for (int i = 0; i < rows.length; i++) {
+			final CyRow row = rows[i];
+			final K attrValue = row != null && row.isSet(columnName) ? row.get(columnName, columnType) : null;
+			domainValues[i] = attrValue != null ? ((Number) attrValue).doubleValue() : Double.NaN;
 		}
+		
+		map(domainValues, values);
+	}
 
-		// if given domain value is larger than any in our Vector,
-		// return the range value for the largest domain value we have.
-		ContinuousMappingPoint<K, V> lastPoint = points.get(points.size() - 1);
-		K maxDomain = lastPoint.getValue();
-
-		if (compareValues(domainValue, maxDomain) > 0) {
-			BoundaryRangeValues<V> bv = lastPoint.getRange();
+	/**
+	 * Maps many domain values at once. NaN values are mapped to null, like missing values.
+	 * 
+	 * @param in the domain values
+	 * @param out receives the range value of each domain value
+	 */
+	public void map(final double[] in, final Object[] out) {
+		if (out.length < in.length)
+			throw new IllegalArgumentException("The output array is smaller than the input array.");
+		
+		// The range values of a point can be changed in place, without an event, so the points are
+		// checked once for the whole batch
+		final CompiledPoints<K, V> compiledPoints = getCompiledPoints(true);
+		
+		for (int i = 0; i < in.length; i++)
+			out[i] = compiledPoints.map(in[i]);
+	}
 
-			return bv.greaterValue;
+	/**
+	 * Sets the number of precomputed values of each interval between two points. Values between two
+	 * points are then rounded to the nearest precomputed value instead of being interpolated exactly,
+	 * which is faster and creates no new objects. 0, the default, turns the lookup tables off.
+	 * The default can be changed with the {@value #LOOKUP_TABLE_SIZE_PROPERTY} system property.
+	 */
+	public void setLookupTableSize(final int lookupTableSize) {
+		if (lookupTableSize < 0 || lookupTableSize == 1)
+			throw new IllegalArgumentException("The lookup table size must be 0 or at least 2.");
+		
+		synchronized (lock) {
+			this.lookupTableSize = lookupTableSize;
+			compiled = null;
 		}
+	}
 
-		// OK, it's somewhere in the middle, so find the boundaries and
-		// pass to our interpolator function. First check for a null
-		// interpolator function
-		if (this.interpolator == null)
-			return null;
-
-		// Note that the list of Points is sorted.
-		// Also, the case of the inValue equalling the smallest key was
-		// checked above.
-		ContinuousMappingPoint<K, V> currentPoint;
-		int index = 0;
-
-		for (index = 0; index < points.size(); index++) {
-			currentPoint = points.get(index);
-
-			K currentValue = currentPoint.getValue();
-			int cmpValue = compareValues(domainValue, currentValue);
+	public int getLookupTableSize() {
+		return lookupTableSize;
+	}
 
-			if (cmpValue == 0) {
-				BoundaryRangeValues<V> bv = currentPoint.getRange();
+	private V getRangeValue(K domainValue) {
+		if (domainValue == null)
+			return null;
+		
+		return getCompiledPoints(false).map(((Number) domainValue).doubleValue());
+	}
 
-				return bv.equalValue;
-			} else if (cmpValue < 0)
-				break;
+	/**
+	 * The compiled points are thrown away when a point is added, removed or changed, so they are
+	 * only compared with the points when asked to.
+	 * 
+	 * @param check if true, also compile the points again when they differ from the compiled ones
+	 * @return the compiled form of the current points
+	 */
+	private CompiledPoints<K, V> getCompiledPoints(final boolean check) {
+		CompiledPoints<K, V> compiledPoints = compiled;
+		
+		if (compiledPoints == null || (check && !compiledPoints.isCompiledFrom(points, lookupTableSize))) {
+			synchronized (lock) {
+				compiledPoints = new CompiledPoints<>(points, interpolator, vp.getRange().getType(), lookupTableSize);
+				compiled = compiledPoints;
+			}
 		}
-
-		return getRangeValue(index, domainValue);
+		
+		return compiledPoints;
 	}
 
 	/**
-	 * This is tricky. The desired domain value is greater than lowerDomain and
-	 * less than upperDomain. Therefore, we want the "greater" field of the
-	 * lower boundary value (because the desired domain value is greater) and
-	 * the "lesser" field of the upper boundary value (semantic difficulties).
+	 * Passes everything on to the event helper of the mapping. A point fires a change event with its
+	 * mapping as the source when its value or range is set, which is when the compiled points are
+	 * thrown away.
 	 */
-	@SuppressWarnings("unchecked")
-	private V getRangeValue(int index, K domainValue) {
-		// Get Lower Domain and Range
-		ContinuousMappingPoint<K, V> lowerBound = points.get(index - 1);
-		K lowerDomain = lowerBound.getValue();
-		BoundaryRangeValues<V> lv = lowerBound.getRange();
-		V lowerRange = lv.greaterValue;
-
-		// Get Upper Domain and Range
-		ContinuousMappingPoint<K, V> upperBound = points.get(index);
-		K upperDomain = upperBound.getValue();
-		BoundaryRangeValues<V> gv = upperBound.getRange();
-		V upperRange = gv.lesserValue;
+	private final class PointEventHelper implements CyEventHelper {
 		
-		Object value = interpolator.getRangeValue(lowerDomain, lowerRange, upperDomain, upperRange, domainValue);
+		@Override
+		public <E extends CyEvent<?>> void fireEvent(final E event) {
+			eventHelper.fireEvent(event);
+		}
 		
-		if (value instanceof Number) {
-			// Number-To-Number Interpolators always return Numbers (or Doubles!),
-			// so let's see if it's necessary to convert it to the correct VisualProperty type
-			final Class<V> type = vp.getRange().getType();
+		@Override
+		public <S, P, E extends CyPayloadEvent<S, P>> void addEventPayload(S source, P payload, Class<E> eventType) {
+			if (source == ContinuousMappingImpl.this) {
+				synchronized (lock) {
+					compiled = null;
+				}
+			}
 			
+			eventHelper.addEventPayload(source, payload, eventType);
+		}
+		
+		@Override
+		public void flushPayloadEvents() {
+			eventHelper.flushPayloadEvents();
+		}
+		
+		@Override
+		public void flushPayloadEvents(Object eventSource) {
+			eventHelper.flushPayloadEvents(eventSource);
+		}
+		
+		@Override
+		public void silenceEventSource(Object eventSource) {
+			eventHelper.silenceEventSource(eventSource);
+		}
+		
+		@Override
+		public void unsilenceEventSource(Object eventSource) {
+			eventHelper.unsilenceEventSource(eventSource);
+		}
+	}
+
+	/**
+	 * Number-To-Number Interpolators always return Numbers (or Doubles!),
+	 * so let's see if it's necessary to convert it to the correct VisualProperty type
+	 */
+	private static Object convert(Object value, final Class<?> type) {
+		if (value instanceof Number) {
 			if (type == Long.class) {
 				if (value instanceof Long == false)
 					value = Math.round(((Number)value).doubleValue());
@@ -248,19 +311,13 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 			}
 		}
 		
-		return (V) value;
+		return value;
 	}
 
 	/**
-	 * Helper function to compare Number objects. This is needed because Java
-	 * doesn't allow comparing, for example, Integer objects to Double objects.
+	 * Helper function to compare domain values. Unlike Double.compare, it finds NaN equal to any value.
 	 */
-	private int compareValues(K probe, K target) {
-		final Number n1 = (Number) probe;
-		final Number n2 = (Number) target;
-		double d1 = n1 != null ? n1.doubleValue() : Double.NEGATIVE_INFINITY;
-		double d2 = n2 != null ? n2.doubleValue() : Double.NEGATIVE_INFINITY;
-
+	private static int compareValues(double d1, double d2) {
 		if (d1 < d2)
 			return -1;
 		else if (d1 > d2)
@@ -268,6 +325,194 @@ public class ContinuousMappingImpl<K, V> extends AbstractVisualMappingFunction<K
 		else
 			return 0;
 	}
+
+	/**
+	 * The points of a mapping in primitive arrays, with the range values they had when they were
+	 * compiled. The domain values are searched with a binary search when they are sorted, which
+	 * they usually are, and with a linear search otherwise, which gives the same results as before.
+	 * <br>
+	 * It is immutable, so it can be used by several threads at the same time.
+	 */
+	private static final class CompiledPoints<K, V> {
+		
+		private final int size;
+		private final Object[] keys;
+		private final double[] domain;
+		private final Object[] lesser;
+		private final Object[] equal;
+		private final Object[] greater;
+		private final boolean sorted;
+		
+		private final Interpolator<K, V> interpolator;
+		private final NumberInterpolator<V> numberInterpolator;
+		private final Class<?> type;
+		
+		/** The precomputed values of the interval below each point, or null. */
+		private final int lookupTableSize;
+		private final Object[][] lookupTables;
+		
+		@SuppressWarnings("unchecked")
+		CompiledPoints(final List<ContinuousMappingPoint<K, V>> points, final Interpolator<K, V> interpolator,
+				final Class<?> type, final int lookupTableSize) {
+			size = points.size();
+			keys = new Object[size];
+			domain = new double[size];
+			lesser = new Object[size];
+			equal = new Object[size];
+			greater = new Object[size];
+			
+			boolean sorted = true;
+			
+			for (int i = 0; i < size; i++) {
+				final ContinuousMappingPoint<K, V> point = points.get(i);
+				final BoundaryRangeValues<V> range = point.getRange();
+				keys[i] = point.getValue();
+				domain[i] = keys[i] != null ? ((Number) keys[i]).doubleValue() : Double.NEGATIVE_INFINITY;
+				lesser[i] = range.lesserValue;
+				equal[i] = range.equalValue;
+				greater[i] = range.greaterValue;
+				
+				// NaN is equal to any value, so only a linear search finds the same points with it
+				if (i > 0 && !(domain[i - 1] <= domain[i]))
+					sorted = false;
+			}
+			
+			this.sorted = sorted;
+			this.interpolator = interpolator;
+			this.numberInterpolator = interpolator instanceof NumberInterpolator ? (NumberInterpolator<V>) interpolator : null;
+			this.type = type;
+			this.lookupTableSize = lookupTableSize;
+			this.lookupTables = lookupTableSize > 0 && numberInterpolator != null ? new Object[size][] : null;
+			
+			if (lookupTables != null) {
+				for (int index = 1; index < size; index++) {
+					final double lowerDomain = domain[index - 1];
+					final double upperDomain = domain[index];
+					
+					if (!canInterpolate(index) || !(lowerDomain < upperDomain)
+							|| Double.isInfinite(lowerDomain) || Double.isInfinite(upperDomain))
+						continue;
+					
+					final Object[] table = new Object[lookupTableSize];
+					
+					for (int k = 0; k < lookupTableSize; k++) {
+						final double domainValue = lowerDomain + (upperDomain - lowerDomain) * k / (lookupTableSize - 1);
+						table[k] = interpolate(index, domainValue);
+					}
+					
+					lookupTables[index] = table;
+				}
+			}
+		}
+		
+		/**
+		 * @return true if the points, and their range values, are the ones this was compiled from
+		 */
+		boolean isCompiledFrom(final List<ContinuousMappingPoint<K, V>> points, final int lookupTableSize) {
+			if (points.size() != size || lookupTableSize != this.lookupTableSize)
+				return false;
+			
+			for (int i = 0; i < size; i++) {
+				final ContinuousMappingPoint<K, V> point = points.get(i);
+				final BoundaryRangeValues<V> range = point.getRange();
+				
+				if (point.getValue() != keys[i] || range.lesserValue != lesser[i] || range.equalValue != equal[i]
+						|| range.greaterValue != greater[i])
+					return false;
+			}
+			
+			return true;
+		}
+		
+		@SuppressWarnings("unchecked")
+		V map(final double domainValue) {
+			if (size == 0 || Double.isNaN(domainValue))
+				return null;
+			
+			// if given domain value is smaller than any in our list,
+			// return the range value for the smallest domain value we have.
+			final int firstCmp = compareValues(domainValue, domain[0]);
+			
+			if (firstCmp <= 0)
+				return (V) (firstCmp < 0 ? lesser[0] : equal[0]);
+			
+			// if given domain value is larger than any in our list,
+			// return the range value for the largest domain value we have.
+			if (compareValues(domainValue, domain[size - 1]) > 0)
+				return (V) greater[size - 1];
+			
+			if (interpolator == null)
+				return null;
+			
+			// The first point that is not smaller than the domain value. There is one, the last point,
+			// and it is not the first point, as both were checked above.
+			int index;
+			
+			if (sorted) {
+				int low = 1;
+				int high = size - 1;
+				
+				while (low < high) {
+					final int mid = (low + high) >>> 1;
+					
+					if (domain[mid] < domainValue)
+						low = mid + 1;
+					else
+						high = mid;
+				}
+				
+				index = low;
+			} else {
+				index = 1;
+				
+				while (compareValues(domainValue, domain[index]) > 0)
+					index++;
+			}
+			
+			if (compareValues(domainValue, domain[index]) == 0)
+				return (V) equal[index];
+			
+			if (lookupTables != null && lookupTables[index] != null) {
+				final double lowerDomain = domain[index - 1];
+				final double frac = (domainValue - lowerDomain) / (domain[index] - lowerDomain);
+				
+				return (V) lookupTables[index][(int) (frac * (lookupTableSize - 1) + 0.5)];
+			}
+			
+			return (V) interpolate(index, domainValue);
+		}
+		
+		private boolean canInterpolate(final int index) {
+			return keys[index - 1] != null && keys[index] != null && greater[index - 1] != null && lesser[index] != null;
+		}
+		
+		/**
+		 * This is tricky. The desired domain value is greater than lowerDomain and
+		 * less than upperDomain. Therefore, we want the "greater" field of the
+		 * lower boundary value (because the desired domain value is greater) and
+		 * the "lesser" field of the upper boundary value (semantic difficulties).
+		 */
+		@SuppressWarnings("unchecked")
+		private Object interpolate(final int index, final double domainValue) {
+			final V lowerRange = (V) greater[index - 1];
+			final V upperRange = (V) lesser[index];
+			final Object value;
+			
+			if (numberInterpolator != null) {
+				// Same as NumberInterpolator, without boxing the domain values
+				if (!canInterpolate(index))
+					return null;
+				
+				value = numberInterpolator.getRangeValue(domain[index - 1], lowerRange, domain[index], upperRange,
+						domainValue);
+			} else {
+				value = interpolator.getRangeValue((K) keys[index - 1], lowerRange, (K) keys[index], upperRange,
+						(K) Double.valueOf(domainValue));
+			}
+			
+			return convert(value, type);
+		}
+	}
 	
 	@Override
 	public String toString() {
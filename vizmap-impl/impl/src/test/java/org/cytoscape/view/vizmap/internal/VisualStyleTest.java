@@ -39,6 +39,7 @@ import org.cytoscape.view.vizmap.VisualMappingFunctionFactory;
 import org.cytoscape.view.vizmap.VisualPropertyDependency;
 import org.cytoscape.view.vizmap.events.VisualStyleChangeRecord;
 import org.cytoscape.view.vizmap.events.VisualStyleChangedEvent;
+import org.cytoscape.view.vizmap.internal.mappings.DiscreteMappingImpl;
 import org.cytoscape.view.vizmap.mappings.DiscreteMapping;
 import org.cytoscape.view.vizmap.mappings.PassthroughMapping;
 import org.junit.Before;
@@ -314,6 +315,33 @@ public class VisualStyleTest extends AbstractVisualStyleTest {
 		return System.currentTimeMillis() - start2;
 	}
 	
+	@Test
+	public void testApplyMappingsToAllChunks() {
+		NetworkViewTestSupport nvts = new NetworkViewTestSupport();
+		final CyNetwork largeNetwork = nvts.getNetworkFactory().createNetwork();
+		largeNetwork.getDefaultNodeTable().createColumn(attrName, String.class, true);
+		
+		// Enough nodes to be split into several chunks
+		final int size = ApplyToNetworkHandler.MIN_CHUNK_SIZE * 5 + 3;
+		for (int i = 0; i < size; i++)
+			largeNetwork.getRow(largeNetwork.addNode()).set(attrName, i % 2 == 0 ? "red" : "green");
+		
+		final CyNetworkView largeNetworkView = nvts.getNetworkViewFactory().createNetworkView(largeNetwork);
+		
+		final DiscreteMapping<String, Paint> mapping =
+				new DiscreteMappingImpl<>(attrName, String.class, NODE_FILL_COLOR, eventHelper);
+		mapping.putMapValue("red", Color.RED);
+		mapping.putMapValue("green", Color.GREEN);
+		style.addVisualMappingFunction(mapping);
+		
+		style.apply(largeNetworkView);
+		
+		for (View<CyNode> nv : largeNetworkView.getNodeViews()) {
+			final String value = largeNetwork.getRow(nv.getModel()).get(attrName, String.class);
+			assertEquals(mapping.getMapValue(value), nv.getVisualProperty(NODE_FILL_COLOR));
+		}
+	}
+	
 	@Test
 	public void testNodeBypass() {
 		final View<CyNode> nodeView1 = networkView.getNodeView(node1);
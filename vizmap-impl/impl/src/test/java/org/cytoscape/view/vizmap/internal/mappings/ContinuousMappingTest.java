@@ -1,16 +1,22 @@
 package org.cytoscape.view.vizmap.internal.mappings;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.awt.Color;
+import java.awt.Paint;
 import java.util.List;
 
 import org.cytoscape.event.CyEventHelper;
+import org.cytoscape.model.CyRow;
 import org.cytoscape.view.presentation.property.BasicVisualLexicon;
 import org.cytoscape.view.vizmap.events.VisualMappingFunctionChangeRecord;
 import org.cytoscape.view.vizmap.events.VisualMappingFunctionChangedEvent;
@@ -150,6 +156,137 @@ public class ContinuousMappingTest {
 		mapping.removePoint(2);
 	}
 	
+	@Test
+	public void testGetMappedValue() {
+		assertEquals(20.0, mapping.getMappedValue(createRow(0.0)));
+		assertEquals(20.0, mapping.getMappedValue(createRow(value1)));
+		assertEquals(60.0, (Double) mapping.getMappedValue(createRow(0.545)), 1e-9);
+		assertEquals(100.0, mapping.getMappedValue(createRow(value2)));
+		assertEquals(100.0, mapping.getMappedValue(createRow(2.0)));
+		assertNull(mapping.getMappedValue(createRow(null)));
+		assertNull(mapping.getMappedValue(createRow(Double.NaN)));
+	}
+	
+	@Test
+	public void testGetMappedValues() {
+		final CyRow[] rows = { createRow(0.0), createRow(0.545), null, createRow(null), createRow(2.0) };
+		final Object[] values = new Object[rows.length];
+		((ContinuousMappingImpl<Double, Double>) mapping).getMappedValues(rows, values);
+		
+		for (int i = 0; i < rows.length; i++)
+			assertEquals(mapping.getMappedValue(rows[i]), values[i]);
+	}
+	
+	@Test
+	public void testMap() {
+		final double[] in = { 0.0, value1, 0.545, value2, 2.0, Double.NaN };
+		final Object[] out = new Object[in.length];
+		((ContinuousMappingImpl<Double, Double>) mapping).map(in, out);
+		
+		assertEquals(20.0, out[0]);
+		assertEquals(20.0, out[1]);
+		assertEquals(60.0, (Double) out[2], 1e-9);
+		assertEquals(100.0, out[3]);
+		assertEquals(100.0, out[4]);
+		assertNull(out[5]);
+	}
+	
+	@Test
+	public void testMapManyPoints() {
+		for (int i = 2; i < 20; i++)
+			mapping.addPoint(i * 1.0, new BoundaryRangeValues<>(i * 10.0, i * 10.0 + 1, i * 10.0 + 2));
+		
+		final double frac = (1.5 - value2) / (2.0 - value2);
+		assertEquals(frac * 20.0 + (1.0 - frac) * 100.0, (Double) mapping.getMappedValue(createRow(1.5)), 1e-9);
+		assertEquals(41.0, mapping.getMappedValue(createRow(4.0)));
+		assertEquals(56.0, (Double) mapping.getMappedValue(createRow(5.5)), 1e-9);
+		assertEquals(192.0, mapping.getMappedValue(createRow(100.0)));
+	}
+	
+	@Test
+	public void testMapUnsortedPoints() {
+		// The last point is smaller than the value, so its greater value is used
+		mapping.addPoint(value1, brv1);
+		
+		assertEquals(20.0, mapping.getMappedValue(createRow(0.5)));
+		assertEquals(20.0, mapping.getMappedValue(createRow(value1)));
+	}
+	
+	@Test
+	public void testMapChangedPoint() {
+		assertEquals(60.0, (Double) mapping.getMappedValue(createRow(0.545)), 1e-9);
+		
+		mapping.getPoint(1).setRange(new BoundaryRangeValues<>(50.0, 50.0, 50.0));
+		assertEquals(35.0, (Double) mapping.getMappedValue(createRow(0.545)), 1e-9);
+		
+		mapping.getPoint(1).setValue(0.545);
+		assertEquals(50.0, mapping.getMappedValue(createRow(0.545)));
+	}
+	
+	@Test
+	public void testMapRangeChangedInPlace() {
+		final double[] in = { 0.545 };
+		final Object[] out = new Object[in.length];
+		((ContinuousMappingImpl<Double, Double>) mapping).map(in, out);
+		assertEquals(60.0, (Double) out[0], 1e-9);
+		
+		// No event is fired, the points are only compared with the compiled ones for many values
+		mapping.getPoint(1).getRange().lesserValue = 50.0;
+		((ContinuousMappingImpl<Double, Double>) mapping).map(in, out);
+		assertEquals(35.0, (Double) out[0], 1e-9);
+		assertEquals(35.0, (Double) mapping.getMappedValue(createRow(0.545)), 1e-9);
+	}
+	
+	@Test
+	public void testMapAfterRemovePoint() {
+		assertEquals(60.0, (Double) mapping.getMappedValue(createRow(0.545)), 1e-9);
+		
+		mapping.removePoint(1);
+		assertEquals(20.0, mapping.getMappedValue(createRow(0.545)));
+	}
+	
+	@Test
+	public void testLookupTable() {
+		final ContinuousMappingImpl<Double, Paint> colorMapping = new ContinuousMappingImpl<>(ATTR_NAME, Double.class,
+				BasicVisualLexicon.NODE_FILL_COLOR, eventHelper);
+		colorMapping.addPoint(0.0, new BoundaryRangeValues<>(Color.BLACK, Color.BLACK, Color.BLACK));
+		colorMapping.addPoint(1.0, new BoundaryRangeValues<>(Color.WHITE, Color.WHITE, Color.WHITE));
+		colorMapping.addPoint(2.0, new BoundaryRangeValues<>(Color.RED, Color.RED, Color.RED));
+		
+		final double[] in = new double[1000];
+		
+		for (int i = 0; i < in.length; i++)
+			in[i] = -0.5 + 3.0 * i / in.length;
+		
+		final Object[] exact = new Object[in.length];
+		final Object[] quantized = new Object[in.length];
+		colorMapping.map(in, exact);
+		colorMapping.setLookupTableSize(256);
+		colorMapping.map(in, quantized);
+		
+		for (int i = 0; i < in.length; i++) {
+			final Color c1 = (Color) exact[i];
+			final Color c2 = (Color) quantized[i];
+			assertTrue(Math.abs(c1.getRed() - c2.getRed()) <= 1);
+			assertTrue(Math.abs(c1.getGreen() - c2.getGreen()) <= 1);
+			assertTrue(Math.abs(c1.getBlue() - c2.getBlue()) <= 1);
+			assertEquals(c1.getAlpha(), c2.getAlpha());
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidLookupTableSize() {
+		((ContinuousMappingImpl<Double, Double>) mapping).setLookupTableSize(1);
+	}
+	
+	private CyRow createRow(final Double value) {
+		final CyRow row = mock(CyRow.class);
+		when(row.isSet(ATTR_NAME)).thenReturn(value != null);
+		when(row.get(ATTR_NAME, Double.class)).thenReturn(value);
+		
+		return row;
+	}
+	
 	private ContinuousMapping<Double, Double> createNodeSizeMapping(final String attrName) {
 		ContinuousMapping<Double, Double> mapping = new ContinuousMappingImpl<>(attrName, Double.class,
 				BasicVisualLexicon.NODE_SIZE, eventHelper);